@@ -1,31 +1,139 @@
 package com.safetynet.alert;
 
+import com.safetynet.alert.database.DataSourceResolver;
 import com.safetynet.alert.database.LoadDataStrategyFactory;
+import com.safetynet.alert.database.LoadProgress;
+import com.safetynet.alert.database.SourceFileWatcher;
 import com.safetynet.alert.database.StrategyName;
+import com.safetynet.alert.service.DataChangeEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.Optional;
+import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.stereotype.Component;
 
 /**
  * Class allows us to run something implementing in its method run before launching application.
+ * When loader.async is true, the load of data is run in background: the application starts
+ * without waiting for it and refuses traffic until data are loaded (see {@link LoadProgress}).
+ * When loader.watch.enabled is true, the file json is then watched to import its changes
+ * (see {@link SourceFileWatcher}).
  *
  * @author delaval
  *
  */
 @Component
 @Profile("!test")
+@Log4j2
 public class CommandLineRunnerTaskExcecutor implements CommandLineRunner {
 
   @Autowired
   private LoadDataStrategyFactory loadDataStrategyFactory;
 
+  @Autowired
+  private LoadProgress loadProgress;
+
+  @Autowired
+  private SourceFileWatcher sourceFileWatcher;
+
+  @Autowired
+  private DataSourceResolver dataSourceResolver;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Value("${loader.strategy:StrategyProd}")
+  private StrategyName strategyName;
+
+  @Value("${loader.async:false}")
+  private boolean async;
+
+  @Value("${loader.watch.enabled:false}")
+  private boolean watchEnabled;
+
+  @Value("${loader.source.location:classpath:${filejson.app}}")
+  private String filePath;
 
   @Override
   public void run(String... args) throws Exception {
 
-    loadDataStrategyFactory.findStrategy(StrategyName.StrategyProd)
-        .loadDatabaseFromSource();
+    loadProgress.begin();
+
+    if (async) {
+
+      new SimpleAsyncTaskExecutor("bootstrap-loader-").execute(this::load);
+
+    } else {
+
+      load();
+    }
+
+  }
+
+  private void load() {
+
+    boolean ready = false;
+
+    try {
+
+      boolean loaded = loadDataStrategyFactory.findStrategy(strategyName)
+          .loadDatabaseFromSource();
+
+      if (loaded) {
+
+        // read model could have been built before the end of load: it's built again
+        // with all data before the load is complete, so traffic is never served from it
+        eventPublisher.publishEvent(DataChangeEvent.all());
+      }
+
+      ready = loaded;
+
+    } catch (RuntimeException e) {
+
+      log.error("Load of data with {} failed", strategyName, e);
+
+      if (!async) {
+
+        // without background load, a failure of load still stops the boot of application
+        throw e;
+      }
+
+    } finally {
+
+      loadProgress.complete(ready);
+    }
+
+    if (ready && watchEnabled) {
+
+      watchSource();
+    }
+
+  }
+
+  private void watchSource() {
+
+    Optional<File> source = dataSourceResolver.findFile(filePath);
+
+    if (!source.isPresent()) {
+
+      log.warn("File {} can't be watched: it's not on filesystem", filePath);
+      return;
+    }
+
+    try {
+
+      sourceFileWatcher.start(source.get());
+
+    } catch (IOException e) {
+
+      log.error("File {} can't be watched to import its changes", filePath, e);
+    }
 
   }
 
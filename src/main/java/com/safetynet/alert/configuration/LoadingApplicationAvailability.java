@@ -0,0 +1,53 @@
+package com.safetynet.alert.configuration;
+
+import com.safetynet.alert.database.LoadProgress;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailabilityBean;
+import org.springframework.boot.availability.AvailabilityState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.stereotype.Component;
+
+/**
+ * Availability of application taking into account the load of data when booting:
+ * while data are loading in background (or if their load failed),
+ * the readiness state is REFUSING_TRAFFIC even if the application is started,
+ * so the readiness probe (/actuator/health/readiness) keeps the traffic away.
+ * The liveness state is not changed by the load.
+ *
+ * @author delaval
+ *
+ */
+@Component
+public class LoadingApplicationAvailability extends ApplicationAvailabilityBean {
+
+  @Autowired
+  private LoadProgress loadProgress;
+
+  @Override
+  public <S extends AvailabilityState> S getState(Class<S> stateType, S defaultState) {
+
+    S state = super.getState(stateType, defaultState);
+    return refuseTrafficWhileLoading(stateType, state);
+
+  }
+
+  @Override
+  public <S extends AvailabilityState> S getState(Class<S> stateType) {
+
+    S state = super.getState(stateType);
+    return refuseTrafficWhileLoading(stateType, state);
+
+  }
+
+  private <S extends AvailabilityState> S refuseTrafficWhileLoading(Class<S> stateType, S state) {
+
+    if ((stateType == ReadinessState.class) && loadProgress.isDataUnavailable()) {
+
+      return stateType.cast(ReadinessState.REFUSING_TRAFFIC);
+    }
+
+    return state;
+
+  }
+
+}
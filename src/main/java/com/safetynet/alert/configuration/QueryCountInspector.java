@@ -0,0 +1,50 @@
+package com.safetynet.alert.configuration;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Inspector of statements registered in hibernate to count the statements sent to database.
+ * A statement is counted when it's prepared: inserts or updates sent by a same JDBC batch
+ * are counted only once, so this count is the number of round trips with database.
+ *
+ * @author delaval
+ *
+ */
+@Component
+public class QueryCountInspector implements StatementInspector, HibernatePropertiesCustomizer {
+
+  private static final long serialVersionUID = 1L;
+
+  private final AtomicLong count = new AtomicLong();
+
+  @Override
+  public String inspect(String sql) {
+
+    count.incrementAndGet();
+    return sql;
+
+  }
+
+  @Override
+  public void customize(Map<String, Object> hibernateProperties) {
+
+    hibernateProperties.put("hibernate.session_factory.statement_inspector", this);
+
+  }
+
+  /**
+   * Retrieve the number of statements prepared since the start of application.
+   *
+   * @return  number of statements.
+   */
+  public long getCount() {
+
+    return count.get();
+
+  }
+
+}
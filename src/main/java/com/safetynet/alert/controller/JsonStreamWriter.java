@@ -0,0 +1,151 @@
+package com.safetynet.alert.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writer of large lists in the body of responses, element after element, with the
+ * {@link ObjectMapper} of application: elements are given by a service one after another
+ * and written at once in the output of response, so that the list is never kept in memory.
+ * The list is written as a json array (application/json) or as a element by line
+ * (application/x-ndjson), or as the fields of a json object when elements have a name.
+ *
+ * @author delaval
+ *
+ */
+@Component
+public class JsonStreamWriter {
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  /**
+   * Write all elements given by the service in the body of response.
+   *
+   * @param <T>         type of elements.
+   * @param response    the response, with a status 200.
+   * @param mediaType   application/json or application/x-ndjson.
+   * @param elements    the method of service giving each element to a action,
+   *                    and returning the number of elements.
+   *
+   * @return  the number of elements written.
+   *
+   * @throws IOException  when the response can't be written.
+   */
+  public <T> long write(HttpServletResponse response,
+                        MediaType mediaType,
+                        ToLongFunction<Consumer<T>> elements) throws IOException {
+
+    boolean ndjson = MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType);
+    response.setStatus(HttpServletResponse.SC_OK);
+    // no charset: bytes are written in UTF-8 by the generator, the encoding of json
+    response.setContentType(ndjson
+        ? MediaType.APPLICATION_NDJSON_VALUE
+        : MediaType.APPLICATION_JSON_VALUE);
+
+    // the output is flushed by the buffer of generator, not after each element
+    ObjectWriter writer = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    try (JsonGenerator generator = objectMapper.getFactory()
+        .createGenerator(response.getOutputStream())) {
+
+      if (ndjson) {
+
+        generator.setRootValueSeparator(null);
+
+      } else {
+
+        generator.writeStartArray();
+      }
+
+      long count = elements.applyAsLong(element -> {
+
+        try {
+
+          writer.writeValue(generator, element);
+
+          if (ndjson) {
+
+            generator.writeRaw('\n');
+          }
+        } catch (IOException e) {
+
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      if (!ndjson) {
+
+        generator.writeEndArray();
+      }
+
+      return count;
+
+    } catch (UncheckedIOException e) {
+
+      throw e.getCause();
+    }
+
+  }
+
+  /**
+   * Write all fields given by the service in a json object, in the body of response.
+   *
+   * @param <T>       type of values of fields.
+   * @param response  the response, with a status 200.
+   * @param fields    the method of service giving the name and the value of each field
+   *                  to a action, and returning the number of fields.
+   *
+   * @return  the number of fields written.
+   *
+   * @throws IOException  when the response can't be written.
+   */
+  public <T> long writeFields(HttpServletResponse response,
+                              ToLongFunction<BiConsumer<String, T>> fields) throws IOException {
+
+    response.setStatus(HttpServletResponse.SC_OK);
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+
+    ObjectWriter writer = objectMapper.writer()
+        .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    try (JsonGenerator generator = objectMapper.getFactory()
+        .createGenerator(response.getOutputStream())) {
+
+      generator.writeStartObject();
+
+      long count = fields.applyAsLong((name, value) -> {
+
+        try {
+
+          generator.writeFieldName(name);
+          writer.writeValue(generator, value);
+        } catch (IOException e) {
+
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      generator.writeEndObject();
+      return count;
+
+    } catch (UncheckedIOException e) {
+
+      throw e.getCause();
+    }
+
+  }
+
+}
@@ -2,9 +2,11 @@ package com.safetynet.alert.controller.admin;
 
 import com.safetynet.alert.model.Allergy;
 import com.safetynet.alert.service.AllergyService;
-import java.util.List;
+import com.safetynet.alert.service.Keyset;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import springfox.documentation.annotations.ApiIgnore;
 /**
@@ -21,14 +23,27 @@ public class AllergyRestController {
   AllergyService allergyService;
 
   /**
-   * Return all existed allergies.
+   * Return all existed allergies, or only a page of them sorted by id
+   * when one of parameters limit, cursor or sort is given (see {@link Keyset}).
    *
-   * @return Iterable  a collection of all existed allergies
+   * @param limit   maximum number of allergies of page.
+   * @param cursor  cursor of next page given by the previous one.
+   * @param sort    order of ids of first page: asc or desc.
+   *
+   * @return Iterable  a collection of all existed allergies, or the page of allergies.
    */
   @GetMapping("/allergies")
-  public List<Allergy> getAlllergies() {
+  public ResponseEntity<?> getAlllergies(
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "sort", required = false) String sort) {
+
+    if (limit == null && cursor == null && sort == null) {
+
+      return ResponseEntity.ok(allergyService.getAllergies());
+    }
 
-    return allergyService.getAllergies();
+    return ResponseEntity.ok(allergyService.getAllergiesPage(Keyset.of(cursor, limit, sort)));
 
   }
 }
@@ -1,25 +1,43 @@
 package com.safetynet.alert.controller.admin;
 
+import com.safetynet.alert.controller.JsonStreamWriter;
+import com.safetynet.alert.exceptions.InvalidBatchException;
 import com.safetynet.alert.exceptions.address.AddressNotFoundException;
 import com.safetynet.alert.exceptions.firestation.FireStationAlreadyExistedException;
 import com.safetynet.alert.exceptions.firestation.FireStationNotFoundException;
 import com.safetynet.alert.exceptions.firestation.FireStationWithIdException;
 import com.safetynet.alert.model.FireStation;
-import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.BatchItemResult;
+import com.safetynet.alert.service.BatchService;
+import com.safetynet.alert.service.DataChangeEvent;
+import com.safetynet.alert.service.DataVersion;
 import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.Keyset;
+import com.safetynet.alert.service.KeysetPage;
 import com.safetynet.alert.service.PersonService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -27,7 +45,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
@@ -48,28 +68,119 @@ public class FireStationRestController {
   @Autowired
   private PersonService personService;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private DataVersion dataVersion;
+
+  @Autowired
+  private JsonStreamWriter jsonStreamWriter;
+
+  @Autowired
+  private BatchService batchService;
+
   /**
-   * Return all existed FireStation.
+   * Return all existed FireStation, in a json array written element after element
+   * (see {@link JsonStreamWriter}), or only a page of them sorted by id
+   * when one of parameters limit, cursor or sort is given (see {@link Keyset}).
    *
-   * @return    a collection of all FireStations
+   * @param limit   maximum number of fireStations of page.
+   * @param cursor  cursor of next page given by the previous one.
+   * @param sort    order of ids of first page: asc or desc.
+   *
+   * @return  a ResponseEntity with the page of fireStations, null if all are written.
+   *
+   * @throws IOException  when the response can't be written.
    */
 
   @GetMapping(value = "/firestation", produces = "application/json")
   @ApiOperation(value = "Get all Firestations",
-                notes = "Retrieve all fireStations",
+                notes = "Retrieve all fireStations, or a page of them with limit, cursor or sort",
                 response = FireStation.class)
-  public List<FireStation> getFireStations(HttpServletRequest request) {
+  public ResponseEntity<KeysetPage<FireStation>> getFireStations(
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "sort", required = false) String sort,
+      HttpServletRequest request,
+      WebRequest webRequest,
+      HttpServletResponse response) throws IOException {
+
+    if (limit == null && cursor == null && sort == null) {
+
+      writeFireStations(request, webRequest, response, MediaType.APPLICATION_JSON);
+      return null;
+    }
+
+    // the cursor is checked before the ETag, as a invalid one is never modified
+    Keyset keyset = Keyset.of(cursor, limit, sort);
+
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
-    List<FireStation> fireStations = fireStationService.getFireStations();
+    KeysetPage<FireStation> page = fireStationService.getFireStationsPage(keyset);
     log.info(
         "Request accepted and Response sent \n "
             + "Request: {}\n Parameters: {}\n "
-            + "Response: {}\n",
+            + "Response: {} fireStations and next cursor {}\n",
         request.getRequestURL(),
         request.getParameterMap(),
-        fireStations);
+        page.getContent().size(),
+        page.getNextCursor());
+    return ResponseEntity.ok(page);
 
-    return fireStations;
+  }
+
+  /**
+   * Return all existed FireStation, one by line (application/x-ndjson).
+   *
+   * @throws IOException  when the response can't be written.
+   */
+
+  @GetMapping(value = "/firestation", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @ApiOperation(value = "Get all Firestations in NDJSON",
+                notes = "Retrieve all fireStations, one by line",
+                response = FireStation.class)
+  public void getFireStationsAsNdjson(HttpServletRequest request,
+                                      WebRequest webRequest,
+                                      HttpServletResponse response) throws IOException {
+
+    writeFireStations(request, webRequest, response, MediaType.APPLICATION_NDJSON);
+
+  }
+
+  private void writeFireStations(HttpServletRequest request,
+                                 WebRequest webRequest,
+                                 HttpServletResponse response,
+                                 MediaType mediaType) throws IOException {
+
+    String etag = MediaType.APPLICATION_NDJSON.equals(mediaType)
+        ? dataVersion.getETag("ndjson")
+        : dataVersion.getETag();
+
+    if (webRequest.checkNotModified(etag)) {
+
+      log.info("Request accepted and not modified \n Request: {}\n",
+          request.getRequestURL());
+      return;
+    }
+
+    long count = jsonStreamWriter.write(response, mediaType,
+        fireStationService::forEachFireStation);
+    // the list is not logged, as it's not kept in memory
+    log.info(
+        "Request accepted and Response sent \n "
+            + "Request: {}\n Parameters: {}\n "
+            + "Response: {} fireStations in {}\n",
+        request.getRequestURL(),
+        request.getParameterMap(),
+        count,
+        mediaType);
 
   }
 
@@ -118,7 +229,8 @@ public class FireStationRestController {
   }
 
   /**
-   * creation of a new FireStation.
+   * creation of a new FireStation, with its mapping to persons of its addresses,
+   * in one transaction.
    *
    * @param fireStationToSave
              a representation in Json of the new Object of FireStation.
@@ -134,6 +246,7 @@ public class FireStationRestController {
   @ApiOperation(value = "Creation of FireStation",
                 notes = "Create a new FireStationby",
                 response = FireStation.class)
+  @Transactional
   public ResponseEntity<FireStation> postMappingStationAddress(
       @Valid @RequestBody FireStation fireStationToSave,
       HttpServletRequest request) {
@@ -145,41 +258,24 @@ public class FireStationRestController {
 
       if (!existedFireStation.isPresent()) {
 
-        FireStation savedFireStation = fireStationService.saveFireStation(fireStationToSave);
-        log.debug("\n Save new FireStation:{}", savedFireStation);
-
-        URI locationUri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
-            .buildAndExpand(savedFireStation.getIdFireStation()).toUri();
-
-        //check if for new saved fireSation, there is person to map with it
-
-        if (!savedFireStation.getAddresses().isEmpty()) {
-
-          boolean addedPersons = false;
-
-          for (String address : savedFireStation.getAddresses()) {
+        //check if for new fireSation, there is person to map with it,
+        // before to save it, so that FireStation and junction table person_firestation
+        // are inserted together
 
-            Iterable<Person> personsMappedWithAddress =
-                personService.getPersonsByAddress(address);
+        for (String address : fireStationToSave.getAddresses()) {
 
-            if (personsMappedWithAddress.iterator().hasNext()) {
+          personService.getPersonsByAddress(address).forEach(person -> {
 
-              addedPersons = true;
-              personsMappedWithAddress.forEach(person -> {
-
-                savedFireStation.addPerson(person);
-                log.debug("\n Mapping person:{} to FireStation:{}", person, savedFireStation);
-              });
-            }
-          }
+            fireStationToSave.addPerson(person);
+            log.debug("\n Mapping person:{} to FireStation:{}", person, fireStationToSave);
+          });
+        }
 
-          // to update junction table person_firestation.
-          if (addedPersons) {
+        FireStation savedFireStation = fireStationService.saveFireStation(fireStationToSave);
+        log.debug("\n Save new FireStation:{}", savedFireStation);
 
-            fireStationService.saveFireStation(savedFireStation);
-            log.debug("\n Update FireStation:{}", savedFireStation);
-          }
-        }
+        URI locationUri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+            .buildAndExpand(savedFireStation.getIdFireStation()).toUri();
 
         log.info("\nRequest: {}\n"
             + "Creation of FireStation {} sucessed "
@@ -189,6 +285,9 @@ public class FireStationRestController {
             savedFireStation.getIdFireStation(),
             savedFireStation.getAddresses());
 
+        eventPublisher.publishEvent(DataChangeEvent.ofFireStation(
+            savedFireStation.getNumberStation(), savedFireStation.getAddresses()));
+
         return ResponseEntity.created(locationUri).body(savedFireStation);
 
       } else {
@@ -205,6 +304,40 @@ public class FireStationRestController {
   }
 
 
+
+  /**
+   * Create a batch of new FireStations in one request, as POST /firestation for each one
+   * (see {@link BatchService}): a invalid or already existed item is rejected
+   * without rejecting the other ones.
+   *
+   * @param fireStations
+   *          the FireStations to create, {@value BatchService#MAX_BATCH_SIZE} at most.
+   *
+   * @return  a ResponseEntity with in body the result of each item, in the order of batch:
+   *          its status (201, 400 or 409), with the id of created FireStation
+   *          or a error's message.
+   */
+  @PostMapping(value = "/firestation/batch", produces = "application/json")
+  @ApiOperation(value = "Create FireStations by batch",
+                notes = "Create new FireStations, mapped with the Persons of their addresses",
+                response = BatchItemResult.class,
+                responseContainer = "List")
+  public ResponseEntity<List<BatchItemResult>> postFireStations(
+      @RequestBody List<FireStation> fireStations,
+      HttpServletRequest request) {
+
+    List<BatchItemResult> results = batchService.createFireStations(fireStations);
+
+    log.info("Request accepted and Response sent \n "
+        + "Request: {}\n "
+        + "Response: {} created of {} fireStations\n",
+        request.getRequestURL(),
+        results.stream().filter(BatchItemResult::isCreated).count(),
+        results.size());
+    return ResponseEntity.ok(results);
+
+  }
+
   /**
    * Allows to change the mapping of a address with a existed FireStation.
    * If the address is already mapped with another FireSation
@@ -241,7 +374,7 @@ public class FireStationRestController {
       //check if given body request fireStation exist
 
       Optional<FireStation> fireStationWithNumberStation =
-          fireStationService.getFireStationAllFetchByNumberStation(
+          fireStationService.getFireStationFetchAddressesByNumberStation(
               fireStationToMapWithAddress.getNumberStation());
 
 
@@ -258,30 +391,11 @@ public class FireStationRestController {
               + "Please give a another fireStation to map !");
         } else {
 
-          // add address to fireStationToMapWithAddress and save it .
-
+          // map address and persons living there by targeted inserts,
+          // without loading the persons of fireStation
+          fireStationService.addAddress(existedFireStation.getIdFireStation(), address);
           existedFireStation.addAddress(address);
-          log.debug("\n Add address:{} to Firestation:{}", address, existedFireStation);
-
-          //add persons Mapped by address to updated Firestation
-
-          Iterable<Person> personsMappedByAddress =
-              personService.getPersonsByAddress(address);
-
-          if (personsMappedByAddress.iterator().hasNext()) {
-
-            personsMappedByAddress.forEach(person -> {
-
-              existedFireStation.addPerson(person);
-              log.debug("\n Add Person:{} to Firestation:{}", person, existedFireStation);
-
-            });
-          }
-          //update existedFireStation with new address
-          // and new Person mapped with it
-
-          fireStationService.saveFireStation(existedFireStation);
-          log.debug("\n Update Firestation:{}", existedFireStation);
+          log.debug("\n Update Firestation:{} with address:{}", existedFireStation, address);
 
           log.info("\nRequest: {}\n"
               + "Update of FireStation sucessed mapping with new address{}\n"
@@ -290,6 +404,9 @@ public class FireStationRestController {
               address,
               existedFireStation);
 
+          // only persons of this address are loaded again by the read model
+          eventPublisher.publishEvent(DataChangeEvent.ofAddress(address));
+
           return new ResponseEntity<FireStation>(existedFireStation, HttpStatus.OK);
         }
 
@@ -327,28 +444,29 @@ public class FireStationRestController {
       HttpServletRequest request) {
 
     Optional<FireStation> fireStationWithNumberStation =
-        fireStationService.getFireStationAllFetchByNumberStation(numberStation);
+        fireStationService.getFireStationFetchAddressesByNumberStation(numberStation);
 
     if (fireStationWithNumberStation.isPresent()) {
 
       FireStation currentFireStation = fireStationWithNumberStation.get();
 
-      //clear addresses
-      currentFireStation.getAddresses().clear();
-      log.debug("\n Set addresses of firestation:{} was cleared\n", currentFireStation);
-
-      //clear persons
-      currentFireStation.getPersons().clear();
-      log.debug("\n Set Persons of firestation:{} was cleared\n", currentFireStation);
+      // persons of these addresses are no more covered by this fireStation,
+      // which still exists
+      DataChangeEvent event = DataChangeEvent.ofAddresses(currentFireStation.getAddresses());
 
-      //update Firestation
-      fireStationService.saveFireStation(currentFireStation);
+      //clear addresses and persons by targeted deletes
+      fireStationService.clearMapping(currentFireStation.getIdFireStation());
+      currentFireStation.getAddresses().clear();
+      log.debug("\n Set addresses and persons of firestation:{} was cleared\n",
+          currentFireStation);
 
       log.info("Mapping FireStation/Addresses was deleted!\n"
           + "Request:{}\n"
           + "Response:{}\n",
           request.getRequestURL(),
           currentFireStation);
+
+      eventPublisher.publishEvent(event);
       return new ResponseEntity<FireStation>(currentFireStation, HttpStatus.OK);
 
     } else {
@@ -381,37 +499,19 @@ public class FireStationRestController {
       HttpServletRequest request) {
 
     List<FireStation> fireStationWithAddress =
-        fireStationService.getFireStationsFetchPersonMappedToAddress(address);
+        fireStationService.getFireStationsMappedToAddress(address);
 
     if (!fireStationWithAddress.isEmpty()) {
 
+      // remove address and persons living there from fireStations by targeted deletes
+      fireStationService.removeAddress(address);
+
       for (FireStation currentFireStation : fireStationWithAddress) {
 
-        // remove address from FireStation SetAddresses
         currentFireStation.removeAddress(address);
         log.debug("\nAddress {} was deleted from FireStation:{}\n",
             address,
             currentFireStation);
-
-        //Remove Person Mapped to address in currentFirestation
-        // to Update junction Table person-fireStation
-        List<Person> personsToRemove = new ArrayList<Person>();
-
-        for (Person person : currentFireStation.getPersons()) {
-
-          if (person.getAddress().equals(address)) {
-
-            personsToRemove.add(person);
-          }
-        }
-        currentFireStation.getPersons().removeAll(personsToRemove);
-        log.debug("\n remove Persons:{} from FireStation:{}\n",
-            personsToRemove,
-            currentFireStation);
-
-        //update FireStation after remove address and persons
-        fireStationService.saveFireStation(currentFireStation);
-        log.debug("\n Update fireStation:{}\n", currentFireStation);
       }
 
       log.info("\"Mapping address: {} /Firestation(s) was deleted!\n"
@@ -421,6 +521,8 @@ public class FireStationRestController {
           request.getRequestURL(),
           fireStationWithAddress);
 
+      eventPublisher.publishEvent(DataChangeEvent.ofAddress(address));
+
       return new ResponseEntity<>(fireStationWithAddress, HttpStatus.OK);
 
     } else {
@@ -432,4 +534,92 @@ public class FireStationRestController {
 
   }
 
+  /**
+   * Move many addresses to other existed FireStations in one request and one transaction:
+   * each address is deleted from its current FireStations and mapped with the new one,
+   * as the persons living there. It's done by a few statements on tables of mapping,
+   * so its cost doesn't depend on the number of persons.
+   *
+   * @param numberStationsByAddress
+   *          the numberStation of new FireStation by address to move,
+   *          {@value BatchService#MAX_BATCH_SIZE} addresses at most.
+   *
+   * @return  a ResponseEntity with in body the FireStations now mapped with these addresses.
+   *
+   * @throws  a {@link InvalidBatchException} if there is no address, too many addresses
+   *          or a blank address or a address without numberStation.
+   *
+   * @throws  a {@link FireStationNotFoundException} if a numberStation doesn't match
+   *          with any FireStation.
+   */
+  @PostMapping(value = "/firestation/remap", produces = "application/json")
+  @ApiOperation(value = "Move addresses to FireStations",
+                notes = "Change the mapping of many addresses with existed FireStations",
+                response = FireStation.class,
+                responseContainer = "List")
+  @Transactional
+  public ResponseEntity<List<FireStation>> postRemapAddresses(
+      @RequestBody Map<String, Integer> numberStationsByAddress,
+      HttpServletRequest request) {
+
+    if (numberStationsByAddress.isEmpty()
+        || numberStationsByAddress.size() > BatchService.MAX_BATCH_SIZE) {
+
+      throw new InvalidBatchException("a batch must contain between 1 and "
+          + BatchService.MAX_BATCH_SIZE + " items");
+    }
+
+    numberStationsByAddress.forEach((address, numberStation) -> {
+
+      if (address.trim().isEmpty() || numberStation == null) {
+
+        throw new InvalidBatchException("each address must be mapped with a numberStation");
+      }
+    });
+
+    Map<Integer, FireStation> fireStations = fireStationService
+        .getFireStationsFetchAddressesByNumberStations(numberStationsByAddress.values())
+        .stream()
+        .collect(Collectors.toMap(FireStation::getNumberStation, Function.identity()));
+
+    Map<Long, Set<String>> addressesByIdFireStation = new LinkedHashMap<>();
+    Map<Integer, FireStation> targetFireStations = new LinkedHashMap<>();
+
+    numberStationsByAddress.forEach((address, numberStation) -> {
+
+      FireStation fireStation = fireStations.get(numberStation);
+
+      if (fireStation == null) {
+
+        throw new FireStationNotFoundException("FireStation with NumberStation:"
+            + numberStation + " was not found");
+      }
+
+      addressesByIdFireStation.computeIfAbsent(fireStation.getIdFireStation(),
+          id -> new LinkedHashSet<>()).add(address);
+      targetFireStations.putIfAbsent(numberStation, fireStation);
+    });
+
+    fireStationService.moveAddresses(addressesByIdFireStation);
+
+    for (FireStation fireStation : targetFireStations.values()) {
+
+      fireStation.getAddresses().removeAll(numberStationsByAddress.keySet());
+      fireStation.getAddresses().addAll(
+          addressesByIdFireStation.get(fireStation.getIdFireStation()));
+    }
+
+    log.info("\nRequest: {}\n"
+        + "Move of {} addresses sucessed\n"
+        + "Response:{}\n",
+        request.getRequestURL(),
+        numberStationsByAddress.size(),
+        targetFireStations.values());
+
+    // persons of these addresses are now covered by their new fireStation
+    eventPublisher.publishEvent(DataChangeEvent.ofAddresses(numberStationsByAddress.keySet()));
+    return ResponseEntity.ok(new ArrayList<>(targetFireStations.values()));
+
+  }
+
 }
@@ -1,5 +1,6 @@
 package com.safetynet.alert.controller.admin;
 
+import com.safetynet.alert.controller.JsonStreamWriter;
 import com.safetynet.alert.exceptions.medicalrecord.MedicalRecordAlreadyExistedException;
 import com.safetynet.alert.exceptions.medicalrecord.MedicalRecordChangedNamesException;
 import com.safetynet.alert.exceptions.medicalrecord.MedicalRecordNotFoundException;
@@ -10,24 +11,39 @@ import com.safetynet.alert.model.MedicalRecord;
 import com.safetynet.alert.model.Medication;
 import com.safetynet.alert.model.Person;
 import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.BatchItemResult;
+import com.safetynet.alert.service.BatchService;
+import com.safetynet.alert.service.DataChangeEvent;
+import com.safetynet.alert.service.DataVersion;
+import com.safetynet.alert.service.EntityDictionary;
 import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.Keyset;
+import com.safetynet.alert.service.KeysetPage;
 import com.safetynet.alert.service.MedicalRecordService;
 import com.safetynet.alert.service.MedicationService;
 import com.safetynet.alert.service.PersonService;
+import com.safetynet.alert.service.SetDiff;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -35,7 +51,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
@@ -60,28 +78,117 @@ public class MedicalRecordRestController {
   MedicationService medicationService;
   @Autowired
   FireStationService fireStationService;
+  @Autowired
+  ApplicationEventPublisher eventPublisher;
+  @Autowired
+  DataVersion dataVersion;
+  @Autowired
+  JsonStreamWriter jsonStreamWriter;
+  @Autowired
+  BatchService batchService;
 
   /**
-   * Return the collection of all existed MedicalRecords.
+   * Return the collection of all existed MedicalRecords, in a json array written
+   * element after element (see {@link JsonStreamWriter}), or only a page of them sorted by id
+   * when one of parameters limit, cursor or sort is given (see {@link Keyset}).
+   *
+   * @param limit   maximum number of medicalRecords of page.
+   * @param cursor  cursor of next page given by the previous one.
+   * @param sort    order of ids of first page: asc or desc.
+   *
+   * @return  a ResponseEntity with the page of medicalRecords, null if all are written.
    *
-   *@return  a collection of MedicalRecord.
+   * @throws IOException  when the response can't be written.
    */
 
   @GetMapping(value = "/medicalRecord", produces = "application/json")
   @ApiOperation(value = "MedicalRecords",
-                notes = "Retrieve all existed MedicalRecords",
+                notes = "Retrieve all existed MedicalRecords,"
+                    + " or a page of them with limit, cursor or sort",
                 response = MedicalRecord.class)
-  public List<MedicalRecord> getMedicalRecords(HttpServletRequest request) {
+  public ResponseEntity<KeysetPage<MedicalRecord>> getMedicalRecords(
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "sort", required = false) String sort,
+      HttpServletRequest request,
+      WebRequest webRequest,
+      HttpServletResponse response) throws IOException {
+
+    if (limit == null && cursor == null && sort == null) {
+
+      writeMedicalRecords(request, webRequest, response, MediaType.APPLICATION_JSON);
+      return null;
+    }
 
-    List<MedicalRecord> medicalRecords = medicalRecordService.getMedicalRecords();
+    // the cursor is checked before the ETag, as a invalid one is never modified
+    Keyset keyset = Keyset.of(cursor, limit, sort);
 
-    log.info("Request accepted and Response sent \n "
-        + "Request: {}\n"
-        + "Response: {}\n",
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
+
+    KeysetPage<MedicalRecord> page = medicalRecordService.getMedicalRecordsPage(keyset);
+    log.info(
+        "Request accepted and Response sent \n "
+            + "Request: {}\n Parameters: {}\n "
+            + "Response: {} medicalRecords and next cursor {}\n",
         request.getRequestURL(),
-        medicalRecords);
+        request.getParameterMap(),
+        page.getContent().size(),
+        page.getNextCursor());
+    return ResponseEntity.ok(page);
+
+  }
+
+  /**
+   * Return the collection of all existed MedicalRecords, one by line (application/x-ndjson).
+   *
+   * @throws IOException  when the response can't be written.
+   */
+
+  @GetMapping(value = "/medicalRecord", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @ApiOperation(value = "MedicalRecords in NDJSON",
+                notes = "Retrieve all existed MedicalRecords, one by line",
+                response = MedicalRecord.class)
+  public void getMedicalRecordsAsNdjson(HttpServletRequest request,
+                                        WebRequest webRequest,
+                                        HttpServletResponse response) throws IOException {
+
+    writeMedicalRecords(request, webRequest, response, MediaType.APPLICATION_NDJSON);
+
+  }
+
+  private void writeMedicalRecords(HttpServletRequest request,
+                                   WebRequest webRequest,
+                                   HttpServletResponse response,
+                                   MediaType mediaType) throws IOException {
+
+    String etag = MediaType.APPLICATION_NDJSON.equals(mediaType)
+        ? dataVersion.getETag("ndjson")
+        : dataVersion.getETag();
 
-    return medicalRecords;
+    if (webRequest.checkNotModified(etag)) {
+
+      log.info("Request accepted and not modified \n Request: {}\n",
+          request.getRequestURL());
+      return;
+    }
+
+    long count = jsonStreamWriter.write(response, mediaType,
+        medicalRecordService::forEachMedicalRecord);
+    // the list is not logged, as it's not kept in memory
+    log.info(
+        "Request accepted and Response sent \n "
+            + "Request: {}\n Parameters: {}\n "
+            + "Response: {} medicalRecords in {}\n",
+        request.getRequestURL(),
+        request.getParameterMap(),
+        count,
+        mediaType);
 
   }
 
@@ -129,7 +236,8 @@ public class MedicalRecordRestController {
 
   /**
    * Creation of new MedicalRecord given in parameter.
-   * All mapping and creation of other entities with a relationship are automatically realized.
+   * All mapping and creation of other entities with a relationship are automatically realized,
+   * in one transaction: the response is the saved MedicalRecord, without reading it again.
    *
    * @param medicalRecord
    *          the representation in Json of the new Object of MedicalRecord to create.
@@ -145,6 +253,7 @@ public class MedicalRecordRestController {
   @ApiOperation(value = "Create a MedicalRecord",
                 notes = "create a MedicalRecord for a Person",
                 response = MedicalRecord.class)
+  @Transactional
   public ResponseEntity<MedicalRecord> postMedicalRecord(
       @Valid @RequestBody MedicalRecord medicalRecord,
       HttpServletRequest request) {
@@ -215,20 +324,23 @@ public class MedicalRecordRestController {
         savedMedicalRecord.setPerson(currentPerson);
         log.debug("Adding Person to new MedicalRecord\n");
 
-        // map new allergies  to savedMedicalRecord
-        // and save in a list existed ones.
-        List<Allergy> existedAllergies = new ArrayList<Allergy>();
-        List<Medication> existedMedications = new ArrayList<Medication>();
+        // map new and existed allergies to savedMedicalRecord:
+        // links are written by the side of MedicalRecord, so medicalRecords
+        // of existed allergies and medications are never loaded.
+        // dictionaries to search only once each designation
+        EntityDictionary<String, Allergy> allergies = allergyService.createDictionary();
+        EntityDictionary<MedicationService.NaturalKey, Medication> medications =
+            medicationService.createDictionary();
 
         for (Allergy allergy : medicalRecord.getAllergies()) {
 
-          Optional<Allergy> existedAllergy =
-              allergyService
-                  .getAllergyFetchMedicalRecordsByDesignation(allergy.getDesignation());
+          Optional<Allergy> existedAllergy = allergies.lookup(allergy.getDesignation());
 
           if (existedAllergy.isPresent()) {
 
-            existedAllergies.add(existedAllergy.get());
+            savedMedicalRecord.add(existedAllergy.get());
+            log.debug("\nAdding existed Allergy:{} to new MedicalRecord\n",
+                existedAllergy.get());
 
           } else {
 
@@ -237,18 +349,17 @@ public class MedicalRecordRestController {
           }
         }
 
-        // map new medications to savedMedicalRecord
-        // and save in a list existed ones.
+        // map new and existed medications to savedMedicalRecord
         for (Medication medication : medicalRecord.getMedications()) {
 
-          Optional<Medication> existedMedication = medicationService
-              .getMedicationFetchMedicalRecordsByDesignationAndPosology(
-                  medication.getDesignation(),
-                  medication.getPosology());
+          Optional<Medication> existedMedication = medications.lookup(
+              MedicationService.naturalKey(medication));
 
           if (existedMedication.isPresent()) {
 
-            existedMedications.add(existedMedication.get());
+            savedMedicalRecord.add(existedMedication.get());
+            log.debug("\nAdding existed Medication:{} to new MedicalRecord\n",
+                existedMedication.get());
 
           } else {
 
@@ -261,80 +372,22 @@ public class MedicalRecordRestController {
         currentPerson.setMedicalRecord(savedMedicalRecord);
         log.debug("\nAdding new MedicalRecord to Person\n");
 
-        //save Person and medicalRecord
-        if (alreadyExistedPerson) {
-
-          // use of PersonService to save new MedicalRecord,allergies and medications
-          // with Cascade.Type PERSIST
-          // because if we use MedicalRecord.save( new medicalRecord) ,
-          // we have a detached entity with person because it's already in DB
-          personService.savePerson(currentPerson);
-          log.debug("\nUpdate the already existed Person with new MedicalRecord\n");
-
-        } else {
-
-          // check when it's a new person if there is a fireStation
-          // to map with address of Person
+        // check when it's a new person if there is a fireStation
+        // to map with address of Person: mapping is written by the side of Person
+        if (!alreadyExistedPerson) {
 
-          List<FireStation> fireStationsMappedToAddress =
-              fireStationService.getFireStationsFetchPersonMappedToAddress(
-                  currentPerson.getAddress());
-
-          if (!fireStationsMappedToAddress.isEmpty()) {
-
-            for (FireStation fireStation : fireStationsMappedToAddress) {
-
-              fireStation.addPerson(currentPerson);
-              // saving fireStation -> person is only updated but
-              // medicalRecord is saved too because of Cascade Persist of Person
-              fireStationService.saveFireStation(fireStation);
-              log.debug("\nAdd Mapped FireStation to new Person\n");
-              log.debug("\nSave new MedicalRecord and new Person\n");
-            }
-
-          } else {
-
-            // use of MedicalRecordService to save new Person, allergies,Medications
-            // with Cascade.Type PERSIST
-            medicalRecordService.saveMedicalRecord(savedMedicalRecord);
-            log.debug("\nSave new MedicalRecord and new Person\n");
-          }
+          currentPerson.addFireStations(
+              fireStationService.getFireStationsMappedToAddress(currentPerson.getAddress()));
+          log.debug("\nAdd Mapped FireStations to new Person\n");
         }
 
-        if ((!existedMedications.isEmpty()) || (!existedAllergies.isEmpty())) {
-
-          // retrieve savedMedicalRecord with  fetching collections
-          // medications and allergies to add  existed allergies and medications
-          savedMedicalRecord =
-              medicalRecordService.getMedicalRecordByNames(currentPerson.getLastName(),
-                  currentPerson.getFirstName()).get();
-
-          // For all existed medications and allergy, add saveMedicalRecord and save it
-          // CascadeType.PERSIST doesn't exist for medication and allergy
-
-          for (Medication medication : existedMedications) {
-
-            medication.add(savedMedicalRecord);
-            medicationService.saveMedication(medication);
-            log.debug("\nSave new Medication and add to new MedicalRecord\n Medication:{}\n",
-                medication);
-          }
-
-          for (Allergy allergy : existedAllergies) {
-
-            allergy.add(savedMedicalRecord);
-            allergyService.saveAllergy(allergy);
-            log.debug("\nSave new Allergy and add to new MedicalRecord\n Allergy:{}\n",
-                allergy);
-          }
-
-        }
-
-        //retrieve SavedMedicalRecord with all fetching collections
-        // just to display add of existed allergies,medications,firestations
-        savedMedicalRecord =
-            medicalRecordService.getMedicalRecordFetchAllByNames(currentPerson.getLastName(),
-                currentPerson.getFirstName());
+        // use of MedicalRecordService to save new MedicalRecord, new Person,
+        // allergies and Medications with Cascade.Type PERSIST:
+        // existed Person, medications and allergies are managed in this transaction,
+        // so they are only linked to it.
+        // The response is built from saved MedicalRecord without reading it again.
+        medicalRecordService.saveMedicalRecord(savedMedicalRecord);
+        log.debug("\nSave new MedicalRecord\n");
 
       }
 
@@ -356,6 +409,9 @@ public class MedicalRecordRestController {
           request.getRequestURL(),
           savedMedicalRecord);
 
+      eventPublisher.publishEvent(DataChangeEvent.ofPerson(
+          medicalRecord.getPerson().getFirstName(), medicalRecord.getPerson().getLastName()));
+
       return ResponseEntity.created(locationUri).body(savedMedicalRecord);
 
     } else {
@@ -365,9 +421,44 @@ public class MedicalRecordRestController {
 
   }
 
+
+  /**
+   * Create a batch of new MedicalRecords in one request, as POST /medicalRecord for each one
+   * (see {@link BatchService}): a invalid or already existed item is rejected
+   * without rejecting the other ones.
+   *
+   * @param medicalRecords
+   *          the MedicalRecords to create, {@value BatchService#MAX_BATCH_SIZE} at most.
+   *
+   * @return  a ResponseEntity with in body the result of each item, in the order of batch:
+   *          its status (201, 400 or 409), with the id of created MedicalRecord
+   *          or a error's message.
+   */
+  @PostMapping(value = "/medicalRecord/batch", produces = "application/json")
+  @ApiOperation(value = "Create MedicalRecords by batch",
+                notes = "Create new MedicalRecords, and their Persons when they don't exist",
+                response = BatchItemResult.class,
+                responseContainer = "List")
+  public ResponseEntity<List<BatchItemResult>> postMedicalRecords(
+      @RequestBody List<MedicalRecord> medicalRecords,
+      HttpServletRequest request) {
+
+    List<BatchItemResult> results = batchService.createMedicalRecords(medicalRecords);
+
+    log.info("Request accepted and Response sent \n "
+        + "Request: {}\n "
+        + "Response: {} created of {} medicalRecords\n",
+        request.getRequestURL(),
+        results.stream().filter(BatchItemResult::isCreated).count(),
+        results.size());
+    return ResponseEntity.ok(results);
+
+  }
+
   /**
    * Update a MedicalRecord with the Id given in parameter.
-   * All mapping and creation of other entities with a relationship are automatically realized.
+   * All mapping and creation of other entities with a relationship are automatically realized,
+   * in one transaction.
    *
    * @param id
    *          the identification of the MedicalRecord to update in database.
@@ -389,6 +480,7 @@ public class MedicalRecordRestController {
   @ApiOperation(value = "Update MedicalRecord",
                 notes = "Update a MedicalRecord by it's given ID",
                 response = MedicalRecord.class)
+  @Transactional
   public ResponseEntity<MedicalRecord> putMedicalRecord(
       @Valid @PathVariable Long id,
       @Valid @RequestBody MedicalRecord medicalRecord) {
@@ -497,9 +589,7 @@ public class MedicalRecordRestController {
           Set<Allergy> currentAllergies = currentMedicalRecord.getAllergies();
 
           Set<Allergy> allergiesToUpdate =
-              allergiesToUpdateBetween(currentAllergies,
-                  medicalRecord.getAllergies(),
-                  currentMedicalRecord);
+              allergiesToUpdateBetween(currentAllergies, medicalRecord.getAllergies());
           log.debug("\n allergies to Update = {} \n", allergiesToUpdate);
           currentAllergies.clear();
           currentAllergies = allergiesToUpdate;
@@ -518,6 +608,9 @@ public class MedicalRecordRestController {
               savedMedicalRecord.getMedications(),
               savedMedicalRecord.getAllergies());
 
+          eventPublisher.publishEvent(DataChangeEvent.ofPerson(currentPerson.getFirstName(),
+              currentPerson.getLastName()));
+
           return new ResponseEntity<MedicalRecord>(savedMedicalRecord, HttpStatus.OK);
 
         } else {
@@ -545,7 +638,7 @@ public class MedicalRecordRestController {
 
   /**
    * Delete the MedicalRecord with as identification unique couple
-   *  FirstName/LastName of Person mapped with this medicalRecord.
+   *  FirstName/LastName of Person mapped with this medicalRecord, in one transaction.
    *
    * @param lastName
    *            the lastname of person mapped with the MedicalRecord.
@@ -563,6 +656,7 @@ public class MedicalRecordRestController {
   @ApiOperation(value = "Delete MedicalRecord",
                 notes = "Delete a MedicalRecord by given owner's LastName and FirstName",
                 response = MedicalRecord.class)
+  @Transactional
   public ResponseEntity<?> deleteMedicalRecord(
       @Valid @PathVariable String lastName,
       @Valid @PathVariable String firstName) {
@@ -581,6 +675,7 @@ public class MedicalRecordRestController {
       currentMedicalRecord.clearSet(currentMedicalRecord.getAllergies());
 
       medicalRecordService.deleteMedicalRecord(medicalRecordByNames.get());
+      eventPublisher.publishEvent(DataChangeEvent.ofPerson(firstName, lastName));
 
       log.info("MedicalRecord of Person {} {} was deleted", lastName, firstName);
       return new ResponseEntity<>("MedicalRecord of Person " + lastName + " " + firstName
@@ -599,8 +694,9 @@ public class MedicalRecordRestController {
   /**
    * Method allows,from two Set of Medications of two MedicalRecord, to compare them (like a diff)
    *  and create a new Set with common and new Medications between two sets without duplicates.
-   *  And in same time , when found a new non existed Medication( so without a Id),
-   *  before put it in the new Set,it saves it in database to retrieve its Id.
+   *  The diff is done by natural key (designation, posology) with a {@link SetDiff}:
+   *  new Medications are searched in database by one query, and the non existed ones
+   *  (so without a Id) are saved in one batch before to be put in the new Set.
    *
    * @param currentMedications
    *              the existed Set of Medication of one MedicalRecord.
@@ -614,39 +710,27 @@ public class MedicalRecordRestController {
   public Set<Medication> medicationsToUpdateBetween(Set<Medication> currentMedications,
       Set<Medication> medicationsToUpdate) {
 
-    Set<Medication> result = new HashSet<Medication>();
-    boolean findCommon = false;
-
-    for (Medication medicationToUpdate : medicationsToUpdate) {
-
-      for (Medication currentMedication : currentMedications) {
+    SetDiff<MedicationService.NaturalKey, Medication> diff =
+        SetDiff.between(currentMedications, medicationsToUpdate, MedicationService::naturalKey);
 
-        if ((medicationToUpdate.getDesignation().equals(currentMedication.getDesignation()))
-            && (medicationToUpdate.getPosology().equals(currentMedication.getPosology()))) {
-
-          result.add(currentMedication);
-          findCommon = true;
-        }
-      }
+    Set<Medication> result = new HashSet<Medication>(diff.getKept().values());
 
-      if (!findCommon) {
+    if (!diff.getAdded().isEmpty()) {
 
-        Optional<Medication> existedMedication =
-            medicationService.getMedicationByDesignationAndPosology(
-                medicationToUpdate.getDesignation(),
-                medicationToUpdate.getPosology());
+      Map<MedicationService.NaturalKey, Medication> missingMedications =
+          new LinkedHashMap<>(diff.getAdded());
 
-        if (!existedMedication.isPresent()) {
+      for (Medication existedMedication :
+          medicationService.getMedicationsByNaturalKeys(diff.getAdded().keySet())) {
 
-          medicationService.saveMedication(medicationToUpdate);
-          result.add(medicationToUpdate);
-        } else {
+        missingMedications.remove(MedicationService.naturalKey(existedMedication));
+        result.add(existedMedication);
+      }
 
-          result.add(existedMedication.get());
-        }
-      } else {
+      if (!missingMedications.isEmpty()) {
 
-        findCommon = false;
+        medicationService.saveAll(new ArrayList<Medication>(missingMedications.values()));
+        result.addAll(missingMedications.values());
       }
     }
 
@@ -657,8 +741,9 @@ public class MedicalRecordRestController {
   /**
    * Method allows,from two Set of Allergies of two MedicalRecord, to compare them (like a diff)
    *  and create a new Set with common and new Allergies between two sets without duplicates.
-   *  And in same time , when found a new non existed Allergy( so without a Id),
-   *  before put it in the new Set,it saves it in database to retrieve its Id.
+   *  The diff is done by designation with a {@link SetDiff}:
+   *  new Allergies are searched in database by one query, and the non existed ones
+   *  (so without a Id) are saved in one batch before to be put in the new Set.
    *
    * @param currentAllergies
    *              the existed Set of Allergy of one MedicalRecord.
@@ -670,39 +755,28 @@ public class MedicalRecordRestController {
    *             from two Set given in parameter(all allergies have now a Id).
    */
   public Set<Allergy> allergiesToUpdateBetween(Set<Allergy> currentAllergies,
-      Set<Allergy> allergiesToUpdate,
-      MedicalRecord currentMedicalRecord) {
+      Set<Allergy> allergiesToUpdate) {
 
-    Set<Allergy> result = new HashSet<Allergy>();
-    boolean findCommon = false;
+    SetDiff<String, Allergy> diff = SetDiff.between(currentAllergies, allergiesToUpdate,
+        Allergy::getDesignation);
 
-    for (Allergy allergyToUpdate : allergiesToUpdate) {
+    Set<Allergy> result = new HashSet<Allergy>(diff.getKept().values());
 
-      for (Allergy currentAllergy : currentAllergies) {
+    if (!diff.getAdded().isEmpty()) {
 
-        if (allergyToUpdate.getDesignation().equals(currentAllergy.getDesignation())) {
+      Map<String, Allergy> missingAllergies = new LinkedHashMap<>(diff.getAdded());
 
-          result.add(currentAllergy);
-          findCommon = true;
-        }
-      }
-
-      if (!findCommon) {
-
-        Optional<Allergy> existedAllergy = allergyService.getAllergyByDesignation(
-            allergyToUpdate.getDesignation());
+      for (Allergy existedAllergy :
+          allergyService.getAllergiesByDesignations(diff.getAdded().keySet())) {
 
-        if (!existedAllergy.isPresent()) {
-
-          allergyService.saveAllergy(allergyToUpdate);
-          result.add(allergyToUpdate);
-        } else {
+        missingAllergies.remove(existedAllergy.getDesignation());
+        result.add(existedAllergy);
+      }
 
-          result.add(existedAllergy.get());
-        }
-      } else {
+      if (!missingAllergies.isEmpty()) {
 
-        findCommon = false;
+        allergyService.saveAll(new ArrayList<Allergy>(missingAllergies.values()));
+        result.addAll(missingAllergies.values());
       }
     }
 
@@ -712,5 +786,3 @@ public class MedicalRecordRestController {
 
 
 }
-
-
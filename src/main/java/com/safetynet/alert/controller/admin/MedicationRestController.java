@@ -1,10 +1,12 @@
 package com.safetynet.alert.controller.admin;
 
 import com.safetynet.alert.model.Medication;
+import com.safetynet.alert.service.Keyset;
 import com.safetynet.alert.service.MedicationService;
-import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import springfox.documentation.annotations.ApiIgnore;
 
@@ -21,14 +23,27 @@ public class MedicationRestController {
   MedicationService medicationService;
 
   /**
-   * Return all existed Medications.
+   * Return all existed Medications, or only a page of them sorted by id
+   * when one of parameters limit, cursor or sort is given (see {@link Keyset}).
    *
-   * @return    a collection (Iterable) of all existed Medications.
+   * @param limit   maximum number of Medications of page.
+   * @param cursor  cursor of next page given by the previous one.
+   * @param sort    order of ids of first page: asc or desc.
+   *
+   * @return    a collection of all existed Medications, or the page of Medications.
    */
   @GetMapping("/medications")
-  public List<Medication> getMedications() {
+  public ResponseEntity<?> getMedications(
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "sort", required = false) String sort) {
+
+    if (limit == null && cursor == null && sort == null) {
+
+      return ResponseEntity.ok(medicationService.getMedications());
+    }
 
-    return medicationService.getMedications();
+    return ResponseEntity.ok(medicationService.getMedicationsPage(Keyset.of(cursor, limit, sort)));
 
   }
 
@@ -1,24 +1,36 @@
 package com.safetynet.alert.controller.admin;
 
+import com.safetynet.alert.controller.JsonStreamWriter;
 import com.safetynet.alert.exceptions.person.PersonAlreadyExistedException;
 import com.safetynet.alert.exceptions.person.PersonChangedNamesException;
 import com.safetynet.alert.exceptions.person.PersonNotFoundException;
 import com.safetynet.alert.exceptions.person.PersonWithIdException;
 import com.safetynet.alert.model.FireStation;
 import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.BatchItemResult;
+import com.safetynet.alert.service.BatchService;
+import com.safetynet.alert.service.DataChangeEvent;
+import com.safetynet.alert.service.DataVersion;
 import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.Keyset;
+import com.safetynet.alert.service.KeysetPage;
 import com.safetynet.alert.service.PersonService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import java.io.IOException;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -26,7 +38,9 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 /**
@@ -47,28 +61,121 @@ public class PersonRestController {
   @Autowired
   private FireStationService fireStationService;
 
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private DataVersion dataVersion;
+
+  @Autowired
+  private JsonStreamWriter jsonStreamWriter;
+
+  @Autowired
+  private BatchService batchService;
+
   /**
-   * Return all existed Persons.
+   * Return all existed Persons, in a json array written element after element
+   * (see {@link JsonStreamWriter}), or only a page of them sorted by id
+   * when one of parameters limit, cursor or sort is given (see {@link Keyset}).
    *
-   * @return    a collection (Iterable) of all existed Persons.
+   * @param limit   maximum number of persons of page.
+   * @param cursor  cursor of next page given by the previous one.
+   * @param sort    order of ids of first page: asc or desc.
+   *
+   * @return  a ResponseEntity with the page of persons, null if all persons are written.
+   *
+   * @throws IOException  when the response can't be written.
    */
 
   @GetMapping(value = "/person", produces = "application/json")
   @ApiOperation(value = "Persons",
-                notes = "Retrieve all existed Persons",
+                notes = "Retrieve all existed Persons,"
+                    + " or a page of them with limit, cursor or sort",
+                response = Person.class,
+                responseContainer = "List")
+  public ResponseEntity<KeysetPage<Person>> getPersons(
+      @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "cursor", required = false) String cursor,
+      @RequestParam(name = "sort", required = false) String sort,
+      HttpServletRequest request,
+      WebRequest webRequest,
+      HttpServletResponse response) throws IOException {
+
+    if (limit == null && cursor == null && sort == null) {
+
+      writePersons(request, webRequest, response, MediaType.APPLICATION_JSON);
+      return null;
+    }
+
+    // the cursor is checked before the ETag, as a invalid one is never modified
+    Keyset keyset = Keyset.of(cursor, limit, sort);
+
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
+
+    KeysetPage<Person> page = personService.getPersonsPage(keyset);
+    log.info(
+        "Request accepted and Response sent \n "
+            + "Request: {}\n Parameters: {}\n "
+            + "Response: {} persons and next cursor {}\n",
+        request.getRequestURL(),
+        request.getParameterMap(),
+        page.getContent().size(),
+        page.getNextCursor());
+    return ResponseEntity.ok(page);
+
+  }
+
+  /**
+   * Return all existed Persons, one by line (application/x-ndjson).
+   *
+   * @throws IOException  when the response can't be written.
+   */
+
+  @GetMapping(value = "/person", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @ApiOperation(value = "Persons in NDJSON",
+                notes = "Retrieve all existed Persons, one by line",
                 response = Person.class,
                 responseContainer = "List")
-  public List<Person> getPersons(HttpServletRequest request) {
+  public void getPersonsAsNdjson(HttpServletRequest request,
+                                 WebRequest webRequest,
+                                 HttpServletResponse response) throws IOException {
+
+    writePersons(request, webRequest, response, MediaType.APPLICATION_NDJSON);
+
+  }
 
-    List<Person> persons = personService.getPersons();
+  private void writePersons(HttpServletRequest request,
+                            WebRequest webRequest,
+                            HttpServletResponse response,
+                            MediaType mediaType) throws IOException {
+
+    String etag = MediaType.APPLICATION_NDJSON.equals(mediaType)
+        ? dataVersion.getETag("ndjson")
+        : dataVersion.getETag();
+
+    if (webRequest.checkNotModified(etag)) {
+
+      log.info("Request accepted and not modified \n Request: {}\n",
+          request.getRequestURL());
+      return;
+    }
+
+    long count = jsonStreamWriter.write(response, mediaType, personService::forEachPerson);
+    // the list is not logged, as it's not kept in memory
     log.info(
         "Request accepted and Response sent \n "
             + "Request: {}\n Parameters: {}\n "
-            + "Response: {}\n",
+            + "Response: {} persons in {}\n",
         request.getRequestURL(),
         request.getParameterMap(),
-        persons);
-    return persons;
+        count,
+        mediaType);
 
   }
 
@@ -116,7 +223,8 @@ public class PersonRestController {
 
 
   /**
-   * Creation of new Person.
+   * Creation of new Person, with its mapping to fireStations of its address,
+   * in one transaction.
    *
    * @param personToAdd
    *              representation in json of new Object of Person to save.
@@ -130,6 +238,7 @@ public class PersonRestController {
   @PostMapping(value = "/person", produces = "application/json")
   @ApiOperation(value = "Create a new Person",
                 response = Person.class)
+  @Transactional
   public ResponseEntity<Person> postPerson(
       @Valid @RequestBody Person personToAdd,
       HttpServletRequest request) {
@@ -142,20 +251,20 @@ public class PersonRestController {
 
       if (!existedPerson.isPresent()) {
 
-        Person savedPerson = personService.savePerson(personToAdd); // save new Person
-
         //check if address of personToAdd have a address already mapped with a fireStation
+        // before to save it, so that Person and its mapping are inserted together
 
         List<FireStation> fireStationMappedToAddress =
             fireStationService.getFireStationsMappedToAddress(personToAdd.getAddress());
 
         if (!fireStationMappedToAddress.isEmpty()) {
 
-          savedPerson.addFireStations(fireStationMappedToAddress);
-          personService.savePerson(savedPerson); // update of savedPerson to add firestations
-          log.debug("\n Update mapping FireStation/Address for new Person\n");
+          personToAdd.addFireStations(fireStationMappedToAddress);
+          log.debug("\n Mapping FireStation/Address for new Person\n");
         }
 
+        Person savedPerson = personService.savePerson(personToAdd); // save new Person
+
         URI locationUri = ServletUriComponentsBuilder.fromCurrentRequest()
             .path("/{id}")
             .buildAndExpand(savedPerson.getIdPerson())
@@ -170,6 +279,9 @@ public class PersonRestController {
             savedPerson,
             locationUri.getPath());
 
+        eventPublisher.publishEvent(DataChangeEvent.ofPerson(savedPerson.getFirstName(),
+            savedPerson.getLastName()));
+
         return ResponseEntity.created(locationUri).body(savedPerson);
       } else {
 
@@ -185,8 +297,43 @@ public class PersonRestController {
 
   }
 
+
+  /**
+   * Create a batch of new Persons in one request, as POST /person for each one
+   * (see {@link BatchService}): a invalid or already existed item is rejected
+   * without rejecting the other ones.
+   *
+   * @param persons
+   *          the Persons to create, {@value BatchService#MAX_BATCH_SIZE} at most.
+   *
+   * @return  a ResponseEntity with in body the result of each item, in the order of batch:
+   *          its status (201, 400 or 409), with the id of created Person
+   *          or a error's message.
+   */
+  @PostMapping(value = "/person/batch", produces = "application/json")
+  @ApiOperation(value = "Create Persons by batch",
+                notes = "Create new Persons, mapped with the FireStations of their address",
+                response = BatchItemResult.class,
+                responseContainer = "List")
+  public ResponseEntity<List<BatchItemResult>> postPersons(
+      @RequestBody List<Person> persons,
+      HttpServletRequest request) {
+
+    List<BatchItemResult> results = batchService.createPersons(persons);
+
+    log.info("Request accepted and Response sent \n "
+        + "Request: {}\n "
+        + "Response: {} created of {} persons\n",
+        request.getRequestURL(),
+        results.stream().filter(BatchItemResult::isCreated).count(),
+        results.size());
+    return ResponseEntity.ok(results);
+
+  }
+
   /**
-   * Update a existed Person with identification Id given in parameter.
+   * Update a existed Person with identification Id given in parameter,
+   * with its mapping to fireStations if address changes, in one transaction.
    *
    * @param id
    *          the identification of existed Person.
@@ -206,6 +353,7 @@ public class PersonRestController {
 
   @PutMapping(value = "/person/{id}", produces = "application/json")
   @ApiOperation(value = "Update an existed Person by giving it's ID", response = Person.class)
+  @Transactional
   public ResponseEntity<Person> putPerson(
       @PathVariable Long id,
       @RequestBody @Valid Person updatedPerson,
@@ -238,27 +386,27 @@ public class PersonRestController {
 
           currentPerson.setEmail(updatedPerson.getEmail());
 
-          Person savedPerson = personService.savePerson(currentPerson);
-
           //If Person.address change then need to map it with another fireStation if it exists
-          if (!lastAddress.equals(savedPerson.getAddress())) {
+          if (!lastAddress.equals(currentPerson.getAddress())) {
 
             //check if address of updatedPerson have a address already mapped with a fireStation
 
             List<FireStation> fireStationMappedToAddress =
-                fireStationService.getFireStationsMappedToAddress(savedPerson.getAddress());
+                fireStationService.getFireStationsMappedToAddress(currentPerson.getAddress());
 
             if (!fireStationMappedToAddress.isEmpty()) {
 
-              //update fireStations for savedPerson
-              savedPerson.clearFireStations(); // need to clear last fireStations mapped
-              savedPerson.addFireStations(fireStationMappedToAddress);
-              personService.savePerson(savedPerson);
+              //update fireStations for currentPerson
+              currentPerson.clearFireStations(); // need to clear last fireStations mapped
+              currentPerson.addFireStations(fireStationMappedToAddress);
               log.debug("\n Update mapping FireStation/Person \n");
 
             }
           }
 
+          // fields and mapping are saved together
+          personService.savePerson(currentPerson);
+
           log.info("Request accepted and Response sent \n "
               + "Request: {}\n : {}\n "
               + "Response: {}\n",
@@ -266,6 +414,9 @@ public class PersonRestController {
               request.getParameterMap(),
               currentPerson);
 
+          eventPublisher.publishEvent(DataChangeEvent.ofPerson(currentPerson.getFirstName(),
+              currentPerson.getLastName()));
+
           return new ResponseEntity<Person>(currentPerson, HttpStatus.OK);
 
         } else {
@@ -287,7 +438,8 @@ public class PersonRestController {
   }
 
   /**
-   * Delete a existed Person with as identification couple FirstName/LastName.
+   * Delete a existed Person with as identification couple FirstName/LastName,
+   * in one transaction.
    *
    * @param lastName
    *            lastName of existed Person to delete
@@ -301,6 +453,7 @@ public class PersonRestController {
 
   @DeleteMapping(value = "/person/{lastName}/{firstName}", produces = "application/json")
   @ApiOperation(value = "Delete an existed Person by giving it's LastName and FirstName")
+  @Transactional
   public ResponseEntity<?> deletePerson(@PathVariable String lastName,
       @PathVariable String firstName,
       HttpServletRequest request) {
@@ -317,6 +470,7 @@ public class PersonRestController {
       //    remove this person in mapped fireStation without deleting fireStation
       //    cause of relation M:1 in Cascade without DELETE
       personService.deletePerson(personToDelete.get());
+      eventPublisher.publishEvent(DataChangeEvent.ofPerson(firstName, lastName));
 
       log.info("Request accepted and Response sent \n "
           + "Request: {}\n : {}\n "
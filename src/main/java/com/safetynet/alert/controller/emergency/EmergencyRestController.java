@@ -1,32 +1,44 @@
 package com.safetynet.alert.controller.emergency;
 
+import com.safetynet.alert.controller.JsonStreamWriter;
 import com.safetynet.alert.dto.PersonDto;
 import com.safetynet.alert.exceptions.address.AddressNotFoundException;
+import com.safetynet.alert.exceptions.address.InvalidAddressesException;
 import com.safetynet.alert.exceptions.firestation.FireStationNotFoundException;
 import com.safetynet.alert.exceptions.person.PersonNotFoundException;
-import com.safetynet.alert.model.FireStation;
 import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.DataVersion;
 import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.FloodStations;
 import com.safetynet.alert.service.PersonService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * Rest Controller for emergencies' services.
+ * Each response of a GET is given with the ETag of {@link DataVersion}: while data are not changed,
+ * a request with this ETag in If-None-Match is answered with a 304 Not Modified.
  *
  * @author delaval
  *
@@ -36,12 +48,21 @@ import org.springframework.web.bind.annotation.RestController;
 @Log4j2
 public class EmergencyRestController {
 
+  // maximum number of addresses of /fire/addresses
+  static final int MAX_FIRE_ADDRESSES = 1000;
+
   @Autowired
   private PersonService personService;
 
   @Autowired
   private FireStationService fireStationService;
 
+  @Autowired
+  private DataVersion dataVersion;
+
+  @Autowired
+  private JsonStreamWriter jsonStreamWriter;
+
 
   /**
    * Retrieve the list of persons mapped with a FireStation with the given station_number.
@@ -53,6 +74,9 @@ public class EmergencyRestController {
    * @param stationNumber
    *            the numberStation of fireStation.
    *
+   * @param withPersons
+   *            false to retrieve only counts, without the list of persons (true by default).
+   *
    * @return     a ResponseEntity with as body a Map with Key/Value:
    *            <ul>
    *            <li> AdultCount/adultCount </li>
@@ -66,15 +90,22 @@ public class EmergencyRestController {
                 responseContainer = "Map")
   public ResponseEntity<Map<String, Object>> getPersonsMappedWithFireStation(
       @RequestParam(name = "stationNumber") int stationNumber,
-      HttpServletRequest request) {
+      @RequestParam(name = "persons", defaultValue = "true") boolean withPersons,
+      HttpServletRequest request,
+      WebRequest webRequest) {
 
-    Optional<FireStation> existedfireStation =
-        fireStationService.getFireStationByNumberStation(stationNumber);
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
 
-    if (existedfireStation.isPresent()) {
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
+
+    if (fireStationService.existsByNumberStation(stationNumber)) {
 
       Map<String, Object> personsMappedWithFireStation =
-          personService.getPersonsMappedWithFireStation(stationNumber);
+          personService.getPersonsMappedWithFireStation(stationNumber, withPersons);
       log.info(
           "Request accepted and Response sent \n Request: {}\n Parameters: {}\n Response: {}\n",
           request.getRequestURL(),
@@ -108,7 +139,16 @@ public class EmergencyRestController {
 
   public ResponseEntity<Map<String, List<PersonDto>>> getChildAlert(
       @RequestParam(name = "address") String address,
-      HttpServletRequest request) {
+      HttpServletRequest request,
+      WebRequest webRequest) {
+
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
     Map<String, List<PersonDto>> result = new LinkedHashMap<>();
 
@@ -154,41 +194,98 @@ public class EmergencyRestController {
   }
 
   /**
-   * Retrieve a list of phone of persons mapped with fireStation designed by given numberStation.
+   * Retrieve a list of phone of persons mapped with fireStations designed by given numberStations.
+   * A phone is given only once, even if its persons are mapped with several of them.
    *
-   * @param fireStationNumber the number station of fireStation.
+   * @param fireStationNumbers the number stations of fireStations.
    *
    * @return  a ResponseEntity with a list of phones sorted and unique.
    */
   @GetMapping(value = "/phoneAlert", produces = "application/json")
-  @ApiOperation(value = "person's phones mapped by FireStation",
-                notes = "Retrieve list of person's phones mapped by FireStation"
-                    + " with given numberStation")
+  @ApiOperation(value = "person's phones mapped by FireStations",
+                notes = "Retrieve list of person's phones mapped by FireStations"
+                    + " with given numberStations")
   public ResponseEntity<Map<String, Object>> getPhoneAlert(
-      @RequestParam(name = "firestation") int fireStationNumber,
-      HttpServletRequest request) {
+      @RequestParam(name = "firestation") List<Integer> fireStationNumbers,
+      HttpServletRequest request,
+      WebRequest webRequest) {
 
-    Optional<FireStation> existedFireStation =
-        fireStationService.getFireStationByNumberStation(fireStationNumber);
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
 
-    if (existedFireStation.isPresent()) {
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
-      List<String> phones = personService.getPhonesByNumberStation(fireStationNumber);
+    checkFireStationsExist(fireStationNumbers);
 
-      Map<String, Object> result = new LinkedHashMap<>();
-      result.put("phones", phones);
+    List<String> phones = personService.getPhonesByNumberStations(fireStationNumbers);
 
-      log.info(
-          "\nRequest accepted and Response sent \n Request: {}\n Parameters: {}\n Response: {}\n",
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("phones", phones);
+
+    log.info(
+        "\nRequest accepted and Response sent \n Request: {}\n Parameters: {}\n Response: {}\n",
+        request.getRequestURL(),
+        request.getParameterMap(),
+        result);
+
+    return new ResponseEntity<>(result, HttpStatus.OK);
+
+  }
+
+  /**
+   * Retrieve phones of persons mapped with fireStations designed by given numberStations,
+   * one by line (application/x-ndjson), sorted and unique. Phones are written
+   * as soon as they are merged, so that a alert can begin before the last one is sent.
+   *
+   * @param fireStationNumbers the number stations of fireStations.
+   *
+   * @throws IOException  when the response can't be written.
+   */
+  @GetMapping(value = "/phoneAlert", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @ApiOperation(value = "person's phones mapped by FireStations in NDJSON",
+                notes = "Retrieve person's phones mapped by FireStations"
+                    + " with given numberStations, one by line")
+  public void getPhoneAlertAsNdjson(
+      @RequestParam(name = "firestation") List<Integer> fireStationNumbers,
+      HttpServletRequest request,
+      WebRequest webRequest,
+      HttpServletResponse response) throws IOException {
+
+    if (webRequest.checkNotModified(dataVersion.getETag("ndjson"))) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
           request.getRequestURL(),
-          request.getParameterMap(),
-          result);
+          request.getParameterMap());
+      return;
+    }
 
-      return new ResponseEntity<>(result, HttpStatus.OK);
-    } else {
+    checkFireStationsExist(fireStationNumbers);
+
+    long count = jsonStreamWriter.write(response, MediaType.APPLICATION_NDJSON,
+        (Consumer<String> action) ->
+            personService.forEachPhoneByNumberStations(fireStationNumbers, action));
+    // the phones are not logged, as they are not kept in memory
+    log.info(
+        "\nRequest accepted and Response sent\n Request: {}\n Parameters: {}\n"
+            + " Response: {} phones\n",
+        request.getRequestURL(),
+        request.getParameterMap(),
+        count);
 
-      throw new FireStationNotFoundException("FireStation with numberStation: "
-          + fireStationNumber + " was not found. Please choose a existed fireStation!");
+  }
+
+  private void checkFireStationsExist(List<Integer> fireStationNumbers) {
+
+    for (Integer fireStationNumber : fireStationNumbers) {
+
+      if (!fireStationService.existsByNumberStation(fireStationNumber)) {
+
+        throw new FireStationNotFoundException("FireStation with numberStation: "
+            + fireStationNumber + " was not found. Please choose a existed fireStation!");
+      }
     }
 
   }
@@ -208,23 +305,23 @@ public class EmergencyRestController {
                 response = PersonDto.class)
   public ResponseEntity<List<PersonDto>> getPersonsWhenFire(
       @RequestParam(name = "address") String address,
-      HttpServletRequest request) {
+      HttpServletRequest request,
+      WebRequest webRequest) {
+
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
     List<Person> personsInfoWhenFireMappedByAddress =
         personService.getPersonsWhenFireMappedByAddress(address);
 
-    List<PersonDto> personsInfoFireDto = new ArrayList<>();
-
     if (!personsInfoWhenFireMappedByAddress.isEmpty()) {
 
-      for (Person person : personsInfoWhenFireMappedByAddress) {
-
-        personsInfoFireDto.add(
-            new PersonDto(person.getFireStations(), person.getLastName(),
-                          person.getBirthDate(), person.getPhone(),
-                          person.getMedicalRecord()));
-
-      }
+      List<PersonDto> personsInfoFireDto = toFireDtos(personsInfoWhenFireMappedByAddress);
 
       log.info(
           "\nRequest accepted and Response sent \n Request: {}\n Parameters: {}\n Response: {}\n",
@@ -241,6 +338,62 @@ public class EmergencyRestController {
 
   }
 
+  /**
+   * Retrieve persons living at each of the given addresses, as /fire for one address,
+   * in one request when a lot of addresses are concerned (as wildfires).
+   * The addresses are given in body, as a list of hundreds of addresses is too long
+   * for a url. Each address is written with its persons in the response as soon as it's
+   * resolved (see {@link JsonStreamWriter}): a address where nobody lives has a empty list,
+   * so that the other ones are given.
+   *
+   * @param addresses
+   *          addresses where Persons are living, {@value #MAX_FIRE_ADDRESSES} at most.
+   *
+   * @throws IOException  when the response can't be written.
+   */
+  @PostMapping(value = "/fire/addresses", produces = "application/json")
+  @ApiOperation(value = "persons living at each address",
+                notes = "Retrieve a map of given addresses with the persons living at each one",
+                response = PersonDto.class,
+                responseContainer = "Map")
+  public void getPersonsWhenFireByAddresses(
+      @RequestBody List<String> addresses,
+      HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
+
+    if (addresses.isEmpty() || addresses.size() > MAX_FIRE_ADDRESSES) {
+
+      throw new InvalidAddressesException("the list of addresses must contain between 1 and "
+          + MAX_FIRE_ADDRESSES + " addresses");
+    }
+
+    long count = jsonStreamWriter.writeFields(response,
+        (BiConsumer<String, List<PersonDto>> field) -> personService.forEachAddressWhenFire(
+            addresses, (address, persons) -> field.accept(address, toFireDtos(persons))));
+    // persons are not logged, as they are not kept in memory
+    log.info(
+        "\nRequest accepted and Response sent \n Request: {}\n Response: {} addresses\n",
+        request.getRequestURL(),
+        count);
+
+  }
+
+  private static List<PersonDto> toFireDtos(List<Person> persons) {
+
+    List<PersonDto> personsInfoFireDto = new ArrayList<>();
+
+    for (Person person : persons) {
+
+      personsInfoFireDto.add(
+          new PersonDto(person.getFireStations(), person.getLastName(),
+                        person.getBirthDate(), person.getPhone(),
+                        person.getMedicalRecord()));
+    }
+
+    return personsInfoFireDto;
+
+  }
+
   /**
    * Retrieve a list of homes(designed with an address), mapped by the given list of NumberStation
    *  of FireStation, with all Persons living in it.
@@ -258,24 +411,32 @@ public class EmergencyRestController {
                     + " mapped by FireStations whith numberStations given in a list")
   public ResponseEntity<Map<String, List<PersonDto>>> getPersonsWhenFlood(
       @RequestParam(name = "stations") List<Integer> numberStations,
-      HttpServletRequest request) {
+      HttpServletRequest request,
+      WebRequest webRequest) {
+
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
     Map<String, List<PersonDto>> result = new LinkedHashMap<>();
 
+    FloodStations floodStations = personService.getPersonsWhenFloodByStations(numberStations);
+
     //check list of existed numberStation
     for (Integer station : numberStations) {
 
-      if (!fireStationService.getFireStationByNumberStation(station).isPresent()) {
+      if (floodStations.getNotFoundStations().contains(station)) {
 
         throw new FireStationNotFoundException("the Firestation with numberStation: " + station
             + " was not found.Please replace it by existed FireStation");
       }
     }
 
-    Map<String, List<Person>> personsWhenFloodGroupByAddress =
-        personService.getPersonsWhenFloodByStations(numberStations);
-
-
+    Map<String, List<Person>> personsWhenFloodGroupByAddress = floodStations.getHomes();
 
     for (String key : personsWhenFloodGroupByAddress.keySet()) {
 
@@ -318,8 +479,16 @@ public class EmergencyRestController {
   public ResponseEntity<List<PersonDto>> getPersonInfo(
       @RequestParam(name = "firstName") String firstName,
       @RequestParam(name = "lastName") String lastName,
-      HttpServletRequest request) {
+      HttpServletRequest request,
+      WebRequest webRequest) {
 
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
+
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
     List<PersonDto> personsInfoDto = new ArrayList<>();
 
@@ -367,11 +536,16 @@ public class EmergencyRestController {
 
   /**
    * retrieve all Email of persons living in a city without duplicates.
+   * Emails are written one after another in the response (see {@link JsonStreamWriter}),
+   * as a city can have a lot of persons.
    *
    * @param city
    *        the city represented by a String
    *
-   * @return a ResponseEntity with a list of all Email of persons in given city
+   * @return a ResponseEntity with a message if there is nobody in given city,
+   *         else null as the list of all Email of persons in given city is written in response.
+   *
+   * @throws IOException  when the response can't be written.
    */
 
   @GetMapping(value = "/communityEmail", produces = "application/json")
@@ -379,11 +553,19 @@ public class EmergencyRestController {
                 response = String.class)
   public ResponseEntity<?> getEmailsFromCity(
       @RequestParam(name = "city") String city,
-      HttpServletRequest request) {
+      HttpServletRequest request,
+      WebRequest webRequest,
+      HttpServletResponse response) throws IOException {
+
+    if (webRequest.checkNotModified(dataVersion.getETag())) {
 
-    List<String> emails = personService.getEmailsByCity(city);
+      log.info("Request accepted and not modified \n Request: {}\n Parameters: {}\n",
+          request.getRequestURL(),
+          request.getParameterMap());
+      return null;
+    }
 
-    if (emails.isEmpty()) {
+    if (!personService.existsByCity(city)) {
 
       log.info(
           "\nRequest accepted But the city doesn't exist or there is nobody in."
@@ -394,12 +576,16 @@ public class EmergencyRestController {
           .ok("there is nobody in this city or the city is not indexed in database");
     } else {
 
+      long count = jsonStreamWriter.write(response, MediaType.APPLICATION_JSON,
+          (Consumer<String> action) -> personService.forEachEmailByCity(city, action));
+      // the emails are not logged, as they are not kept in memory
       log.info(
-          "\nRequest accepted and Response sent\n Request: {}\n Parameters: {}\n Response: {}\n",
+          "\nRequest accepted and Response sent\n Request: {}\n Parameters: {}\n"
+              + " Response: {} emails\n",
           request.getRequestURL(),
           request.getParameterMap(),
-          emails);
-      return ResponseEntity.ok(emails);
+          count);
+      return null;
     }
 
   }
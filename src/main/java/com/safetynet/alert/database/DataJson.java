@@ -0,0 +1,31 @@
+package com.safetynet.alert.database;
+
+import com.safetynet.alert.model.Person;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Representation of the whole source file json, with its arrays
+ * "persons", "firestations" and "medicalrecords".
+ * Used to compare the file with the database when it's changed.
+ *
+ * @author delaval
+ *
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class DataJson {
+
+  private List<Person> persons = new ArrayList<>();
+
+  private List<FireStationJson> firestations = new ArrayList<>();
+
+  private List<MedicalRecordJson> medicalrecords = new ArrayList<>();
+
+}
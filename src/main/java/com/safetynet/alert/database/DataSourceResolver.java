@@ -0,0 +1,142 @@
+package com.safetynet.alert.database;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Component resolving the location of a source of data for the {@link LoadDataStrategy}:
+ * <ul>
+ * <li>classpath:json/data.json for a resource of classpath, even inside the jar of application
+ * <li>file:/data/data.json or any other URL
+ * <li>/data/data.json, a path of filesystem without prefix
+ * </ul>
+ * A source on filesystem is read with a buffered stream, or by memory mapping when its size is
+ * at least loader.source.mmap-threshold. A source compressed with gzip is decompressed.
+ *
+ * @author delaval
+ *
+ */
+@Component
+@Log4j2
+public class DataSourceResolver {
+
+  @Value("${loader.source.mmap-threshold:64MB}")
+  private DataSize mmapThreshold = DataSize.ofMegabytes(64);
+
+  private ResourceLoader resourceLoader;
+
+  /**
+   * Constructor with fields.
+   *
+   * @param resourceLoader
+   *          a {@link ResourceLoader} for loading resources of classpath and URLs.
+   */
+  @Autowired
+  public DataSourceResolver(ResourceLoader resourceLoader) {
+
+    this.resourceLoader = resourceLoader;
+
+  }
+
+  /**
+   * Resolve the resource of a location.
+   *
+   * @param location    location of source (classpath:, URL or path of filesystem).
+   *
+   * @return  the resource of source.
+   */
+  public Resource resolve(String location) {
+
+    if (ResourceUtils.isUrl(location)) {
+
+      return resourceLoader.getResource(location);
+    }
+
+    return new FileSystemResource(location);
+
+  }
+
+  /**
+   * Open the stream of a source.
+   *
+   * @param location    location of source (classpath:, URL or path of filesystem).
+   *
+   * @return  the stream of source, decompressed if it's a gzip.
+   *
+   * @throws FileNotFoundException  when the source doesn't exist.
+   * @throws IOException            when the source can't be read.
+   */
+  public SourceInput open(String location) throws IOException {
+
+    Resource resource = resolve(location);
+
+    if (!resource.exists()) {
+
+      throw new FileNotFoundException(location + " doesn't exist");
+    }
+
+    if (resource.isFile()) {
+
+      Path path = resource.getFile().toPath();
+      long size = Files.size(path);
+      boolean mapped = size >= mmapThreshold.toBytes();
+      log.debug("\nSource {} of {} bytes is read {}\n", path, size,
+          mapped ? "by memory mapping" : "by a buffered stream");
+
+      InputStream source = mapped ? new MappedFileInputStream(path) : Files.newInputStream(path);
+      return SourceInput.of(source, size);
+    }
+
+    long size;
+
+    try {
+
+      size = resource.contentLength();
+
+    } catch (IOException e) {
+
+      size = -1;
+    }
+
+    return SourceInput.of(resource.getInputStream(), size);
+
+  }
+
+  /**
+   * Retrieve the file of a source, when it's on filesystem (to watch it for example).
+   *
+   * @param location    location of source.
+   *
+   * @return  the file of source, or Optional.empty() if the source is not a file of filesystem
+   *          (as a resource inside the jar of application).
+   */
+  public Optional<File> findFile(String location) {
+
+    Resource resource = resolve(location);
+
+    try {
+
+      return resource.isFile() ? Optional.of(resource.getFile()) : Optional.empty();
+
+    } catch (IOException e) {
+
+      return Optional.empty();
+    }
+
+  }
+
+}
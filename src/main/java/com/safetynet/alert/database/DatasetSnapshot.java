@@ -0,0 +1,575 @@
+package com.safetynet.alert.database;
+
+import com.safetynet.alert.model.Allergy;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Medication;
+import com.safetynet.alert.model.Person;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import javax.persistence.EntityManager;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.Session;
+
+/**
+ * Binary snapshot of the dataset saved in database, used by {@link LoadDatabaseFromSnapshot}
+ * to restore it at next start without parsing the file json again.
+ * Layout of file (big endian), with sections in the order of restore:
+ * <pre>
+ * header                    magic, version, checksum of file json
+ * strings                   count, then for each: length and UTF-8 bytes
+ * medications               count, then for each: designation, posology
+ * allergies                 count, then for each: designation
+ * medicalRecords            count
+ * attribution_medication    count, then pairs (medicalRecord, medication)
+ * attribution_allergy       count, then pairs (medicalRecord, allergy)
+ * persons                   count, then for each: firstName, lastName, address, city, zip,
+ *                           phone, email, medicalRecord, birthDate
+ * fireStations              count, then for each: numberStation
+ * fire_station_addresses    count, then pairs (fireStation, address)
+ * person_firestation        count, then pairs (fireStation, person)
+ * end                       magic
+ * </pre>
+ * Strings are written once in the dictionary and referenced by their index (-1 for null),
+ * entities are referenced by their index in their section: every record has a fixed width
+ * and pairs are sorted by their first index to be read with a cursor.
+ * The file is read by a memory mapping, so it's limited to 2 GB.
+ *
+ * @author delaval
+ *
+ */
+@Log4j2
+public class DatasetSnapshot {
+
+  private static final int MAGIC = 0x534e4153;
+  private static final int VERSION = 1;
+  private static final int NULL_INDEX = -1;
+  private static final long NULL_DATE = Long.MIN_VALUE;
+
+  private final EntityManager entityManager;
+  private final int batchSize;
+  private final LoadStatistics statistics;
+
+  private int pendingRows;
+
+  /**
+   * Constructor with the entityManager used to read or restore the dataset.
+   *
+   * @param entityManager   the entityManager of the current transaction.
+   * @param batchSize       number of entities persisted between two flushes during restore.
+   * @param statistics      statistics of the restore.
+   */
+  public DatasetSnapshot(EntityManager entityManager, int batchSize, LoadStatistics statistics) {
+
+    this.entityManager = entityManager;
+    this.batchSize = Math.max(batchSize, 1);
+    this.statistics = statistics;
+
+  }
+
+  /**
+   * Calculate the checksum of a source, to detect when it's changed since the snapshot.
+   *
+   * @param source    the source (file json) of the dataset.
+   *
+   * @return  the CRC32 of source.
+   *
+   * @throws IOException  when the source can't be read.
+   */
+  public static long checksum(InputStream source) throws IOException {
+
+    CRC32 crc = new CRC32();
+    byte[] buffer = new byte[64 * 1024];
+    int read;
+
+    while ((read = source.read(buffer)) != -1) {
+
+      crc.update(buffer, 0, read);
+    }
+
+    return crc.getValue();
+
+  }
+
+  /**
+   * Write the snapshot of the dataset saved in database.
+   * Rows are read by queries of columns only, without loading entities,
+   * and the file is written in a temporary file before to replace the previous snapshot.
+   *
+   * @param path              path of snapshot.
+   * @param sourceChecksum    checksum of the source of dataset.
+   *
+   * @throws IOException  when the snapshot can't be written.
+   */
+  public void export(Path path, long sourceChecksum) throws IOException {
+
+    Map<String, Integer> strings = new LinkedHashMap<>();
+
+    List<Object[]> medications = entityManager.createQuery(
+        "select m.idMedication, m.designation, m.posology from Medication m"
+            + " order by m.idMedication", Object[].class).getResultList();
+    List<Object[]> allergies = entityManager.createQuery(
+        "select a.idAllergy, a.designation from Allergy a order by a.idAllergy",
+        Object[].class).getResultList();
+    List<Long> medicalRecords = entityManager.createQuery(
+        "select mr.idMedicalRecord from MedicalRecord mr order by mr.idMedicalRecord",
+        Long.class).getResultList();
+    List<Object[]> persons = entityManager.createQuery(
+        "select p.idPerson, p.firstName, p.lastName, p.address, p.city, p.zip, p.phone,"
+            + " p.email, mr.idMedicalRecord, p.birthDate"
+            + " from Person p left join p.medicalRecord mr order by p.idPerson",
+        Object[].class).getResultList();
+    List<Object[]> fireStations = entityManager.createQuery(
+        "select f.idFireStation, f.numberStation from FireStation f order by f.idFireStation",
+        Object[].class).getResultList();
+
+    Map<Long, Integer> medicationIndexes = indexesOf(medications);
+    Map<Long, Integer> allergyIndexes = indexesOf(allergies);
+    Map<Long, Integer> medicalRecordIndexes = new HashMap<>();
+
+    for (Long idMedicalRecord : medicalRecords) {
+
+      medicalRecordIndexes.put(idMedicalRecord, medicalRecordIndexes.size());
+    }
+
+    Map<Long, Integer> personIndexes = indexesOf(persons);
+    Map<Long, Integer> fireStationIndexes = indexesOf(fireStations);
+
+    List<int[]> attributionMedications = pairsOf(
+        "select mr.idMedicalRecord, m.idMedication from MedicalRecord mr join mr.medications m",
+        medicalRecordIndexes, medicationIndexes);
+    List<int[]> attributionAllergies = pairsOf(
+        "select mr.idMedicalRecord, a.idAllergy from MedicalRecord mr join mr.allergies a",
+        medicalRecordIndexes, allergyIndexes);
+    List<int[]> personFireStations = pairsOf(
+        "select f.idFireStation, p.idPerson from FireStation f join f.persons p",
+        fireStationIndexes, personIndexes);
+
+    List<int[]> fireStationAddresses = new ArrayList<>();
+
+    for (Object[] row : entityManager.createQuery(
+        "select f.idFireStation, a from FireStation f join f.addresses a", Object[].class)
+        .getResultList()) {
+
+      fireStationAddresses.add(new int[] {fireStationIndexes.get((Long) row[0]),
+                                          indexOf(strings, (String) row[1])});
+    }
+
+    // strings are indexed before to write their dictionary at the beginning of file
+
+    int[][] medicationRecords = new int[medications.size()][];
+
+    for (int i = 0; i < medications.size(); i++) {
+
+      medicationRecords[i] = new int[] {indexOf(strings, (String) medications.get(i)[1]),
+                                        indexOf(strings, (String) medications.get(i)[2])};
+    }
+
+    int[] allergyRecords = new int[allergies.size()];
+
+    for (int i = 0; i < allergies.size(); i++) {
+
+      allergyRecords[i] = indexOf(strings, (String) allergies.get(i)[1]);
+    }
+
+    int[][] personRecords = new int[persons.size()][];
+
+    for (int i = 0; i < persons.size(); i++) {
+
+      Object[] person = persons.get(i);
+      Integer zip = (Integer) person[5];
+      personRecords[i] = new int[] {indexOf(strings, (String) person[1]),
+                                    indexOf(strings, (String) person[2]),
+                                    indexOf(strings, (String) person[3]),
+                                    indexOf(strings, (String) person[4]),
+                                    (zip == null) ? NULL_INDEX : zip,
+                                    indexOf(strings, (String) person[6]),
+                                    indexOf(strings, (String) person[7]),
+                                    (person[8] == null) ? NULL_INDEX
+                                        : medicalRecordIndexes.get((Long) person[8])};
+    }
+
+    Files.createDirectories(path.toAbsolutePath().getParent());
+    Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temporaryPath), 64 * 1024))) {
+
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(sourceChecksum);
+
+      out.writeInt(strings.size());
+
+      for (String string : strings.keySet()) {
+
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+
+      out.writeInt(medicationRecords.length);
+
+      for (int[] medication : medicationRecords) {
+
+        out.writeInt(medication[0]);
+        out.writeInt(medication[1]);
+      }
+
+      out.writeInt(allergyRecords.length);
+
+      for (int allergy : allergyRecords) {
+
+        out.writeInt(allergy);
+      }
+
+      out.writeInt(medicalRecords.size());
+      writePairs(out, attributionMedications);
+      writePairs(out, attributionAllergies);
+
+      out.writeInt(personRecords.length);
+
+      for (int i = 0; i < personRecords.length; i++) {
+
+        for (int field : personRecords[i]) {
+
+          out.writeInt(field);
+        }
+
+        Date birthDate = (Date) persons.get(i)[9];
+        out.writeLong((birthDate == null) ? NULL_DATE : birthDate.getTime());
+      }
+
+      out.writeInt(fireStations.size());
+
+      for (Object[] fireStation : fireStations) {
+
+        Integer numberStation = (Integer) fireStation[1];
+        out.writeInt((numberStation == null) ? NULL_INDEX : numberStation);
+      }
+
+      writePairs(out, fireStationAddresses);
+      writePairs(out, personFireStations);
+
+      out.writeInt(MAGIC);
+    }
+
+    Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING);
+    log.debug("\nSnapshot written in {}: {} bytes\n", path, Files.size(path));
+
+  }
+
+  /**
+   * Restore the dataset of snapshot in database, if it was written from the same source.
+   * Entities are persisted in the order of sections, each one referencing the entities
+   * persisted before by their id only, and the persistence context is flushed and cleared
+   * every batchSize entities: inserts are sent by JDBC batches and memory used stays bounded.
+   *
+   * @param path              path of snapshot.
+   * @param sourceChecksum    checksum of the current source of dataset.
+   *
+   * @return  true if the dataset is restored, false if the snapshot is not valid
+   *          or written from another source (nothing is saved in this case).
+   *
+   * @throws IOException  when the snapshot can't be read.
+   */
+  public boolean restore(Path path, long sourceChecksum) throws IOException {
+
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+
+      if ((channel.size() < 20) || (buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+
+        log.warn("File {} is not a valid snapshot", path);
+        return false;
+      }
+
+      if (buffer.getLong() != sourceChecksum) {
+
+        log.info("Snapshot {} is outdated: file json is changed since it was written", path);
+        return false;
+      }
+
+      if (buffer.getInt((int) channel.size() - 4) != MAGIC) {
+
+        log.warn("Snapshot {} is truncated", path);
+        return false;
+      }
+
+      statistics.setSourceBytes(channel.size());
+      entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+
+      String[] strings = new String[buffer.getInt()];
+
+      for (int i = 0; i < strings.length; i++) {
+
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        strings[i] = new String(bytes, StandardCharsets.UTF_8);
+      }
+
+      long[] medicationIds = new long[buffer.getInt()];
+
+      for (int i = 0; i < medicationIds.length; i++) {
+
+        Medication medication = new Medication();
+        medication.setDesignation(stringAt(strings, buffer.getInt()));
+        medication.setPosology(stringAt(strings, buffer.getInt()));
+        persist(medication, buffer);
+        medicationIds[i] = medication.getIdMedication();
+      }
+
+      statistics.addRows(LoadStatistics.TABLE_MEDICATION, medicationIds.length);
+
+      long[] allergyIds = new long[buffer.getInt()];
+
+      for (int i = 0; i < allergyIds.length; i++) {
+
+        Allergy allergy = new Allergy();
+        allergy.setDesignation(stringAt(strings, buffer.getInt()));
+        persist(allergy, buffer);
+        allergyIds[i] = allergy.getIdAllergy();
+      }
+
+      statistics.addRows(LoadStatistics.TABLE_ALLERGY, allergyIds.length);
+
+      long[] medicalRecordIds = new long[buffer.getInt()];
+      PairCursor attributionMedications = new PairCursor(buffer, buffer.position());
+      PairCursor attributionAllergies =
+          new PairCursor(buffer, attributionMedications.getEndPosition());
+
+      for (int i = 0; i < medicalRecordIds.length; i++) {
+
+        MedicalRecord medicalRecord = new MedicalRecord();
+
+        while (attributionMedications.hasPairFor(i)) {
+
+          medicalRecord.add(entityManager.getReference(Medication.class,
+              medicationIds[attributionMedications.next()]));
+          statistics.addRows(LoadStatistics.TABLE_ATTRIBUTION_MEDICATION, 1);
+        }
+
+        while (attributionAllergies.hasPairFor(i)) {
+
+          medicalRecord.add(entityManager.getReference(Allergy.class,
+              allergyIds[attributionAllergies.next()]));
+          statistics.addRows(LoadStatistics.TABLE_ATTRIBUTION_ALLERGY, 1);
+        }
+
+        persist(medicalRecord, buffer);
+        medicalRecordIds[i] = medicalRecord.getIdMedicalRecord();
+        statistics.increment(LoadStatistics.MEDICALRECORDS);
+      }
+
+      statistics.addRows(LoadStatistics.TABLE_MEDICAL_RECORD, medicalRecordIds.length);
+      buffer.position(attributionAllergies.getEndPosition());
+
+      long[] personIds = new long[buffer.getInt()];
+
+      for (int i = 0; i < personIds.length; i++) {
+
+        Person person = new Person();
+        person.setFirstName(stringAt(strings, buffer.getInt()));
+        person.setLastName(stringAt(strings, buffer.getInt()));
+        person.setAddress(stringAt(strings, buffer.getInt()));
+        person.setCity(stringAt(strings, buffer.getInt()));
+        int zip = buffer.getInt();
+        person.setZip((zip == NULL_INDEX) ? null : zip);
+        person.setPhone(stringAt(strings, buffer.getInt()));
+        person.setEmail(stringAt(strings, buffer.getInt()));
+        int medicalRecord = buffer.getInt();
+
+        if (medicalRecord != NULL_INDEX) {
+
+          person.setMedicalRecord(entityManager.getReference(MedicalRecord.class,
+              medicalRecordIds[medicalRecord]));
+        }
+
+        long birthDate = buffer.getLong();
+        person.setBirthDate((birthDate == NULL_DATE) ? null : new Date(birthDate));
+
+        persist(person, buffer);
+        personIds[i] = person.getIdPerson();
+        statistics.increment(LoadStatistics.PERSONS);
+      }
+
+      statistics.addRows(LoadStatistics.TABLE_PERSON, personIds.length);
+
+      int fireStationCount = buffer.getInt();
+      int numberStationsPosition = buffer.position();
+      PairCursor fireStationAddresses =
+          new PairCursor(buffer, numberStationsPosition + (fireStationCount * 4));
+      PairCursor personFireStations =
+          new PairCursor(buffer, fireStationAddresses.getEndPosition());
+
+      for (int i = 0; i < fireStationCount; i++) {
+
+        int numberStation = buffer.getInt(numberStationsPosition + (i * 4));
+
+        FireStation fireStation = new FireStation();
+        fireStation.setNumberStation((numberStation == NULL_INDEX) ? null : numberStation);
+
+        while (fireStationAddresses.hasPairFor(i)) {
+
+          fireStation.addAddress(stringAt(strings, fireStationAddresses.next()));
+          statistics.addRows(LoadStatistics.TABLE_FIRE_STATION_ADDRESSES, 1);
+          statistics.increment(LoadStatistics.FIRESTATIONS);
+        }
+
+        while (personFireStations.hasPairFor(i)) {
+
+          fireStation.addPerson(entityManager.getReference(Person.class,
+              personIds[personFireStations.next()]));
+          statistics.addRows(LoadStatistics.TABLE_PERSON_FIRESTATION, 1);
+        }
+
+        persist(fireStation, buffer);
+      }
+
+      statistics.addRows(LoadStatistics.TABLE_FIRE_STATION, fireStationCount);
+      flush(buffer);
+      return true;
+    }
+
+  }
+
+  private void persist(Object entity, ByteBuffer buffer) {
+
+    entityManager.persist(entity);
+
+    if (++pendingRows >= batchSize) {
+
+      flush(buffer);
+    }
+
+  }
+
+  private void flush(ByteBuffer buffer) {
+
+    entityManager.flush();
+    entityManager.clear();
+    statistics.incrementFlushes();
+    statistics.updateSourceProgress(buffer.position());
+    pendingRows = 0;
+
+  }
+
+  private static String stringAt(String[] strings, int index) {
+
+    return (index == NULL_INDEX) ? null : strings[index];
+
+  }
+
+  private static int indexOf(Map<String, Integer> strings, String string) {
+
+    if (string == null) {
+
+      return NULL_INDEX;
+    }
+
+    return strings.computeIfAbsent(string, key -> strings.size());
+
+  }
+
+  private static Map<Long, Integer> indexesOf(List<Object[]> rows) {
+
+    Map<Long, Integer> indexes = new HashMap<>();
+
+    for (Object[] row : rows) {
+
+      indexes.put((Long) row[0], indexes.size());
+    }
+
+    return indexes;
+
+  }
+
+  private List<int[]> pairsOf(String query,
+                              Map<Long, Integer> firstIndexes,
+                              Map<Long, Integer> secondIndexes) {
+
+    List<int[]> pairs = new ArrayList<>();
+
+    for (Object[] row : entityManager.createQuery(query, Object[].class).getResultList()) {
+
+      pairs.add(new int[] {firstIndexes.get((Long) row[0]), secondIndexes.get((Long) row[1])});
+    }
+
+    return pairs;
+
+  }
+
+  private static void writePairs(DataOutputStream out, List<int[]> pairs) throws IOException {
+
+    pairs.sort(Comparator.comparingInt((int[] pair) -> pair[0])
+        .thenComparingInt(pair -> pair[1]));
+    out.writeInt(pairs.size());
+
+    for (int[] pair : pairs) {
+
+      out.writeInt(pair[0]);
+      out.writeInt(pair[1]);
+    }
+
+  }
+
+  /**
+   * Cursor reading a section of pairs sorted by their first index,
+   * independently of the position of the buffer of snapshot.
+   */
+  private static final class PairCursor {
+
+    private final ByteBuffer pairs;
+    private int remaining;
+
+    private PairCursor(ByteBuffer buffer, int position) {
+
+      pairs = buffer.duplicate();
+      pairs.position(position);
+      remaining = pairs.getInt();
+
+    }
+
+    private boolean hasPairFor(int first) {
+
+      return (remaining > 0) && (pairs.getInt(pairs.position()) == first);
+
+    }
+
+    private int next() {
+
+      remaining--;
+      pairs.getInt();
+      return pairs.getInt();
+
+    }
+
+    private int getEndPosition() {
+
+      return pairs.position() + (remaining * 8);
+
+    }
+
+  }
+
+}
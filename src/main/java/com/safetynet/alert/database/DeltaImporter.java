@@ -0,0 +1,649 @@
+package com.safetynet.alert.database;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.model.Allergy;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Medication;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.DataChangeEvent;
+import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.MedicalRecordService;
+import com.safetynet.alert.service.MedicationService;
+import com.safetynet.alert.service.PersonService;
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service importing the changes of source file json in database, without reloading it.
+ * The file is compared with the current database by natural keys:
+ * <ul>
+ * <li>persons and medicalRecords by firstName and lastName
+ * <li>mappings of fireStations by numberStation and address
+ * <li>medications by designation:posology and allergies by designation
+ * </ul>
+ * The database is read by queries of columns only, and only the inserts, updates
+ * and deletes found by this diff are applied, by phases (persons, mappings of fireStations,
+ * medicalRecords, then unused medications and allergies) and in transactions
+ * of batchSize changes. If a transaction fails, the next import of file
+ * compares it again with the database and applies the remaining changes.
+ *
+ * @author delaval
+ *
+ */
+@Service
+@Log4j2
+public class DeltaImporter {
+
+  @Autowired
+  private PersonService personService;
+  @Autowired
+  private FireStationService fireStationService;
+  @Autowired
+  private MedicalRecordService medicalRecordService;
+  @Autowired
+  private MedicationService medicationService;
+  @Autowired
+  private AllergyService allergyService;
+
+  @Autowired
+  private DataSourceResolver dataSourceResolver;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${loader.bulk.batch-size:50}")
+  private int batchSize;
+
+  private ObjectMapper objectMapper;
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * Constructor with fields.
+   *
+   * @param mapper
+   *          a {@link ObjectMapper} to read the source file json.
+   *
+   * @param transactionManager
+   *          the transaction manager used to apply changes by batches.
+   */
+  @Autowired
+  public DeltaImporter(ObjectMapper mapper, PlatformTransactionManager transactionManager) {
+
+    this.objectMapper = mapper;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+  }
+
+  /**
+   * Compare the source file with the database and apply their differences.
+   *
+   * @param source    the source file json.
+   *
+   * @return  the report of changes applied in database.
+   *
+   * @throws IOException  when the source file can't be read.
+   */
+  public synchronized DeltaReport importChanges(File source) throws IOException {
+
+    log.debug("\n\n**************** Starting to import changes of {} ***************\n",
+        source.getName());
+
+    DataJson data;
+
+    try (SourceInput input = dataSourceResolver.open(source.getPath())) {
+
+      data = objectMapper.readValue(input, DataJson.class);
+    }
+
+    DeltaReport report = new DeltaReport();
+
+    // persons and addresses changed, to update the read model only with them
+    DataChangeEvent event = DataChangeEvent.empty();
+
+    // persons inserted or with a new address, to map them again with fireStations
+    Set<String> remappedPersons = new HashSet<>();
+
+    Map<String, Person> persons = new LinkedHashMap<>();
+
+    for (Person person : data.getPersons()) {
+
+      persons.put(key(person.getFirstName(), person.getLastName()), person);
+    }
+
+    apply(diffPersons(persons, remappedPersons, report, event));
+    apply(diffFireStations(data.getFirestations(), report, event));
+
+    List<Runnable> remappings = new ArrayList<>();
+
+    for (String remappedPerson : remappedPersons) {
+
+      Person person = persons.get(remappedPerson);
+      remappings.add(() -> remapPerson(person.getFirstName(), person.getLastName()));
+    }
+
+    apply(remappings);
+    apply(diffMedicalRecords(data.getMedicalrecords(), persons, report, event));
+    apply(diffMedicationsAndAllergies(data.getMedicalrecords(), report));
+
+    // changes were applied in several transactions: the read model is updated once,
+    // after all of them (unused medications and allergies don't change it)
+    eventPublisher.publishEvent(event);
+
+    log.info("\n\n ************** Import of changes of {} terminated with success ***********\n"
+        + " {}\n", source.getName(), report);
+    return report;
+
+  }
+
+  private List<Runnable> diffPersons(Map<String, Person> persons,
+                                     Set<String> remappedPersons,
+                                     DeltaReport report,
+                                     DataChangeEvent event) {
+
+    List<Runnable> changes = new ArrayList<>();
+    Map<String, Object[]> currentPersons = new HashMap<>();
+
+    for (Object[] row : entityManager.createQuery(
+        "select p.firstName, p.lastName, p.address, p.city, p.zip, p.phone, p.email"
+            + " from Person p", Object[].class).getResultList()) {
+
+      currentPersons.put(key((String) row[0], (String) row[1]), row);
+    }
+
+    for (Map.Entry<String, Person> entry : persons.entrySet()) {
+
+      Person person = entry.getValue();
+      Object[] currentPerson = currentPersons.get(entry.getKey());
+
+      if (currentPerson == null) {
+
+        changes.add(() -> personService.savePerson(person));
+        remappedPersons.add(entry.getKey());
+        report.inserted(LoadStatistics.PERSONS);
+        event.andPerson(person.getFirstName(), person.getLastName());
+
+      } else if (!Objects.equals(currentPerson[2], person.getAddress())
+          || !Objects.equals(currentPerson[3], person.getCity())
+          || !Objects.equals(currentPerson[4], person.getZip())
+          || !Objects.equals(currentPerson[5], person.getPhone())
+          || !Objects.equals(currentPerson[6], person.getEmail())) {
+
+        changes.add(() -> updatePerson(person));
+        report.updated(LoadStatistics.PERSONS);
+        event.andPerson(person.getFirstName(), person.getLastName());
+
+        if (!Objects.equals(currentPerson[2], person.getAddress())) {
+
+          remappedPersons.add(entry.getKey());
+        }
+      }
+    }
+
+    for (Map.Entry<String, Object[]> entry : currentPersons.entrySet()) {
+
+      if (!persons.containsKey(entry.getKey())) {
+
+        String firstName = (String) entry.getValue()[0];
+        String lastName = (String) entry.getValue()[1];
+        changes.add(() -> personService.getPersonByNames(firstName, lastName)
+            .ifPresent(personService::deletePerson));
+        report.deleted(LoadStatistics.PERSONS);
+        event.andPerson(firstName, lastName);
+      }
+    }
+
+    return changes;
+
+  }
+
+  private void updatePerson(Person updatedPerson) {
+
+    personService.getPersonByNames(updatedPerson.getFirstName(), updatedPerson.getLastName())
+        .ifPresent(currentPerson -> {
+
+          currentPerson.setAddress(updatedPerson.getAddress());
+          currentPerson.setCity(updatedPerson.getCity());
+          currentPerson.setZip(updatedPerson.getZip());
+          currentPerson.setPhone(updatedPerson.getPhone());
+          currentPerson.setEmail(updatedPerson.getEmail());
+          personService.savePerson(currentPerson);
+        });
+
+  }
+
+  private List<Runnable> diffFireStations(List<FireStationJson> fireStations,
+                                          DeltaReport report,
+                                          DataChangeEvent event) {
+
+    List<Runnable> unmappings = new ArrayList<>();
+    List<Runnable> mappings = new ArrayList<>();
+    List<Runnable> deletions = new ArrayList<>();
+
+    Set<String> currentMappings = new HashSet<>();
+
+    for (Object[] row : entityManager.createQuery(
+        "select f.numberStation, a from FireStation f join f.addresses a", Object[].class)
+        .getResultList()) {
+
+      currentMappings.add(row[0] + ":" + row[1]);
+    }
+
+    Set<Integer> numberStations = new HashSet<>();
+    Set<String> newMappings = new LinkedHashSet<>();
+
+    for (FireStationJson fireStation : fireStations) {
+
+      numberStations.add(fireStation.getStation());
+
+      String mapping = fireStation.getStation() + ":" + fireStation.getAddress();
+
+      if (newMappings.add(mapping) && !currentMappings.contains(mapping)) {
+
+        mappings.add(() -> mapAddress(fireStation.getStation(), fireStation.getAddress()));
+        report.inserted(LoadStatistics.FIRESTATIONS);
+        // the fireStation may be created with its first address
+        event.andFireStation(fireStation.getStation(),
+            Collections.singleton(fireStation.getAddress()));
+      }
+    }
+
+    for (String mapping : currentMappings) {
+
+      if (!newMappings.contains(mapping)) {
+
+        String[] composition = mapping.split(":", 2);
+        unmappings.add(() -> unmapAddress(Integer.parseInt(composition[0]), composition[1]));
+        report.deleted(LoadStatistics.FIRESTATIONS);
+        event.andAddress(composition[1]);
+      }
+    }
+
+    for (Integer numberStation : entityManager.createQuery(
+        "select f.numberStation from FireStation f", Integer.class).getResultList()) {
+
+      if (!numberStations.contains(numberStation)) {
+
+        deletions.add(() -> deleteFireStation(numberStation));
+        event.andFireStation(numberStation, Collections.emptySet());
+      }
+    }
+
+    List<Runnable> changes = new ArrayList<>(unmappings);
+    changes.addAll(mappings);
+    changes.addAll(deletions);
+    return changes;
+
+  }
+
+  /**
+   * Map a address with a fireStation, created if it doesn't exist, by inserts in tables
+   * of mapping: the persons of fireStation are not loaded. Persons remapped later
+   * by their own side are mapped again with the same fireStations.
+   */
+  private void mapAddress(int numberStation, String address) {
+
+    FireStation fireStation = fireStationService.getFireStationByNumberStation(numberStation)
+        .orElseGet(() -> {
+
+          FireStation newFireStation = new FireStation();
+          newFireStation.setNumberStation(numberStation);
+          return fireStationService.saveFireStation(newFireStation);
+        });
+
+    fireStationService.addAddress(fireStation.getIdFireStation(), address);
+    log.debug("\nAddress {} mapped with FireStation {}\n", address, numberStation);
+
+  }
+
+  private void unmapAddress(int numberStation, String address) {
+
+    fireStationService.getFireStationByNumberStation(numberStation).ifPresent(fireStation -> {
+
+      fireStationService.removeAddress(fireStation.getIdFireStation(), address);
+      log.debug("\nAddress {} unmapped from FireStation {}\n", address, numberStation);
+    });
+
+  }
+
+  private void deleteFireStation(int numberStation) {
+
+    fireStationService.getFireStationByNumberStation(numberStation).ifPresent(fireStation -> {
+
+      // the mapping is deleted by targeted deletes, then the fireStation is read again
+      fireStationService.clearMapping(fireStation.getIdFireStation());
+      fireStationService.getFireStationById(fireStation.getIdFireStation())
+          .ifPresent(fireStationService::deleteFireStation);
+      log.debug("\nFireStation {} deleted\n", numberStation);
+    });
+
+  }
+
+  private void remapPerson(String firstName, String lastName) {
+
+    personService.getPersonByNames(firstName, lastName).ifPresent(person -> {
+
+      person.clearFireStations();
+      person.addFireStations(fireStationService.getFireStationsMappedToAddress(
+          person.getAddress()));
+      personService.savePerson(person);
+    });
+
+  }
+
+  private List<Runnable> diffMedicalRecords(List<MedicalRecordJson> medicalRecords,
+                                            Map<String, Person> persons,
+                                            DeltaReport report,
+                                            DataChangeEvent event) {
+
+    List<Runnable> changes = new ArrayList<>();
+    SimpleDateFormat birthDateFormat = new SimpleDateFormat("MM/dd/yyyy");
+
+    Map<String, String> currentBirthDates = new HashMap<>();
+    Map<String, Set<MedicationService.NaturalKey>> currentMedications = new HashMap<>();
+    Map<String, Set<String>> currentAllergies = new HashMap<>();
+
+    for (Object[] row : entityManager.createQuery(
+        "select p.firstName, p.lastName, p.birthDate from Person p join p.medicalRecord mr",
+        Object[].class).getResultList()) {
+
+      currentBirthDates.put(key((String) row[0], (String) row[1]),
+          (row[2] == null) ? null : birthDateFormat.format((Date) row[2]));
+    }
+
+    for (Object[] row : entityManager.createQuery(
+        "select p.firstName, p.lastName, m.designation, m.posology"
+            + " from Person p join p.medicalRecord mr join mr.medications m",
+        Object[].class).getResultList()) {
+
+      currentMedications.computeIfAbsent(key((String) row[0], (String) row[1]),
+          names -> new HashSet<>())
+          .add(MedicationService.naturalKey((String) row[2], (String) row[3]));
+    }
+
+    for (Object[] row : entityManager.createQuery(
+        "select p.firstName, p.lastName, a.designation"
+            + " from Person p join p.medicalRecord mr join mr.allergies a",
+        Object[].class).getResultList()) {
+
+      currentAllergies.computeIfAbsent(key((String) row[0], (String) row[1]),
+          names -> new HashSet<>())
+          .add((String) row[2]);
+    }
+
+    Set<String> medicalRecordNames = new HashSet<>();
+
+    for (MedicalRecordJson medicalRecord : medicalRecords) {
+
+      String names = key(medicalRecord.getFirstName(), medicalRecord.getLastName());
+
+      if (!persons.containsKey(names)) {
+
+        log.warn("MedicalRecord of {} {} is not imported: this person doesn't exist",
+            medicalRecord.getFirstName(), medicalRecord.getLastName());
+        continue;
+      }
+
+      medicalRecordNames.add(names);
+
+      if (!currentBirthDates.containsKey(names)) {
+
+        changes.add(() -> insertMedicalRecord(medicalRecord));
+        report.inserted(LoadStatistics.MEDICALRECORDS);
+        event.andPerson(medicalRecord.getFirstName(), medicalRecord.getLastName());
+
+      } else if (!Objects.equals(currentBirthDates.get(names), medicalRecord.getBirthDate())
+          || !naturalKeysOf(medicalRecord.getMedications())
+              .equals(currentMedications.getOrDefault(names, new HashSet<>()))
+          || !new HashSet<>(medicalRecord.getAllergies())
+              .equals(currentAllergies.getOrDefault(names, new HashSet<>()))) {
+
+        changes.add(() -> updateMedicalRecord(medicalRecord));
+        report.updated(LoadStatistics.MEDICALRECORDS);
+        event.andPerson(medicalRecord.getFirstName(), medicalRecord.getLastName());
+      }
+    }
+
+    for (String names : currentBirthDates.keySet()) {
+
+      // medicalRecords of deleted persons are already deleted with them
+      if (!medicalRecordNames.contains(names) && persons.containsKey(names)) {
+
+        Person person = persons.get(names);
+        changes.add(() -> deleteMedicalRecord(person.getFirstName(), person.getLastName()));
+        report.deleted(LoadStatistics.MEDICALRECORDS);
+        event.andPerson(person.getFirstName(), person.getLastName());
+      }
+    }
+
+    return changes;
+
+  }
+
+  private void insertMedicalRecord(MedicalRecordJson medicalRecordJson) {
+
+    Optional<Person> person = personService.getPersonByNames(medicalRecordJson.getFirstName(),
+        medicalRecordJson.getLastName());
+
+    if (!person.isPresent()) {
+
+      return;
+    }
+
+    MedicalRecord medicalRecord = new MedicalRecord();
+    person.get().setBirthDate(parseBirthDate(medicalRecordJson.getBirthDate()));
+    person.get().setMedicalRecord(medicalRecord);
+
+    Set<MedicationService.NaturalKey> naturalKeys =
+        naturalKeysOf(medicalRecordJson.getMedications());
+
+    for (MedicationService.NaturalKey naturalKey : naturalKeys) {
+
+      medicalRecord.add(findOrCreateMedication(naturalKey));
+    }
+
+    for (String designation : new LinkedHashSet<>(medicalRecordJson.getAllergies())) {
+
+      medicalRecord.add(findOrCreateAllergy(designation));
+    }
+
+    medicalRecordService.saveMedicalRecord(medicalRecord);
+    log.debug("\nMedicalRecord inserted = {}\n", medicalRecord);
+
+  }
+
+  private void updateMedicalRecord(MedicalRecordJson medicalRecordJson) {
+
+    MedicalRecord medicalRecord = medicalRecordService.getMedicalRecordFetchAllByNames(
+        medicalRecordJson.getLastName(), medicalRecordJson.getFirstName());
+
+    if (medicalRecord == null) {
+
+      return;
+    }
+
+    medicalRecord.getPerson().setBirthDate(parseBirthDate(medicalRecordJson.getBirthDate()));
+
+    Set<MedicationService.NaturalKey> naturalKeys =
+        naturalKeysOf(medicalRecordJson.getMedications());
+    medicalRecord.getMedications().removeIf(medication -> !naturalKeys.remove(
+        MedicationService.naturalKey(medication)));
+
+    for (MedicationService.NaturalKey naturalKey : naturalKeys) {
+
+      medicalRecord.add(findOrCreateMedication(naturalKey));
+    }
+
+    Set<String> designations = new LinkedHashSet<>(medicalRecordJson.getAllergies());
+    medicalRecord.getAllergies().removeIf(allergy -> !designations.remove(
+        allergy.getDesignation()));
+
+    for (String designation : designations) {
+
+      medicalRecord.add(findOrCreateAllergy(designation));
+    }
+
+    medicalRecordService.saveMedicalRecord(medicalRecord);
+    log.debug("\nMedicalRecord updated = {}\n", medicalRecord);
+
+  }
+
+  private void deleteMedicalRecord(String firstName, String lastName) {
+
+    medicalRecordService.getMedicalRecordByNames(lastName, firstName).ifPresent(medicalRecord -> {
+
+      medicalRecord.getPerson().setMedicalRecord(null);
+      medicalRecord.clearSet(medicalRecord.getMedications());
+      medicalRecord.clearSet(medicalRecord.getAllergies());
+      medicalRecordService.deleteMedicalRecord(medicalRecord);
+      log.debug("\nMedicalRecord of {} {} deleted\n", firstName, lastName);
+    });
+
+  }
+
+  private Medication findOrCreateMedication(MedicationService.NaturalKey naturalKey) {
+
+    return medicationService.getMedicationByDesignationAndPosology(naturalKey.getDesignation(),
+        naturalKey.getPosology())
+        .orElseGet(() -> {
+
+          Medication medication = new Medication();
+          medication.setDesignation(naturalKey.getDesignation());
+          medication.setPosology(naturalKey.getPosology());
+          return medicationService.saveMedication(medication);
+        });
+
+  }
+
+  // medications of file json are written designation:posology
+  private static Set<MedicationService.NaturalKey> naturalKeysOf(
+      List<String> designationPosologies) {
+
+    return designationPosologies.stream()
+        .map(MedicationService::parseNaturalKey)
+        .collect(Collectors.toCollection(LinkedHashSet::new));
+
+  }
+
+  private Allergy findOrCreateAllergy(String designation) {
+
+    return allergyService.getAllergyByDesignation(designation)
+        .orElseGet(() -> {
+
+          Allergy allergy = new Allergy();
+          allergy.setDesignation(designation);
+          return allergyService.saveAllergy(allergy);
+        });
+
+  }
+
+  private List<Runnable> diffMedicationsAndAllergies(List<MedicalRecordJson> medicalRecords,
+                                                     DeltaReport report) {
+
+    List<Runnable> changes = new ArrayList<>();
+    Set<MedicationService.NaturalKey> naturalKeys = new HashSet<>();
+    Set<String> designations = new HashSet<>();
+
+    for (MedicalRecordJson medicalRecord : medicalRecords) {
+
+      naturalKeys.addAll(naturalKeysOf(medicalRecord.getMedications()));
+      designations.addAll(medicalRecord.getAllergies());
+    }
+
+    // new medications and allergies are inserted with medicalRecords,
+    // only medications and allergies no longer used are deleted
+    for (Object[] row : entityManager.createQuery(
+        "select m.designation, m.posology from Medication m", Object[].class)
+        .getResultList()) {
+
+      String designation = (String) row[0];
+      String posology = (String) row[1];
+
+      if (!naturalKeys.contains(MedicationService.naturalKey(designation, posology))) {
+
+        changes.add(() -> medicationService
+            .getMedicationByDesignationAndPosology(designation, posology)
+            .ifPresent(medicationService::deleteMedication));
+        report.deleted(DeltaReport.MEDICATIONS);
+      }
+    }
+
+    for (String designation : entityManager.createQuery(
+        "select a.designation from Allergy a", String.class).getResultList()) {
+
+      if (!designations.contains(designation)) {
+
+        changes.add(() -> allergyService.getAllergyByDesignation(designation)
+            .ifPresent(allergyService::deleteAllergy));
+        report.deleted(DeltaReport.ALLERGIES);
+      }
+    }
+
+    return changes;
+
+  }
+
+  /**
+   * Apply changes in transactions of batchSize changes.
+   */
+  private void apply(List<Runnable> changes) {
+
+    int size = Math.max(batchSize, 1);
+
+    for (int from = 0; from < changes.size(); from += size) {
+
+      List<Runnable> batch = changes.subList(from, Math.min(from + size, changes.size()));
+      transactionTemplate.executeWithoutResult(status -> batch.forEach(Runnable::run));
+    }
+
+  }
+
+  private Date parseBirthDate(String birthDate) {
+
+    try {
+
+      return new SimpleDateFormat("MM/dd/yyyy").parse(birthDate);
+
+    } catch (ParseException e) {
+
+      log.error("BirthDate {} is not valid", birthDate);
+      return null;
+    }
+
+  }
+
+  private static String key(String firstName, String lastName) {
+
+    return firstName + " " + lastName;
+
+  }
+
+}
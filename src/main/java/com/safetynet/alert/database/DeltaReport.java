@@ -0,0 +1,141 @@
+package com.safetynet.alert.database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Report of a incremental import of source file: number of records inserted,
+ * updated and deleted by type (persons, firestations, medicalrecords, medications, allergies).
+ *
+ * @author delaval
+ *
+ */
+public class DeltaReport {
+
+  public static final String MEDICATIONS = "medications";
+  public static final String ALLERGIES = "allergies";
+
+  private static final int INSERTED = 0;
+  private static final int UPDATED = 1;
+  private static final int DELETED = 2;
+
+  // for each type: number of inserted, updated and deleted records
+  private final Map<String, long[]> changes = new LinkedHashMap<>();
+
+  /**
+   * Count a record inserted.
+   *
+   * @param type  type of record.
+   */
+  public void inserted(String type) {
+
+    count(type, INSERTED);
+
+  }
+
+  /**
+   * Count a record updated.
+   *
+   * @param type  type of record.
+   */
+  public void updated(String type) {
+
+    count(type, UPDATED);
+
+  }
+
+  /**
+   * Count a record deleted.
+   *
+   * @param type  type of record.
+   */
+  public void deleted(String type) {
+
+    count(type, DELETED);
+
+  }
+
+  /**
+   * Retrieve the number of records inserted for a type.
+   *
+   * @param type  type of record.
+   *
+   * @return  number of records inserted.
+   */
+  public long getInserted(String type) {
+
+    return get(type, INSERTED);
+
+  }
+
+  /**
+   * Retrieve the number of records updated for a type.
+   *
+   * @param type  type of record.
+   *
+   * @return  number of records updated.
+   */
+  public long getUpdated(String type) {
+
+    return get(type, UPDATED);
+
+  }
+
+  /**
+   * Retrieve the number of records deleted for a type.
+   *
+   * @param type  type of record.
+   *
+   * @return  number of records deleted.
+   */
+  public long getDeleted(String type) {
+
+    return get(type, DELETED);
+
+  }
+
+  /**
+   * Retrieve the number of changes of all types.
+   *
+   * @return  total of records inserted, updated and deleted.
+   */
+  public long getTotalChanges() {
+
+    return changes.values().stream()
+        .mapToLong(counter -> counter[INSERTED] + counter[UPDATED] + counter[DELETED])
+        .sum();
+
+  }
+
+  private void count(String type, int change) {
+
+    changes.computeIfAbsent(type, key -> new long[3])[change]++;
+
+  }
+
+  private long get(String type, int change) {
+
+    long[] counter = changes.get(type);
+    return (counter == null) ? 0 : counter[change];
+
+  }
+
+  @Override
+  public String toString() {
+
+    StringBuilder result = new StringBuilder("total=" + getTotalChanges());
+
+    for (Map.Entry<String, long[]> change : changes.entrySet()) {
+
+      result.append(String.format(", %s: +%d ~%d -%d",
+          change.getKey(),
+          change.getValue()[INSERTED],
+          change.getValue()[UPDATED],
+          change.getValue()[DELETED]));
+    }
+
+    return result.toString();
+
+  }
+
+}
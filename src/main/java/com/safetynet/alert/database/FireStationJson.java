@@ -0,0 +1,25 @@
+package com.safetynet.alert.database;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Representation of a element of array "firestations" in the source file json.
+ * Used to bind directly a element of source with a streaming parser.
+ *
+ * @author delaval
+ *
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class FireStationJson {
+
+  private String address;
+
+  private int station;
+
+}
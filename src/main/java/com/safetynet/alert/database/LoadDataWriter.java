@@ -0,0 +1,386 @@
+package com.safetynet.alert.database;
+
+import com.safetynet.alert.model.Allergy;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Medication;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.DataChangeEvent;
+import com.safetynet.alert.service.EntityDictionary;
+import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.MedicalRecordService;
+import com.safetynet.alert.service.MedicationService;
+import com.safetynet.alert.service.PersonService;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import lombok.Getter;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.Session;
+
+/**
+ * Class used by the {@link LoadDataStrategy} to save in database the records read from a source.
+ * Whatever the way records are parsed (tree or streaming), they are saved by the same rules:
+ * persons first, then mapping of fireStations with their addresses and persons,
+ * and last medicalRecords with their medications and allergies.
+ * A new instance must be created for each load because it keeps the already saved
+ * fireStations, medications and allergies to avoid duplicates, and indexes of the ids of saved
+ * persons by address and by names, to map them with fireStations and medicalRecords
+ * without querying database by record.
+ * In bulk mode, the persistence context is flushed and cleared every batchSize records:
+ * inserts are sent to database by JDBC batches and the memory used stays bounded.
+ * New entities are then persisted by the entityManager of load and not by the services.
+ * Mappings are always added from the side of the new or linked entity (person with its
+ * fireStations, medicalRecord with its medications and allergies): the collections of
+ * fireStations, medications and allergies, found again after a clear, are never loaded.
+ * Persons linked by a batch are loaded together by one query, just before its flush.
+ *
+ * @author delaval
+ *
+ */
+@Log4j2
+public class LoadDataWriter {
+
+  private final PersonService personService;
+  private final FireStationService fireStationService;
+  private final MedicalRecordService medicalRecordService;
+  private final MedicationService medicationService;
+  private final AllergyService allergyService;
+
+  @Getter
+  private final LoadStatistics statistics = new LoadStatistics();
+
+  // ids of saved persons by address, to map them with fireStations without query
+  // and without keeping the persons in memory
+  private final Map<String, List<Long>> personIdsByAddress = new HashMap<>();
+
+  // ids of saved persons by names, to find the owner of a medicalRecord without query
+  private final Map<DataChangeEvent.Names, Long> personIdsByNames = new HashMap<>();
+
+  // to avoid duplicate mapping of address with FireStation
+  private final Set<String> mappedAddresses = new HashSet<>();
+
+  // to avoid duplicate FireStations, medications and allergies without query
+  private final EntityDictionary<Integer, FireStation> fireStations =
+      new EntityDictionary<>(FireStation.class, FireStation::getIdFireStation);
+  private final EntityDictionary<String, Medication> medications =
+      new EntityDictionary<>(Medication.class, Medication::getIdMedication);
+  private final EntityDictionary<String, Allergy> allergies =
+      new EntityDictionary<>(Allergy.class, Allergy::getIdAllergy);
+
+  private final SimpleDateFormat birthDateFormat = new SimpleDateFormat("MM/dd/yyyy");
+
+  // only used in bulk mode
+  private EntityManager entityManager;
+  private int batchSize;
+  private int pendingRecords;
+  // links to do on persons detached by a previous clear, by id of person
+  private final Map<Long, List<Consumer<Person>>> pendingLinks = new LinkedHashMap<>();
+
+  /**
+   * Constructor with the services used to save entities.
+   *
+   * @param personService         service to save and retrieve persons.
+   * @param fireStationService    service to save and retrieve fireStations.
+   * @param medicalRecordService  service to save medicalRecords.
+   * @param medicationService     service to save and retrieve medications.
+   * @param allergyService        service to save and retrieve allergies.
+   */
+  public LoadDataWriter(PersonService personService,
+                        FireStationService fireStationService,
+                        MedicalRecordService medicalRecordService,
+                        MedicationService medicationService,
+                        AllergyService allergyService) {
+
+    this.personService = personService;
+    this.fireStationService = fireStationService;
+    this.medicalRecordService = medicalRecordService;
+    this.medicationService = medicationService;
+    this.allergyService = allergyService;
+
+  }
+
+  /**
+   * Enable the bulk mode: the JDBC batch size of session is set to batchSize
+   * and the persistence context is flushed and cleared every batchSize records.
+   * Entities already saved are detached after each flush, so the dictionaries
+   * find them again by their id when they are needed.
+   *
+   * @param entityManager   the entityManager of the current transaction of load.
+   * @param batchSize       number of records between two flushes.
+   */
+  public void enableBulkMode(EntityManager entityManager, int batchSize) {
+
+    this.entityManager = entityManager;
+    this.batchSize = Math.max(batchSize, 1);
+    entityManager.unwrap(Session.class).setJdbcBatchSize(this.batchSize);
+    fireStations.attachTo(entityManager);
+    medications.attachTo(entityManager);
+    allergies.attachTo(entityManager);
+
+  }
+
+  /**
+   * Flush and clear the persistence context if bulk mode is enabled,
+   * to write pending rows of last batch in database.
+   * It must be called at the end of load.
+   */
+  public void flush() {
+
+    if (entityManager != null) {
+
+      linkPendingPersons();
+      entityManager.flush();
+      entityManager.clear();
+      statistics.incrementFlushes();
+      pendingRecords = 0;
+    }
+
+  }
+
+  /**
+   * Link a person saved before, from its id. In bulk mode the person can be detached by
+   * a previous flush: the link is then done just before the next flush, when the persons
+   * of the batch are loaded by one query. Otherwise the person is still managed
+   * and found by the persistence context, without query.
+   */
+  private void attach(Long idPerson, Consumer<Person> link) {
+
+    if (entityManager != null) {
+
+      pendingLinks.computeIfAbsent(idPerson, id -> new ArrayList<>()).add(link);
+    } else {
+
+      link.accept(personService.getPersonById(idPerson).get());
+    }
+
+  }
+
+  private void linkPendingPersons() {
+
+    if (pendingLinks.isEmpty()) {
+
+      return;
+    }
+
+    for (Person person : personService.getPersonsFetchFireStationsByIds(pendingLinks.keySet())) {
+
+      pendingLinks.get(person.getIdPerson()).forEach(link -> link.accept(person));
+    }
+
+    pendingLinks.clear();
+
+  }
+
+  /**
+   * Save a new entity read from source: in bulk mode it's persisted by the entityManager,
+   * to be inserted with the batch at next flush, otherwise by the given method of service.
+   */
+  private <T> void save(T entity, Consumer<T> serviceSave) {
+
+    if (entityManager != null) {
+
+      entityManager.persist(entity);
+    } else {
+
+      serviceSave.accept(entity);
+    }
+
+  }
+
+  private void recordWritten() {
+
+    if ((entityManager != null) && (++pendingRecords >= batchSize)) {
+
+      flush();
+    }
+
+  }
+
+  /**
+   * Save a Person read from source.
+   *
+   * @param person  the person to save.
+   */
+  public void savePerson(Person person) {
+
+    save(person, personService::savePerson);
+    personIdsByAddress.computeIfAbsent(person.getAddress(), address -> new ArrayList<>())
+        .add(person.getIdPerson());
+    personIdsByNames.put(new DataChangeEvent.Names(person.getFirstName(), person.getLastName()),
+        person.getIdPerson());
+    statistics.increment(LoadStatistics.PERSONS);
+    statistics.addRows(LoadStatistics.TABLE_PERSON, 1);
+    log.debug("\nPerson saved = {}\n", person);
+    recordWritten();
+
+  }
+
+  /**
+   * Map a address with the FireStation with given numberStation.
+   * FireStation is created if it's the first time we meet its numberStation
+   * and all persons living at this address are mapped with it,
+   * retrieved from the index of the ids of persons saved before.
+   *
+   * @param numberStation         the numberStation of FireStation.
+   * @param addressFireStation    the address mapped with FireStation.
+   */
+  public void saveFireStationMapping(int numberStation, String addressFireStation) {
+
+    FireStation fireStation = fireStations.intern(numberStation, this::createFireStation);
+
+    if (mappedAddresses.add(numberStation + ":" + addressFireStation)) {
+
+      fireStation.addAddress(addressFireStation);
+      statistics.addRows(LoadStatistics.TABLE_FIRE_STATION_ADDRESSES, 1);
+
+      List<Long> idPersons =
+          personIdsByAddress.getOrDefault(addressFireStation, Collections.emptyList());
+
+      for (Long idPerson : idPersons) {
+
+        attach(idPerson, person -> person.addFireStation(fireStation));
+
+      }
+
+      statistics.addRows(LoadStatistics.TABLE_PERSON_FIRESTATION, idPersons.size());
+
+    }
+
+    statistics.increment(LoadStatistics.FIRESTATIONS);
+    recordWritten();
+
+  }
+
+  private FireStation createFireStation(int numberStation) {
+
+    FireStation fireStation = new FireStation();
+    fireStation.setNumberStation(numberStation);
+    save(fireStation, fireStationService::saveFireStation);
+    statistics.addRows(LoadStatistics.TABLE_FIRE_STATION, 1);
+    log.debug("\nFireStation saved = {}\n", fireStation);
+    return fireStation;
+
+  }
+
+  /**
+   * Save a MedicalRecord for the person with given names,
+   * creating its medications and allergies if they don't exist yet.
+   *
+   * @param firstName               firstName of the person owner of MedicalRecord.
+   * @param lastName                lastName of the person owner of MedicalRecord.
+   * @param birthDateAsString       birthDate of the person with format MM/dd/yyyy.
+   * @param designationPosologies   medications with format designation:posology.
+   * @param designationAllergies    designations of allergies.
+   */
+  public void saveMedicalRecord(String firstName, String lastName, String birthDateAsString,
+      Iterable<String> designationPosologies, Iterable<String> designationAllergies) {
+
+    MedicalRecord medicalRecord = new MedicalRecord();
+
+    // get id of person with this medicalrecord, from index or else from database
+    // if it was saved before this load
+
+    // checked before any change, so that a medicalRecord without person can be rejected
+    Long idPerson = personIdsByNames.get(new DataChangeEvent.Names(firstName, lastName));
+
+    if (idPerson == null) {
+
+      idPerson = personService.getPersonByNames(firstName, lastName)
+          .orElseThrow(() -> new IllegalArgumentException("MedicalRecord without person: "
+              + firstName + " " + lastName))
+          .getIdPerson();
+    }
+
+    // update birthdate and medicalRecord for person
+
+    Date birthDate = parseBirthDate(birthDateAsString);
+
+    attach(idPerson, person -> {
+
+      person.setBirthDate(birthDate);
+      person.setMedicalRecord(medicalRecord);
+    });
+
+    // save medication instance
+
+    for (String designationPosology : designationPosologies) {
+
+      Medication medication = medications.intern(designationPosology, this::createMedication);
+      medicalRecord.add(medication);
+      statistics.addRows(LoadStatistics.TABLE_ATTRIBUTION_MEDICATION, 1);
+
+    }
+
+    // save allergies
+
+    for (String designation : designationAllergies) {
+
+      Allergy allergy = allergies.intern(designation, this::createAllergy);
+      medicalRecord.add(allergy);
+      statistics.addRows(LoadStatistics.TABLE_ATTRIBUTION_ALLERGY, 1);
+
+    }
+
+    // save medicalRecord
+    save(medicalRecord, medicalRecordService::saveMedicalRecord);
+    statistics.increment(LoadStatistics.MEDICALRECORDS);
+    statistics.addRows(LoadStatistics.TABLE_MEDICAL_RECORD, 1);
+    log.debug("\nMedicalRecord saved = {}\n", medicalRecord);
+    recordWritten();
+
+  }
+
+  private Date parseBirthDate(String birthDateAsString) {
+
+    try {
+
+      return birthDateFormat.parse(birthDateAsString);
+    } catch (ParseException e) {
+
+      e.printStackTrace();
+      return null;
+    }
+
+  }
+
+  private Medication createMedication(String designationPosology) {
+
+    MedicationService.NaturalKey naturalKey =
+        MedicationService.parseNaturalKey(designationPosology);
+
+    Medication medication = new Medication();
+    medication.setDesignation(naturalKey.getDesignation());
+    medication.setPosology(naturalKey.getPosology());
+
+    save(medication, medicationService::saveMedication);
+    statistics.addRows(LoadStatistics.TABLE_MEDICATION, 1);
+    log.debug("\nMedication saved = {}\n", medication);
+    return medication;
+
+  }
+
+  private Allergy createAllergy(String designation) {
+
+    Allergy allergy = new Allergy();
+    allergy.setDesignation(designation);
+
+    save(allergy, allergyService::saveAllergy);
+    statistics.addRows(LoadStatistics.TABLE_ALLERGY, 1);
+    log.debug("\nAllergy saved = {}\n", allergy);
+    return allergy;
+
+  }
+
+}
@@ -0,0 +1,216 @@
+package com.safetynet.alert.database;
+
+import com.safetynet.alert.configuration.QueryCountInspector;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Class that implements Service {@link LoadDataStrategy} with a binary snapshot of dataset.
+ * At the first start, data are loaded from file json by the strategy
+ * loader.snapshot.source-strategy, and then a {@link DatasetSnapshot} of database is written.
+ * At the next starts, the dataset is restored from this snapshot without parsing the file json,
+ * as long as its checksum is the same: when the file json is changed, or when the snapshot
+ * is not valid, data are loaded again from file json and a new snapshot is written.
+ *
+ * @author delaval
+ *
+ */
+@Service
+@Log4j2
+public class LoadDatabaseFromSnapshot implements LoadDataStrategy {
+
+  // lazy because the factory is created with all strategies, including this one
+  @Autowired
+  @Lazy
+  private LoadDataStrategyFactory loadDataStrategyFactory;
+
+  @Autowired(required = false)
+  private QueryCountInspector queryCountInspector;
+  @Autowired(required = false)
+  private LoadProgress loadProgress;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${loader.bulk.batch-size:50}")
+  private int batchSize;
+  @Value("${loader.snapshot.path:snapshot/data.snapshot}")
+  private String snapshotPath;
+  @Value("${loader.snapshot.source-strategy:StrategyStreaming}")
+  private StrategyName sourceStrategyName;
+
+  private String filePath;
+  private DataSourceResolver dataSourceResolver;
+  private TransactionTemplate transactionTemplate;
+
+  /**
+   * Constructor with fields.
+   *
+   * @param dataSourceResolver
+   *          a {@link DataSourceResolver} to open the source of data.
+   *
+   * @param transactionManager
+   *          the transaction manager used to restore or write the snapshot.
+   *
+   * @param filePath
+   *          the location of file for loading data (classpath:, file: or path)
+   *          with a default value initialized to a file json only for production.
+   */
+  @Autowired
+  public LoadDatabaseFromSnapshot(DataSourceResolver dataSourceResolver,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${loader.source.location:classpath:${filejson.app}}")
+                                      String filePath) {
+
+    this.dataSourceResolver = dataSourceResolver;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.filePath = filePath;
+
+  }
+
+  @Override
+  public StrategyName getStrategyName() {
+
+    return StrategyName.StrategySnapshot;
+
+  }
+
+  @Override
+  public boolean loadDatabaseFromSource() {
+
+    log.debug("\n\n**************** Starting to restore snapshot of Data.json ***************\n");
+
+    long sourceChecksum;
+
+    try (InputStream source = dataSourceResolver.open(filePath)) {
+
+      sourceChecksum = DatasetSnapshot.checksum(source);
+
+    } catch (IOException e) {
+
+      log.error("Reading Failure for File Data.json");
+      e.printStackTrace();
+      return false;
+
+    }
+
+    Path snapshot = Paths.get(snapshotPath);
+
+    if (Files.isReadable(snapshot) && restore(snapshot, sourceChecksum)) {
+
+      return true;
+    }
+
+    if (sourceStrategyName == StrategyName.StrategySnapshot) {
+
+      log.error("Strategy to load Data.json for snapshot can't be {}", sourceStrategyName);
+      return false;
+    }
+
+    if (!loadDataStrategyFactory.findStrategy(sourceStrategyName).loadDatabaseFromSource()) {
+
+      return false;
+    }
+
+    export(snapshot, sourceChecksum);
+    return true;
+
+  }
+
+  private boolean restore(Path snapshot, long sourceChecksum) {
+
+    LoadStatistics statistics = new LoadStatistics();
+    statistics.setQueryCountInspector(queryCountInspector);
+    statistics.start();
+
+    if (loadProgress != null) {
+
+      loadProgress.track(statistics);
+    }
+
+    Boolean restored;
+
+    try {
+
+      restored = transactionTemplate.execute(status -> {
+
+        try {
+
+          boolean result = new DatasetSnapshot(entityManager, batchSize, statistics)
+              .restore(snapshot, sourceChecksum);
+
+          if (!result) {
+
+            status.setRollbackOnly();
+          }
+
+          return result;
+
+        } catch (IOException e) {
+
+          throw new UncheckedIOException(e);
+        }
+      });
+
+    } catch (RuntimeException e) {
+
+      log.warn("Snapshot {} can't be restored, Data.json is loaded again", snapshot, e);
+      return false;
+
+    }
+
+    if (!Boolean.TRUE.equals(restored)) {
+
+      return false;
+    }
+
+    statistics.stop();
+    log.info("\n\n ************** Restore of snapshot terminated with success ***********\n {}\n",
+        statistics);
+    return true;
+
+  }
+
+  private void export(Path snapshot, long sourceChecksum) {
+
+    try {
+
+      transactionTemplate.execute(status -> {
+
+        try {
+
+          new DatasetSnapshot(entityManager, batchSize, new LoadStatistics())
+              .export(snapshot, sourceChecksum);
+          return null;
+
+        } catch (IOException e) {
+
+          throw new UncheckedIOException(e);
+        }
+      });
+
+      log.info("Snapshot of Data.json written in {}", snapshot.toAbsolutePath());
+
+    } catch (RuntimeException e) {
+
+      // data are loaded: only the next start will be slower
+      log.warn("Snapshot {} can't be written", snapshot, e);
+
+    }
+
+  }
+
+}
@@ -0,0 +1,626 @@
+package com.safetynet.alert.database;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.configuration.QueryCountInspector;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.MedicalRecordService;
+import com.safetynet.alert.service.MedicationService;
+import com.safetynet.alert.service.PersonService;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Class that implements Service {@link LoadDataStrategy} with a pipeline of threads.
+ * A reader streams the file json and gives each element to a pool of workers
+ * which bind it and validate it with the constraints of entities.
+ * Valid records are put in a bounded queue, and taken by only one writer
+ * (the thread calling the load) which saves them with a {@link LoadDataWriter}
+ * and commits a transaction every batchSize records.
+ * When the queue or the pool of workers are full, the reader and the workers wait:
+ * memory used stays bounded whatever the size of file.
+ * Invalid records are rejected with a log and not saved, as the medicalRecords
+ * of rejected persons, and as records failing to be written (a medicalRecord without person):
+ * the other records of their batch are written anyway.
+ * When a batch can't be written or committed, or the file can't be read to its end,
+ * the load stops and rows of batches
+ * already committed are deleted: they are the rows with an id greater than the ids
+ * existing before the load, as ids are given by sequences.
+ *
+ * @author delaval
+ *
+ */
+@Service
+@Log4j2
+public class LoadDatabaseParallelFromJson implements LoadDataStrategy {
+
+  // put in queue to tell the writer that all records are read
+  private static final Consumer<LoadDataWriter> END_OF_RECORDS = writer -> { };
+
+  // tables of entities with their id, in the order of deletion
+  private static final String[][] ENTITY_TABLES = {{"person", "id_person"},
+                                                   {"medical_record", "id_medical_record"},
+                                                   {"medication", "id_medication"},
+                                                   {"allergy", "id_allergy"},
+                                                   {"fire_station", "id_fire_station"}};
+
+  // tables of mapping with the ids of both entities
+  private static final String[][] MAPPING_TABLES =
+      {{"attribution_medication", "id_medical_record", "id_medication"},
+       {"attribution_allergy", "id_medical_record", "id_allergy"},
+       {"person_firestation", "id_person", "id_fire_station"}};
+
+  @Autowired
+  private PersonService personService;
+  @Autowired
+  private FireStationService fireStationService;
+  @Autowired
+  private MedicalRecordService medicalRecordService;
+  @Autowired
+  private MedicationService medicationService;
+  @Autowired
+  private AllergyService allergyService;
+
+  @Autowired(required = false)
+  private QueryCountInspector queryCountInspector;
+  @Autowired(required = false)
+  private LoadProgress loadProgress;
+
+  @Autowired
+  private Validator validator;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${loader.bulk.batch-size:50}")
+  private int batchSize;
+  @Value("${loader.parallel.threads:0}")
+  private int threads;
+  @Value("${loader.parallel.queue-capacity:1000}")
+  private int queueCapacity;
+
+  private String filePath;
+  private ObjectMapper objectMapper;
+  private DataSourceResolver dataSourceResolver;
+
+  /**
+   * Constructor with fields.
+   *
+   * @param mapper
+   *          a {@link ObjectMapper} to create the streaming parser and bind elements.
+   *
+   * @param dataSourceResolver
+   *          a {@link DataSourceResolver} to open the source of data.
+   *
+   * @param filePath
+   *          the location of file for loading data (classpath:, file: or path)
+   *          with a default value initialized to a file json only for production.
+   */
+  @Autowired
+  public LoadDatabaseParallelFromJson(ObjectMapper mapper,
+                                      DataSourceResolver dataSourceResolver,
+                                      @Value("${loader.source.location:classpath:${filejson.app}}")
+                                          String filePath) {
+
+    this.objectMapper = mapper;
+    this.dataSourceResolver = dataSourceResolver;
+    this.filePath = filePath;
+
+  }
+
+  @Override
+  public StrategyName getStrategyName() {
+
+    return StrategyName.StrategyParallel;
+
+  }
+
+  @Override
+  public boolean loadDatabaseFromSource() {
+
+    log.debug("\n\n**************** Starting to load Data.json in parallel ***************\n");
+
+    SourceInput sourceInput = null;
+
+    try {
+
+      sourceInput = dataSourceResolver.open(filePath);
+
+    } catch (IOException e1) {
+
+      if (e1 instanceof FileNotFoundException) {
+
+        log.error("File Data.json is not Found in resources");
+
+      } else {
+
+        log.error("Reading Failure for File Data.json");
+
+      }
+
+      e1.printStackTrace();
+      return false;
+
+    }
+
+    int workers = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+
+    BlockingQueue<Consumer<LoadDataWriter>> records =
+        new ArrayBlockingQueue<>(Math.max(queueCapacity, 1));
+    AtomicReference<IOException> readError = new AtomicReference<>();
+    AtomicLong rejected = new AtomicLong();
+
+    // when all workers are busy and their queue is full, the reader does the work itself
+    ExecutorService workerPool =
+        new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                               new ArrayBlockingQueue<>(workers * 4),
+                               new ThreadPoolExecutor.CallerRunsPolicy());
+    ExecutorService readerThread = Executors.newSingleThreadExecutor();
+
+    LoadDataWriter writer = new LoadDataWriter(personService,
+                                               fireStationService,
+                                               medicalRecordService,
+                                               medicationService,
+                                               allergyService);
+
+    writer.getStatistics().setQueryCountInspector(queryCountInspector);
+    writer.getStatistics().setSourceBytes(sourceInput.getSize());
+    writer.getStatistics().start();
+
+    if (loadProgress != null) {
+
+      loadProgress.track(writer.getStatistics());
+    }
+
+    Map<String, Long> idsBeforeLoad = getMaxIds();
+
+    try {
+
+      SourceInput source = sourceInput;
+      readerThread.execute(() -> {
+
+        try {
+
+          read(source, workerPool, records, rejected, readError, writer.getStatistics());
+
+        } catch (IOException e) {
+
+          readError.compareAndSet(null, e);
+
+        } finally {
+
+          try {
+
+            putRecord(records, END_OF_RECORDS);
+
+          } catch (InterruptedIOException e) {
+
+            readError.compareAndSet(null, e);
+          }
+        }
+      });
+
+      write(writer, records, rejected);
+
+    } catch (RuntimeException e) {
+
+      log.error("Parallel load of Data.json stopped: rows of committed batches are deleted", e);
+      deleteRowsAfter(idsBeforeLoad);
+      return false;
+
+    } finally {
+
+      readerThread.shutdownNow();
+      workerPool.shutdownNow();
+    }
+
+    IOException error = readError.get();
+
+    if (error != null) {
+
+      if (error instanceof JsonProcessingException) {
+
+        log.error("Json's datas are not valid");
+
+      } else if (error instanceof InterruptedIOException) {
+
+        log.error("Parallel load of Data.json interrupted");
+
+      } else {
+
+        log.error("File Data.json is missing to be parsed");
+
+      }
+
+      error.printStackTrace();
+      log.error("Parallel load of Data.json stopped: rows of committed batches are deleted");
+      deleteRowsAfter(idsBeforeLoad);
+      return false;
+
+    }
+
+    writer.getStatistics().stop();
+
+    log.info("\n\n ************** Parallel load of Data.json terminated with success ***********"
+        + "\n {}\n with {} workers, {} records rejected\n",
+        writer.getStatistics(),
+        workers,
+        rejected.get());
+    return true;
+
+  }
+
+  /**
+   * Write records taken in queue, committing a transaction every batchSize records.
+   * A record failing to be written is rejected, unless the transaction can't be committed
+   * anymore: the exception is then thrown to stop the load.
+   * Return when the end of records is taken.
+   */
+  private void write(LoadDataWriter writer,
+                     BlockingQueue<Consumer<LoadDataWriter>> records,
+                     AtomicLong rejected) {
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    boolean endOfRecords = false;
+
+    while (!endOfRecords) {
+
+      endOfRecords = transactionTemplate.execute(status -> {
+
+        writer.enableBulkMode(entityManager, batchSize);
+
+        for (int written = 0; written < batchSize; written++) {
+
+          Consumer<LoadDataWriter> record = takeRecord(records);
+
+          if (record == END_OF_RECORDS) {
+
+            writer.flush();
+            return true;
+          }
+
+          try {
+
+            record.accept(writer);
+
+          } catch (RuntimeException e) {
+
+            if (status.isRollbackOnly()) {
+
+              throw e;
+            }
+
+            rejected.incrementAndGet();
+            log.error("Record rejected: it can't be written", e);
+          }
+        }
+
+        writer.flush();
+        return false;
+
+      });
+    }
+
+  }
+
+  /**
+   * Retrieve the greatest id of each table of entities, 0 if it's empty.
+   */
+  private Map<String, Long> getMaxIds() {
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+
+    return transactionTemplate.execute(status -> {
+
+      Map<String, Long> maxIds = new HashMap<>();
+
+      for (String[] table : ENTITY_TABLES) {
+
+        Number maxId = (Number) entityManager.createNativeQuery("SELECT COALESCE(MAX("
+            + table[1] + "), 0) FROM " + table[0]).getSingleResult();
+        maxIds.put(table[1], maxId.longValue());
+      }
+
+      return maxIds;
+    });
+
+  }
+
+  /**
+   * Delete rows written by the load: rows with a id greater than the ids existing before it,
+   * and rows of tables of mapping referencing them.
+   */
+  private void deleteRowsAfter(Map<String, Long> idsBeforeLoad) {
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+
+      // a medicalRecord of the load can be set to a person existing before it
+      entityManager.createNativeQuery("UPDATE person SET id_medical_record = NULL"
+          + " WHERE id_medical_record > ?1")
+          .setParameter(1, idsBeforeLoad.get("id_medical_record"))
+          .executeUpdate();
+
+      for (String[] table : MAPPING_TABLES) {
+
+        entityManager.createNativeQuery("DELETE FROM " + table[0]
+            + " WHERE " + table[1] + " > ?1 OR " + table[2] + " > ?2")
+            .setParameter(1, idsBeforeLoad.get(table[1]))
+            .setParameter(2, idsBeforeLoad.get(table[2]))
+            .executeUpdate();
+      }
+
+      entityManager.createNativeQuery("DELETE FROM fire_station_addresses"
+          + " WHERE id_fire_station > ?1")
+          .setParameter(1, idsBeforeLoad.get("id_fire_station"))
+          .executeUpdate();
+
+      for (String[] table : ENTITY_TABLES) {
+
+        entityManager.createNativeQuery("DELETE FROM " + table[0] + " WHERE " + table[1] + " > ?1")
+            .setParameter(1, idsBeforeLoad.get(table[1]))
+            .executeUpdate();
+      }
+    });
+
+  }
+
+  /**
+   * Read the file json and give each element of arrays to workers.
+   * Each array is entirely handled by workers before reading the next one,
+   * because firestations and medicalrecords need persons already given to writer.
+   * A worker interrupted before its record is queued reports it in readError.
+   */
+  private void read(SourceInput source,
+                    ExecutorService workerPool,
+                    BlockingQueue<Consumer<LoadDataWriter>> records,
+                    AtomicLong rejected,
+                    AtomicReference<IOException> readError,
+                    LoadStatistics statistics) throws IOException {
+
+    // names of rejected persons, to reject their medicalRecords too
+    Set<String> rejectedPersons = ConcurrentHashMap.newKeySet();
+
+    try (SourceInput input = source;
+        JsonParser parser = objectMapper.getFactory().createParser(input)) {
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+
+        throw new JsonParseException(parser, "root of file json is not a object");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+        String arrayName = parser.getCurrentName();
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+
+          parser.skipChildren();
+          continue;
+        }
+
+        Function<JsonNode, Consumer<LoadDataWriter>> worker = null;
+
+        switch (arrayName) {
+
+          case "persons":
+            worker = element -> bindPerson(element, rejectedPersons);
+            break;
+
+          case "firestations":
+            worker = this::bindFireStation;
+            break;
+
+          case "medicalrecords":
+            worker = element -> bindMedicalRecord(element, rejectedPersons);
+            break;
+
+          default:
+            parser.skipChildren();
+            continue;
+        }
+
+        Phaser arrayHandled = new Phaser(1);
+
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+
+          JsonNode element = parser.readValueAsTree();
+          statistics.updateSourceProgress(input.getBytesRead());
+          Function<JsonNode, Consumer<LoadDataWriter>> arrayWorker = worker;
+          arrayHandled.register();
+
+          workerPool.execute(() -> {
+
+            try {
+
+              Consumer<LoadDataWriter> record = arrayWorker.apply(element);
+
+              if (record != null) {
+
+                putRecord(records, record);
+
+              } else {
+
+                rejected.incrementAndGet();
+              }
+
+            } catch (InterruptedIOException e) {
+
+              readError.compareAndSet(null, e);
+
+            } finally {
+
+              arrayHandled.arriveAndDeregister();
+            }
+          });
+        }
+
+        arrayHandled.arriveAndAwaitAdvance();
+      }
+    }
+
+  }
+
+  private Consumer<LoadDataWriter> bindPerson(JsonNode element, Set<String> rejectedPersons) {
+
+    Person person = null;
+
+    try {
+
+      person = objectMapper.treeToValue(element, Person.class);
+
+    } catch (JsonProcessingException e) {
+
+      log.error("problem to parse persons with objectMapper: {}", element);
+    }
+
+    Set<ConstraintViolation<Person>> violations =
+        (person == null) ? Collections.emptySet() : validator.validate(person);
+
+    if ((person == null) || !violations.isEmpty()) {
+
+      rejectedPersons.add(element.path("firstName").asText() + " "
+          + element.path("lastName").asText());
+      log.error("Person rejected: {} {}", element, violations);
+      return null;
+    }
+
+    Person validPerson = person;
+    return writer -> writer.savePerson(validPerson);
+
+  }
+
+  private Consumer<LoadDataWriter> bindFireStation(JsonNode element) {
+
+    FireStationJson fireStation = null;
+
+    try {
+
+      fireStation = objectMapper.treeToValue(element, FireStationJson.class);
+
+    } catch (JsonProcessingException e) {
+
+      log.error("problem to parse firestations with objectMapper: {}", element);
+      return null;
+    }
+
+    if (!validator.validateValue(FireStation.class, "numberStation", fireStation.getStation())
+        .isEmpty()
+        || !validator.validateValue(FireStation.class, "addresses",
+            Collections.singleton(fireStation.getAddress())).isEmpty()) {
+
+      log.error("Mapping of FireStation rejected: {}", element);
+      return null;
+    }
+
+    FireStationJson validFireStation = fireStation;
+    return writer -> writer.saveFireStationMapping(validFireStation.getStation(),
+        validFireStation.getAddress());
+
+  }
+
+  private Consumer<LoadDataWriter> bindMedicalRecord(JsonNode element,
+      Set<String> rejectedPersons) {
+
+    MedicalRecordJson medicalRecord = null;
+
+    try {
+
+      medicalRecord = objectMapper.treeToValue(element, MedicalRecordJson.class);
+
+    } catch (JsonProcessingException e) {
+
+      log.error("problem to parse medicalrecords with objectMapper: {}", element);
+      return null;
+    }
+
+    if (rejectedPersons.contains(medicalRecord.getFirstName() + " "
+        + medicalRecord.getLastName())) {
+
+      log.error("MedicalRecord rejected because its person is rejected: {}", element);
+      return null;
+    }
+
+    MedicalRecordJson validMedicalRecord = medicalRecord;
+    return writer -> writer.saveMedicalRecord(validMedicalRecord.getFirstName(),
+        validMedicalRecord.getLastName(),
+        validMedicalRecord.getBirthDate(),
+        validMedicalRecord.getMedications(),
+        validMedicalRecord.getAllergies());
+
+  }
+
+  /**
+   * Put a record in queue. A record can't be dropped: when the thread is interrupted,
+   * a {@link InterruptedIOException} is thrown to fail the load.
+   */
+  private static void putRecord(BlockingQueue<Consumer<LoadDataWriter>> records,
+      Consumer<LoadDataWriter> record) throws InterruptedIOException {
+
+    try {
+
+      records.put(record);
+
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+      InterruptedIOException interrupted =
+          new InterruptedIOException("record not queued: load is interrupted");
+      interrupted.initCause(e);
+      throw interrupted;
+    }
+
+  }
+
+  private static Consumer<LoadDataWriter> takeRecord(
+      BlockingQueue<Consumer<LoadDataWriter>> records) {
+
+    try {
+
+      return records.take();
+
+    } catch (InterruptedException e) {
+
+      Thread.currentThread().interrupt();
+      return END_OF_RECORDS;
+    }
+
+  }
+
+}
@@ -3,36 +3,31 @@ package com.safetynet.alert.database;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.safetynet.alert.model.Allergy;
-import com.safetynet.alert.model.FireStation;
-import com.safetynet.alert.model.MedicalRecord;
-import com.safetynet.alert.model.Medication;
+import com.safetynet.alert.configuration.QueryCountInspector;
 import com.safetynet.alert.model.Person;
 import com.safetynet.alert.service.AllergyService;
 import com.safetynet.alert.service.FireStationService;
 import com.safetynet.alert.service.MedicalRecordService;
 import com.safetynet.alert.service.MedicationService;
 import com.safetynet.alert.service.PersonService;
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Class that implements Service {@link LoadDataStrategy}.
  * Allows to load data From a File in resources and especially for the production.
+ * The file is resolved by the {@link DataSourceResolver}: in classpath or on filesystem,
+ * and compressed with gzip or not.
  *
  * @author delaval
  *
@@ -52,10 +47,22 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
   @Autowired
   private AllergyService allergyService;
 
+  @Autowired(required = false)
+  private QueryCountInspector queryCountInspector;
+  @Autowired(required = false)
+  private LoadProgress loadProgress;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${loader.bulk.enabled:false}")
+  private boolean bulkEnabled;
+  @Value("${loader.bulk.batch-size:50}")
+  private int bulkBatchSize;
 
   private String filePath;
   private ObjectMapper objectMapper;
-  private ResourceLoader resourceLoader;
+  private DataSourceResolver dataSourceResolver;
 
   /**
    * Constructor with fields.
@@ -63,20 +70,21 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
    * @param mapper
    *          a {@Link ObjectMapper} to be able to serialize and deserialize json.
    *
-   * @param resourceLoader
-   *          a {@link ResourceLoader} for loading resources
+   * @param dataSourceResolver
+   *          a {@link DataSourceResolver} to open the source of data.
    *
    * @param filePath
-   *          the path of file for loading data
+   *          the location of file for loading data (classpath:, file: or path)
    *          with a default value initialized to a file json only for production.
    */
   @Autowired
   public LoadDatabaseProdFromJson(ObjectMapper mapper,
-                                  ResourceLoader resourceLoader,
-                                  @Value("classpath:${filejson.app}") String filePath) {
+                                  DataSourceResolver dataSourceResolver,
+                                  @Value("${loader.source.location:classpath:${filejson.app}}")
+                                      String filePath) {
 
     this.objectMapper = mapper;
-    this.resourceLoader = resourceLoader;
+    this.dataSourceResolver = dataSourceResolver;
     this.filePath = filePath;
 
   }
@@ -94,12 +102,11 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
 
     log.debug("\n\n**************** Starting to load Data.json ***************\n");
 
-    File fileJson = null;
+    SourceInput source = null;
 
     try {
 
-      fileJson = resourceLoader.getResource(filePath)
-          .getFile();
+      source = dataSourceResolver.open(filePath);
 
     } catch (IOException e1) {
 
@@ -120,9 +127,9 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
 
     JsonNode root = null;
 
-    try {
+    try (SourceInput input = source) {
 
-      root = objectMapper.readTree(fileJson);
+      root = objectMapper.readTree(input);
 
     } catch (JsonProcessingException e) {
 
@@ -151,6 +158,28 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
       Iterator<JsonNode> fireStationNode = fireStationArray.elements();
       Iterator<JsonNode> medicalRecordNode = medicalRecordArray.elements();
 
+      LoadDataWriter writer = new LoadDataWriter(personService,
+                                                 fireStationService,
+                                                 medicalRecordService,
+                                                 medicationService,
+                                                 allergyService);
+
+      writer.getStatistics().setQueryCountInspector(queryCountInspector);
+
+      if (bulkEnabled) {
+
+        writer.enableBulkMode(entityManager, bulkBatchSize);
+      }
+
+      writer.getStatistics().setExpectedRecords(
+          personArray.size() + fireStationArray.size() + medicalRecordArray.size());
+      writer.getStatistics().start();
+
+      if (loadProgress != null) {
+
+        loadProgress.track(writer.getStatistics());
+      }
+
       // save persons
 
       while (personNode.hasNext()) {
@@ -160,8 +189,7 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
         try {
 
           Person person = objectMapper.readValue(element, Person.class);
-          personService.savePerson(person);
-          log.debug("\nPerson saved = {}\n", person);
+          writer.savePerson(person);
 
         } catch (JsonProcessingException e) {
 
@@ -175,163 +203,42 @@ public class LoadDatabaseProdFromJson implements LoadDataStrategy {
 
       // save fireStations
 
-      // to avoid duplicate FireStations
-      List<Integer> numberStations = new ArrayList<Integer>();
-
       while (fireStationNode.hasNext()) {
 
-        FireStation fireStation = null;
         JsonNode elementFireStation = fireStationNode.next();
 
-        int numberStation = elementFireStation.get("station").asInt();
-        String addressFireStation = elementFireStation.get("address").asText();
-
-        if (!numberStations.contains(numberStation)) {
-
-          fireStation = new FireStation();
-          fireStation.setNumberStation(numberStation);
-          fireStationService.saveFireStation(fireStation);
-          numberStations.add(numberStation);
-          log.debug("\nFireStation saved = {}\n", fireStation);
-
-        } else {
-
-          fireStation = fireStationService.getFireStationByNumberStation(numberStation).get();
-
-        }
-
-        fireStation.addAddress(addressFireStation);
-
-        Iterable<Person> persons = personService.getPersonsByAddress(addressFireStation);
-
-        for (Person person : persons) {
-
-          if (person.getAddress().equals(addressFireStation)) {
-
-            fireStation.addPerson(person);
-
-          }
-
-        }
+        writer.saveFireStationMapping(elementFireStation.get("station").asInt(),
+            elementFireStation.get("address").asText());
 
       }
 
-      // to avoid duplicate allergy
-      List<String> designationAllergy = new ArrayList<>();
-
-      // to avoid duplicate medication
-      List<String> designationPosologies = new ArrayList<>();
-
-      // save medications
+      // save medicalRecords with their medications and allergies
 
       while (medicalRecordNode.hasNext()) {
 
         JsonNode elementMedicalRecord = medicalRecordNode.next();
 
-        MedicalRecord medicalRecord = new MedicalRecord();
-
-        // get person with this medicalrecord
-
-        Optional<Person> currentPerson =
-            personService.getPersonByNames(
-                elementMedicalRecord.get("firstName").asText().toString(),
-                elementMedicalRecord.get("lastName").asText().toString());
-
-        // update birthdate and medicalRecord for person
-
-        String birthDateAsString;
-        birthDateAsString = elementMedicalRecord.get("birthdate").asText();
-
-        SimpleDateFormat df = new SimpleDateFormat("MM/dd/yyyy");
-        Date birthDate = null;
-
-        try {
-
-          birthDate = df.parse(birthDateAsString);
-        } catch (ParseException e) {
-
-          e.printStackTrace();
-        }
-
-        currentPerson.get().setBirthDate(birthDate);
-        currentPerson.get().setMedicalRecord(medicalRecord);
-
-
-        // save medication instance
-
-        JsonNode medicationArray = elementMedicalRecord.get("medications");
-        JsonNode allergyArray = elementMedicalRecord.get("allergies");
-
-        Iterator<JsonNode> medicationElement = medicationArray.elements();
-        Iterator<JsonNode> allergyElement = allergyArray.elements();
-
-        while (medicationElement.hasNext()) {
-
-          String designationPosology = medicationElement.next()
-              .asText();
-          String[] composition = designationPosology.split(":");
-
-          Medication medication = null;
-
-          if (!designationPosologies.contains(designationPosology)) {
-
-            medication = new Medication();
-            medication.setDesignation(composition[0]);
-            medication.setPosology(composition[1]);
-
-            designationPosologies.add(designationPosology);
-
-            medicationService.saveMedication(medication);
-            log.debug("\nMedication saved = {}\n", medication);
-
-          } else {
-
-            medication =
-                medicationService.getMedicationByDesignationAndPosology(composition[0],
-                    composition[1]).get();
+        List<String> medications = new ArrayList<>();
+        List<String> allergies = new ArrayList<>();
 
-          }
+        elementMedicalRecord.get("medications").elements()
+            .forEachRemaining(medication -> medications.add(medication.asText()));
+        elementMedicalRecord.get("allergies").elements()
+            .forEachRemaining(allergy -> allergies.add(allergy.asText()));
 
-          medication.add(medicalRecord);
-
-        }
-
-        // save allergies
-
-        while (allergyElement.hasNext()) {
-
-          String designation = allergyElement.next()
-              .asText();
-
-          Allergy allergy = null;
-
-          if (!designationAllergy.contains(designation)) {
-
-            allergy = new Allergy();
-            allergy.setDesignation(designation);
-
-            designationAllergy.add(designation);
-
-            allergyService.saveAllergy(allergy);
-            log.debug("\nAllergy saved = {}\n", allergy);
-
-          } else {
-
-            allergy = allergyService.getAllergyByDesignation(designation).get();
-
-          }
-
-          allergy.add(medicalRecord);
-
-        }
-
-        // save medicalRecord
-        medicalRecordService.saveMedicalRecord(medicalRecord);
-        log.debug("\nMedicalRecord saved = {}\n", medicalRecord);
+        writer.saveMedicalRecord(elementMedicalRecord.get("firstName").asText(),
+            elementMedicalRecord.get("lastName").asText(),
+            elementMedicalRecord.get("birthdate").asText(),
+            medications,
+            allergies);
 
       }
 
-      log.info("\n\n ************** Load Data.json terminated with success ***********\n");
+      writer.flush();
+      writer.getStatistics().stop();
+
+      log.info("\n\n ************** Load Data.json terminated with success ***********\n {}\n",
+          writer.getStatistics());
       return true;
 
     }
@@ -0,0 +1,261 @@
+package com.safetynet.alert.database;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.safetynet.alert.configuration.QueryCountInspector;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.MedicalRecordService;
+import com.safetynet.alert.service.MedicationService;
+import com.safetynet.alert.service.PersonService;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Class that implements Service {@link LoadDataStrategy} with a streaming parser.
+ * Contrary to {@link LoadDatabaseProdFromJson}, the file json is never loaded entirely in memory:
+ * each element of arrays "persons", "firestations" and "medicalrecords"
+ * is bound directly to its target while reading tokens, and then saved.
+ * So memory used by parsing stays the same whatever the size of file.
+ * Arrays are expected in this order in file: persons before firestations and medicalrecords.
+ * The file is resolved by the {@link DataSourceResolver}: in classpath or on filesystem,
+ * and compressed with gzip or not.
+ *
+ * @author delaval
+ *
+ */
+@Service
+@Log4j2
+public class LoadDatabaseStreamingFromJson implements LoadDataStrategy {
+
+  @Autowired
+  private PersonService personService;
+  @Autowired
+  private FireStationService fireStationService;
+  @Autowired
+  private MedicalRecordService medicalRecordService;
+  @Autowired
+  private MedicationService medicationService;
+  @Autowired
+  private AllergyService allergyService;
+
+  @Autowired(required = false)
+  private QueryCountInspector queryCountInspector;
+  @Autowired(required = false)
+  private LoadProgress loadProgress;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Value("${loader.bulk.enabled:false}")
+  private boolean bulkEnabled;
+  @Value("${loader.bulk.batch-size:50}")
+  private int bulkBatchSize;
+
+  private String filePath;
+  private ObjectMapper objectMapper;
+  private DataSourceResolver dataSourceResolver;
+
+  /**
+   * Constructor with fields.
+   *
+   * @param mapper
+   *          a {@link ObjectMapper} to create the streaming parser and bind elements.
+   *
+   * @param dataSourceResolver
+   *          a {@link DataSourceResolver} to open the source of data.
+   *
+   * @param filePath
+   *          the location of file for loading data (classpath:, file: or path)
+   *          with a default value initialized to a file json only for production.
+   */
+  @Autowired
+  public LoadDatabaseStreamingFromJson(ObjectMapper mapper,
+                                       DataSourceResolver dataSourceResolver,
+                                       @Value("${loader.source.location:classpath:${filejson.app}}")
+                                           String filePath) {
+
+    this.objectMapper = mapper;
+    this.dataSourceResolver = dataSourceResolver;
+    this.filePath = filePath;
+
+  }
+
+  @Override
+  public StrategyName getStrategyName() {
+
+    return StrategyName.StrategyStreaming;
+
+  }
+
+  @Override
+  @Transactional
+  public boolean loadDatabaseFromSource() {
+
+    log.debug("\n\n**************** Starting to stream Data.json ***************\n");
+
+    SourceInput source = null;
+
+    try {
+
+      source = dataSourceResolver.open(filePath);
+
+    } catch (IOException e1) {
+
+      if (e1 instanceof FileNotFoundException) {
+
+        log.error("File Data.json is not Found in resources");
+
+      } else {
+
+        log.error("Reading Failure for File Data.json");
+
+      }
+
+      e1.printStackTrace();
+      return false;
+
+    }
+
+    LoadDataWriter writer = new LoadDataWriter(personService,
+                                               fireStationService,
+                                               medicalRecordService,
+                                               medicationService,
+                                               allergyService);
+
+    writer.getStatistics().setQueryCountInspector(queryCountInspector);
+
+    if (bulkEnabled) {
+
+      writer.enableBulkMode(entityManager, bulkBatchSize);
+    }
+
+    writer.getStatistics().setSourceBytes(source.getSize());
+    writer.getStatistics().start();
+
+    if (loadProgress != null) {
+
+      loadProgress.track(writer.getStatistics());
+    }
+
+    try (SourceInput input = source;
+        JsonParser parser = objectMapper.getFactory().createParser(input)) {
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+
+        log.error("Json's datas are not valid");
+        return false;
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+        String arrayName = parser.getCurrentName();
+
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+
+          parser.skipChildren();
+          continue;
+        }
+
+        switch (arrayName) {
+
+          case "persons":
+            streamPersons(parser, input, writer);
+            break;
+
+          case "firestations":
+            streamFireStations(parser, input, writer);
+            break;
+
+          case "medicalrecords":
+            streamMedicalRecords(parser, input, writer);
+            break;
+
+          default:
+            parser.skipChildren();
+        }
+      }
+
+    } catch (JsonProcessingException e) {
+
+      log.error("Json's datas are not valid");
+      e.printStackTrace();
+      return false;
+
+    } catch (IOException e) {
+
+      log.error("File Data.json is missing to be parsed");
+      e.printStackTrace();
+      return false;
+
+    }
+
+    writer.flush();
+    writer.getStatistics().stop();
+
+    log.info("\n\n ************** Stream Data.json terminated with success ***********\n {}\n",
+        writer.getStatistics());
+    return true;
+
+  }
+
+  private void streamPersons(JsonParser parser, SourceInput source, LoadDataWriter writer)
+      throws IOException {
+
+    ObjectReader personReader = objectMapper.readerFor(Person.class);
+
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+
+      Person person = personReader.readValue(parser);
+      writer.savePerson(person);
+      writer.getStatistics().updateSourceProgress(source.getBytesRead());
+    }
+
+  }
+
+  private void streamFireStations(JsonParser parser,
+                                  SourceInput source,
+                                  LoadDataWriter writer) throws IOException {
+
+    ObjectReader fireStationReader = objectMapper.readerFor(FireStationJson.class);
+
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+
+      FireStationJson fireStation = fireStationReader.readValue(parser);
+      writer.saveFireStationMapping(fireStation.getStation(), fireStation.getAddress());
+      writer.getStatistics().updateSourceProgress(source.getBytesRead());
+    }
+
+  }
+
+  private void streamMedicalRecords(JsonParser parser,
+                                    SourceInput source,
+                                    LoadDataWriter writer) throws IOException {
+
+    ObjectReader medicalRecordReader = objectMapper.readerFor(MedicalRecordJson.class);
+
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+
+      MedicalRecordJson medicalRecord = medicalRecordReader.readValue(parser);
+      writer.saveMedicalRecord(medicalRecord.getFirstName(),
+          medicalRecord.getLastName(),
+          medicalRecord.getBirthDate(),
+          medicalRecord.getMedications(),
+          medicalRecord.getAllergies());
+      writer.getStatistics().updateSourceProgress(source.getBytesRead());
+    }
+
+  }
+
+}
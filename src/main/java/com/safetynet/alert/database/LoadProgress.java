@@ -0,0 +1,144 @@
+package com.safetynet.alert.database;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Component following the progress of the load of data when booting application.
+ * Its state is used to refuse traffic until data are loaded,
+ * and the progress of load is published as metrics:
+ * <ul>
+ * <li>loader.records: number of records saved by type (persons, firestations, medicalrecords)
+ * <li>loader.progress: percent of completion of load
+ * <li>loader.eta: estimated number of seconds remaining before the end of load
+ * </ul>
+ *
+ * @author delaval
+ *
+ */
+@Component
+public class LoadProgress {
+
+  /**
+   * States of the load of data.
+   */
+  public enum State {
+    NOT_STARTED, LOADING, LOADED, FAILED
+  }
+
+  @Getter
+  private volatile State state = State.NOT_STARTED;
+
+  private volatile LoadStatistics statistics;
+
+  /**
+   * Constructor registering the metrics of progress of load.
+   *
+   * @param meterRegistry   registry of metrics of application.
+   */
+  @Autowired
+  public LoadProgress(MeterRegistry meterRegistry) {
+
+    for (String type : Arrays.asList(LoadStatistics.PERSONS,
+                                     LoadStatistics.FIRESTATIONS,
+                                     LoadStatistics.MEDICALRECORDS)) {
+
+      Gauge.builder("loader.records", this, progress -> progress.getRecords(type))
+          .description("number of records saved by the load of data")
+          .tag("type", type)
+          .register(meterRegistry);
+    }
+
+    Gauge.builder("loader.progress", this, LoadProgress::getPercent)
+        .description("percent of completion of the load of data")
+        .baseUnit("percent")
+        .register(meterRegistry);
+
+    Gauge.builder("loader.eta", this, LoadProgress::getEstimatedSecondsRemaining)
+        .description("estimated time remaining before the end of the load of data")
+        .baseUnit("seconds")
+        .register(meterRegistry);
+
+  }
+
+  /**
+   * Set the state to LOADING before to start the load.
+   */
+  public void begin() {
+
+    statistics = null;
+    state = State.LOADING;
+
+  }
+
+  /**
+   * Follow the statistics of the load in progress.
+   * It's called by the {@link LoadDataStrategy} when it starts to save records.
+   *
+   * @param loadStatistics    statistics of the load in progress.
+   */
+  public void track(LoadStatistics loadStatistics) {
+
+    statistics = loadStatistics;
+
+  }
+
+  /**
+   * Set the state at the end of load.
+   *
+   * @param success   true if data are loaded, false if the load failed.
+   */
+  public void complete(boolean success) {
+
+    state = success ? State.LOADED : State.FAILED;
+
+  }
+
+  /**
+   * Check if the application must wait before to accept traffic:
+   * when data are still loading or when their load failed.
+   *
+   * @return  true if data are not available.
+   */
+  public boolean isDataUnavailable() {
+
+    return (state == State.LOADING) || (state == State.FAILED);
+
+  }
+
+  private double getRecords(String type) {
+
+    LoadStatistics current = statistics;
+    return (current == null) ? 0 : current.getRecords(type);
+
+  }
+
+  private double getPercent() {
+
+    if (state == State.LOADED) {
+
+      return 100;
+    }
+
+    LoadStatistics current = statistics;
+    return (current == null) ? 0 : current.getCompletion() * 100;
+
+  }
+
+  private double getEstimatedSecondsRemaining() {
+
+    if (state == State.LOADED) {
+
+      return 0;
+    }
+
+    LoadStatistics current = statistics;
+    return (current == null) ? -1 : current.getEstimatedSecondsRemaining();
+
+  }
+
+}
@@ -0,0 +1,409 @@
+package com.safetynet.alert.database;
+
+import com.safetynet.alert.configuration.QueryCountInspector;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of a load of data: number of records saved by type,
+ * number of rows written by table, number of queries sent to database,
+ * duration of the load and peak of heap used during it.
+ * Counters of records and completion are read by the metrics of {@link LoadProgress}
+ * in another thread than the one of load, so they are thread-safe.
+ *
+ * @author delaval
+ *
+ */
+public class LoadStatistics {
+
+  public static final String PERSONS = "persons";
+  public static final String FIRESTATIONS = "firestations";
+  public static final String MEDICALRECORDS = "medicalrecords";
+
+  public static final String TABLE_PERSON = "person";
+  public static final String TABLE_FIRE_STATION = "fire_station";
+  public static final String TABLE_FIRE_STATION_ADDRESSES = "fire_station_addresses";
+  public static final String TABLE_PERSON_FIRESTATION = "person_firestation";
+  public static final String TABLE_MEDICAL_RECORD = "medical_record";
+  public static final String TABLE_MEDICATION = "medication";
+  public static final String TABLE_ALLERGY = "allergy";
+  public static final String TABLE_ATTRIBUTION_MEDICATION = "attribution_medication";
+  public static final String TABLE_ATTRIBUTION_ALLERGY = "attribution_allergy";
+
+  private static final List<String> RECORD_TYPES =
+      Arrays.asList(PERSONS, FIRESTATIONS, MEDICALRECORDS);
+
+  private final Map<String, LongAdder> records = new ConcurrentHashMap<>();
+
+  // for each table: number of rows, nanoTime of first and last row written
+  private final Map<String, long[]> tableRows = new LinkedHashMap<>();
+
+  private long flushes;
+
+  private QueryCountInspector queryCountInspector;
+  private long startQueries;
+  private long endQueries = -1;
+
+  private volatile long startNanos;
+  private volatile long endNanos;
+
+  // to estimate the completion of load, by records or else by bytes read in source
+  private volatile long expectedRecords;
+  private volatile long sourceBytes;
+  private volatile long bytesRead;
+
+  /**
+   * Constructor initializing counters of records for each type of record.
+   */
+  public LoadStatistics() {
+
+    RECORD_TYPES.forEach(type -> records.put(type, new LongAdder()));
+
+  }
+
+  /**
+   * Start the chronometer of load and reset the peak usage of heap memory pools,
+   * to be able to retrieve the peak of heap reached during the load only.
+   */
+  public void start() {
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+
+      if (pool.getType() == MemoryType.HEAP) {
+
+        pool.resetPeakUsage();
+      }
+    }
+
+    startNanos = System.nanoTime();
+    endNanos = 0;
+    startQueries = (queryCountInspector == null) ? 0 : queryCountInspector.getCount();
+    endQueries = -1;
+
+  }
+
+  /**
+   * Stop the chronometer of load.
+   */
+  public void stop() {
+
+    endNanos = System.nanoTime();
+    endQueries = (queryCountInspector == null) ? 0 : queryCountInspector.getCount();
+
+  }
+
+  /**
+   * Increment the counter of records of the given type.
+   *
+   * @param type  type of record (persons, firestations, medicalrecords).
+   */
+  public void increment(String type) {
+
+    records.computeIfAbsent(type, key -> new LongAdder()).increment();
+
+  }
+
+  /**
+   * Add rows written in a table of database.
+   * The span between the first and the last rows written is kept to calculate a rate by table.
+   *
+   * @param table   name of the table.
+   * @param rows    number of rows written.
+   */
+  public void addRows(String table, long rows) {
+
+    if (rows <= 0) {
+
+      return;
+    }
+
+    long now = System.nanoTime();
+    long[] counter = tableRows.computeIfAbsent(table, key -> new long[] {0, now, now});
+    counter[0] += rows;
+    counter[2] = now;
+
+  }
+
+  /**
+   * Retrieve the number of rows written in a table.
+   *
+   * @param table   name of the table.
+   *
+   * @return  number of rows written in this table.
+   */
+  public long getRows(String table) {
+
+    long[] counter = tableRows.get(table);
+    return (counter == null) ? 0 : counter[0];
+
+  }
+
+  /**
+   * Retrieve the throughput of writing for a table.
+   * Rows are counted during the span between first and last rows written in this table.
+   *
+   * @param table   name of the table.
+   *
+   * @return  number of rows written by second in this table.
+   */
+  public double getRowsPerSecond(String table) {
+
+    long[] counter = tableRows.get(table);
+
+    if (counter == null) {
+
+      return 0;
+    }
+
+    double seconds = Math.max(counter[2] - counter[1], 1_000_000) / 1_000_000_000.0;
+    return counter[0] / seconds;
+
+  }
+
+  /**
+   * Increment the number of flushes of persistence context done during the load.
+   */
+  public void incrementFlushes() {
+
+    flushes++;
+
+  }
+
+  /**
+   * Retrieve the number of flushes of persistence context done during the load.
+   *
+   * @return  number of flushes.
+   */
+  public long getFlushes() {
+
+    return flushes;
+
+  }
+
+  /**
+   * Set the inspector counting statements sent to database, to be able to retrieve
+   * the number of queries of load. It must be set before the start of load.
+   *
+   * @param queryCountInspector   the inspector of hibernate counting statements.
+   */
+  public void setQueryCountInspector(QueryCountInspector queryCountInspector) {
+
+    this.queryCountInspector = queryCountInspector;
+
+  }
+
+  /**
+   * Retrieve the number of queries sent to database since the start of load.
+   * Inserts sent by a same JDBC batch are counted as one query.
+   *
+   * @return  number of queries, 0 if there is no inspector to count them.
+   */
+  public long getQueries() {
+
+    if (queryCountInspector == null) {
+
+      return 0;
+    }
+
+    long end = (endQueries < 0) ? queryCountInspector.getCount() : endQueries;
+    return end - startQueries;
+
+  }
+
+  /**
+   * Set the number of records expected for this load, when it's known before to save them.
+   *
+   * @param expectedRecords   number of records of all types to save.
+   */
+  public void setExpectedRecords(long expectedRecords) {
+
+    this.expectedRecords = expectedRecords;
+
+  }
+
+  /**
+   * Set the size of source, used to estimate the completion of load
+   * when the number of expected records is unknown.
+   *
+   * @param sourceBytes   size of source in bytes.
+   */
+  public void setSourceBytes(long sourceBytes) {
+
+    this.sourceBytes = sourceBytes;
+
+  }
+
+  /**
+   * Update the progress of reading of source.
+   *
+   * @param bytesRead   number of bytes already read in source.
+   */
+  public void updateSourceProgress(long bytesRead) {
+
+    this.bytesRead = bytesRead;
+
+  }
+
+  /**
+   * Retrieve the estimated completion of load, from 0 to 1.
+   * It's the part of expected records already saved if their number is known,
+   * or else the part of source already read.
+   *
+   * @return  the completion of load, 1 when load is stopped.
+   */
+  public double getCompletion() {
+
+    if (endNanos != 0) {
+
+      return 1.0;
+    }
+
+    if (expectedRecords > 0) {
+
+      return Math.min((double) getTotalRecords() / expectedRecords, 1.0);
+    }
+
+    if ((sourceBytes > 0) && (bytesRead > 0)) {
+
+      return Math.min((double) bytesRead / sourceBytes, 1.0);
+    }
+
+    return 0;
+
+  }
+
+  /**
+   * Retrieve the estimated time remaining before the end of load,
+   * in proportion of the time already elapsed and of the completion of load.
+   *
+   * @return  number of seconds remaining, -1 when the completion is still unknown.
+   */
+  public double getEstimatedSecondsRemaining() {
+
+    double completion = getCompletion();
+
+    if (completion >= 1.0) {
+
+      return 0;
+    }
+
+    if (completion <= 0) {
+
+      return -1;
+    }
+
+    return getElapsedMillis() / 1000.0 * (1 - completion) / completion;
+
+  }
+
+  /**
+   * Retrieve the number of records saved for a given type.
+   *
+   * @param type  type of record.
+   *
+   * @return  number of saved records for this type.
+   */
+  public long getRecords(String type) {
+
+    LongAdder counter = records.get(type);
+    return (counter == null) ? 0 : counter.sum();
+
+  }
+
+  /**
+   * Retrieve the number of records saved for all types.
+   *
+   * @return  total of saved records.
+   */
+  public long getTotalRecords() {
+
+    return records.values().stream().mapToLong(LongAdder::sum).sum();
+
+  }
+
+  /**
+   * Retrieve the duration of load in milliseconds.
+   * If the load is not stopped, it's the duration since its start.
+   *
+   * @return  the duration of load in milliseconds.
+   */
+  public long getElapsedMillis() {
+
+    long end = (endNanos == 0) ? System.nanoTime() : endNanos;
+    return (end - startNanos) / 1_000_000;
+
+  }
+
+  /**
+   * Retrieve the throughput of the load.
+   *
+   * @return number of records saved by second.
+   */
+  public double getRecordsPerSecond() {
+
+    long elapsed = Math.max(getElapsedMillis(), 1);
+    return getTotalRecords() * 1000.0 / elapsed;
+
+  }
+
+  /**
+   * Retrieve the peak of heap used since the start of load.
+   * It's the sum of peaks of each heap memory pool, so a upper bound of the real peak.
+   *
+   * @return the peak of heap used in bytes.
+   */
+  public long getPeakHeapBytes() {
+
+    long peak = 0;
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+
+      if (pool.getType() == MemoryType.HEAP) {
+
+        peak += pool.getPeakUsage().getUsed();
+      }
+    }
+
+    return peak;
+
+  }
+
+  @Override
+  public String toString() {
+
+    // types of records always in the same order
+    Map<String, Long> recordsByType = new LinkedHashMap<>();
+    RECORD_TYPES.forEach(type -> recordsByType.put(type, getRecords(type)));
+    records.forEach((type, counter) -> recordsByType.putIfAbsent(type, counter.sum()));
+
+    StringBuilder result = new StringBuilder(String.format(
+        "records=%s, total=%d in %d ms (%.1f records/s), peak heap=%d MB,"
+            + " flushes=%d, queries=%d",
+        recordsByType,
+        getTotalRecords(),
+        getElapsedMillis(),
+        getRecordsPerSecond(),
+        getPeakHeapBytes() / (1024 * 1024),
+        flushes,
+        getQueries()));
+
+    for (String table : tableRows.keySet()) {
+
+      result.append(String.format("%n   table %s: %d rows (%.1f rows/s)",
+          table,
+          getRows(table),
+          getRowsPerSecond(table)));
+    }
+
+    return result.toString();
+
+  }
+
+}
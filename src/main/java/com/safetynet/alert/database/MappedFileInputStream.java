@@ -0,0 +1,144 @@
+package com.safetynet.alert.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stream reading a file by memory mapping of its {@link FileChannel}:
+ * bytes are copied directly from the page cache, without read system calls.
+ * The file is mapped by windows of 256 MB, so its size is not limited to 2 GB.
+ *
+ * @author delaval
+ *
+ */
+public class MappedFileInputStream extends InputStream {
+
+  private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+  private final FileChannel channel;
+  private final long size;
+
+  private long windowStart;
+  private MappedByteBuffer window;
+
+  /**
+   * Constructor mapping the first window of file.
+   *
+   * @param path    path of file to read.
+   *
+   * @throws IOException  when the file can't be opened or mapped.
+   */
+  public MappedFileInputStream(Path path) throws IOException {
+
+    channel = FileChannel.open(path, StandardOpenOption.READ);
+
+    try {
+
+      size = channel.size();
+      map(0);
+
+    } catch (IOException | RuntimeException e) {
+
+      channel.close();
+      throw e;
+    }
+
+  }
+
+  private void map(long start) throws IOException {
+
+    windowStart = start;
+    window = channel.map(MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+
+  }
+
+  /**
+   * Map the next window of file when the current one is entirely read.
+   *
+   * @return  false at the end of file.
+   */
+  private boolean hasRemaining() throws IOException {
+
+    if (window.hasRemaining()) {
+
+      return true;
+    }
+
+    long nextStart = windowStart + window.capacity();
+
+    if (nextStart >= size) {
+
+      return false;
+    }
+
+    map(nextStart);
+    return true;
+
+  }
+
+  @Override
+  public int read() throws IOException {
+
+    return hasRemaining() ? (window.get() & 0xff) : -1;
+
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+
+    if (len == 0) {
+
+      return 0;
+    }
+
+    if (!hasRemaining()) {
+
+      return -1;
+    }
+
+    int count = Math.min(len, window.remaining());
+    window.get(b, off, count);
+    return count;
+
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+
+    long position = windowStart + window.position();
+    long target = Math.min(size, position + Math.max(n, 0));
+
+    if (target < windowStart + window.capacity()) {
+
+      window.position((int) (target - windowStart));
+
+    } else {
+
+      map(target);
+    }
+
+    return target - position;
+
+  }
+
+  @Override
+  public int available() {
+
+    long remaining = size - windowStart - window.position();
+    return (int) Math.min(remaining, Integer.MAX_VALUE);
+
+  }
+
+  @Override
+  public void close() throws IOException {
+
+    channel.close();
+
+  }
+
+}
@@ -0,0 +1,35 @@
+package com.safetynet.alert.database;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Representation of a element of array "medicalrecords" in the source file json.
+ * Used to bind directly a element of source with a streaming parser.
+ *
+ * @author delaval
+ *
+ */
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class MedicalRecordJson {
+
+  private String firstName;
+
+  private String lastName;
+
+  @JsonProperty("birthdate")
+  private String birthDate;
+
+  private List<String> medications = new ArrayList<>();
+
+  private List<String> allergies = new ArrayList<>();
+
+}
@@ -0,0 +1,158 @@
+package com.safetynet.alert.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Component watching the source file json with a {@link WatchService}:
+ * when the file is changed, its changes are imported in database by the {@link DeltaImporter}
+ * without restarting application.
+ * Events of file are gathered during loader.watch.debounce-ms, because a editor or a copy
+ * usually writes a file in several times.
+ *
+ * @author delaval
+ *
+ */
+@Component
+@Log4j2
+public class SourceFileWatcher {
+
+  @Autowired
+  private DeltaImporter deltaImporter;
+
+  @Value("${loader.watch.debounce-ms:500}")
+  private long debounceMillis;
+
+  private WatchService watchService;
+  private Thread watcherThread;
+
+  /**
+   * Start to watch the given file, in a daemon thread.
+   *
+   * @param source    the source file json.
+   *
+   * @throws IOException  when the directory of file can't be watched.
+   */
+  public synchronized void start(File source) throws IOException {
+
+    if (watchService != null) {
+
+      return;
+    }
+
+    Path file = source.toPath().toAbsolutePath();
+    watchService = FileSystems.getDefault().newWatchService();
+    file.getParent().register(watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY);
+
+    WatchService currentWatchService = watchService;
+    watcherThread = new Thread(() -> watch(currentWatchService, file), "source-watcher");
+    watcherThread.setDaemon(true);
+    watcherThread.start();
+    log.info("File {} is watched to import its changes", file);
+
+  }
+
+  /**
+   * Stop to watch the source file.
+   */
+  @PreDestroy
+  public synchronized void stop() {
+
+    if (watchService == null) {
+
+      return;
+    }
+
+    try {
+
+      watchService.close();
+
+    } catch (IOException e) {
+
+      log.warn("Watcher of source file can't be closed", e);
+    }
+
+    watcherThread.interrupt();
+    watchService = null;
+    watcherThread = null;
+
+  }
+
+  private void watch(WatchService currentWatchService, Path file) {
+
+    try {
+
+      while (!Thread.currentThread().isInterrupted()) {
+
+        WatchKey key = currentWatchService.take();
+        boolean changed = isChanged(key, file);
+
+        // gather the next events of the same change
+        WatchKey nextKey;
+
+        while ((nextKey = currentWatchService.poll(debounceMillis, TimeUnit.MILLISECONDS))
+            != null) {
+
+          changed |= isChanged(nextKey, file);
+        }
+
+        if (changed) {
+
+          importChanges(file);
+        }
+      }
+
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+
+      log.debug("Watcher of {} stopped", file);
+    }
+
+  }
+
+  private boolean isChanged(WatchKey key, Path file) {
+
+    boolean changed = false;
+
+    for (WatchEvent<?> event : key.pollEvents()) {
+
+      if (file.getFileName().equals(event.context())) {
+
+        changed = true;
+      }
+    }
+
+    key.reset();
+    return changed;
+
+  }
+
+  private void importChanges(Path file) {
+
+    try {
+
+      deltaImporter.importChanges(file.toFile());
+
+    } catch (IOException | RuntimeException e) {
+
+      // the next change of file will be compared again with database
+      log.error("Changes of {} can't be imported", file, e);
+    }
+
+  }
+
+}
@@ -0,0 +1,160 @@
+package com.safetynet.alert.database;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stream of a source of data opened by the {@link DataSourceResolver}.
+ * The source is decompressed when it's a gzip (detected by its magic number,
+ * whatever its name), and the bytes read from the source itself are counted:
+ * with its size, they give the progress of read even when the source is compressed.
+ *
+ * @author delaval
+ *
+ */
+public class SourceInput extends FilterInputStream {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int GZIP_MAGIC = 0x8b1f;
+
+  private final CountingInputStream counter;
+  private final long size;
+  private final boolean compressed;
+
+  private SourceInput(InputStream decoded,
+                      CountingInputStream counter,
+                      long size,
+                      boolean compressed) {
+
+    super(decoded);
+    this.counter = counter;
+    this.size = size;
+    this.compressed = compressed;
+
+  }
+
+  /**
+   * Open the stream of a source, decompressing it if it's a gzip.
+   *
+   * @param source    the raw stream of source.
+   * @param size      the size of source in bytes, -1 if it's unknown.
+   *
+   * @return  the stream of source.
+   *
+   * @throws IOException  when the source can't be read.
+   */
+  public static SourceInput of(InputStream source, long size) throws IOException {
+
+    CountingInputStream counter = new CountingInputStream(source);
+    BufferedInputStream buffered = new BufferedInputStream(counter, BUFFER_SIZE);
+
+    buffered.mark(2);
+    int magic = buffered.read() | (buffered.read() << 8);
+    buffered.reset();
+
+    if (magic == GZIP_MAGIC) {
+
+      return new SourceInput(new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE),
+          BUFFER_SIZE), counter, size, true);
+    }
+
+    return new SourceInput(buffered, counter, size, false);
+
+  }
+
+  /**
+   * Retrieve the number of bytes read from the source, before its decompression.
+   *
+   * @return  number of bytes read.
+   */
+  public long getBytesRead() {
+
+    return counter.count;
+
+  }
+
+  /**
+   * Retrieve the size of the source, before its decompression.
+   *
+   * @return  size in bytes, -1 if it's unknown.
+   */
+  public long getSize() {
+
+    return size;
+
+  }
+
+  /**
+   * Check if the source is compressed with gzip.
+   *
+   * @return  true if the source is a gzip.
+   */
+  public boolean isCompressed() {
+
+    return compressed;
+
+  }
+
+  /**
+   * Stream counting the bytes read from the stream it wraps.
+   */
+  private static final class CountingInputStream extends FilterInputStream {
+
+    private volatile long count;
+
+    private CountingInputStream(InputStream in) {
+
+      super(in);
+
+    }
+
+    @Override
+    public int read() throws IOException {
+
+      int result = super.read();
+
+      if (result != -1) {
+
+        count++;
+      }
+
+      return result;
+
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+      int result = super.read(b, off, len);
+
+      if (result > 0) {
+
+        count += result;
+      }
+
+      return result;
+
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+
+      long result = super.skip(n);
+      count += result;
+      return result;
+
+    }
+
+    @Override
+    public boolean markSupported() {
+
+      return false;
+
+    }
+
+  }
+
+}
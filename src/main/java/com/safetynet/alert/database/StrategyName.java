@@ -7,5 +7,5 @@ package com.safetynet.alert.database;
  *
  */
 public enum StrategyName {
-  StrategyProd, StrategyTest
+  StrategyProd, StrategyTest, StrategyStreaming, StrategyParallel, StrategySnapshot
 }
@@ -8,6 +8,7 @@ import javax.validation.ConstraintViolationException;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.TransactionSystemException;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -220,4 +221,36 @@ public class GlobalExceptionHandler {
 
   }
 
+  /**
+   * Handler for {@link TransactionSystemException} .
+   * A entity changed after its save is validated only by the flush at commit of transaction:
+   * a {@link ConstraintViolationException} is then wrapped by this exception
+   * and it's managed as a ConstraintViolationException, with its FieldsValidationError.
+   *
+   * @param exception the {@link TransactionSystemException} thrown at commit of transaction.
+   *
+   * @param request   the request given to a controller.
+   *
+   * @return  a ResponseEntity with a {@link GlobalErrorResponse} specified for the
+   *            ConstraintViolationException wrapped, or for a global Exception if it's not
+   *            a failure of validation.
+   */
+  @ExceptionHandler
+  public ResponseEntity<GlobalErrorResponse>
+      handlerTransactionSystemException(TransactionSystemException exception,
+          final HttpServletRequest request)
+          throws JsonProcessingException {
+
+    Throwable rootCause = exception.getRootCause();
+
+    if (rootCause instanceof ConstraintViolationException) {
+
+      return handlerMethodArgumentNotValidException(
+          (ConstraintViolationException) rootCause, request);
+    }
+
+    return handlerGlobalException(exception, request);
+
+  }
+
 }
@@ -0,0 +1,25 @@
+package com.safetynet.alert.exceptions;
+
+/**
+ * Exception when a batch of admin endpoints is empty or has too many items.
+ *
+ * @author delaval
+ *
+ */
+public class InvalidBatchException extends BadRequestException {
+
+  private static final long serialVersionUID = -6209218427763054911L;
+
+  /**
+   * constructor with message.
+   *
+   * @param message   a error's message to display when exception is thrown
+   *
+   */
+  public InvalidBatchException(String message) {
+
+    super(message);
+
+  }
+
+}
@@ -0,0 +1,25 @@
+package com.safetynet.alert.exceptions;
+
+/**
+ * Exception when a page of a admin list is requested with a invalid cursor, limit or sort.
+ *
+ * @author delaval
+ *
+ */
+public class InvalidPageException extends BadRequestException {
+
+  private static final long serialVersionUID = 3188523610985217461L;
+
+  /**
+   * constructor with message.
+   *
+   * @param message   a error's message to display when exception is thrown
+   *
+   */
+  public InvalidPageException(String message) {
+
+    super(message);
+
+  }
+
+}
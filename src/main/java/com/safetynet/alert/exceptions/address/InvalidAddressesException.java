@@ -0,0 +1,27 @@
+package com.safetynet.alert.exceptions.address;
+
+import com.safetynet.alert.exceptions.BadRequestException;
+
+/**
+ * exception thrown when a list of addresses is empty or too large.
+ *
+ * @author delaval
+ *
+ */
+public class InvalidAddressesException extends BadRequestException {
+
+  private static final long serialVersionUID = -4120377515824938175L;
+
+  /**
+   * constructor with message.
+   *
+   * @param message   a error's message to display when exception is thrown
+   *
+   */
+  public InvalidAddressesException(String message) {
+
+    super(message);
+
+  }
+
+}
@@ -15,6 +15,7 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
@@ -43,7 +44,10 @@ import lombok.ToString;
 public class Allergy {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "allergy_seq")
+  @SequenceGenerator(name = "allergy_seq",
+                     sequenceName = "allergy_seq",
+                     allocationSize = 50)
   @Column
   @ApiModelProperty(notes = "Id of Allergy", readOnly = true)
 
@@ -18,6 +18,7 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.Min;
@@ -49,7 +50,10 @@ import lombok.ToString;
 public class FireStation {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fire_station_seq")
+  @SequenceGenerator(name = "fire_station_seq",
+                     sequenceName = "fire_station_seq",
+                     allocationSize = 50)
   @Column
   @ApiModelProperty(notes = "ID of FireStation", readOnly = true)
 
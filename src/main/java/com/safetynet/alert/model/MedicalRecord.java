@@ -17,6 +17,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -45,7 +46,10 @@ public class MedicalRecord {
 
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medical_record_seq")
+  @SequenceGenerator(name = "medical_record_seq",
+                     sequenceName = "medical_record_seq",
+                     allocationSize = 50)
   @Column
   @JsonProperty(access = JsonProperty.Access.READ_ONLY)
   @ApiModelProperty(notes = "Id of MedicalRecord", readOnly = true)
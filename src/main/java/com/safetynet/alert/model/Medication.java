@@ -15,6 +15,7 @@ import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -41,7 +42,10 @@ import lombok.ToString;
 public class Medication {
 
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "medication_seq")
+  @SequenceGenerator(name = "medication_seq",
+                     sequenceName = "medication_seq",
+                     allocationSize = 50)
   @Column
   @ApiModelProperty(notes = "Id of medication", readOnly = true)
 
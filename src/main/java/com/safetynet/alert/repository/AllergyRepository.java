@@ -1,8 +1,11 @@
 package com.safetynet.alert.repository;
 
 import com.safetynet.alert.model.Allergy;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -31,4 +34,15 @@ public interface AllergyRepository extends JpaRepository<Allergy, Long> {
       + " where a.designation=?1")
   Optional<Allergy> getOneFetchMedicalRecordsByDesignation(String designation);
 
+  // keyset pagination, see Keyset
+  @Query("select a from Allergy as a where a.idAllergy > ?1")
+  Slice<Allergy> findPageAfter(long idAllergy, Pageable pageable);
+
+  @Query("select a from Allergy as a where a.idAllergy < ?1")
+  Slice<Allergy> findPageBefore(long idAllergy, Pageable pageable);
+
+  // batch creations, see BatchService
+  @Query("select a from Allergy as a where a.designation in ?1")
+  List<Allergy> getAllergiesByDesignations(Collection<String> designations);
+
 }
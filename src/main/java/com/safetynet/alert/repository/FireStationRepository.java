@@ -1,11 +1,20 @@
 package com.safetynet.alert.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import com.safetynet.alert.model.FireStation;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import javax.validation.Valid;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -36,6 +45,19 @@ public interface FireStationRepository
       + " WHERE f.numberStation= ?1")
   Optional<FireStation> getOneAllFetchByNumberStation(int numberStation);
 
+  @Query("SELECT f"
+      + " FROM FireStation AS f"
+      + " LEFT JOIN FETCH f.addresses"
+      + " WHERE f.numberStation= ?1")
+  Optional<FireStation> getOneFetchAddressesByNumberStation(int numberStation);
+
+  @Query("SELECT distinct f"
+      + " FROM FireStation AS f"
+      + " LEFT JOIN FETCH f.addresses"
+      + " WHERE f.numberStation in ?1")
+  List<FireStation> findFireStationsFetchAddressesByNumberStations(
+      Collection<Integer> numberStations);
+
   @Query("SELECT distinct f"
       + " FROM FireStation as f "
       + " LEFT JOIN FETCH f.addresses ")
@@ -54,4 +76,84 @@ public interface FireStationRepository
       + " where :address member of a")
   List<FireStation> findFireStationsFetchPersonByAddress(@Valid String address);
 
+  // read by the cursor of database with a fetch size, to not load all fireStations in memory:
+  // their addresses are fetched by a keyed query, for a chunk of them
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query("SELECT f FROM FireStation AS f ORDER BY f.idFireStation")
+  Stream<FireStation> streamAll();
+
+  @Query("SELECT distinct f"
+      + " FROM FireStation AS f"
+      + " LEFT JOIN FETCH f.addresses"
+      + " WHERE f.idFireStation in ?1")
+  List<FireStation> fetchAddresses(Collection<Long> idFireStations);
+
+  // keyset pagination, see Keyset: addresses are fetched by a keyed query
+  @Query("SELECT f FROM FireStation AS f WHERE f.idFireStation > ?1")
+  Slice<FireStation> findPageAfter(long idFireStation, Pageable pageable);
+
+  @Query("SELECT f FROM FireStation AS f WHERE f.idFireStation < ?1")
+  Slice<FireStation> findPageBefore(long idFireStation, Pageable pageable);
+
+  // batch creations, see BatchService
+  @Query("SELECT f.numberStation FROM FireStation AS f WHERE f.numberStation in ?1")
+  List<Integer> getNumberStationsIn(Collection<Integer> numberStations);
+
+  @Query("SELECT distinct f"
+      + " FROM FireStation AS f"
+      + " JOIN FETCH f.addresses"
+      + " WHERE f.idFireStation in (SELECT m.idFireStation FROM FireStation AS m"
+      + " JOIN m.addresses a WHERE a in ?1)")
+  List<FireStation> findFireStationsFetchAddressesByAddresses(Collection<String> addresses);
+
+  // targeted updates of mapping address/fireStation, see FireStationService:
+  // the junction table person_firestation is updated by set, without loading persons
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "INSERT INTO fire_station_addresses (id_fire_station, adresses)"
+      + " VALUES (?1, ?2)", nativeQuery = true)
+  int insertAddress(long idFireStation, String address);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "INSERT INTO person_firestation (id_person, id_fire_station)"
+      + " SELECT p.id_person, ?1 FROM person p"
+      + " WHERE p.address IN (?2)"
+      + " AND NOT EXISTS (SELECT 1 FROM person_firestation m"
+      + " WHERE m.id_person = p.id_person AND m.id_fire_station = ?1)", nativeQuery = true)
+  int insertPersonsOfAddresses(long idFireStation, Collection<String> addresses);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "DELETE FROM person_firestation WHERE id_fire_station = ?1",
+         nativeQuery = true)
+  int deletePersonsOfFireStation(long idFireStation);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "DELETE FROM fire_station_addresses WHERE id_fire_station = ?1",
+         nativeQuery = true)
+  int deleteAddressesOfFireStation(long idFireStation);
+
+  // to do before deleteAddresses, as it needs the fireStations mapped with addresses
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "DELETE FROM person_firestation"
+      + " WHERE id_person IN (SELECT p.id_person FROM person p WHERE p.address IN (?1))"
+      + " AND id_fire_station IN (SELECT a.id_fire_station FROM fire_station_addresses a"
+      + " WHERE a.adresses IN (?1))", nativeQuery = true)
+  int deletePersonsOfAddresses(Collection<String> addresses);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "DELETE FROM fire_station_addresses WHERE adresses IN (?1)",
+         nativeQuery = true)
+  int deleteAddresses(Collection<String> addresses);
+
+  // mapping of a address with only one fireStation, see DeltaImporter
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "DELETE FROM person_firestation WHERE id_fire_station = ?1"
+      + " AND id_person IN (SELECT p.id_person FROM person p WHERE p.address = ?2)",
+         nativeQuery = true)
+  int deletePersonsOfAddress(long idFireStation, String address);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query(value = "DELETE FROM fire_station_addresses WHERE id_fire_station = ?1"
+      + " AND adresses = ?2", nativeQuery = true)
+  int deleteAddress(long idFireStation, String address);
+
 }
@@ -1,11 +1,19 @@
 package com.safetynet.alert.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import com.safetynet.alert.model.MedicalRecord;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
 import javax.validation.Valid;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -33,14 +41,6 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
       + " where p.lastName=?1 and p.firstName=?2")
   Optional<MedicalRecord> getOneByNames(@Valid String lastName, @Valid String firstName);
 
-  @Query("select distinct mr"
-      + " from MedicalRecord as mr "
-      + " left join mr.person as p "
-      + " left join fetch mr.medications m"
-      + " left join fetch mr.allergies a"
-      + " order by mr.idMedicalRecord,m.idMedication, a.idAllergy asc")
-  List<MedicalRecord> findAllFetchAll();
-
   @Query("select mr from MedicalRecord as mr "
       + " left join fetch mr.person as p "
       + " left join fetch p.fireStations"
@@ -49,6 +49,31 @@ public interface MedicalRecordRepository extends JpaRepository<MedicalRecord, Lo
       + " where p.lastName=?1 and p.firstName=?2")
   MedicalRecord getOneFetchAllByNames(String lastName, String firstName);
 
+  // read by the cursor of database with a fetch size, to not load all medicalRecords in memory:
+  // their medications and allergies are fetched by keyed queries, for a chunk of them
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query("select mr from MedicalRecord as mr"
+      + " left join fetch mr.person"
+      + " order by mr.idMedicalRecord")
+  Stream<MedicalRecord> streamAll();
+
+  @Query("select distinct mr from MedicalRecord as mr"
+      + " left join fetch mr.medications"
+      + " where mr.idMedicalRecord in ?1")
+  List<MedicalRecord> fetchMedications(Collection<Long> idMedicalRecords);
+
+  @Query("select distinct mr from MedicalRecord as mr"
+      + " left join fetch mr.allergies"
+      + " where mr.idMedicalRecord in ?1")
+  List<MedicalRecord> fetchAllergies(Collection<Long> idMedicalRecords);
+
+  // keyset pagination, see Keyset: medications and allergies are fetched by keyed queries
+  @Query("select mr from MedicalRecord as mr left join fetch mr.person"
+      + " where mr.idMedicalRecord > ?1")
+  Slice<MedicalRecord> findPageAfter(long idMedicalRecord, Pageable pageable);
 
+  @Query("select mr from MedicalRecord as mr left join fetch mr.person"
+      + " where mr.idMedicalRecord < ?1")
+  Slice<MedicalRecord> findPageBefore(long idMedicalRecord, Pageable pageable);
 
 }
@@ -1,8 +1,11 @@
 package com.safetynet.alert.repository;
 
 import com.safetynet.alert.model.Medication;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -32,4 +35,15 @@ public interface MedicationRepository extends JpaRepository<Medication, Long> {
   Optional<Medication> getOneFetchMedicalRecordsByDesignationAndPosology(String designation,
       String posology);
 
+  // keyset pagination, see Keyset
+  @Query("select m from Medication as m where m.idMedication > ?1")
+  Slice<Medication> findPageAfter(long idMedication, Pageable pageable);
+
+  @Query("select m from Medication as m where m.idMedication < ?1")
+  Slice<Medication> findPageBefore(long idMedication, Pageable pageable);
+
+  // batch creations, see BatchService: posologies are compared in memory
+  @Query("select m from Medication as m where m.designation in ?1")
+  List<Medication> getMedicationsByDesignations(Collection<String> designations);
+
 }
@@ -1,10 +1,18 @@
 package com.safetynet.alert.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 import com.safetynet.alert.model.Person;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import javax.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -14,7 +22,8 @@ import org.springframework.stereotype.Repository;
  *
  */
 @Repository
-public interface PersonRepository extends JpaRepository<Person, Long> {
+public interface PersonRepository extends JpaRepository<Person, Long>,
+    PersonRepositoryCustom {
 
   @Query("SELECT p FROM Person AS p WHERE p.address= ?1")
   Iterable<Person> getPersonsByAddress(String addressFireStation);
@@ -50,46 +59,56 @@ public interface PersonRepository extends JpaRepository<Person, Long> {
       + " order by p.phone")
   List<String> getPhonesByNumberStation(int fireStationNumber);
 
+  @Query("select distinct p.phone"
+      + " from Person p "
+      + " join  p.fireStations f"
+      + " where f.numberStation in ?1"
+      + " order by p.phone")
+  List<String> getPhonesByNumberStations(Collection<Integer> fireStationNumbers);
+
   //**************** getPersonsWhenFire********************
-  @Query("select distinct p"
-      + " from Person as p"
-      + " left join fetch p.fireStations as f"
-      + " left join fetch p.medicalRecord pmr"
-      + " left join fetch pmr.medications"
-      + " left join fetch pmr.allergies"
-      + " where p.address=?1 "
-      + "order by p.lastName,p.phone,p.birthDate")
-  List<Person> getPersonsWhenFire(String address);
+  // see PersonRepositoryCustom#getPersonsWhenFire
 
   //********************************* persons FLOOD ****************************
-
-  @Query("select distinct p"
-      + " from Person p"
-      + " left join fetch p.fireStations f"
-      + " left join fetch p.medicalRecord pmr"
-      + " left join fetch pmr.medications m"
-      + " left join fetch pmr.allergies a"
-      + " where f.numberStation =?1"
-      + " order by p.address,p.birthDate")
-  List<Person> getPersonsWhenFlood(int station);
-
-
+  // see PersonRepositoryCustom#getPersonsWhenFloodByStations
 
   //****************************** person Info *************************
-  @Query("select   p, case p.firstName when :firstName then 1 else 2 end as firstname"
-      + " from Person  p"
-      + " left join fetch p.medicalRecord mr "
-      + " left join fetch mr.medications m"
-      + " left join fetch mr.allergies a"
-      + " where p.lastName=:lastName"
-      + " order by firstname")
-  List<Person> getPersonInfoByNames(String firstName, String lastName);
-
+  // see PersonRepositoryCustom#getPersonInfoByNames
 
   //****************************** emails  *************************
   @Query("select distinct p.email from Person as p where p.city=?1 order by p.email")
   List<String> getEmailsByCity(String city);
 
+  boolean existsByCity(String city);
+
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query("select distinct p.email from Person as p where p.city=?1 order by p.email")
+  Stream<String> streamEmailsByCity(String city);
+
+  //****************************** streams of all persons *************************
+  // read by the cursor of database with a fetch size, to not load all persons in memory
+  @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+  @Query("select p from Person as p left join fetch p.medicalRecord order by p.idPerson")
+  Stream<Person> streamAll();
+
+  //****************************** pages of persons *************************
+  // keyset pagination, see Keyset
+  @Query("select p from Person as p left join fetch p.medicalRecord where p.idPerson > ?1")
+  Slice<Person> findPageAfter(long idPerson, Pageable pageable);
+
+  @Query("select p from Person as p left join fetch p.medicalRecord where p.idPerson < ?1")
+  Slice<Person> findPageBefore(long idPerson, Pageable pageable);
+
+  // batch creations, see BatchService: names are resolved by lastNames of a batch,
+  // and fireStations are mapped with persons of its addresses
+  @Query("select p from Person p left join fetch p.medicalRecord where p.lastName in ?1")
+  List<Person> getPersonsFetchMedicalRecordByLastNames(Collection<String> lastNames);
+
+  @Query("select distinct p from Person p left join fetch p.fireStations where p.address in ?1")
+  List<Person> getPersonsFetchFireStationsByAddresses(Collection<String> addresses);
 
+  // bulk load, see LoadDataWriter: persons linked by a batch are fetched by one query
+  @Query("select distinct p from Person p left join fetch p.fireStations where p.idPerson in ?1")
+  List<Person> getPersonsFetchFireStationsByIds(Collection<Long> idPersons);
 
 }
@@ -0,0 +1,69 @@
+package com.safetynet.alert.repository;
+
+import com.safetynet.alert.model.Person;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queries of {@link PersonRepository} for persons with their medicalRecord, medications
+ * and allergies. They are not fetched by a single query, which would return
+ * a row for each medication and each allergy of a same person
+ * (medications x allergies rows): persons are fetched with their medicalRecord,
+ * then medications and allergies of these medicalRecords by a keyed query for each one.
+ *
+ * @author delaval
+ *
+ */
+public interface PersonRepositoryCustom {
+
+  /**
+   * Retrieve persons living at the given address, with their fireStations and medicalRecord
+   * sorted by lastName, phone and birthDate.
+   *
+   * @param address   the address.
+   *
+   * @return  the persons living at address, empty if there is nobody.
+   */
+  List<Person> getPersonsWhenFire(String address);
+
+  /**
+   * Retrieve persons living at the given addresses, with their fireStations and medicalRecord
+   * sorted by address, lastName, phone and birthDate.
+   *
+   * @param addresses   the addresses.
+   *
+   * @return  the persons living at these addresses, empty if there is nobody.
+   */
+  List<Person> getPersonsWhenFireByAddresses(Collection<String> addresses);
+
+  /**
+   * Retrieve one row by existed station and person mapped with it: [numberStation, person]
+   * (person is null for a station without person), to check existence of stations
+   * and find their persons with their medicalRecord at once.
+   *
+   * @param stations  numberStations of fireStations.
+   *
+   * @return  the rows.
+   */
+  List<Object[]> getPersonsWhenFloodByStations(Collection<Integer> stations);
+
+  /**
+   * Retrieve persons with given lastName with their medicalRecord, the one(s) with the given
+   * firstName at first.
+   *
+   * @param firstName   firstName of person.
+   * @param lastName    lastName of person.
+   *
+   * @return  the persons with this lastName.
+   */
+  List<Person> getPersonInfoByNames(String firstName, String lastName);
+
+  /**
+   * Fetch medications and allergies of medicalRecords of given persons, by one query for
+   * medications and one for allergies. Persons must be managed by the current transaction.
+   *
+   * @param persons   the persons.
+   */
+  void fetchMedicationsAndAllergies(Collection<Person> persons);
+
+}
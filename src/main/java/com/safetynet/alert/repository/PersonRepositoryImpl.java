@@ -0,0 +1,137 @@
+package com.safetynet.alert.repository;
+
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Person;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Implementation of {@link PersonRepositoryCustom}: each method is done in a read-only
+ * transaction, so that medications and allergies are fetched in the same persistence context
+ * as persons and their medicalRecord.
+ *
+ * @author delaval
+ *
+ */
+@Transactional(readOnly = true)
+public class PersonRepositoryImpl implements PersonRepositoryCustom {
+
+  // number of medicalRecords by keyed query
+  private static final int FETCH_SIZE = 500;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Override
+  public List<Person> getPersonsWhenFire(String address) {
+
+    List<Person> persons = entityManager.createQuery("select distinct p"
+        + " from Person as p"
+        + " left join fetch p.fireStations as f"
+        + " left join fetch p.medicalRecord pmr"
+        + " where p.address=?1 "
+        + "order by p.lastName,p.phone,p.birthDate", Person.class)
+        .setParameter(1, address)
+        .getResultList();
+
+    fetchMedicationsAndAllergies(persons);
+    return persons;
+
+  }
+
+  @Override
+  public List<Person> getPersonsWhenFireByAddresses(Collection<String> addresses) {
+
+    List<Person> persons = entityManager.createQuery("select distinct p"
+        + " from Person as p"
+        + " left join fetch p.fireStations as f"
+        + " left join fetch p.medicalRecord pmr"
+        + " where p.address in ?1 "
+        + "order by p.address,p.lastName,p.phone,p.birthDate", Person.class)
+        .setParameter(1, addresses)
+        .getResultList();
+
+    fetchMedicationsAndAllergies(persons);
+    return persons;
+
+  }
+
+  @Override
+  public List<Object[]> getPersonsWhenFloodByStations(Collection<Integer> stations) {
+
+    List<Object[]> rows = entityManager.createQuery("select f.numberStation, p"
+        + " from FireStation f"
+        + " left join f.persons p"
+        + " left join fetch p.medicalRecord pmr"
+        + " where f.numberStation in ?1", Object[].class)
+        .setParameter(1, stations)
+        .getResultList();
+
+    fetchMedicationsAndAllergies(rows.stream()
+        .map(row -> (Person) row[1])
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList()));
+    return rows;
+
+  }
+
+  @Override
+  public List<Person> getPersonInfoByNames(String firstName, String lastName) {
+
+    List<Person> persons = entityManager.createQuery("select p"
+        + " from Person  p"
+        + " left join fetch p.medicalRecord mr "
+        + " where p.lastName=:lastName"
+        + " order by case p.firstName when :firstName then 1 else 2 end", Person.class)
+        .setParameter("firstName", firstName)
+        .setParameter("lastName", lastName)
+        .getResultList();
+
+    fetchMedicationsAndAllergies(persons);
+    return persons;
+
+  }
+
+  @Override
+  public void fetchMedicationsAndAllergies(Collection<Person> persons) {
+
+    Set<Long> ids = new LinkedHashSet<>();
+
+    for (Person person : persons) {
+
+      if (person.getMedicalRecord() != null) {
+
+        ids.add(person.getMedicalRecord().getIdMedicalRecord());
+      }
+    }
+
+    List<Long> keys = new ArrayList<>(ids);
+
+    for (int from = 0; from < keys.size(); from += FETCH_SIZE) {
+
+      List<Long> chunk = keys.subList(from, Math.min(from + FETCH_SIZE, keys.size()));
+
+      // collections of medicalRecords already managed are initialized by these fetches
+      entityManager.createQuery("select distinct mr from MedicalRecord mr"
+          + " left join fetch mr.medications where mr.idMedicalRecord in :ids",
+          MedicalRecord.class)
+          .setParameter("ids", chunk)
+          .getResultList();
+      entityManager.createQuery("select distinct mr from MedicalRecord mr"
+          + " left join fetch mr.allergies where mr.idMedicalRecord in :ids",
+          MedicalRecord.class)
+          .setParameter("ids", chunk)
+          .getResultList();
+    }
+
+  }
+
+}
@@ -2,6 +2,8 @@ package com.safetynet.alert.service;
 
 import com.safetynet.alert.model.Allergy;
 import com.safetynet.alert.repository.AllergyRepository;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -45,6 +47,21 @@ public class AllergyService {
 
   }
 
+  /**
+   * Retrieve a page of allergies sorted by id.
+   *
+   * @param keyset  the request of page.
+   *
+   * @return  the page of allergies.
+   */
+  public KeysetPage<Allergy> getAllergiesPage(Keyset keyset) {
+
+    return keyset.read(allergyRepository::findPageAfter,
+        allergyRepository::findPageBefore,
+        Allergy::getIdAllergy, "idAllergy");
+
+  }
+
   /**
    * Retrieve a collection of all allergies not Mapped with a MedicalRecord.
    *
@@ -71,6 +88,25 @@ public class AllergyService {
 
   }
 
+  /**
+   * Retrieve the existed Allergies with given designations by one query.
+   *
+   * @param designations
+   *          the designations of allergies to research.
+   *
+   * @return  the existed allergies with one of these designations.
+   */
+  public List<Allergy> getAllergiesByDesignations(Collection<String> designations) {
+
+    if (designations.isEmpty()) {
+
+      return new ArrayList<>();
+    }
+
+    return allergyRepository.getAllergiesByDesignations(designations);
+
+  }
+
   /**
    * Retrieve the Allergy with its given designation with Set MedicalRecords.
    *
@@ -127,6 +163,31 @@ public class AllergyService {
 
   }
 
+  /**
+   * Delete a Allergy.
+   *
+   * @param allergy
+   *          the Allergy to delete.
+   */
+  public void deleteAllergy(Allergy allergy) {
+
+    allergyRepository.delete(allergy);
 
+  }
+
+  /**
+   * Create a dictionary of allergies by designation.
+   * Unknown designations are searched in database without their mapped medicalRecords:
+   * a medicalRecord is linked to them by its own side.
+   *
+   * @return    a new dictionary of allergies.
+   */
+  public EntityDictionary<String, Allergy> createDictionary() {
+
+    return new EntityDictionary<>(Allergy.class,
+                                  Allergy::getIdAllergy,
+                                  this::getAllergyByDesignation);
+
+  }
 
 }
@@ -0,0 +1,69 @@
+package com.safetynet.alert.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.Value;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Result of a item of a batch of {@link BatchService}: its index in the batch and
+ * the status given by the single endpoint for the same item, with the id of created entity
+ * or the message of error of the rejected item.
+ *
+ * @author delaval
+ *
+ */
+@Value
+@JsonPropertyOrder({"index", "status", "id", "errorMessage"})
+public class BatchItemResult {
+
+  private int index;
+
+  private int status;
+
+  private Long id;
+
+  private String errorMessage;
+
+  /**
+   * Create the result of a created item.
+   *
+   * @param index   index of item in the batch.
+   * @param id      id of the created entity.
+   *
+   * @return  the result, with the status 201.
+   */
+  public static BatchItemResult created(int index, Long id) {
+
+    return new BatchItemResult(index, HttpStatus.CREATED.value(), id, null);
+
+  }
+
+  /**
+   * Create the result of a rejected item.
+   *
+   * @param index         index of item in the batch.
+   * @param status        status of error.
+   * @param errorMessage  message of error.
+   *
+   * @return  the result, without id.
+   */
+  public static BatchItemResult rejected(int index, HttpStatus status, String errorMessage) {
+
+    return new BatchItemResult(index, status.value(), null, errorMessage);
+
+  }
+
+  /**
+   * Check if the item was created.
+   *
+   * @return  true if the item was created.
+   */
+  @JsonIgnore
+  public boolean isCreated() {
+
+    return status == HttpStatus.CREATED.value();
+
+  }
+
+}
@@ -0,0 +1,615 @@
+package com.safetynet.alert.service;
+
+import com.safetynet.alert.exceptions.InvalidBatchException;
+import com.safetynet.alert.model.Allergy;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Medication;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.repository.AllergyRepository;
+import com.safetynet.alert.repository.FireStationRepository;
+import com.safetynet.alert.repository.MedicalRecordRepository;
+import com.safetynet.alert.repository.MedicationRepository;
+import com.safetynet.alert.repository.PersonRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service creating persons, fireStations or medicalRecords by batches, for the onboarding
+ * of a district by the admin endpoints (as /person/batch) instead of a request by item.
+ * Each batch is created in one transaction:
+ * <ul>
+ * <li>the natural keys of all items (names, numberStations, addresses, designations)
+ * are resolved by a few queries with "in", instead of queries by item
+ * <li>the fireStations of a person are mapped before its first save, so it's not saved twice
+ * <li>the items are inserted at the commit by JDBC batches
+ * (spring.jpa.properties.hibernate.jdbc.batch_size), as their ids are given by sequences
+ * </ul>
+ * Each item has its result, in the order of batch: created with its id, or rejected with
+ * the status and the message of the single endpoint (400 for a invalid item or a item with id,
+ * 409 for a already existed item, also when it's given twice in the batch).
+ * The other items of the batch are created anyway.
+ * When the database rejects the transaction of a batch, its items are written again one by one,
+ * each in its own transaction, so that only the failing items are rejected (400).
+ * A batch has {@value #MAX_BATCH_SIZE} items at most, so that its transaction stays short.
+ *
+ * @author delaval
+ *
+ */
+@Service
+@Log4j2
+public class BatchService {
+
+  // maximum number of items of a batch
+  public static final int MAX_BATCH_SIZE = 1000;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  @Autowired
+  private FireStationRepository fireStationRepository;
+
+  @Autowired
+  private MedicalRecordRepository medicalRecordRepository;
+
+  @Autowired
+  private MedicationRepository medicationRepository;
+
+  @Autowired
+  private AllergyRepository allergyRepository;
+
+  @Autowired
+  private Validator validator;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  /**
+   * Create the new persons of a batch, mapped with the fireStations of their address,
+   * as POST /person for each one.
+   *
+   * @param persons   the persons to create.
+   *
+   * @return  the result of each person, in the order of batch.
+   *
+   * @throws InvalidBatchException  if the batch is empty or too big.
+   */
+  public List<BatchItemResult> createPersons(List<Person> persons) {
+
+    checkSize(persons);
+    return write(persons, this::writePersons,
+        person -> person.getIdPerson() == null,
+        person -> {
+
+          person.setIdPerson(null);
+          person.clearFireStations();
+        }, "persons");
+
+  }
+
+  private List<BatchItemResult> writePersons(List<Person> persons, List<Integer> indexes) {
+
+    Map<DataChangeEvent.Names, Person> existedPersons = getPersonsByNames(
+        persons.stream().filter(Objects::nonNull).collect(Collectors.toList()));
+    Map<String, List<FireStation>> fireStationsByAddress = getFireStationsByAddresses(
+        persons.stream().filter(Objects::nonNull).map(Person::getAddress)
+            .collect(Collectors.toSet()));
+
+    List<BatchItemResult> results = new ArrayList<>();
+    DataChangeEvent event = null;
+
+    for (int i = 0; i < persons.size(); i++) {
+
+      Person person = persons.get(i);
+      int index = indexes.get(i);
+      String errorMessage = validate(person, "Person");
+
+      if (errorMessage != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST, errorMessage));
+
+      } else if (person.getIdPerson() != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST,
+            "Don't need an id for Person to save it!"));
+
+      } else if (existedPersons.putIfAbsent(namesOf(person), person) != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.CONFLICT,
+            "this Person with firstname:" + person.getFirstName() + " and lastname:"
+                + person.getLastName() + " already exist ! Can't add an already existed Person!"));
+
+      } else {
+
+        person.addFireStations(
+            fireStationsByAddress.getOrDefault(person.getAddress(), Collections.emptyList()));
+        personRepository.save(person);
+        results.add(BatchItemResult.created(index, person.getIdPerson()));
+        event = event == null
+            ? DataChangeEvent.ofPerson(person.getFirstName(), person.getLastName())
+            : event.andPerson(person.getFirstName(), person.getLastName());
+      }
+    }
+
+    return publish(event, results, "persons");
+
+  }
+
+  /**
+   * Create the new fireStations of a batch with their addresses, mapped with the persons
+   * living at these addresses, as POST /firestation for each one.
+   *
+   * @param fireStations  the fireStations to create.
+   *
+   * @return  the result of each fireStation, in the order of batch.
+   *
+   * @throws InvalidBatchException  if the batch is empty or too big.
+   */
+  public List<BatchItemResult> createFireStations(List<FireStation> fireStations) {
+
+    checkSize(fireStations);
+    return write(fireStations, this::writeFireStations,
+        fireStation -> fireStation.getIdFireStation() == null,
+        fireStation -> fireStation.setIdFireStation(null), "fireStations");
+
+  }
+
+  private List<BatchItemResult> writeFireStations(List<FireStation> fireStations,
+                                                  List<Integer> indexes) {
+
+    Set<Integer> numberStations = fireStations.stream().filter(Objects::nonNull)
+        .map(FireStation::getNumberStation).filter(Objects::nonNull).collect(Collectors.toSet());
+    Set<Integer> existedNumberStations = numberStations.isEmpty()
+        ? new HashSet<>()
+        : new HashSet<>(fireStationRepository.getNumberStationsIn(numberStations));
+    Set<String> addresses = fireStations.stream().filter(Objects::nonNull)
+        .flatMap(fireStation -> fireStation.getAddresses().stream())
+        .collect(Collectors.toSet());
+    Map<String, List<Person>> personsByAddress = addresses.isEmpty()
+        ? Collections.emptyMap()
+        : personRepository.getPersonsFetchFireStationsByAddresses(addresses).stream()
+            .collect(Collectors.groupingBy(Person::getAddress));
+
+    List<BatchItemResult> results = new ArrayList<>();
+    DataChangeEvent event = null;
+
+    for (int i = 0; i < fireStations.size(); i++) {
+
+      FireStation fireStation = fireStations.get(i);
+      int index = indexes.get(i);
+      String errorMessage = validate(fireStation, "FireStation");
+
+      if (errorMessage == null && fireStation.getNumberStation() == null) {
+
+        errorMessage = "numberStation: must not be null";
+      }
+
+      if (errorMessage != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST, errorMessage));
+
+      } else if (fireStation.getIdFireStation() != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST,
+            "Don't put a id in Body to save new FireStation!"));
+
+      } else if (!existedNumberStations.add(fireStation.getNumberStation())) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.CONFLICT,
+            "this FireStation with NumberStation: " + fireStation.getNumberStation()
+                + " already Existed"));
+
+      } else {
+
+        fireStationRepository.save(fireStation);
+
+        // the mapping is written by the side of persons
+        for (String address : fireStation.getAddresses()) {
+
+          personsByAddress.getOrDefault(address, Collections.emptyList())
+              .forEach(person -> person.addFireStation(fireStation));
+        }
+
+        results.add(BatchItemResult.created(index, fireStation.getIdFireStation()));
+        event = event == null
+            ? DataChangeEvent.ofFireStation(fireStation.getNumberStation(),
+                fireStation.getAddresses())
+            : event.andFireStation(fireStation.getNumberStation(), fireStation.getAddresses());
+      }
+    }
+
+    return publish(event, results, "fireStations");
+
+  }
+
+  /**
+   * Create the new medicalRecords of a batch with their medications and allergies,
+   * as POST /medicalRecord for each one: a medicalRecord is mapped with the existed person
+   * with its names, or else the person is created with it and mapped with the fireStations
+   * of its address. Medications and allergies which don't exist yet are created once,
+   * even if they are given by several medicalRecords.
+   *
+   * @param medicalRecords  the medicalRecords to create.
+   *
+   * @return  the result of each medicalRecord, in the order of batch.
+   *
+   * @throws InvalidBatchException  if the batch is empty or too big.
+   */
+  public List<BatchItemResult> createMedicalRecords(List<MedicalRecord> medicalRecords) {
+
+    checkSize(medicalRecords);
+    return write(medicalRecords, this::writeMedicalRecords,
+        medicalRecord -> validate(medicalRecord, "MedicalRecord") == null
+            && medicalRecord.getPerson() != null && !hasId(medicalRecord),
+        medicalRecord -> {
+
+          // a new person, new medications and allergies are the instances given by the item
+          medicalRecord.getPerson().setIdPerson(null);
+          medicalRecord.getPerson().clearFireStations();
+          medicalRecord.getPerson().setMedicalRecord(null);
+          medicalRecord.getMedications().forEach(medication -> {
+
+            medication.setIdMedication(null);
+            medication.getMedicalRecords().clear();
+          });
+          medicalRecord.getAllergies().forEach(allergy -> {
+
+            allergy.setIdAllergy(null);
+            allergy.getMedicalRecords().clear();
+          });
+        }, "medicalRecords");
+
+  }
+
+  private List<BatchItemResult> writeMedicalRecords(List<MedicalRecord> medicalRecords,
+                                                    List<Integer> indexes) {
+
+    List<MedicalRecord> givenMedicalRecords = medicalRecords.stream()
+        .filter(medicalRecord -> medicalRecord != null && medicalRecord.getPerson() != null)
+        .collect(Collectors.toList());
+    Map<DataChangeEvent.Names, Person> existedPersons = getPersonsByNames(
+        givenMedicalRecords.stream().map(MedicalRecord::getPerson).collect(Collectors.toList()));
+    Map<String, List<FireStation>> fireStationsByAddress = getFireStationsByAddresses(
+        givenMedicalRecords.stream().map(medicalRecord -> medicalRecord.getPerson().getAddress())
+            .collect(Collectors.toSet()));
+    Map<MedicationService.NaturalKey, Medication> medications =
+        getMedicationsByNaturalKeys(givenMedicalRecords);
+    Map<String, Allergy> allergies = getAllergiesByDesignations(givenMedicalRecords);
+
+    List<BatchItemResult> results = new ArrayList<>();
+    DataChangeEvent event = null;
+
+    for (int i = 0; i < medicalRecords.size(); i++) {
+
+      MedicalRecord medicalRecord = medicalRecords.get(i);
+      int index = indexes.get(i);
+      String errorMessage = validate(medicalRecord, "MedicalRecord");
+
+      if (errorMessage == null && medicalRecord.getPerson() == null) {
+
+        errorMessage = "person: must not be null";
+      }
+
+      if (errorMessage != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST, errorMessage));
+        continue;
+      }
+
+      Person person = existedPersons.get(namesOf(medicalRecord.getPerson()));
+      String personErrorMessage =
+          person == null ? validate(medicalRecord.getPerson(), "Person") : null;
+
+      if (hasId(medicalRecord)) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST,
+            "Don't use a Id in body request !"));
+
+      } else if (person != null && person.getMedicalRecord() != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.CONFLICT,
+            "MedicalRecord for this person already exist! Please chose another Person"
+                + " to map with"));
+
+      } else if (personErrorMessage != null) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST, personErrorMessage));
+
+      } else {
+
+        if (person == null) {
+
+          // new person, created with its medicalRecord by cascade
+          person = medicalRecord.getPerson();
+          person.addFireStations(
+              fireStationsByAddress.getOrDefault(person.getAddress(), Collections.emptyList()));
+          existedPersons.put(namesOf(person), person);
+        }
+
+        // the links with medications and allergies are written by the side of medicalRecord
+        MedicalRecord savedMedicalRecord = new MedicalRecord();
+        savedMedicalRecord.setPerson(person);
+
+        for (Medication medication : medicalRecord.getMedications()) {
+
+          savedMedicalRecord.add(medications.computeIfAbsent(
+              MedicationService.naturalKey(medication), key -> medication));
+        }
+
+        for (Allergy allergy : medicalRecord.getAllergies()) {
+
+          savedMedicalRecord.add(allergies.computeIfAbsent(allergy.getDesignation(),
+              key -> allergy));
+        }
+
+        person.setMedicalRecord(savedMedicalRecord);
+        medicalRecordRepository.save(savedMedicalRecord);
+        results.add(BatchItemResult.created(index, savedMedicalRecord.getIdMedicalRecord()));
+        event = event == null
+            ? DataChangeEvent.ofPerson(person.getFirstName(), person.getLastName())
+            : event.andPerson(person.getFirstName(), person.getLastName());
+      }
+    }
+
+    return publish(event, results, "medicalRecords");
+
+  }
+
+  /**
+   * Write the items of a batch in one transaction. When the database rejects it
+   * (a value too long for its column, a item inserted meanwhile...), the items are written
+   * again one by one, each in its own transaction: only the failing items are rejected.
+   * The new items are reset before, as their writing of the batch gave them ids: the items
+   * given with a id are not, so that they are still rejected.
+   */
+  private <T> List<BatchItemResult> write(
+      List<T> items,
+      BiFunction<List<T>, List<Integer>, List<BatchItemResult>> writer,
+      Predicate<T> isNew,
+      Consumer<T> reset,
+      String name) {
+
+    List<Integer> indexes = IntStream.range(0, items.size()).boxed()
+        .collect(Collectors.toList());
+    List<Boolean> newItems = items.stream().map(item -> item != null && isNew.test(item))
+        .collect(Collectors.toList());
+
+    try {
+
+      return inNewTransaction(() -> writer.apply(items, indexes));
+
+    } catch (DataAccessException | TransactionException e) {
+
+      log.warn("Batch of {} {} rejected by database, written again item by item: {}",
+          items.size(), name, e.getMostSpecificCause().getMessage());
+    }
+
+    List<BatchItemResult> results = new ArrayList<>();
+
+    for (int index = 0; index < items.size(); index++) {
+
+      T item = items.get(index);
+      List<Integer> itemIndexes = Collections.singletonList(index);
+
+      if (newItems.get(index)) {
+
+        reset.accept(item);
+      }
+
+      try {
+
+        results.addAll(inNewTransaction(
+            () -> writer.apply(Collections.singletonList(item), itemIndexes)));
+
+      } catch (DataAccessException | TransactionException e) {
+
+        results.add(BatchItemResult.rejected(index, HttpStatus.BAD_REQUEST,
+            e.getMostSpecificCause().getMessage()));
+      }
+    }
+
+    return results;
+
+  }
+
+  private List<BatchItemResult> inNewTransaction(Supplier<List<BatchItemResult>> work) {
+
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    return transactionTemplate.execute(status -> work.get());
+
+  }
+
+  /**
+   * Retrieve the existed persons with the names of given persons, by their lastNames.
+   */
+  private Map<DataChangeEvent.Names, Person> getPersonsByNames(List<Person> persons) {
+
+    Set<String> lastNames = persons.stream().map(Person::getLastName)
+        .filter(Objects::nonNull).collect(Collectors.toSet());
+    Map<DataChangeEvent.Names, Person> personsByNames = new HashMap<>();
+
+    if (!lastNames.isEmpty()) {
+
+      personRepository.getPersonsFetchMedicalRecordByLastNames(lastNames)
+          .forEach(person -> personsByNames.put(namesOf(person), person));
+    }
+
+    return personsByNames;
+
+  }
+
+  /**
+   * Retrieve the fireStations mapped with each of given addresses.
+   */
+  private Map<String, List<FireStation>> getFireStationsByAddresses(Set<String> addresses) {
+
+    addresses.remove(null);
+    Map<String, List<FireStation>> fireStationsByAddress = new HashMap<>();
+
+    if (!addresses.isEmpty()) {
+
+      for (FireStation fireStation
+          : fireStationRepository.findFireStationsFetchAddressesByAddresses(addresses)) {
+
+        for (String address : fireStation.getAddresses()) {
+
+          if (addresses.contains(address)) {
+
+            fireStationsByAddress.computeIfAbsent(address, key -> new ArrayList<>())
+                .add(fireStation);
+          }
+        }
+      }
+    }
+
+    return fireStationsByAddress;
+
+  }
+
+  /**
+   * Retrieve the existed medications of given medicalRecords by natural key
+   * (designation, posology).
+   */
+  private Map<MedicationService.NaturalKey, Medication> getMedicationsByNaturalKeys(
+      List<MedicalRecord> medicalRecords) {
+
+    Set<String> designations = medicalRecords.stream()
+        .flatMap(medicalRecord -> medicalRecord.getMedications().stream())
+        .map(Medication::getDesignation)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    Map<MedicationService.NaturalKey, Medication> medications = new HashMap<>();
+
+    if (!designations.isEmpty()) {
+
+      medicationRepository.getMedicationsByDesignations(designations)
+          .forEach(medication -> medications.put(MedicationService.naturalKey(medication),
+              medication));
+    }
+
+    return medications;
+
+  }
+
+  /**
+   * Retrieve the existed allergies of given medicalRecords by designation.
+   */
+  private Map<String, Allergy> getAllergiesByDesignations(List<MedicalRecord> medicalRecords) {
+
+    Set<String> designations = medicalRecords.stream()
+        .flatMap(medicalRecord -> medicalRecord.getAllergies().stream())
+        .map(Allergy::getDesignation)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    Map<String, Allergy> allergies = new HashMap<>();
+
+    if (!designations.isEmpty()) {
+
+      allergyRepository.getAllergiesByDesignations(designations)
+          .forEach(allergy -> allergies.put(allergy.getDesignation(), allergy));
+    }
+
+    return allergies;
+
+  }
+
+  /**
+   * Validate a item as the @Valid of single endpoint.
+   *
+   * @return  the messages of violations, or null if the item is valid.
+   */
+  private <T> String validate(T item, String name) {
+
+    if (item == null) {
+
+      return name + " must not be null";
+    }
+
+    Set<ConstraintViolation<T>> violations = validator.validate(item);
+
+    if (violations.isEmpty()) {
+
+      return null;
+    }
+
+    return violations.stream()
+        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+        .sorted()
+        .collect(Collectors.joining(", "));
+
+  }
+
+  private static void checkSize(List<?> items) {
+
+    if (items.isEmpty() || items.size() > MAX_BATCH_SIZE) {
+
+      throw new InvalidBatchException("a batch must contain between 1 and " + MAX_BATCH_SIZE
+          + " items");
+    }
+
+  }
+
+  private static boolean hasId(MedicalRecord medicalRecord) {
+
+    return medicalRecord.getIdMedicalRecord() != null
+        || medicalRecord.getPerson().getIdPerson() != null
+        || medicalRecord.getMedications().stream()
+            .anyMatch(medication -> medication.getIdMedication() != null)
+        || medicalRecord.getAllergies().stream()
+            .anyMatch(allergy -> allergy.getIdAllergy() != null);
+
+  }
+
+  private static DataChangeEvent.Names namesOf(Person person) {
+
+    return new DataChangeEvent.Names(person.getFirstName(), person.getLastName());
+
+  }
+
+  /**
+   * Publish the change of created items, handled once the transaction is committed.
+   */
+  private List<BatchItemResult> publish(DataChangeEvent event,
+                                        List<BatchItemResult> results,
+                                        String items) {
+
+    if (event != null) {
+
+      eventPublisher.publishEvent(event);
+    }
+
+    log.debug("\nBatch of {} {}: {} created\n", results.size(), items,
+        results.stream().filter(BatchItemResult::isCreated).count());
+    return results;
+
+  }
+
+}
@@ -0,0 +1,185 @@
+package com.safetynet.alert.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.Value;
+
+/**
+ * Event published once data of persons, fireStations or medicalRecords are changed in database,
+ * to update the {@link EmergencyReadModel}. It gives what was changed:
+ * <ul>
+ * <li>persons by their names (firstName and lastName can't be changed)
+ * <li>addresses, when their mapping with fireStations was changed:
+ * persons living there are loaded again
+ * <li>numberStations of fireStations which may have been created or deleted:
+ * only their existence is checked again, their persons are given by addresses
+ * </ul>
+ * or all data, after a load or a import of source file json.
+ *
+ * @author delaval
+ *
+ */
+@Getter
+@ToString
+public class DataChangeEvent {
+
+  private final boolean all;
+
+  private final Set<Names> persons = new LinkedHashSet<>();
+
+  private final Set<String> addresses = new LinkedHashSet<>();
+
+  private final Set<Integer> numberStations = new LinkedHashSet<>();
+
+  private DataChangeEvent(boolean all) {
+
+    this.all = all;
+
+  }
+
+  /**
+   * Create a event for a change of all data.
+   *
+   * @return  the event.
+   */
+  public static DataChangeEvent all() {
+
+    return new DataChangeEvent(true);
+
+  }
+
+  /**
+   * Create a event without change, to which the changes are added one by one.
+   *
+   * @return  the event.
+   */
+  public static DataChangeEvent empty() {
+
+    return new DataChangeEvent(false);
+
+  }
+
+  /**
+   * Create a event for a change of a person (or of its medicalRecord).
+   *
+   * @param firstName   firstName of person.
+   * @param lastName    lastName of person.
+   *
+   * @return  the event.
+   */
+  public static DataChangeEvent ofPerson(String firstName, String lastName) {
+
+    return new DataChangeEvent(false).andPerson(firstName, lastName);
+
+  }
+
+  /**
+   * Create a event for a creation of a fireStation and of its mapping.
+   *
+   * @param numberStation   numberStation of fireStation.
+   * @param addresses       addresses mapped with fireStation.
+   *
+   * @return  the event.
+   */
+  public static DataChangeEvent ofFireStation(Integer numberStation,
+                                              Collection<String> addresses) {
+
+    DataChangeEvent event = new DataChangeEvent(false);
+    event.numberStations.add(numberStation);
+    event.addresses.addAll(addresses);
+    return event;
+
+  }
+
+  /**
+   * Create a event for a change of mapping of a address with fireStations.
+   *
+   * @param address   the address.
+   *
+   * @return  the event.
+   */
+  public static DataChangeEvent ofAddress(String address) {
+
+    return ofAddresses(Collections.singleton(address));
+
+  }
+
+  /**
+   * Create a event for a change of mapping of some addresses with fireStations,
+   * without creation or deletion of fireStation.
+   *
+   * @param addresses   the addresses.
+   *
+   * @return  the event.
+   */
+  public static DataChangeEvent ofAddresses(Collection<String> addresses) {
+
+    DataChangeEvent event = new DataChangeEvent(false);
+    event.addresses.addAll(addresses);
+    return event;
+
+  }
+
+  /**
+   * Add a changed person to this event.
+   *
+   * @param firstName   firstName of person.
+   * @param lastName    lastName of person.
+   *
+   * @return  this event.
+   */
+  public DataChangeEvent andPerson(String firstName, String lastName) {
+
+    persons.add(new Names(firstName, lastName));
+    return this;
+
+  }
+
+  /**
+   * Add a address whose mapping with fireStations was changed to this event.
+   *
+   * @param address   the address.
+   *
+   * @return  this event.
+   */
+  public DataChangeEvent andAddress(String address) {
+
+    addresses.add(address);
+    return this;
+
+  }
+
+  /**
+   * Add a fireStation which may have been created or deleted, and its changed mapping,
+   * to this event.
+   *
+   * @param numberStation   numberStation of fireStation.
+   * @param addresses       addresses whose mapping with fireStation was changed.
+   *
+   * @return  this event.
+   */
+  public DataChangeEvent andFireStation(Integer numberStation, Collection<String> addresses) {
+
+    numberStations.add(numberStation);
+    this.addresses.addAll(addresses);
+    return this;
+
+  }
+
+  /**
+   * Names of a changed person.
+   */
+  @Value
+  public static class Names {
+
+    private String firstName;
+
+    private String lastName;
+
+  }
+
+}
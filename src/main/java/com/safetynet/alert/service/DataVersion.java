@@ -0,0 +1,86 @@
+package com.safetynet.alert.service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Version of data of persons, fireStations and medicalRecords, incremented after each
+ * {@link DataChangeEvent}, once its transaction is committed and the {@link EmergencyReadModel}
+ * is updated. A strong ETag is derived from it, so that a GET with a If-None-Match
+ * equal to the current ETag is answered with a 304 before any query or serialization.
+ *
+ * <p>The ETag contains also:
+ * <ul>
+ * <li>the start of application, as the version starts again at 0 after a restart
+ * <li>the current day, as ages and counts of children change every day without change of data
+ * </ul>
+ *
+ * @author delaval
+ *
+ */
+@Service
+@Log4j2
+public class DataVersion {
+
+  private final String start = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+  private final AtomicLong version = new AtomicLong();
+
+  /**
+   * Return the current version of data.
+   *
+   * @return  the version.
+   */
+  public long getVersion() {
+
+    return version.get();
+
+  }
+
+  /**
+   * Return the strong ETag of the current version of data.
+   *
+   * @return  the ETag, quoted.
+   */
+  public String getETag() {
+
+    return "\"" + start + "-" + version.get() + "-" + LocalDate.now().toEpochDay() + "\"";
+
+  }
+
+  /**
+   * Return the strong ETag of the current version of data, for another representation
+   * of a same resource (as application/x-ndjson), as a strong ETag is given by representation.
+   *
+   * @param representation  name of representation.
+   *
+   * @return  the ETag, quoted.
+   */
+  public String getETag(String representation) {
+
+    String etag = getETag();
+    return etag.substring(0, etag.length() - 1) + "-" + representation + "\"";
+
+  }
+
+  /**
+   * Increment the version once data are changed.
+   * It's done after all other listeners, so that a ETag is never given with stale data.
+   *
+   * @param event   the change of data.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  @Order(Ordered.LOWEST_PRECEDENCE)
+  public void onDataChange(DataChangeEvent event) {
+
+    long newVersion = version.incrementAndGet();
+    log.debug("Version of data {} after {}", newVersion, event);
+
+  }
+
+}
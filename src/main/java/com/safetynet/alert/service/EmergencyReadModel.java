@@ -0,0 +1,1017 @@
+package com.safetynet.alert.service;
+
+import com.safetynet.alert.controller.emergency.EmergencyRestController;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.repository.PersonRepository;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Read model of persons kept in memory for the endpoints of {@link EmergencyRestController},
+ * so that they are served without any query to database.
+ * Persons are loaded once with their fireStations, medicalRecord, medications and allergies,
+ * and indexed by numberStation, address, lastName and city. Lists of index are immutable
+ * and sorted by idPerson.
+ * The read model is loaded at its first use, or again when all data are changed.
+ * After each change of admin endpoints, only persons given by the {@link DataChangeEvent}
+ * are loaded again and only the entries of index of these persons are replaced,
+ * under a write lock: entries are read under a read lock, so a reader never sees
+ * a index updated by half, and a change costs only the entries of its keys.
+ * Counts of adults and children, and sorted phones by fireStation are maintained with
+ * these changes, and children are counted as adults once they are 18 years old
+ * (every day by a scheduled job, or at the first count after their birthday).
+ *
+ * <p>It can be disabled with emergency.read-model.enabled=false:
+ * services then query database again.
+ *
+ * @author delaval
+ *
+ */
+@Service
+@ConditionalOnProperty(name = "emergency.read-model.enabled", havingValue = "true",
+                       matchIfMissing = true)
+@Log4j2
+public class EmergencyReadModel {
+
+  // medications and allergies are fetched by other queries, not to have
+  // a row by medication x allergy of each person
+  private static final String FETCH_PERSONS = "select distinct p from Person p"
+      + " left join fetch p.fireStations"
+      + " left join fetch p.medicalRecord mr";
+
+  private static final String FETCH_MEDICATIONS = "select distinct mr from MedicalRecord mr"
+      + " left join fetch mr.medications";
+
+  private static final String FETCH_ALLERGIES = "select distinct mr from MedicalRecord mr"
+      + " left join fetch mr.allergies";
+
+  // as in database, a null birthDate is lower than all others
+  private static final Comparator<Date> BIRTH_DATE_ORDER =
+      Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private static final Comparator<String> PHONE_ORDER =
+      Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private static final Comparator<String> EMAIL_ORDER =
+      Comparator.nullsFirst(Comparator.naturalOrder());
+
+  private static final Comparator<Person> ID_ORDER =
+      Comparator.comparing(Person::getIdPerson);
+
+  private static final int ADULT_AGE = 18;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  private PersonRepository personRepository;
+
+  private TransactionTemplate transactionTemplate;
+
+  private volatile Index index;
+
+  private volatile AdultBirthDay adultBirthDay;
+
+  // entries of index are replaced under the write lock, by one change at a time
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Constructor with fields.
+   *
+   * @param transactionManager  the transaction manager used to load persons.
+   */
+  @Autowired
+  public EmergencyReadModel(PlatformTransactionManager transactionManager) {
+
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+
+  }
+
+  /**
+   * Update the read model once the transaction of change is committed
+   * (or immediately if the change was not done in a transaction),
+   * before the caches of results built from it are evicted.
+   *
+   * @param event   the change of data.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  @Order(Ordered.HIGHEST_PRECEDENCE)
+  public synchronized void onDataChange(DataChangeEvent event) {
+
+    if (event.isAll()) {
+
+      index = load();
+      return;
+    }
+
+    // not yet loaded: it will be at its first use with the changes
+    if (index == null) {
+
+      return;
+    }
+
+    try {
+
+      update(index, event);
+
+    } catch (RuntimeException e) {
+
+      // the read model is loaded again at its next use
+      log.error("Read model can't be updated with {}", event, e);
+      index = null;
+    }
+
+  }
+
+  /**
+   * Check if a fireStation exists.
+   *
+   * @param numberStation   numberStation of fireStation.
+   *
+   * @return  true if the fireStation exists.
+   */
+  public boolean existsFireStation(int numberStation) {
+
+    return read(current -> current.numberStations.contains(numberStation));
+
+  }
+
+  /**
+   * Retrieve counts of adults, children and persons without birthDate
+   * mapped with a fireStation, without reading its persons.
+   *
+   * @param numberStation   numberStation of fireStation.
+   *
+   * @return  the counts.
+   */
+  public StationCounts getStationCounts(int numberStation) {
+
+    long now = System.currentTimeMillis();
+
+    if (index().hasMajorityBefore(now)) {
+
+      promoteAdults(now);
+    }
+
+    return read(current ->
+        current.countsByStation.getOrDefault(numberStation, StationCounts.NONE));
+
+  }
+
+  /**
+   * Count as adults the children who are 18 years old since the last count.
+   */
+  @Scheduled(cron = "${emergency.read-model.majority-cron:0 0 0 * * *}")
+  public void promoteAdults() {
+
+    promoteAdults(System.currentTimeMillis());
+
+  }
+
+  /**
+   * Count as adults the children who are 18 years old at this instant.
+   */
+  private synchronized void promoteAdults(long instant) {
+
+    Index current = index;
+
+    if (current == null || !current.hasMajorityBefore(instant)) {
+
+      return;
+    }
+
+    int count;
+    lock.writeLock().lock();
+
+    try {
+
+      count = current.promoteAdults(instant);
+
+    } finally {
+
+      lock.writeLock().unlock();
+    }
+
+    log.debug("\n{} children of read model are now counted as adults\n", count);
+
+  }
+
+  /**
+   * Retrieve persons mapped with a fireStation, with their names, birthDate, address and phone.
+   *
+   * @param numberStation   numberStation of fireStation.
+   *
+   * @return  a new list of persons, that can be modified.
+   */
+  public List<Person> getPersonsMappedByNumberStation(int numberStation) {
+
+    List<Person> result = new ArrayList<>();
+
+    for (Person person : read(current -> current.byStation.getOrDefault(numberStation,
+        emptyList()))) {
+
+      result.add(new Person(person.getFirstName(), person.getLastName(),
+          person.getBirthDate(), person.getAddress(), person.getPhone()));
+    }
+
+    return result;
+
+  }
+
+  /**
+   * Retrieve persons living at a address from the youngest to the oldest, separated in
+   * children (less than 18 years old) and other members, as
+   * {@link PersonService#getChildrenByAddress(String)}.
+   * Birthdates of a address are indexed in epoch days, so the children are found
+   * by a binary search against the birth day of adults of today.
+   * Persons are shared by the read model: they must not be modified.
+   *
+   * @param address   the address.
+   *
+   * @return  a Map with list of children and list of other members,
+   *          or null if nobody lives at the address.
+   */
+  public Map<String, List<Person>> getChildrenByAddress(String address) {
+
+    Household household = read(current -> current.households.get(address));
+
+    if (household == null) {
+
+      return null;
+    }
+
+    int children = household.countBornAfter(adultBirthDay());
+
+    Map<String, List<Person>> result = new LinkedHashMap<>();
+    result.put("children", household.persons.subList(0, children));
+    result.put("otherMembers",
+        household.persons.subList(children, household.persons.size()));
+    return result;
+
+  }
+
+  /**
+   * Retrieve phones of persons mapped with a fireStation, sorted and without duplicates.
+   * They are maintained by fireStation with the changes of persons.
+   *
+   * @param numberStation   numberStation of fireStation.
+   *
+   * @return  the list of phones, that can't be modified.
+   */
+  public List<String> getPhonesByNumberStation(int numberStation) {
+
+    return read(current ->
+        current.phonesByStation.getOrDefault(numberStation, Collections.emptyList()));
+
+  }
+
+  /**
+   * Give to a consumer the phones of persons mapped with some fireStations, sorted and
+   * without duplicates: the sorted phones of each fireStation are merged, and a phone
+   * is given only if it differs from the previous one, so no set of all phones is built.
+   *
+   * @param numberStations  numberStations of fireStations.
+   * @param consumer        consumer of each phone.
+   *
+   * @return  the number of phones given.
+   */
+  public long forEachPhoneByNumberStations(Collection<Integer> numberStations,
+                                           Consumer<String> consumer) {
+
+    // lists of phones are immutable: they are merged out of the lock
+    List<List<String>> phonesOfStations = read(current -> new HashSet<>(numberStations)
+        .stream()
+        .map(numberStation ->
+            current.phonesByStation.getOrDefault(numberStation, Collections.emptyList()))
+        .collect(Collectors.toList()));
+    PriorityQueue<PhoneCursor> cursors = new PriorityQueue<>(
+        Comparator.comparing(cursor -> cursor.phone, PHONE_ORDER));
+
+    for (List<String> phonesOfStation : phonesOfStations) {
+
+      Iterator<String> phones = phonesOfStation.iterator();
+
+      if (phones.hasNext()) {
+
+        cursors.add(new PhoneCursor(phones));
+      }
+    }
+
+    long count = 0;
+    String previous = null;
+
+    while (!cursors.isEmpty()) {
+
+      PhoneCursor cursor = cursors.poll();
+
+      if (count == 0 || !Objects.equals(previous, cursor.phone)) {
+
+        previous = cursor.phone;
+        consumer.accept(previous);
+        count++;
+      }
+
+      if (cursor.next()) {
+
+        cursors.add(cursor);
+      }
+    }
+
+    return count;
+
+  }
+
+  /**
+   * Retrieve persons living at a address with their fireStations and medicalRecord,
+   * sorted by lastName, phone and birthDate.
+   * Persons are shared by the read model: they must not be modified.
+   *
+   * @param address   the address.
+   *
+   * @return  the list of persons.
+   */
+  public List<Person> getPersonsWhenFire(String address) {
+
+    return read(current -> current.byAddress.getOrDefault(address, emptyList())).stream()
+        .sorted(Comparator.comparing(Person::getLastName)
+            .thenComparing(Person::getPhone, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Person::getBirthDate, BIRTH_DATE_ORDER))
+        .collect(Collectors.toList());
+
+  }
+
+  /**
+   * Retrieve persons mapped with a fireStation with their medicalRecord,
+   * sorted by address and birthDate.
+   * Persons are shared by the read model: they must not be modified.
+   *
+   * @param numberStation   numberStation of fireStation.
+   *
+   * @return  the list of persons.
+   */
+  public List<Person> getPersonsWhenFlood(int numberStation) {
+
+    return read(current -> current.byStation.getOrDefault(numberStation, emptyList())).stream()
+        .sorted(Comparator.comparing(Person::getAddress)
+            .thenComparing(Person::getBirthDate, BIRTH_DATE_ORDER))
+        .collect(Collectors.toList());
+
+  }
+
+  /**
+   * Retrieve persons with a lastName with their medicalRecord:
+   * the person with the firstName first, and then the others.
+   * Persons are shared by the read model: they must not be modified.
+   *
+   * @param firstName   the firstName.
+   * @param lastName    the lastName.
+   *
+   * @return  the list of persons.
+   */
+  public List<Person> getPersonInfoByNames(String firstName, String lastName) {
+
+    return read(current -> current.byLastName.getOrDefault(lastName, emptyList())).stream()
+        .sorted(Comparator.comparing(person -> !person.getFirstName().equals(firstName)))
+        .collect(Collectors.toList());
+
+  }
+
+  /**
+   * Retrieve emails of persons living in a city, sorted and without duplicates.
+   * They are maintained by city with the changes of persons.
+   *
+   * @param city  the city.
+   *
+   * @return  the list of emails, that can't be modified.
+   */
+  public List<String> getEmailsByCity(String city) {
+
+    return read(current -> current.emailsByCity.getOrDefault(city, Collections.emptyList()));
+
+  }
+
+  /**
+   * Epoch day of birth of persons who are 18 years old today: persons born after it are
+   * children. It's computed once by day.
+   */
+  private long adultBirthDay() {
+
+    AdultBirthDay current = adultBirthDay;
+
+    if (current == null || System.currentTimeMillis() >= current.validUntil) {
+
+      LocalDate today = LocalDate.now();
+      current = new AdultBirthDay(today.minusYears(ADULT_AGE).toEpochDay(),
+          today.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+      adultBirthDay = current;
+    }
+
+    return current.epochDay;
+
+  }
+
+  private Index index() {
+
+    Index current = index;
+
+    if (current == null) {
+
+      synchronized (this) {
+
+        if (index == null) {
+
+          index = load();
+        }
+
+        current = index;
+      }
+    }
+
+    return current;
+
+  }
+
+  /**
+   * Read entries of the current index under the read lock. The index is loaded before,
+   * out of the lock, and read only if it's still the current one: a index discarded
+   * after a change which failed is never read.
+   */
+  private <T> T read(Function<Index, T> reader) {
+
+    while (true) {
+
+      Index current = index();
+      lock.readLock().lock();
+
+      try {
+
+        if (current == index) {
+
+          return reader.apply(current);
+        }
+
+      } finally {
+
+        lock.readLock().unlock();
+      }
+    }
+
+  }
+
+  private Index load() {
+
+    long start = System.currentTimeMillis();
+
+    Index loaded = transactionTemplate.execute(status -> {
+
+      Index result = new Index();
+      result.numberStations.addAll(entityManager
+          .createQuery("select f.numberStation from FireStation f", Integer.class)
+          .getResultList());
+      List<Person> persons = entityManager.createQuery(FETCH_PERSONS, Person.class)
+          .getResultList();
+      entityManager.createQuery(FETCH_MEDICATIONS, MedicalRecord.class).getResultList();
+      entityManager.createQuery(FETCH_ALLERGIES, MedicalRecord.class).getResultList();
+      result.add(persons);
+      return result;
+    });
+
+    log.debug("\nRead model of emergencies loaded with {} persons in {} ms\n",
+        loaded.byId.size(), System.currentTimeMillis() - start);
+    return loaded;
+
+  }
+
+  /**
+   * Update the current index with persons of the change: they are loaded out of the lock,
+   * and then only their entries are replaced under the write lock.
+   */
+  private void update(Index current, DataChangeEvent event) {
+
+    // persons changed as they are in read model
+    Map<Long, Person> stalePersons = new HashMap<>();
+
+    for (DataChangeEvent.Names names : event.getPersons()) {
+
+      Person person = current.byNames.get(names);
+
+      if (person != null) {
+
+        stalePersons.put(person.getIdPerson(), person);
+      }
+    }
+
+    for (String address : event.getAddresses()) {
+
+      current.byAddress.getOrDefault(address, emptyList())
+          .forEach(person -> stalePersons.put(person.getIdPerson(), person));
+    }
+
+    // persons changed as they are now in database
+    Map<Long, Person> freshPersons = new HashMap<>();
+    Set<Integer> existingStations = new HashSet<>();
+
+    transactionTemplate.executeWithoutResult(status -> {
+
+      for (DataChangeEvent.Names names : event.getPersons()) {
+
+        entityManager.createQuery(FETCH_PERSONS
+            + " where p.firstName = :firstName and p.lastName = :lastName", Person.class)
+            .setParameter("firstName", names.getFirstName())
+            .setParameter("lastName", names.getLastName())
+            .getResultList()
+            .forEach(person -> freshPersons.put(person.getIdPerson(), person));
+      }
+
+      if (!event.getAddresses().isEmpty()) {
+
+        entityManager.createQuery(FETCH_PERSONS + " where p.address in :addresses", Person.class)
+            .setParameter("addresses", event.getAddresses())
+            .getResultList()
+            .forEach(person -> freshPersons.put(person.getIdPerson(), person));
+      }
+
+      // persons of fireStations are given by addresses: only their existence is checked
+      if (!event.getNumberStations().isEmpty()) {
+
+        existingStations.addAll(entityManager.createQuery("select f.numberStation"
+            + " from FireStation f where f.numberStation in :numberStations", Integer.class)
+            .setParameter("numberStations", event.getNumberStations())
+            .getResultList());
+      }
+
+      personRepository.fetchMedicationsAndAllergies(freshPersons.values());
+    });
+
+    lock.writeLock().lock();
+
+    try {
+
+      current.replace(stalePersons.values(), freshPersons.values());
+
+      for (Integer numberStation : event.getNumberStations()) {
+
+        if (existingStations.contains(numberStation)) {
+
+          current.numberStations.add(numberStation);
+
+        } else {
+
+          current.numberStations.remove(numberStation);
+        }
+      }
+
+    } catch (RuntimeException e) {
+
+      // a index updated by half must never be read
+      index = null;
+      throw e;
+
+    } finally {
+
+      lock.writeLock().unlock();
+    }
+
+    log.debug("\nRead model of emergencies updated: {} persons replaced by {}\n",
+        stalePersons.size(), freshPersons.size());
+
+  }
+
+  private static List<Person> emptyList() {
+
+    return Collections.emptyList();
+
+  }
+
+  /**
+   * Indexes of persons, whose lists are replaced but never modified:
+   * entries are replaced under the write lock of read model.
+   */
+  private static final class Index {
+
+    private final Map<Long, Person> byId = new ConcurrentHashMap<>();
+    private final Map<DataChangeEvent.Names, Person> byNames = new ConcurrentHashMap<>();
+    private final Map<Integer, List<Person>> byStation = new ConcurrentHashMap<>();
+    // sorted phones without duplicates, as there are less phones than persons by fireStation
+    private final Map<Integer, List<String>> phonesByStation = new ConcurrentHashMap<>();
+    private final Map<String, List<Person>> byAddress = new ConcurrentHashMap<>();
+    private final Map<String, List<Person>> byLastName = new ConcurrentHashMap<>();
+    private final Map<String, List<Person>> byCity = new ConcurrentHashMap<>();
+    // sorted emails without duplicates, as persons of a family share their email
+    private final Map<String, List<String>> emailsByCity = new ConcurrentHashMap<>();
+    private final Set<Integer> numberStations = ConcurrentHashMap.newKeySet();
+    private final Map<String, Household> households = new ConcurrentHashMap<>();
+    private final Map<Integer, StationCounts> countsByStation = new ConcurrentHashMap<>();
+    // ids of children by instant from which they are adults
+    private final NavigableMap<Long, Set<Long>> childrenByMajority =
+        new ConcurrentSkipListMap<>();
+    // persons born 18 years before this instant are counted as adults
+    private long countedAt = System.currentTimeMillis();
+
+    private void add(Collection<Person> persons) {
+
+      replace(Collections.emptyList(), persons);
+
+    }
+
+    /**
+     * Replace stale persons by fresh persons: only lists of their keys are built again.
+     */
+    private void replace(Collection<Person> stalePersons, Collection<Person> freshPersons) {
+
+      Map<Long, Person> replacedPersons = new HashMap<>();
+      stalePersons.forEach(person -> replacedPersons.put(person.getIdPerson(), person));
+
+      for (Person person : freshPersons) {
+
+        Person currentPerson = byId.get(person.getIdPerson());
+
+        if (currentPerson != null) {
+
+          replacedPersons.put(person.getIdPerson(), currentPerson);
+        }
+      }
+
+      for (Person person : replacedPersons.values()) {
+
+        count(person, -1);
+        byId.remove(person.getIdPerson());
+        byNames.remove(new DataChangeEvent.Names(person.getFirstName(), person.getLastName()));
+      }
+
+      for (Person person : freshPersons) {
+
+        count(person, 1);
+        byId.put(person.getIdPerson(), person);
+        byNames.put(new DataChangeEvent.Names(person.getFirstName(), person.getLastName()),
+            person);
+      }
+
+      rebuild(byStation, replacedPersons, freshPersons, Index::stationsOf);
+
+      Set<Integer> stations = new HashSet<>();
+      replacedPersons.values().forEach(person -> stations.addAll(stationsOf(person)));
+      freshPersons.forEach(person -> stations.addAll(stationsOf(person)));
+
+      for (Integer numberStation : stations) {
+
+        List<Person> persons = byStation.get(numberStation);
+
+        if (persons == null) {
+
+          phonesByStation.remove(numberStation);
+
+        } else {
+
+          phonesByStation.put(numberStation, Collections.unmodifiableList(persons.stream()
+              .map(Person::getPhone)
+              .distinct()
+              .sorted(PHONE_ORDER)
+              .collect(Collectors.toList())));
+        }
+      }
+
+      rebuild(byAddress, replacedPersons, freshPersons, person -> keyOf(person.getAddress()));
+
+      Set<String> addresses = new HashSet<>();
+      replacedPersons.values().forEach(person -> addresses.addAll(keyOf(person.getAddress())));
+      freshPersons.forEach(person -> addresses.addAll(keyOf(person.getAddress())));
+
+      for (String address : addresses) {
+
+        List<Person> persons = byAddress.get(address);
+
+        if (persons == null) {
+
+          households.remove(address);
+
+        } else {
+
+          households.put(address, new Household(persons));
+        }
+      }
+      rebuild(byLastName, replacedPersons, freshPersons, person -> keyOf(person.getLastName()));
+      rebuild(byCity, replacedPersons, freshPersons, person -> keyOf(person.getCity()));
+
+      Set<String> cities = new HashSet<>();
+      replacedPersons.values().forEach(person -> cities.addAll(keyOf(person.getCity())));
+      freshPersons.forEach(person -> cities.addAll(keyOf(person.getCity())));
+
+      for (String city : cities) {
+
+        List<Person> persons = byCity.get(city);
+
+        if (persons == null) {
+
+          emailsByCity.remove(city);
+
+        } else {
+
+          emailsByCity.put(city, Collections.unmodifiableList(persons.stream()
+              .map(Person::getEmail)
+              .distinct()
+              .sorted(EMAIL_ORDER)
+              .collect(Collectors.toList())));
+        }
+      }
+
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) a person in counts of its fireStations.
+     */
+    private void count(Person person, int sign) {
+
+      StationCounts counts;
+
+      if (person.getBirthDate() == null) {
+
+        counts = new StationCounts(0, 0, sign);
+
+      } else {
+
+        long majority = majorityOf(person.getBirthDate());
+
+        if (majority < countedAt) {
+
+          counts = new StationCounts(sign, 0, 0);
+
+        } else {
+
+          counts = new StationCounts(0, sign, 0);
+
+          if (sign > 0) {
+
+            childrenByMajority.computeIfAbsent(majority, instant -> new HashSet<>())
+                .add(person.getIdPerson());
+
+          } else {
+
+            Set<Long> children = childrenByMajority.get(majority);
+
+            if (children != null && children.remove(person.getIdPerson())
+                && children.isEmpty()) {
+
+              childrenByMajority.remove(majority);
+            }
+          }
+        }
+      }
+
+      for (Integer numberStation : stationsOf(person)) {
+
+        countsByStation.merge(numberStation, counts, StationCounts::plus);
+      }
+
+    }
+
+    private boolean hasMajorityBefore(long instant) {
+
+      Map.Entry<Long, Set<Long>> next = childrenByMajority.firstEntry();
+      return next != null && next.getKey() < instant;
+
+    }
+
+    /**
+     * Move children who are adults at this instant in counts of adults.
+     */
+    private int promoteAdults(long instant) {
+
+      int promoted = 0;
+
+      while (hasMajorityBefore(instant)) {
+
+        for (Long idPerson : childrenByMajority.pollFirstEntry().getValue()) {
+
+          Person person = byId.get(idPerson);
+
+          if (person != null) {
+
+            for (Integer numberStation : stationsOf(person)) {
+
+              countsByStation.merge(numberStation, new StationCounts(1, -1, 0),
+                  StationCounts::plus);
+            }
+
+            promoted++;
+          }
+        }
+      }
+
+      countedAt = Math.max(countedAt, instant);
+      return promoted;
+
+    }
+
+    private static long majorityOf(Date birthDate) {
+
+      Calendar cal = Calendar.getInstance();
+      cal.setTime(birthDate);
+      cal.add(Calendar.YEAR, ADULT_AGE);
+      return cal.getTimeInMillis();
+
+    }
+
+    private static Set<Integer> stationsOf(Person person) {
+
+      return person.getFireStations().stream()
+          .map(FireStation::getNumberStation).collect(Collectors.toSet());
+
+    }
+
+    private static <K> void rebuild(Map<K, List<Person>> index,
+                                    Map<Long, Person> replacedPersons,
+                                    Collection<Person> freshPersons,
+                                    Function<Person, Set<K>> keys) {
+
+      Map<K, List<Person>> lists = new HashMap<>();
+
+      // lists of keys of replaced persons, without them
+      for (Person person : replacedPersons.values()) {
+
+        for (K key : keys.apply(person)) {
+
+          lists.computeIfAbsent(key, k -> index.getOrDefault(k, emptyList()).stream()
+              .filter(current -> !replacedPersons.containsKey(current.getIdPerson()))
+              .collect(Collectors.toCollection(ArrayList::new)));
+        }
+      }
+
+      for (Person person : freshPersons) {
+
+        for (K key : keys.apply(person)) {
+
+          lists.computeIfAbsent(key, k -> index.getOrDefault(k, emptyList()).stream()
+              .filter(current -> !replacedPersons.containsKey(current.getIdPerson()))
+              .collect(Collectors.toCollection(ArrayList::new)))
+              .add(person);
+        }
+      }
+
+      for (Map.Entry<K, List<Person>> entry : lists.entrySet()) {
+
+        List<Person> list = entry.getValue();
+
+        if (list.isEmpty()) {
+
+          index.remove(entry.getKey());
+
+        } else {
+
+          list.sort(ID_ORDER);
+          index.put(entry.getKey(), Collections.unmodifiableList(list));
+        }
+      }
+
+    }
+
+    private static Set<String> keyOf(String key) {
+
+      return key == null ? Collections.emptySet() : Collections.singleton(key);
+
+    }
+
+  }
+
+  /**
+   * Persons of a address from the youngest to the oldest (persons without birthDate last),
+   * with their birthDates in epoch days.
+   */
+  private static final class Household {
+
+    private final List<Person> persons;
+    private final long[] birthDays;
+
+    private Household(List<Person> persons) {
+
+      List<Person> sortedPersons = new ArrayList<>(persons);
+      sortedPersons.sort(Comparator.comparing(Person::getBirthDate, BIRTH_DATE_ORDER.reversed()));
+
+      this.persons = Collections.unmodifiableList(sortedPersons);
+      this.birthDays = new long[sortedPersons.size()];
+
+      for (int i = 0; i < birthDays.length; i++) {
+
+        Date birthDate = sortedPersons.get(i).getBirthDate();
+        birthDays[i] = birthDate == null
+            ? Long.MIN_VALUE
+            : Instant.ofEpochMilli(birthDate.getTime()).atZone(ZoneId.systemDefault())
+                .toLocalDate().toEpochDay();
+      }
+
+    }
+
+    /**
+     * Count persons born after a day: they are the first ones.
+     */
+    private int countBornAfter(long epochDay) {
+
+      int low = 0;
+      int high = birthDays.length;
+
+      while (low < high) {
+
+        int middle = (low + high) >>> 1;
+
+        if (birthDays[middle] > epochDay) {
+
+          low = middle + 1;
+
+        } else {
+
+          high = middle;
+        }
+      }
+
+      return low;
+
+    }
+
+  }
+
+  /**
+   * Current phone of the sorted phones of a fireStation, while they are merged.
+   */
+  private static final class PhoneCursor {
+
+    private final Iterator<String> phones;
+    private String phone;
+
+    private PhoneCursor(Iterator<String> phones) {
+
+      this.phones = phones;
+      this.phone = phones.next();
+
+    }
+
+    private boolean next() {
+
+      if (!phones.hasNext()) {
+
+        return false;
+      }
+
+      phone = phones.next();
+      return true;
+
+    }
+
+  }
+
+  /**
+   * Epoch day of birth of adults of the day, valid until the next day.
+   */
+  private static final class AdultBirthDay {
+
+    private final long epochDay;
+    private final long validUntil;
+
+    private AdultBirthDay(long epochDay, long validUntil) {
+
+      this.epochDay = epochDay;
+      this.validUntil = validUntil;
+
+    }
+
+  }
+
+}
@@ -0,0 +1,175 @@
+package com.safetynet.alert.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+
+/**
+ * Dictionary interning entities by their natural key (numberStation, designation...).
+ * Each natural key is mapped with one instance of entity, retrieved in O(1)
+ * without query when it's already known: from a preload, a previous lookup
+ * or a creation by {@link #intern(Object, Function)}.
+ * When a natural key is unknown, the entity is searched with the source of dictionary
+ * (for example a query of repository) and kept for the next lookups.
+ * A dictionary isn't thread-safe: it must be used by one load or one request at a time.
+ *
+ * @param <K>   type of natural key.
+ * @param <E>   type of entity.
+ *
+ * @author delaval
+ *
+ */
+public class EntityDictionary<K, E> {
+
+  private final Map<K, E> entities = new HashMap<>();
+
+  private final Class<E> entityClass;
+  private final Function<E, Object> idExtractor;
+  private final Function<K, Optional<E>> source;
+
+  private EntityManager entityManager;
+
+  /**
+   * Constructor of dictionary without source: only preloaded and interned entities are known.
+   *
+   * @param entityClass   class of entity.
+   * @param idExtractor   function to retrieve the id of a entity.
+   */
+  public EntityDictionary(Class<E> entityClass, Function<E, Object> idExtractor) {
+
+    this(entityClass, idExtractor, key -> Optional.empty());
+
+  }
+
+  /**
+   * Constructor of dictionary with a source to search entities with unknown natural key.
+   *
+   * @param entityClass   class of entity.
+   * @param idExtractor   function to retrieve the id of a entity.
+   * @param source        function to search a entity by its natural key.
+   */
+  public EntityDictionary(Class<E> entityClass,
+                          Function<E, Object> idExtractor,
+                          Function<K, Optional<E>> source) {
+
+    this.entityClass = entityClass;
+    this.idExtractor = idExtractor;
+    this.source = source;
+
+  }
+
+  /**
+   * Bind the dictionary with a persistence context. When a entity of dictionary is detached
+   * from it (after a clear), it's found again by its id before to be returned,
+   * so the entities returned are always managed by this persistence context.
+   *
+   * @param entityManager   the entityManager of persistence context.
+   */
+  public void attachTo(EntityManager entityManager) {
+
+    this.entityManager = entityManager;
+
+  }
+
+  /**
+   * Add already existed entities to dictionary.
+   *
+   * @param existedEntities   entities to add.
+   * @param keyExtractor      function to retrieve the natural key of a entity.
+   */
+  public void preload(Iterable<E> existedEntities, Function<E, K> keyExtractor) {
+
+    for (E entity : existedEntities) {
+
+      entities.put(keyExtractor.apply(entity), entity);
+    }
+
+  }
+
+  /**
+   * Retrieve the entity with the given natural key, from dictionary if it's known
+   * or else from the source of dictionary.
+   *
+   * @param key   natural key of entity.
+   *
+   * @return  the entity with this natural key. Optional.empty() if it doesn't exist.
+   */
+  public Optional<E> lookup(K key) {
+
+    E entity = entities.get(key);
+
+    if (entity == null) {
+
+      Optional<E> existedEntity = source.apply(key);
+      existedEntity.ifPresent(found -> entities.put(key, found));
+      return existedEntity;
+    }
+
+    return Optional.of(attach(key, entity));
+
+  }
+
+  /**
+   * Retrieve the entity with the given natural key if it exists,
+   * or else create it with the given function and add it to dictionary.
+   *
+   * @param key       natural key of entity.
+   * @param creator   function to create (and save) a new entity with this natural key.
+   *
+   * @return  the unique entity with this natural key.
+   */
+  public E intern(K key, Function<K, E> creator) {
+
+    Optional<E> existedEntity = lookup(key);
+
+    if (existedEntity.isPresent()) {
+
+      return existedEntity.get();
+    }
+
+    E entity = creator.apply(key);
+    entities.put(key, entity);
+    return entity;
+
+  }
+
+  /**
+   * Check if a natural key is already known by dictionary, without searching it in source.
+   *
+   * @param key   natural key of entity.
+   *
+   * @return  true if the key is known.
+   */
+  public boolean contains(K key) {
+
+    return entities.containsKey(key);
+
+  }
+
+  /**
+   * Retrieve the number of entities known by dictionary.
+   *
+   * @return  number of entities.
+   */
+  public int size() {
+
+    return entities.size();
+
+  }
+
+  private E attach(K key, E entity) {
+
+    if ((entityManager == null) || entityManager.contains(entity)) {
+
+      return entity;
+    }
+
+    E managedEntity = entityManager.find(entityClass, idExtractor.apply(entity));
+    entities.put(key, managedEntity);
+    return managedEntity;
+
+  }
+
+}
@@ -0,0 +1,65 @@
+package com.safetynet.alert.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reading of a stream of entities of database by chunks, used by services to give
+ * all entities one after another without keeping them in memory:
+ * each chunk is completed (for collections of its entities) and given, then removed from
+ * persistence context before the next one is read.
+ *
+ * @author delaval
+ *
+ */
+final class EntityStreams {
+
+  static final int CHUNK_SIZE = 500;
+
+  private EntityStreams() {
+
+  }
+
+  /**
+   * Give the entities of stream by chunks of {@link #CHUNK_SIZE}, and close the stream.
+   *
+   * @param <T>       type of entities.
+   * @param entities  the stream of entities.
+   * @param action    action done on each chunk.
+   *
+   * @return  the number of entities.
+   */
+  static <T> long forEachChunk(Stream<T> entities, Consumer<List<T>> action) {
+
+    long count = 0;
+    List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+
+    try (Stream<T> stream = entities) {
+
+      for (Iterator<T> iterator = stream.iterator(); iterator.hasNext();) {
+
+        chunk.add(iterator.next());
+
+        if (chunk.size() == CHUNK_SIZE) {
+
+          action.accept(chunk);
+          count += chunk.size();
+          chunk.clear();
+        }
+      }
+    }
+
+    if (!chunk.isEmpty()) {
+
+      action.accept(chunk);
+      count += chunk.size();
+    }
+
+    return count;
+
+  }
+
+}
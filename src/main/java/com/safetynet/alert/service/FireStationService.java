@@ -2,11 +2,19 @@ package com.safetynet.alert.service;
 
 import com.safetynet.alert.model.FireStation;
 import com.safetynet.alert.repository.FireStationRepository;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Service for Entity FireStation.
@@ -19,6 +27,12 @@ public class FireStationService {
   @Autowired
   private FireStationRepository fireStationRepository;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired(required = false)
+  private EmergencyReadModel emergencyReadModel;
+
   /**
    * return FireStation with given id.
    *
@@ -44,6 +58,55 @@ public class FireStationService {
 
   }
 
+  /**
+   * Retrieve a page of fireStations sorted by id, with their addresses:
+   * these ones are fetched by a keyed query on ids of the page.
+   *
+   * @param keyset  the request of page.
+   *
+   * @return  the page of fireStations.
+   */
+  @Transactional(readOnly = true)
+  public KeysetPage<FireStation> getFireStationsPage(Keyset keyset) {
+
+    KeysetPage<FireStation> page = keyset.read(fireStationRepository::findPageAfter,
+        fireStationRepository::findPageBefore,
+        FireStation::getIdFireStation, "idFireStation");
+
+    if (!page.getContent().isEmpty()) {
+
+      fireStationRepository.fetchAddresses(page.getContent().stream()
+          .map(FireStation::getIdFireStation)
+          .collect(Collectors.toList()));
+    }
+
+    return page;
+
+  }
+
+  /**
+   * Give all existed fireStations with their addresses, one after another to the action
+   * without keeping them all in memory: they are read by a stream of database,
+   * and by chunks with their addresses.
+   *
+   * @param action  the action done on each fireStation.
+   *
+   * @return  the number of fireStations.
+   */
+  @Transactional(readOnly = true)
+  public long forEachFireStation(Consumer<FireStation> action) {
+
+    return EntityStreams.forEachChunk(fireStationRepository.streamAll(), fireStations -> {
+
+      fireStationRepository.fetchAddresses(fireStations.stream()
+          .map(FireStation::getIdFireStation)
+          .collect(Collectors.toList()));
+      fireStations.forEach(action);
+      entityManager.clear();
+    });
+
+  }
+
   /**
    * return existed fireStation with the numberStation given in parameter
    * If there is no fireStation return a empty Optional(not null).
@@ -58,6 +121,21 @@ public class FireStationService {
 
   }
 
+  /**
+   * Check if a fireStation with the numberStation given in parameter exists,
+   * with the read model of emergencies when it's enabled.
+   *
+   * @param  numberStation   the numberStation of FireStation
+   * @return    true if the FireStation exists
+   */
+  public boolean existsByNumberStation(int numberStation) {
+
+    return emergencyReadModel != null
+        ? emergencyReadModel.existsFireStation(numberStation)
+        : fireStationRepository.getOneByNumberStation(numberStation).isPresent();
+
+  }
+
   /**
    * retrieve fireStation with id in parameter but with all it's fields du to a inner join
    * To not have a lazyInitializationException with Hibernate.
@@ -88,6 +166,35 @@ public class FireStationService {
 
   }
 
+  /**
+   * return existed fireStation with the numberStation given in parameter
+   * with all its addresses but without its persons.
+   * If there is no fireStation return a empty Optional(not null).
+   *
+   * @param  numberStation   the numberStation of FireStation to retrieve
+   * @return    Optional&lsaquo;FireStation&rsaquo;  FireStation with this numberStation
+   */
+  public Optional<FireStation> getFireStationFetchAddressesByNumberStation(
+      int numberStation) {
+
+    return fireStationRepository.getOneFetchAddressesByNumberStation(numberStation);
+
+  }
+
+  /**
+   * return existed fireStations with the numberStations given in parameter
+   * with all their addresses but without their persons.
+   *
+   * @param  numberStations   the numberStations of FireStations to retrieve
+   * @return    List of FireStation with these numberStations
+   */
+  public List<FireStation> getFireStationsFetchAddressesByNumberStations(
+      Collection<Integer> numberStations) {
+
+    return fireStationRepository.findFireStationsFetchAddressesByNumberStations(numberStations);
+
+  }
+
   /**
    * return existed fireStations mapped by address given in parameter
    * If there is no fireStation return a empty Optional(not null).
@@ -142,6 +249,106 @@ public class FireStationService {
 
   }
 
+  /**
+   * Map a address with a existed fireStation, and the persons living at this address,
+   * by a insert in each table of mapping: the persons of fireStation are not loaded.
+   *
+   * @param  idFireStation   id of FireStation to map with address
+   * @param  address         address to map with FireStation
+   */
+  @Transactional
+  public void addAddress(long idFireStation, String address) {
+
+    fireStationRepository.insertAddress(idFireStation, address);
+    fireStationRepository.insertPersonsOfAddresses(idFireStation,
+        Collections.singleton(address));
+
+  }
+
+  /**
+   * Delete the mapping of a existed fireStation with all its addresses and persons,
+   * by a delete in each table of mapping: the persons of fireStation are not loaded.
+   *
+   * @param  idFireStation   id of FireStation to clear
+   */
+  @Transactional
+  public void clearMapping(long idFireStation) {
 
+    fireStationRepository.deletePersonsOfFireStation(idFireStation);
+    fireStationRepository.deleteAddressesOfFireStation(idFireStation);
+
+  }
+
+  /**
+   * Delete the mapping of a address with all its fireStations,
+   * and of the persons living at this address with these fireStations.
+   *
+   * @param  address   address to delete from FireStations
+   */
+  @Transactional
+  public void removeAddress(String address) {
+
+    Collection<String> addresses = Collections.singleton(address);
+    fireStationRepository.deletePersonsOfAddresses(addresses);
+    fireStationRepository.deleteAddresses(addresses);
+
+  }
+
+  /**
+   * Delete the mapping of a address with a existed fireStation, and of the persons living
+   * at this address with this fireStation, by a delete in each table of mapping:
+   * the persons of fireStation are not loaded.
+   *
+   * @param  idFireStation   id of FireStation to unmap from address
+   * @param  address         address to delete from FireStation
+   */
+  @Transactional
+  public void removeAddress(long idFireStation, String address) {
+
+    fireStationRepository.deletePersonsOfAddress(idFireStation, address);
+    fireStationRepository.deleteAddress(idFireStation, address);
+
+  }
+
+  /**
+   * Move addresses to other fireStations in one transaction: the addresses and persons
+   * living there are unmapped of their current fireStations, then mapped with the new ones.
+   * Its cost depends on the number of addresses and fireStations,
+   * by a few statements on tables of mapping, and not on the number of persons.
+   *
+   * @param  addressesByIdFireStation   addresses to move, by id of their new FireStation
+   */
+  @Transactional
+  public void moveAddresses(Map<Long, ? extends Collection<String>> addressesByIdFireStation) {
+
+    List<String> addresses = addressesByIdFireStation.values().stream()
+        .flatMap(Collection::stream)
+        .collect(Collectors.toList());
+
+    fireStationRepository.deletePersonsOfAddresses(addresses);
+    fireStationRepository.deleteAddresses(addresses);
+
+    addressesByIdFireStation.forEach((idFireStation, addressesToMap) -> {
+
+      addressesToMap.forEach(address ->
+          fireStationRepository.insertAddress(idFireStation, address));
+      fireStationRepository.insertPersonsOfAddresses(idFireStation, addressesToMap);
+    });
+
+  }
+
+  /**
+   * Create a dictionary of fireStations by numberStation.
+   * Unknown numberStations are searched in database.
+   *
+   * @return    a new dictionary of fireStations.
+   */
+  public EntityDictionary<Integer, FireStation> createDictionary() {
+
+    return new EntityDictionary<>(FireStation.class,
+                                  FireStation::getIdFireStation,
+                                  this::getFireStationByNumberStation);
+
+  }
 
 }
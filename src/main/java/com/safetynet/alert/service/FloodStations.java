@@ -0,0 +1,25 @@
+package com.safetynet.alert.service;
+
+import com.safetynet.alert.model.Person;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Value;
+
+/**
+ * Homes mapped with a set of fireStations, when flood, with the persons living in:
+ * each home is given by its address (sorted) and its persons are sorted by birthDate.
+ * A home mapped with several of these fireStations appears only once.
+ * It gives too the numberStations of this set which don't exist.
+ *
+ * @author delaval
+ *
+ */
+@Value
+public class FloodStations {
+
+  private Set<Integer> notFoundStations;
+
+  private Map<String, List<Person>> homes;
+
+}
@@ -0,0 +1,160 @@
+package com.safetynet.alert.service;
+
+import com.safetynet.alert.exceptions.InvalidPageException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Request of a page of a admin list by keyset pagination on the id of entities:
+ * a page is given by the entities with a id after the last id of previous page,
+ * in the order of ids. Its query uses the index of primary key with a limit,
+ * so that its cost doesn't depend on the number of pages before it (as with a offset).
+ *
+ * <p>The next page is requested with the cursor given by {@link KeysetPage#getNextCursor()}:
+ * a opaque token containing the direction of sort and the last id.
+ *
+ * @author delaval
+ *
+ */
+@Getter
+@ToString
+public final class Keyset {
+
+  public static final int DEFAULT_LIMIT = 50;
+
+  public static final int MAX_LIMIT = 500;
+
+  private final Sort.Direction direction;
+
+  // last id of previous page, null for the first page
+  private final Long after;
+
+  private final int limit;
+
+  private Keyset(Sort.Direction direction, Long after, int limit) {
+
+    this.direction = direction;
+    this.after = after;
+    this.limit = limit;
+
+  }
+
+  /**
+   * Create the request of a page from parameters of request.
+   *
+   * @param cursor  the cursor of next page given by the previous one, null for the first page.
+   * @param limit   the maximum number of entities of page, {@link #DEFAULT_LIMIT} if null.
+   * @param sort    asc or desc, order of ids of the first page (ignored with a cursor,
+   *                as it contains the order of previous page). asc if null.
+   *
+   * @return  the request of page.
+   *
+   * @throws InvalidPageException  if the cursor, the limit or the sort is invalid.
+   */
+  public static Keyset of(String cursor, Integer limit, String sort) {
+
+    int size = limit == null ? DEFAULT_LIMIT : limit;
+
+    if (size < 1 || size > MAX_LIMIT) {
+
+      throw new InvalidPageException("the limit of a page must be between 1 and " + MAX_LIMIT);
+    }
+
+    if (cursor != null) {
+
+      return decode(cursor, size);
+    }
+
+    Sort.Direction direction = sort == null
+        ? Sort.Direction.ASC
+        : Sort.Direction.fromOptionalString(sort)
+            .orElseThrow(() -> new InvalidPageException("the sort of a page must be asc or desc"));
+
+    return new Keyset(direction, null, size);
+
+  }
+
+  /**
+   * Read the page with queries of repository by id after or before a given one:
+   * they are given the first page sorted by id, and return a slice, so that
+   * one more entity is read to know if there is a next page (without count).
+   *
+   * @param <T>     type of entities.
+   * @param after   query of entities with a id greater than a given one.
+   * @param before  query of entities with a id lower than a given one.
+   * @param id      the id of a entity.
+   * @param idName  name of the property id of entities.
+   *
+   * @return  the page.
+   */
+  public <T> KeysetPage<T> read(BiFunction<Long, Pageable, Slice<T>> after,
+                                BiFunction<Long, Pageable, Slice<T>> before,
+                                Function<T, Long> id,
+                                String idName) {
+
+    Pageable pageable = toPageable(idName);
+    Slice<T> slice = direction.isAscending()
+        ? after.apply(this.after == null ? Long.MIN_VALUE : this.after, pageable)
+        : before.apply(this.after == null ? Long.MAX_VALUE : this.after, pageable);
+
+    List<T> content = slice.getContent();
+    String nextCursor = slice.hasNext()
+        ? encode(direction, id.apply(content.get(content.size() - 1)))
+        : null;
+    return new KeysetPage<>(content, nextCursor);
+
+  }
+
+  private Pageable toPageable(String idName) {
+
+    return PageRequest.of(0, limit, Sort.by(direction, idName));
+
+  }
+
+  private static String encode(Sort.Direction direction, Long id) {
+
+    String token = (direction.isAscending() ? "a" : "d") + id;
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(token.getBytes(StandardCharsets.US_ASCII));
+
+  }
+
+  private static Keyset decode(String cursor, int limit) {
+
+    try {
+
+      String token = new String(Base64.getUrlDecoder().decode(cursor),
+          StandardCharsets.US_ASCII);
+      Sort.Direction direction;
+
+      if (token.startsWith("a")) {
+
+        direction = Sort.Direction.ASC;
+      } else if (token.startsWith("d")) {
+
+        direction = Sort.Direction.DESC;
+      } else {
+
+        throw new InvalidPageException("the cursor " + cursor + " is invalid");
+      }
+
+      return new Keyset(direction, Long.valueOf(token.substring(1)), limit);
+
+    } catch (IllegalArgumentException e) {
+
+      // invalid base64 or id (NumberFormatException)
+      throw new InvalidPageException("the cursor " + cursor + " is invalid");
+    }
+
+  }
+
+}
@@ -0,0 +1,24 @@
+package com.safetynet.alert.service;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Page of a admin list read with a {@link Keyset}: its entities and the cursor
+ * to request the next page, null if it's the last one.
+ *
+ * @param <T> type of entities.
+ *
+ * @author delaval
+ *
+ */
+@Value
+@JsonPropertyOrder({"content", "nextCursor"})
+public class KeysetPage<T> {
+
+  private List<T> content;
+
+  private String nextCursor;
+
+}
@@ -4,9 +4,14 @@ import com.safetynet.alert.model.MedicalRecord;
 import com.safetynet.alert.repository.MedicalRecordRepository;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * service for Entity MedicalRecord.
@@ -20,6 +25,9 @@ public class MedicalRecordService {
   @Autowired
   private MedicalRecordRepository medicalRecordRepository;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
   /**
    * Retrieve a medicalRecord with its given Id.
    *
@@ -35,13 +43,55 @@ public class MedicalRecordService {
   }
 
   /**
-   * Retrieve all existed medicalRecords.
+   * Retrieve a page of medicalRecords sorted by id, with their person, medications
+   * and allergies: these ones are fetched by keyed queries on ids of the page.
+   *
+   * @param keyset  the request of page.
    *
-   * @return    collection of all existed medicalRecords.Iterable.empty() if there is no one.
+   * @return  the page of medicalRecords.
    */
-  public List<MedicalRecord> getMedicalRecords() {
+  @Transactional(readOnly = true)
+  public KeysetPage<MedicalRecord> getMedicalRecordsPage(Keyset keyset) {
+
+    KeysetPage<MedicalRecord> page = keyset.read(medicalRecordRepository::findPageAfter,
+        medicalRecordRepository::findPageBefore,
+        MedicalRecord::getIdMedicalRecord, "idMedicalRecord");
+
+    if (!page.getContent().isEmpty()) {
+
+      List<Long> ids = page.getContent().stream()
+          .map(MedicalRecord::getIdMedicalRecord)
+          .collect(Collectors.toList());
+      medicalRecordRepository.fetchMedications(ids);
+      medicalRecordRepository.fetchAllergies(ids);
+    }
+
+    return page;
 
-    return medicalRecordRepository.findAllFetchAll();
+  }
+
+  /**
+   * Give all existed medicalRecords, with their person, medications and allergies,
+   * one after another to the action without keeping them all in memory:
+   * they are read by a stream of database, and by chunks with their medications and allergies.
+   *
+   * @param action  the action done on each medicalRecord.
+   *
+   * @return  the number of medicalRecords.
+   */
+  @Transactional(readOnly = true)
+  public long forEachMedicalRecord(Consumer<MedicalRecord> action) {
+
+    return EntityStreams.forEachChunk(medicalRecordRepository.streamAll(), medicalRecords -> {
+
+      List<Long> ids = medicalRecords.stream()
+          .map(MedicalRecord::getIdMedicalRecord)
+          .collect(Collectors.toList());
+      medicalRecordRepository.fetchMedications(ids);
+      medicalRecordRepository.fetchAllergies(ids);
+      medicalRecords.forEach(action);
+      entityManager.clear();
+    });
 
   }
 
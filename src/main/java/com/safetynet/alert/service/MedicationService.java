@@ -2,8 +2,13 @@ package com.safetynet.alert.service;
 
 import com.safetynet.alert.model.Medication;
 import com.safetynet.alert.repository.MedicationRepository;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.Value;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -44,6 +49,21 @@ public class MedicationService {
 
   }
 
+  /**
+   * Retrieve a page of Medications sorted by id.
+   *
+   * @param keyset  the request of page.
+   *
+   * @return  the page of Medications.
+   */
+  public KeysetPage<Medication> getMedicationsPage(Keyset keyset) {
+
+    return keyset.read(medicationRepository::findPageAfter,
+        medicationRepository::findPageBefore,
+        Medication::getIdMedication, "idMedication");
+
+  }
+
   /**
    * Retrieve a Medication with its given designation and posology.
    *
@@ -85,6 +105,32 @@ public class MedicationService {
   }
 
 
+  /**
+   * Retrieve the existed Medications with given natural keys (designation, posology),
+   * by one query on their designations.
+   *
+   * @param naturalKeys
+   *          the natural keys of Medications.
+   *
+   * @return  the existed Medications with one of these natural keys.
+   */
+  public List<Medication> getMedicationsByNaturalKeys(Collection<NaturalKey> naturalKeys) {
+
+    if (naturalKeys.isEmpty()) {
+
+      return new ArrayList<>();
+    }
+
+    Set<String> designations = naturalKeys.stream()
+        .map(NaturalKey::getDesignation)
+        .collect(Collectors.toSet());
+
+    return medicationRepository.getMedicationsByDesignations(designations).stream()
+        .filter(medication -> naturalKeys.contains(naturalKey(medication)))
+        .collect(Collectors.toList());
+
+  }
+
   /**
    * retrieve all Medications not mapped with a MedicalRecord.
    *
@@ -139,6 +185,86 @@ public class MedicationService {
 
   }
 
+  /**
+   * Delete the given Medication.
+   *
+   * @param medication
+   *          the medication to delete.
+   */
+  public void deleteMedication(Medication medication) {
+
+    medicationRepository.delete(medication);
+
+  }
+
+  /**
+   * Retrieve the natural key of a Medication used by its dictionary.
+   *
+   * @param designation   the designation of Medication.
+   * @param posology      the posology of Medication.
+   *
+   * @return  the natural key (designation, posology).
+   */
+  public static NaturalKey naturalKey(String designation, String posology) {
+
+    return new NaturalKey(designation, posology);
 
+  }
+
+  /**
+   * Retrieve the natural key of a given Medication.
+   *
+   * @param medication    the Medication.
+   *
+   * @return  the natural key (designation, posology).
+   */
+  public static NaturalKey naturalKey(Medication medication) {
+
+    return naturalKey(medication.getDesignation(), medication.getPosology());
+
+  }
+
+  /**
+   * Retrieve the natural key of a medication written designation:posology in file json.
+   * Only the first ':' separates designation and posology.
+   *
+   * @param designationPosology   the medication written designation:posology.
+   *
+   * @return  the natural key (designation, posology).
+   */
+  public static NaturalKey parseNaturalKey(String designationPosology) {
+
+    String[] composition = designationPosology.split(":", 2);
+    return naturalKey(composition[0], composition.length > 1 ? composition[1] : null);
+
+  }
+
+  /**
+   * Create a dictionary of medications by natural key (designation, posology).
+   * Unknown medications are searched in database without their mapped medicalRecords:
+   * a medicalRecord is linked to them by its own side.
+   *
+   * @return    a new dictionary of medications.
+   */
+  public EntityDictionary<NaturalKey, Medication> createDictionary() {
+
+    return new EntityDictionary<>(Medication.class,
+                                  Medication::getIdMedication,
+                                  key -> getMedicationByDesignationAndPosology(
+                                      key.getDesignation(), key.getPosology()));
+
+  }
+
+  /**
+   * Natural key of a Medication: its designation and its posology.
+   */
+  @Value
+  public static class NaturalKey {
+
+    private String designation;
+
+    private String posology;
+
+  }
 
 }
@@ -5,15 +5,32 @@ import com.safetynet.alert.model.Person;
 import com.safetynet.alert.repository.PersonRepository;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 /**
  * Service for Entity {@link Person}.
@@ -25,9 +42,18 @@ import org.springframework.stereotype.Service;
 @Log4j2
 public class PersonService {
 
+  public static final String FLOOD_STATIONS_CACHE = "floodStations";
+
   @Autowired
   private PersonRepository personRepository;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  // emergency endpoints are served by the read model when it's enabled
+  @Autowired(required = false)
+  private EmergencyReadModel emergencyReadModel;
+
   /**
    * Retrieve a Entity by its Id.
    *
@@ -54,6 +80,40 @@ public class PersonService {
 
   }
 
+  /**
+   * Retrieve a page of persons, with their medicalRecord, sorted by id.
+   *
+   * @param keyset  the request of page.
+   *
+   * @return  the page of persons.
+   */
+  public KeysetPage<Person> getPersonsPage(Keyset keyset) {
+
+    return keyset.read(personRepository::findPageAfter, personRepository::findPageBefore,
+        Person::getIdPerson, "idPerson");
+
+  }
+
+  /**
+   * Give all existed persons one after another to the action, without keeping them all
+   * in memory: they are read by a stream of database and removed from persistence context
+   * by chunks.
+   *
+   * @param action  the action done on each person.
+   *
+   * @return  the number of persons.
+   */
+  @Transactional(readOnly = true)
+  public long forEachPerson(Consumer<Person> action) {
+
+    return EntityStreams.forEachChunk(personRepository.streamAll(), persons -> {
+
+      persons.forEach(action);
+      entityManager.clear();
+    });
+
+  }
+
   /**
    * retrieve all existed Persons that have given address.
    *
@@ -70,6 +130,20 @@ public class PersonService {
 
   }
 
+  /**
+   * Retrieve Persons with given ids and their mapped FireStations, by one query.
+   *
+   * @param idPersons
+   *          the ids of Persons to search.
+   *
+   * @return  the Persons found with their FireStations.
+   */
+  public List<Person> getPersonsFetchFireStationsByIds(Collection<Long> idPersons) {
+
+    return personRepository.getPersonsFetchFireStationsByIds(idPersons);
+
+  }
+
   /**
    * Retrieve a Person with Lastname and FirstName given in parameter.
    *
@@ -158,12 +232,76 @@ public class PersonService {
    */
   public Map<String, Object> getPersonsMappedWithFireStation(int numberStation) {
 
+    return getPersonsMappedWithFireStation(numberStation, true);
+
+  }
+
+  /**
+   * Retrieve counts of persons mapped with a FireStation with the given station_number,
+   * and their list only if it's asked. Counts are maintained by the read model
+   * when it's enabled, else they are computed from the list of persons.
+   *
+   * @param numberStation
+   *                the number station of FireStation.
+   *
+   * @param withPersons
+   *                true to retrieve the list of persons.
+   *
+   * @return a Map with result of counts and list of persons if it's asked
+   */
+  public Map<String, Object> getPersonsMappedWithFireStation(int numberStation,
+                                                             boolean withPersons) {
+
+    StationCounts counts;
+    List<Person> persons = null;
+
+    if (emergencyReadModel != null) {
+
+      counts = emergencyReadModel.getStationCounts(numberStation);
+
+      if (withPersons) {
+
+        persons = emergencyReadModel.getPersonsMappedByNumberStation(numberStation);
+      }
+
+    } else {
+
+      persons = personRepository.getPersonsMappedByNumberStation(numberStation);
+      counts = countByAge(persons);
+    }
+
+    Map<String, Object> result = new LinkedHashMap<String, Object>();
+
+    result.put("AdultCount", counts.getAdultCount());
+    result.put("ChildrenCount", counts.getChildrenCount());
+
+    if (counts.getWithoutBirthDateCount() > 0) {
+
+      result.put("BirthDateNotSpecified", counts.getWithoutBirthDateCount());
+    }
+
+    if (withPersons) {
+
+      for (Person person : persons) {
+
+        // to not display in json
+        person.setBirthDate(null);
+        person.setFireStations(null);
+      }
+
+      result.put("persons", persons);
+    }
+
+    return result;
+
+  }
+
+  private static StationCounts countByAge(List<Person> persons) {
+
     int adultCount = 0;
     int childrenCount = 0;
     int withoutBirthDate = 0;
 
-    List<Person> persons = personRepository.getPersonsMappedByNumberStation(numberStation);
-
     Calendar cal = Calendar.getInstance();
     cal.add(Calendar.YEAR, -18);
 
@@ -184,24 +322,9 @@ public class PersonService {
 
         withoutBirthDate++;
       }
-      // to not display in json
-      person.setBirthDate(null);
-      person.setFireStations(null);
-    }
-
-    Map<String, Object> result = new LinkedHashMap<String, Object>();
-
-    result.put("AdultCount", adultCount);
-    result.put("ChildrenCount", childrenCount);
-
-    if (withoutBirthDate > 0) {
-
-      result.put("BirthDateNotSpecified", withoutBirthDate);
     }
 
-    result.put("persons", persons);
-
-    return result;
+    return new StationCounts(adultCount, childrenCount, withoutBirthDate);
 
   }
 
@@ -216,6 +339,11 @@ public class PersonService {
    */
   public Map<String, List<Person>> getChildrenByAddress(String address) {
 
+    if (emergencyReadModel != null) {
+
+      return emergencyReadModel.getChildrenByAddress(address);
+    }
+
     Iterable<Person> persons = personRepository.getChildrenByAddress(address);
 
     Map<String, List<Person>> result = null;
@@ -268,9 +396,52 @@ public class PersonService {
    */
   public List<String> getPhonesByNumberStation(int fireStationNumber) {
 
-    List<String> phones =
-        personRepository.getPhonesByNumberStation(fireStationNumber);
+    List<String> phones = emergencyReadModel != null
+        ? emergencyReadModel.getPhonesByNumberStation(fireStationNumber)
+        : personRepository.getPhonesByNumberStation(fireStationNumber);
+
+    return phones;
+
+  }
+
+  /**
+   * Give to the consumer the phones of persons mapped with any of given FireStation's
+   * numberStations, sorted and without duplicates: a person mapped with several of them,
+   * or a phone shared by a household, is given only once.
+   * With read model, the sorted phones of each fireStation are merged,
+   * else they are retrieved by a single query.
+   *
+   * @param fireStationNumbers  the numberStations of FireStations.
+   * @param consumer            consumer of each phone.
+   *
+   * @return  the number of phones.
+   */
+  public long forEachPhoneByNumberStations(Collection<Integer> fireStationNumbers,
+                                           Consumer<String> consumer) {
+
+    if (emergencyReadModel != null) {
+
+      return emergencyReadModel.forEachPhoneByNumberStations(fireStationNumbers, consumer);
+    }
+
+    List<String> phones = personRepository.getPhonesByNumberStations(fireStationNumbers);
+    phones.forEach(consumer);
+    return phones.size();
+
+  }
+
+  /**
+   * Retrieve the list of person's phones mapped with any of given FireStation's numberStations,
+   * sorted and without duplicates.
+   *
+   * @param fireStationNumbers  the numberStations of FireStations.
+   *
+   * @return a list of person's phones mapped with the fireStations.
+   */
+  public List<String> getPhonesByNumberStations(Collection<Integer> fireStationNumbers) {
 
+    List<String> phones = new ArrayList<>();
+    forEachPhoneByNumberStations(fireStationNumbers, phones::add);
     return phones;
 
   }
@@ -286,55 +457,144 @@ public class PersonService {
   public List<Person>
       getPersonsWhenFireMappedByAddress(String address) {
 
-    return personRepository.getPersonsWhenFire(address);
+    return emergencyReadModel != null
+        ? emergencyReadModel.getPersonsWhenFire(address)
+        : personRepository.getPersonsWhenFire(address);
+
 
 
+  }
+
+  /**
+   * Give persons living at each of given addresses, as {@link #getPersonsWhenFireMappedByAddress},
+   * to the action address after address (in the given order, without duplicates), so that
+   * they can be sent before the next addresses are resolved. The list of persons is empty
+   * for a address where nobody lives.
+   * Without read model, addresses are resolved by chunks: one query for persons of a chunk
+   * with their fireStations and medicalRecord, then keyed queries for medications and allergies.
+   *
+   * @param addresses the addresses.
+   * @param action    the action done with each address and its persons.
+   *
+   * @return  the number of addresses.
+   */
+  public long forEachAddressWhenFire(Collection<String> addresses,
+                                     BiConsumer<String, List<Person>> action) {
+
+    List<String> distinctAddresses = new ArrayList<>(new LinkedHashSet<>(addresses));
+
+    if (emergencyReadModel != null) {
+
+      distinctAddresses.forEach(address -> action.accept(address,
+          emergencyReadModel.getPersonsWhenFire(address)));
+      return distinctAddresses.size();
+    }
+
+    for (int from = 0; from < distinctAddresses.size(); from += EntityStreams.CHUNK_SIZE) {
+
+      List<String> chunk = distinctAddresses.subList(from,
+          Math.min(from + EntityStreams.CHUNK_SIZE, distinctAddresses.size()));
+      Map<String, List<Person>> personsByAddress = new HashMap<>();
+
+      for (Person person : personRepository.getPersonsWhenFireByAddresses(chunk)) {
+
+        personsByAddress.computeIfAbsent(person.getAddress(), address -> new ArrayList<>())
+            .add(person);
+      }
+
+      chunk.forEach(address -> action.accept(address,
+          personsByAddress.getOrDefault(address, Collections.emptyList())));
+    }
+
+    return distinctAddresses.size();
 
   }
 
   /**
    * Retrieve a list of homes(designed with their address), mapped by the given list of
-   * NumberStation's FireStations, with all Persons living in it.
-   * All numberStations are existed because check by {@link EmergencyRestController}.
+   * NumberStation's FireStations, with all Persons living in it, and the numberStations
+   * of this list which don't exist (checked by {@link EmergencyRestController}).
    * For each person , list contains lastname, number of phone,age, medications and allergies.
+   * Result is the same whatever the order of list, so it's cached by sorted set of
+   * numberStations until the next change of data. Only results whose numberStations
+   * all exist are cached: a request can't fill the cache with any numberStations,
+   * its entries stay bounded by the sets of existing fireStations.
    *
    * @param numberStations  the list of numberstation where research homes.
    *
-   * @return a list of homes mapped with fireStation
+   * @return homes mapped with fireStations
    *            and with informations (described before) of persons living in.
    */
+  @Cacheable(cacheNames = FLOOD_STATIONS_CACHE, key = "new java.util.TreeSet(#numberStations)",
+             unless = "!#result.notFoundStations.isEmpty()")
+  public FloodStations getPersonsWhenFloodByStations(Collection<Integer> numberStations) {
 
-  public Map<String, List<Person>>
-      getPersonsWhenFloodByStations(List<Integer> numberStations) {
+    Set<Integer> stations = new TreeSet<>(numberStations);
+    Set<Integer> existedStations = new HashSet<>();
+    // a person mapped with several of these stations is kept once
+    Set<Person> persons = new LinkedHashSet<>();
 
-    Map<String, List<Person>> result = new LinkedHashMap<>();
+    if (emergencyReadModel != null) {
 
-    String addressTemp = null;
+      for (Integer station : stations) {
 
-    for (Integer station : numberStations) {
+        if (emergencyReadModel.existsFireStation(station)) {
 
-      List<Person> persons = personRepository.getPersonsWhenFlood(station);
-
-      if (!persons.isEmpty()) {
+          existedStations.add(station);
+          persons.addAll(emergencyReadModel.getPersonsWhenFlood(station));
+        }
+      }
 
-        addressTemp = persons.get(0).getAddress();
-        result.put(addressTemp, new ArrayList<Person>());
+    } else {
 
-        for (Person person : persons) {
+      for (Object[] row : personRepository.getPersonsWhenFloodByStations(stations)) {
 
-          if (person.getAddress().equals(addressTemp)) {
+        existedStations.add((Integer) row[0]);
 
-            result.get(addressTemp).add(person);
-          } else {
+        if (row[1] != null) {
 
-            addressTemp = person.getAddress();
-            result.put(addressTemp, new ArrayList<Person>());
-            result.get(addressTemp).add(person);
-          }
+          persons.add((Person) row[1]);
         }
       }
     }
-    return result;
+
+    Map<String, List<Person>> personsByAddress = new HashMap<>();
+
+    for (Person person : persons) {
+
+      personsByAddress.computeIfAbsent(person.getAddress(), address -> new ArrayList<>())
+          .add(person);
+    }
+
+    Map<String, List<Person>> homes = new LinkedHashMap<>();
+
+    personsByAddress.keySet().stream().sorted().forEach(address -> {
+
+      List<Person> home = personsByAddress.get(address);
+      home.sort(Comparator.comparing(Person::getBirthDate,
+          Comparator.nullsFirst(Comparator.<Date>naturalOrder())));
+      homes.put(address, home);
+    });
+
+    stations.removeAll(existedStations);
+    // result is shared by the cache
+    return new FloodStations(Collections.unmodifiableSet(stations),
+        Collections.unmodifiableMap(homes));
+
+  }
+
+  /**
+   * Evict the homes cached when flood once a change of data is committed,
+   * before the increment of {@link DataVersion}.
+   *
+   * @param event   the change of data.
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+  @CacheEvict(cacheNames = FLOOD_STATIONS_CACHE, allEntries = true)
+  public void evictPersonsWhenFlood(DataChangeEvent event) {
+
+    log.debug("Homes cached when flood are evicted after {}", event);
 
   }
 
@@ -352,7 +612,9 @@ public class PersonService {
   public Set<Person> getPersonInfoByNames(String firstName,
       String lastName) {
 
-    List<Person> persons = personRepository.getPersonInfoByNames(firstName, lastName);
+    List<Person> persons = emergencyReadModel != null
+        ? emergencyReadModel.getPersonInfoByNames(firstName, lastName)
+        : personRepository.getPersonInfoByNames(firstName, lastName);
     // transform list in linkedHashSet to avoid duplicate and keep sorted list
     Set<Person> result = new LinkedHashSet<Person>(persons);
     return result;
@@ -368,7 +630,49 @@ public class PersonService {
    */
   public List<String> getEmailsByCity(String city) {
 
-    return personRepository.getEmailsByCity(city);
+    return emergencyReadModel != null
+        ? emergencyReadModel.getEmailsByCity(city)
+        : personRepository.getEmailsByCity(city);
+
+  }
+
+  /**
+   * Check if somebody lives in the given city.
+   *
+   * @param city  the city.
+   *
+   * @return  true if there is at least one person living in this city.
+   */
+  public boolean existsByCity(String city) {
+
+    return emergencyReadModel != null
+        ? !emergencyReadModel.getEmailsByCity(city).isEmpty()
+        : personRepository.existsByCity(city);
+
+  }
+
+  /**
+   * Give all emails of persons living in a city without duplicates, one after another
+   * to the action: they are read by a stream of database (from the read model if it's enabled),
+   * to not copy them all in memory.
+   *
+   * @param city    the city where to search all emails.
+   * @param action  the action done on each email.
+   *
+   * @return  the number of emails.
+   */
+  @Transactional(readOnly = true)
+  public long forEachEmailByCity(String city, Consumer<String> action) {
+
+    if (emergencyReadModel != null) {
+
+      List<String> emails = emergencyReadModel.getEmailsByCity(city);
+      emails.forEach(action);
+      return emails.size();
+    }
+
+    return EntityStreams.forEachChunk(personRepository.streamEmailsByCity(city),
+        emails -> emails.forEach(action));
 
   }
 
@@ -0,0 +1,109 @@
+package com.safetynet.alert.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Difference between a current collection of entities and a requested one,
+ * compared by natural key (designation, designation:posology...) and not by id,
+ * as requested entities are given without id.
+ * It's computed in O(n + m) with one map by natural key:
+ * <ul>
+ * <li>kept: current entities with a natural key requested
+ * <li>added: requested entities with a natural key not in current ones
+ * <li>removed: current entities with a natural key not requested
+ * </ul>
+ * Entities with a same natural key are counted only once, the first one is kept.
+ *
+ * @param <K>   type of natural key.
+ * @param <E>   type of entity.
+ *
+ * @author delaval
+ *
+ */
+public class SetDiff<K, E> {
+
+  private final Map<K, E> kept = new LinkedHashMap<>();
+  private final Map<K, E> added = new LinkedHashMap<>();
+  private final Map<K, E> removed = new LinkedHashMap<>();
+
+  private SetDiff() {
+
+  }
+
+  /**
+   * Compute the difference between current and requested entities.
+   *
+   * @param current         the current entities.
+   * @param requested       the requested entities.
+   * @param keyExtractor    function to retrieve the natural key of a entity.
+   *
+   * @return  the difference.
+   */
+  public static <K, E> SetDiff<K, E> between(Collection<E> current,
+                                             Collection<E> requested,
+                                             Function<E, K> keyExtractor) {
+
+    SetDiff<K, E> diff = new SetDiff<>();
+
+    for (E entity : current) {
+
+      diff.removed.putIfAbsent(keyExtractor.apply(entity), entity);
+    }
+
+    for (E entity : requested) {
+
+      K key = keyExtractor.apply(entity);
+      E currentEntity = diff.removed.remove(key);
+
+      if (currentEntity != null) {
+
+        diff.kept.put(key, currentEntity);
+
+      } else if (!diff.kept.containsKey(key)) {
+
+        diff.added.putIfAbsent(key, entity);
+      }
+    }
+
+    return diff;
+
+  }
+
+  /**
+   * Retrieve the current entities which are requested too, by natural key.
+   *
+   * @return  the kept entities.
+   */
+  public Map<K, E> getKept() {
+
+    return Collections.unmodifiableMap(kept);
+
+  }
+
+  /**
+   * Retrieve the requested entities which aren't in current ones, by natural key.
+   *
+   * @return  the added entities.
+   */
+  public Map<K, E> getAdded() {
+
+    return Collections.unmodifiableMap(added);
+
+  }
+
+  /**
+   * Retrieve the current entities which aren't requested anymore, by natural key.
+   *
+   * @return  the removed entities.
+   */
+  public Map<K, E> getRemoved() {
+
+    return Collections.unmodifiableMap(removed);
+
+  }
+
+}
@@ -0,0 +1,38 @@
+package com.safetynet.alert.service;
+
+import lombok.Value;
+
+/**
+ * Counts of persons mapped with a fireStation: adults (18 years old or more), children
+ * and persons without birthDate.
+ *
+ * @author delaval
+ *
+ */
+@Value
+public class StationCounts {
+
+  public static final StationCounts NONE = new StationCounts(0, 0, 0);
+
+  private int adultCount;
+
+  private int childrenCount;
+
+  private int withoutBirthDateCount;
+
+  /**
+   * Add counts to these ones.
+   *
+   * @param counts  counts to add, negative to remove persons.
+   *
+   * @return  the new counts.
+   */
+  public StationCounts plus(StationCounts counts) {
+
+    return new StationCounts(adultCount + counts.adultCount,
+        childrenCount + counts.childrenCount,
+        withoutBirthDateCount + counts.withoutBirthDateCount);
+
+  }
+
+}
@@ -0,0 +1,387 @@
+package com.safetynet.alert.benchmark;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generator of synthetic datasets with the same schema as Data.json
+ * (persons, firestations and medicalrecords), to load them at production scale.
+ * Distributions are skewed as in real data, with a zipf law:
+ * <ul>
+ * <li>a few addresses have many persons and most of them only one or two
+ * <li>a few fireStations cover many addresses, and some addresses are covered by two stations
+ * <li>a few medications and allergies are often prescribed, most of them rarely
+ * <li>most of medicalRecords have no or one medication, up to medicationsPerRecord
+ *     (and allergiesPerRecord for allergies)
+ * </ul>
+ * A same seed always generates the same dataset.
+ *
+ * @author delaval
+ *
+ */
+public class DatasetGenerator {
+
+  private static final String[] FIRST_NAMES = {"John", "Jacob", "Tenley", "Roger", "Felicia",
+                                               "Jonanathan", "Tessa", "Peter", "Foster", "Tony",
+                                               "Lily", "Sophia", "Warren", "Zach", "Reginold",
+                                               "Jamie", "Ron", "Allison", "Brian", "Shawna",
+                                               "Kendrik", "Clive", "Eric"};
+
+  private static final String[] LAST_NAMES = {"Boyd", "Carman", "Marrack", "Peters", "Duncan",
+                                              "Stelzer", "Ferguson", "Walker", "Cooper", "Zemicks",
+                                              "Shepard", "Cadigan"};
+
+  private static final String[] STREETS = {"Culver St", "Binoc Ave", "Gershwin St",
+                                           "Manchoulas Ln", "Ash St", "Bliss St", "Route",
+                                           "Bleecker St", "Harrison St", "Aspen Ave"};
+
+  private static final String[] CITIES = {"Culver", "Binoc", "Gershwin", "Manchoulas"};
+
+  private static final int MEDICATION_CATALOG = 200;
+  private static final int ALLERGY_CATALOG = 50;
+  private static final int ALLERGIES_PER_RECORD = 2;
+
+  // share of addresses covered by a second fireStation
+  private static final double SECOND_STATION_RATE = 0.05;
+
+  private final int stations;
+  private final int addresses;
+  private final int persons;
+  private final int medicationsPerRecord;
+  private final int allergiesPerRecord;
+  private final long seed;
+
+  /**
+   * Constructor with fields.
+   *
+   * @param stations              number of fireStations.
+   * @param addresses             number of addresses, all covered by at least one fireStation.
+   * @param persons               number of persons, each one with a medicalRecord.
+   * @param medicationsPerRecord  maximum number of medications of a medicalRecord.
+   * @param seed                  seed of random generator.
+   */
+  public DatasetGenerator(int stations,
+                          int addresses,
+                          int persons,
+                          int medicationsPerRecord,
+                          long seed) {
+
+    this(stations, addresses, persons, medicationsPerRecord, ALLERGIES_PER_RECORD, seed);
+
+  }
+
+  /**
+   * Constructor with fields and maximum number of allergies of a medicalRecord.
+   *
+   * @param stations              number of fireStations.
+   * @param addresses             number of addresses, all covered by at least one fireStation.
+   * @param persons               number of persons, each one with a medicalRecord.
+   * @param medicationsPerRecord  maximum number of medications of a medicalRecord.
+   * @param allergiesPerRecord    maximum number of allergies of a medicalRecord.
+   * @param seed                  seed of random generator.
+   */
+  public DatasetGenerator(int stations,
+                          int addresses,
+                          int persons,
+                          int medicationsPerRecord,
+                          int allergiesPerRecord,
+                          long seed) {
+
+    if (stations < 1 || addresses < 1 || persons < 0 || medicationsPerRecord < 0
+        || allergiesPerRecord < 0) {
+
+      throw new IllegalArgumentException("Dataset needs at least one station and one address");
+    }
+
+    this.stations = stations;
+    this.addresses = addresses;
+    this.persons = persons;
+    this.medicationsPerRecord = medicationsPerRecord;
+    this.allergiesPerRecord = allergiesPerRecord;
+    this.seed = seed;
+
+  }
+
+  /**
+   * Write the dataset in json.
+   *
+   * @param output    stream where dataset is written, not closed.
+   *
+   * @return  the number of records written (persons, mappings of fireStations
+   *          and medicalRecords).
+   *
+   * @throws IOException  when dataset can't be written.
+   */
+  public long write(OutputStream output) throws IOException {
+
+    Random random = new Random(seed);
+    ZipfSampler addressSampler = new ZipfSampler(addresses, 1.1);
+    ZipfSampler stationSampler = new ZipfSampler(stations, 0.8);
+    ZipfSampler medicationSampler = new ZipfSampler(MEDICATION_CATALOG, 1.2);
+    ZipfSampler allergySampler = new ZipfSampler(ALLERGY_CATALOG, 1.2);
+    ZipfSampler medicationCountSampler = new ZipfSampler(medicationsPerRecord + 1, 1.5);
+    ZipfSampler allergyCountSampler = new ZipfSampler(allergiesPerRecord + 1, 1.5);
+
+    // persons of a same address are a household: same lastName, distinct firstNames
+    int[] households = new int[addresses];
+    int[] personAddresses = new int[persons];
+    int[] personRanks = new int[persons];
+
+    for (int i = 0; i < persons; i++) {
+
+      int address = addressSampler.next(random);
+      personAddresses[i] = address;
+      personRanks[i] = households[address]++;
+    }
+
+    long records = 0;
+
+    try (JsonGenerator generator = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .createGenerator(output, JsonEncoding.UTF8)) {
+
+      generator.writeStartObject();
+
+      generator.writeArrayFieldStart("persons");
+
+      for (int i = 0; i < persons; i++) {
+
+        int address = personAddresses[i];
+        generator.writeStartObject();
+        generator.writeStringField("firstName", firstName(personRanks[i]));
+        generator.writeStringField("lastName", lastName(address));
+        generator.writeStringField("address", address(address));
+        generator.writeStringField("city", CITIES[address % CITIES.length]);
+        generator.writeStringField("zip", String.valueOf(97451 + address % CITIES.length));
+        generator.writeStringField("phone", String.format("841-%03d-%04d",
+            address % 1000, (address / 1000 + personRanks[i] * 37) % 10000));
+        generator.writeStringField("email", (firstName(personRanks[i]) + "."
+            + lastName(address) + "@email.com").toLowerCase());
+        generator.writeEndObject();
+        records++;
+      }
+
+      generator.writeEndArray();
+
+      generator.writeArrayFieldStart("firestations");
+
+      for (int address = 0; address < addresses; address++) {
+
+        // every station covers at least one address when there are enough addresses
+        int station = address < stations ? address : stationSampler.next(random);
+        writeFireStation(generator, address, station);
+        records++;
+
+        if (random.nextDouble() < SECOND_STATION_RATE && stations > 1) {
+
+          int secondStation = stationSampler.next(random);
+
+          if (secondStation != station) {
+
+            writeFireStation(generator, address, secondStation);
+            records++;
+          }
+        }
+      }
+
+      generator.writeEndArray();
+
+      generator.writeArrayFieldStart("medicalrecords");
+
+      for (int i = 0; i < persons; i++) {
+
+        generator.writeStartObject();
+        generator.writeStringField("firstName", firstName(personRanks[i]));
+        generator.writeStringField("lastName", lastName(personAddresses[i]));
+        generator.writeStringField("birthdate", String.format("%02d/%02d/%04d",
+            1 + random.nextInt(12), 1 + random.nextInt(28), 1930 + random.nextInt(90)));
+        writeDesignations(generator, "medications",
+            sample(random, medicationSampler, medicationCountSampler.next(random)), true);
+        writeDesignations(generator, "allergies",
+            sample(random, allergySampler, allergyCountSampler.next(random)), false);
+        generator.writeEndObject();
+        records++;
+      }
+
+      generator.writeEndArray();
+
+      generator.writeEndObject();
+    }
+
+    return records;
+
+  }
+
+  /**
+   * Write the dataset in a file, compressed with gzip if its name ends with .gz.
+   *
+   * @param file    the file of dataset.
+   *
+   * @return  the number of records written.
+   *
+   * @throws IOException  when dataset can't be written.
+   */
+  public long write(Path file) throws IOException {
+
+    if (file.toAbsolutePath().getParent() != null) {
+
+      Files.createDirectories(file.toAbsolutePath().getParent());
+    }
+
+    try (OutputStream output = file.getFileName().toString().endsWith(".gz")
+        ? new GZIPOutputStream(Files.newOutputStream(file), 65536)
+        : Files.newOutputStream(file)) {
+
+      return write(output);
+    }
+
+  }
+
+  private static void writeFireStation(JsonGenerator generator, int address, int station)
+      throws IOException {
+
+    generator.writeStartObject();
+    generator.writeStringField("address", address(address));
+    generator.writeStringField("station", String.valueOf(station + 1));
+    generator.writeEndObject();
+
+  }
+
+  private static void writeDesignations(JsonGenerator generator,
+                                        String field,
+                                        Set<Integer> designations,
+                                        boolean medication) throws IOException {
+
+    generator.writeArrayFieldStart(field);
+
+    for (Integer designation : designations) {
+
+      generator.writeString(medication
+          ? "med" + letters(designation) + ":" + (50 + designation % 10 * 50) + "mg"
+          : "allergen" + letters(designation));
+    }
+
+    generator.writeEndArray();
+
+  }
+
+  private static Set<Integer> sample(Random random, ZipfSampler sampler, int count) {
+
+    Set<Integer> values = new LinkedHashSet<>();
+
+    // a few draws more to find distinct values among the most frequent ones
+    for (int attempt = 0; values.size() < count && attempt < count * 4; attempt++) {
+
+      values.add(sampler.next(random));
+    }
+
+    return values;
+
+  }
+
+  private static String firstName(int rank) {
+
+    return FIRST_NAMES[rank % FIRST_NAMES.length] + letters(rank / FIRST_NAMES.length);
+
+  }
+
+  private static String lastName(int address) {
+
+    return LAST_NAMES[address % LAST_NAMES.length] + letters(address / LAST_NAMES.length);
+
+  }
+
+  private static String address(int address) {
+
+    return (address / STREETS.length + 1) + " " + STREETS[address % STREETS.length];
+
+  }
+
+  /**
+   * Encode a number with lowercase letters, because names of persons can't have digits.
+   */
+  private static String letters(int value) {
+
+    StringBuilder letters = new StringBuilder();
+
+    for (int remaining = value; remaining > 0; remaining /= 26) {
+
+      letters.append((char) ('a' + remaining % 26));
+    }
+
+    return letters.toString();
+
+  }
+
+  /**
+   * Sampler of a zipf law on [0, size): the value k has a weight of 1 / (k + 1)^exponent.
+   */
+  private static final class ZipfSampler {
+
+    private final double[] cumulativeWeights;
+
+    ZipfSampler(int size, double exponent) {
+
+      cumulativeWeights = new double[size];
+      double total = 0;
+
+      for (int k = 0; k < size; k++) {
+
+        total += 1 / Math.pow(k + 1, exponent);
+        cumulativeWeights[k] = total;
+      }
+
+    }
+
+    int next(Random random) {
+
+      double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+      int index = Arrays.binarySearch(cumulativeWeights, target);
+      return Math.min(index >= 0 ? index : -index - 1, cumulativeWeights.length - 1);
+
+    }
+
+  }
+
+  /**
+   * Generate a dataset in a file.
+   *
+   * @param args  file [persons [stations [addresses [medicationsPerRecord [seed]]]]],
+   *              by default 100000 persons, 100 stations, 25000 addresses,
+   *              5 medications per record and seed 42.
+   *
+   * @throws IOException  when dataset can't be written.
+   */
+  public static void main(String[] args) throws IOException {
+
+    if (args.length < 1) {
+
+      System.err.println("Usage: DatasetGenerator file [persons [stations [addresses"
+          + " [medicationsPerRecord [seed]]]]]");
+      return;
+    }
+
+    int persons = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+    int stations = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+    int addresses = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, persons / 4);
+    int medicationsPerRecord = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+    long seed = args.length > 5 ? Long.parseLong(args[5]) : 42L;
+
+    long records = new DatasetGenerator(stations, addresses, persons, medicationsPerRecord, seed)
+        .write(Paths.get(args[0]));
+    System.out.println(records + " records written in " + args[0]);
+
+  }
+
+}
@@ -0,0 +1,124 @@
+package com.safetynet.alert.benchmark;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.database.DataJson;
+import com.safetynet.alert.database.FireStationJson;
+import com.safetynet.alert.model.Person;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatasetGeneratorTest {
+
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  void setUp() {
+
+    objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  }
+
+  @Test
+  void write_shouldGenerateValidDataset_withSchemaOfDataJson() throws IOException {
+
+    // Given
+    DatasetGenerator classUnderTest = new DatasetGenerator(20, 200, 1000, 3, 42L);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // When
+    long records = classUnderTest.write(output);
+
+    // Then
+    DataJson data = objectMapper.readValue(output.toByteArray(), DataJson.class);
+    assertThat(data.getPersons()).hasSize(1000);
+    assertThat(data.getMedicalrecords()).hasSize(1000);
+    assertThat(records).isEqualTo(2000L + data.getFirestations().size());
+
+    Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    for (Person person : data.getPersons()) {
+
+      assertThat(validator.validate(person)).isEmpty();
+    }
+
+    // natural keys of persons are unique
+    assertThat(data.getPersons().stream()
+        .map(person -> person.getFirstName() + " " + person.getLastName())
+        .distinct()).hasSize(1000);
+
+    // every station covers a address and every address of person is covered
+    Set<String> coveredAddresses = data.getFirestations().stream()
+        .map(FireStationJson::getAddress).collect(Collectors.toSet());
+    assertThat(data.getFirestations().stream().map(FireStationJson::getStation).distinct())
+        .hasSize(20);
+    assertThat(coveredAddresses).hasSize(200);
+    assertThat(data.getPersons()).allMatch(person -> coveredAddresses
+        .contains(person.getAddress()));
+
+    assertThat(data.getMedicalrecords())
+        .allMatch(medicalRecord -> medicalRecord.getMedications().size() <= 3
+            && medicalRecord.getMedications().stream().allMatch(m -> m.matches("[a-z]+:\\d+mg")));
+
+  }
+
+  @Test
+  void write_shouldGenerateSkewedHouseholds() throws IOException {
+
+    // Given
+    DatasetGenerator classUnderTest = new DatasetGenerator(10, 500, 2000, 3, 42L);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    // When
+    classUnderTest.write(output);
+
+    // Then
+    DataJson data = objectMapper.readValue(output.toByteArray(), DataJson.class);
+    long biggestHousehold = data.getPersons().stream()
+        .collect(Collectors.groupingBy(Person::getAddress, Collectors.counting()))
+        .values().stream().mapToLong(Long::longValue).max().getAsLong();
+
+    // uniform distribution would give about 4 persons by address
+    assertThat(biggestHousehold).isGreaterThan(50L);
+
+  }
+
+  @Test
+  void write_shouldGenerateSameDataset_withSameSeed() throws IOException {
+
+    // Given
+    ByteArrayOutputStream first = new ByteArrayOutputStream();
+    ByteArrayOutputStream second = new ByteArrayOutputStream();
+    ByteArrayOutputStream other = new ByteArrayOutputStream();
+
+    // When
+    new DatasetGenerator(5, 50, 100, 2, 7L).write(first);
+    new DatasetGenerator(5, 50, 100, 2, 7L).write(second);
+    new DatasetGenerator(5, 50, 100, 2, 8L).write(other);
+
+    // Then
+    assertThat(first.toByteArray()).isEqualTo(second.toByteArray());
+    assertThat(first.toByteArray()).isNotEqualTo(other.toByteArray());
+
+  }
+
+  @Test
+  void constructor_shouldThrowIllegalArgumentException_withoutStation() {
+
+    // When & Then
+    assertThatThrownBy(() -> new DatasetGenerator(0, 10, 10, 1, 42L))
+        .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
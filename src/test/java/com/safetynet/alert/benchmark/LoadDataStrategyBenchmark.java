@@ -0,0 +1,164 @@
+package com.safetynet.alert.benchmark;
+
+import com.safetynet.alert.SafetyNetAlertApplication;
+import com.safetynet.alert.database.LoadDataStrategy;
+import com.safetynet.alert.database.LoadDataStrategyFactory;
+import com.safetynet.alert.database.StrategyName;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Benchmark of throughput of each {@link LoadDataStrategy} with a dataset
+ * of {@link DatasetGenerator}, in a embedded database H2.
+ * The score is the number of loads by second, and the counter records the number of records
+ * (persons, mappings of fireStations and medicalRecords) loaded by second.
+ * The allocation rate is given by the profiler gc (-prof gc).
+ * Database is emptied before each load, out of measurement.
+ *
+ * <p>It's not a test run by surefire: run it with the profile benchmark
+ * (mvn -P benchmark test-compile exec:exec).
+ *
+ * @author delaval
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class LoadDataStrategyBenchmark {
+
+  @Param({"StrategyProd", "StrategyStreaming", "StrategyParallel", "StrategySnapshot"})
+  private StrategyName strategyName;
+
+  @Param({"1000", "10000"})
+  private int persons;
+
+  private Path workDirectory;
+  private long recordsByLoad;
+  private ConfigurableApplicationContext context;
+  private LoadDataStrategy strategy;
+  private JdbcTemplate jdbcTemplate;
+
+  /**
+   * Counter of records loaded, reported by JMH as a rate.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class LoadedRecords {
+
+    public long records;
+
+  }
+
+  /**
+   * Generate the dataset and start application without loading it.
+   *
+   * @throws IOException  when dataset can't be written.
+   */
+  @Setup(Level.Trial)
+  public void startApplication() throws IOException {
+
+    workDirectory = Files.createTempDirectory("loader-benchmark");
+    Path dataset = workDirectory.resolve("data.json");
+
+    // same proportions as Data.json: about 2 persons by address and 3 addresses by station
+    recordsByLoad = new DatasetGenerator(Math.max(1, persons / 6), Math.max(1, persons / 2),
+        persons, 3, 42L).write(dataset);
+
+    // profile test disables the load of data when booting, and arguments override
+    // its application.properties (as SQL logs)
+    context = new SpringApplicationBuilder(SafetyNetAlertApplication.class)
+        .profiles("test")
+        .run("--server.port=0",
+            "--logging.level.root=error",
+            "--logging.level.com.safetynet.alert=error",
+            "--spring.jpa.show-sql=false",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+            "--loader.bulk.enabled=true",
+            "--loader.source.location=" + dataset.toAbsolutePath(),
+            "--loader.snapshot.path=" + workDirectory.resolve("data.snapshot").toAbsolutePath());
+
+    strategy = context.getBean(LoadDataStrategyFactory.class).findStrategy(strategyName);
+    jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+  }
+
+  /**
+   * Empty all tables of database before each load.
+   */
+  @Setup(Level.Invocation)
+  public void emptyDatabase() {
+
+    List<String> tables = jdbcTemplate.queryForList("SELECT TABLE_NAME FROM"
+        + " INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC'", String.class);
+
+    jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+
+    for (String table : tables) {
+
+      jdbcTemplate.execute("TRUNCATE TABLE " + table);
+    }
+
+    jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+
+  }
+
+  /**
+   * Stop application and delete dataset.
+   *
+   * @throws IOException  when dataset can't be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void stopApplication() throws IOException {
+
+    context.close();
+    FileSystemUtils.deleteRecursively(workDirectory);
+
+  }
+
+  /**
+   * Load the whole dataset with the strategy.
+   *
+   * @param loadedRecords   counter of records loaded.
+   *
+   * @return  the result of load, to be consumed by JMH.
+   */
+  @Benchmark
+  public boolean loadDatabaseFromSource(LoadedRecords loadedRecords) {
+
+    boolean loaded = strategy.loadDatabaseFromSource();
+
+    if (!loaded) {
+
+      throw new IllegalStateException(strategyName + " failed to load the dataset");
+    }
+
+    loadedRecords.records += recordsByLoad;
+    return loaded;
+
+  }
+
+}
@@ -0,0 +1,207 @@
+package com.safetynet.alert.benchmark;
+
+import com.safetynet.alert.SafetyNetAlertApplication;
+import com.safetynet.alert.database.LoadDataStrategyFactory;
+import com.safetynet.alert.database.StrategyName;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.repository.PersonRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Benchmark of the query of /personInfo without read model, for each household (persons with
+ * a same lastName) of a dataset of {@link DatasetGenerator}, with up to designations
+ * medications and allergies by medicalRecord:
+ * <ul>
+ * <li>JoinFetch: persons, medications and allergies fetched by a single query,
+ * one row by medication x allergy of each person
+ * <li>KeyedQueries: {@link PersonRepository#getPersonInfoByNames}, persons then medications
+ * and allergies by a keyed query for each one, one row by medication and by allergy
+ * </ul>
+ * The score is the number of queries by second, and the counter records the number of rows
+ * read from database by second: their ratio is the number of rows by query.
+ *
+ * <p>It's not a test run by surefire: run it with the profile benchmark
+ * (mvn -P benchmark test-compile exec:exec -Djmh.args="PersonInfoFetchBenchmark").
+ *
+ * @author delaval
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class PersonInfoFetchBenchmark {
+
+  private static final String JOIN_FETCH = "select distinct p from Person p"
+      + " left join fetch p.medicalRecord mr"
+      + " left join fetch mr.medications"
+      + " left join fetch mr.allergies"
+      + " where p.lastName = :lastName";
+
+  @Param({"JoinFetch", "KeyedQueries"})
+  private String fetch;
+
+  @Param({"2", "8", "32"})
+  private int designations;
+
+  private Path workDirectory;
+  private ConfigurableApplicationContext context;
+  private PersonRepository personRepository;
+  private EntityManagerFactory entityManagerFactory;
+
+  // names of first person of each household, and rows read by the query of each one
+  private List<Object[]> households;
+  private long[] rows;
+  private int next;
+
+  /**
+   * Counter of rows read from database, reported by JMH as a rate.
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class ReadRows {
+
+    public long rows;
+
+  }
+
+  /**
+   * Generate and load the dataset in a application without read model.
+   *
+   * @throws IOException  when dataset can't be written.
+   */
+  @Setup(Level.Trial)
+  public void startApplication() throws IOException {
+
+    workDirectory = Files.createTempDirectory("fetch-benchmark");
+    Path dataset = workDirectory.resolve("data.json");
+    new DatasetGenerator(10, 500, 2000, designations, designations, 42L).write(dataset);
+
+    context = new SpringApplicationBuilder(SafetyNetAlertApplication.class)
+        .profiles("test")
+        .run("--server.port=0",
+            "--logging.level.root=error",
+            "--logging.level.com.safetynet.alert=error",
+            "--spring.jpa.show-sql=false",
+            "--spring.datasource.url=jdbc:h2:mem:fetch-benchmark;DB_CLOSE_DELAY=-1",
+            "--emergency.read-model.enabled=false",
+            "--loader.source.location=" + dataset.toAbsolutePath());
+
+    context.getBean(LoadDataStrategyFactory.class)
+        .findStrategy(StrategyName.StrategyStreaming).loadDatabaseFromSource();
+    personRepository = context.getBean(PersonRepository.class);
+    entityManagerFactory = context.getBean(EntityManagerFactory.class);
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+
+    try {
+
+      households = entityManager.createQuery("select min(p.firstName), p.lastName"
+          + " from Person p group by p.lastName", Object[].class).getResultList();
+      rows = new long[households.size()];
+
+      for (int i = 0; i < rows.length; i++) {
+
+        rows[i] = "JoinFetch".equals(fetch)
+            ? count(entityManager, "select count(*) from Person p"
+                + " left join p.medicalRecord mr left join mr.medications"
+                + " left join mr.allergies where p.lastName = :lastName", households.get(i))
+            : count(entityManager, "select count(*) from Person p"
+                + " where p.lastName = :lastName", households.get(i))
+                + count(entityManager, "select count(*) from Person p join p.medicalRecord mr"
+                    + " left join mr.medications where p.lastName = :lastName",
+                    households.get(i))
+                + count(entityManager, "select count(*) from Person p join p.medicalRecord mr"
+                    + " left join mr.allergies where p.lastName = :lastName",
+                    households.get(i));
+      }
+    } finally {
+
+      entityManager.close();
+    }
+
+  }
+
+  /**
+   * Stop application and delete dataset.
+   *
+   * @throws IOException  when dataset can't be deleted.
+   */
+  @TearDown(Level.Trial)
+  public void stopApplication() throws IOException {
+
+    context.close();
+    FileSystemUtils.deleteRecursively(workDirectory);
+
+  }
+
+  /**
+   * Retrieve persons of the next household with their medications and allergies.
+   *
+   * @param readRows  counter of rows read.
+   *
+   * @return  the persons, to be consumed by JMH.
+   */
+  @Benchmark
+  public List<Person> getPersonInfoByNames(ReadRows readRows) {
+
+    int household = next;
+    next = (next + 1) % households.size();
+    readRows.rows += rows[household];
+
+    String firstName = (String) households.get(household)[0];
+    String lastName = (String) households.get(household)[1];
+
+    if ("KeyedQueries".equals(fetch)) {
+
+      return personRepository.getPersonInfoByNames(firstName, lastName);
+    }
+
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+
+    try {
+
+      return entityManager.createQuery(JOIN_FETCH, Person.class)
+          .setParameter("lastName", lastName)
+          .getResultList();
+    } finally {
+
+      entityManager.close();
+    }
+
+  }
+
+  private static long count(EntityManager entityManager, String query, Object[] household) {
+
+    return entityManager.createQuery(query, Long.class)
+        .setParameter("lastName", household[1])
+        .getSingleResult();
+
+  }
+
+}
@@ -19,12 +19,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.controller.JsonStreamWriter;
+import com.safetynet.alert.exceptions.InvalidBatchException;
 import com.safetynet.alert.exceptions.address.AddressNotFoundException;
 import com.safetynet.alert.exceptions.firestation.FireStationAlreadyExistedException;
 import com.safetynet.alert.exceptions.firestation.FireStationNotFoundException;
 import com.safetynet.alert.exceptions.firestation.FireStationWithIdException;
 import com.safetynet.alert.model.FireStation;
 import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.BatchService;
+import com.safetynet.alert.service.DataVersion;
 import com.safetynet.alert.service.FireStationService;
 import com.safetynet.alert.service.PersonService;
 import java.util.ArrayList;
@@ -33,8 +37,10 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
@@ -50,6 +56,7 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
@@ -57,6 +64,7 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 
 @WebMvcTest(controllers = FireStationRestController.class)
+@Import(JsonStreamWriter.class)
 @TestMethodOrder(OrderAnnotation.class)
 class FireStationRestContollerTest {
 
@@ -66,6 +74,12 @@ class FireStationRestContollerTest {
   @MockBean
   private PersonService personService;
 
+  @MockBean
+  private DataVersion dataVersion;
+
+  @MockBean
+  private BatchService batchService;
+
   @Autowired
   private MockMvc mockMvc;
 
@@ -123,7 +137,12 @@ class FireStationRestContollerTest {
   void testGetFireStations() throws Exception {
 
     // Given
-    when(fireStationService.getFireStations()).thenReturn(fireStations);
+    when(fireStationService.forEachFireStation(Mockito.any())).thenAnswer(invocation -> {
+
+      Consumer<FireStation> action = invocation.getArgument(0);
+      fireStations.forEach(action);
+      return (long) fireStations.size();
+    });
 
     // When &then
     mockMvc.perform(get("/firestation")).andExpect(status().isOk())
@@ -210,14 +229,15 @@ class FireStationRestContollerTest {
         .andExpect(jsonPath("$.addresses[1]", is("350 rue Emile Zola")));
 
     ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
-    verify(fireStationService, times(2)).saveFireStation(fireStationCaptor.capture());
+    // new FireStation is saved only once, with its mapping to persons
+    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
 
-    List<FireStation> values = fireStationCaptor.getAllValues();
-    assertThat(values.get(0).getIdFireStation()).isNull();
-    assertThat(values.get(0).getNumberStation()).isEqualTo(3);
-    assertThat(values.get(0).getAddresses())
+    FireStation value = fireStationCaptor.getValue();
+    assertThat(value.getIdFireStation()).isNull();
+    assertThat(value.getNumberStation()).isEqualTo(3);
+    assertThat(value.getAddresses())
         .containsExactlyInAnyOrder("300 av Victor Hugo", "350 rue Emile Zola");
-    assertThat(values.get(1).getPersons())
+    assertThat(value.getPersons())
         .containsExactlyInAnyOrderElementsOf(Arrays.asList(person1, person2));
 
   }
@@ -399,12 +419,9 @@ class FireStationRestContollerTest {
     String addressToMap = "new address";
 
     // existed FireStation
-    when(fireStationService.getFireStationAllFetchByNumberStation(Mockito.anyInt()))
+    when(fireStationService.getFireStationFetchAddressesByNumberStation(Mockito.anyInt()))
         .thenReturn(Optional.of(fireStationWithId));
 
-    // no persons Mapped with address
-    when(personService.getPersonsByAddress(Mockito.anyString())).thenReturn(new ArrayList());
-
     // when & then
     mockMvc.perform(put("/firestation/{address}", addressToMap)
         .accept(MediaType.APPLICATION_JSON)
@@ -420,16 +437,11 @@ class FireStationRestContollerTest {
         .andExpect(jsonPath("$.addresses[2]", is("new address")))
         .andExpect(jsonPath("$.numberStation", is(3))).andDo(print());
 
-    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
     verify(fireStationService, times(1))
-        .getFireStationAllFetchByNumberStation(Mockito.anyInt());
-    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
-
-    assertThat(fireStationCaptor.getValue().getIdFireStation()).isNotNull();
-    assertThat(fireStationCaptor.getValue().getAddresses())
-        .containsExactlyInAnyOrder("300 av Victor Hugo", "350 rue Emile Zola", "new address");
-    assertThat(fireStationCaptor.getValue().getNumberStation()).isEqualTo(3);
-    assertThat(fireStationCaptor.getValue().getPersons()).isEmpty();
+        .getFireStationFetchAddressesByNumberStation(Mockito.anyInt());
+    verify(fireStationService, times(1)).addAddress(3L, "new address");
+    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
+    verify(personService, never()).getPersonsByAddress(Mockito.anyString());
 
   }
 
@@ -439,17 +451,10 @@ class FireStationRestContollerTest {
       throws Exception {
 
     // given
-    // existed FireStation
-    when(fireStationService.getFireStationAllFetchByNumberStation(Mockito.anyInt()))
+    // existed FireStation, without its persons
+    when(fireStationService.getFireStationFetchAddressesByNumberStation(Mockito.anyInt()))
         .thenReturn(Optional.of(fireStationWithId));
 
-    // persons Mapped with address
-    person1.setAddress("addressMappedToPersons");
-    person2.setAddress("addressMappedToPersons");
-
-    when(personService.getPersonsByAddress(Mockito.anyString()))
-        .thenReturn(Arrays.asList(person1, person2));
-
     ObjectMapper mapper = mapperBuilder.build();
     String addressToMap = "addressMappedToPersons";
 
@@ -468,18 +473,12 @@ class FireStationRestContollerTest {
         .andExpect(jsonPath("$.addresses[2]", is("addressMappedToPersons")))
         .andExpect(jsonPath("$.numberStation", is(3))).andDo(print());
 
-    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
+    // persons living at address are mapped by the service, without loading them
     verify(fireStationService, times(1))
-        .getFireStationAllFetchByNumberStation(Mockito.anyInt());
-    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
-
-    List<FireStation> values = fireStationCaptor.getAllValues();
-    assertThat(values.get(0).getIdFireStation()).isNotNull();
-    assertThat(values.get(0).getAddresses()).containsExactlyInAnyOrder("300 av Victor Hugo",
-        "350 rue Emile Zola",
-        "addressMappedToPersons");
-    assertThat(values.get(0).getNumberStation()).isEqualTo(3);
-    assertThat(values.get(0).getPersons()).containsExactlyInAnyOrder(person1, person2);
+        .getFireStationFetchAddressesByNumberStation(Mockito.anyInt());
+    verify(fireStationService, times(1)).addAddress(3L, "addressMappedToPersons");
+    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
+    verify(personService, never()).getPersonsByAddress(Mockito.anyString());
 
   }
 
@@ -494,7 +493,7 @@ class FireStationRestContollerTest {
 
     String addressToMap = "300 av Victor Hugo";
 
-    when(fireStationService.getFireStationAllFetchByNumberStation(Mockito.anyInt()))
+    when(fireStationService.getFireStationFetchAddressesByNumberStation(Mockito.anyInt()))
         .thenReturn(Optional.of(fireStationWithId));
 
     // when & then
@@ -507,8 +506,8 @@ class FireStationRestContollerTest {
         .andExpect(status().isBadRequest()).andReturn();
 
     verify(fireStationService, times(1))
-        .getFireStationAllFetchByNumberStation(Mockito.anyInt());
-    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
+        .getFireStationFetchAddressesByNumberStation(Mockito.anyInt());
+    verify(fireStationService, never()).addAddress(Mockito.anyLong(), Mockito.anyString());
 
     assertThat(result.getResolvedException().getMessage())
         .isEqualTo("This FireStation already mapped with given address."
@@ -523,7 +522,7 @@ class FireStationRestContollerTest {
     // given
     ObjectMapper mapper = mapperBuilder.build();
 
-    when(fireStationService.getFireStationAllFetchByNumberStation(Mockito.anyInt()))
+    when(fireStationService.getFireStationFetchAddressesByNumberStation(Mockito.anyInt()))
         .thenReturn(Optional.empty());
 
     // when & then
@@ -534,7 +533,7 @@ class FireStationRestContollerTest {
 
         .andExpect(status().isNotFound()).andReturn();
 
-    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
+    verify(fireStationService, never()).addAddress(Mockito.anyLong(), Mockito.anyString());
     assertThat(result.getResolvedException().getMessage())
         .isEqualTo("fireStation given in body request with numberStation:3 doesn't exist !");
 
@@ -589,7 +588,7 @@ class FireStationRestContollerTest {
 
     //given
 
-    when(fireStationService.getFireStationAllFetchByNumberStation(Mockito.anyInt()))
+    when(fireStationService.getFireStationFetchAddressesByNumberStation(Mockito.anyInt()))
         .thenReturn(Optional.of(fireStationTest1));
 
     // when & then
@@ -600,11 +599,8 @@ class FireStationRestContollerTest {
         .andExpect(jsonPath("$.numberStation", is(1)))
         .andExpect(jsonPath("$.addresses.length()", is(0)));
 
-    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
-    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
-    assertThat(fireStationCaptor.getValue().getAddresses()).isEqualTo(addresses1);
-    assertThat(fireStationCaptor.getValue().getIdFireStation()).isNotNull();
-    assertThat(fireStationCaptor.getValue().getNumberStation()).isEqualTo(1);
+    verify(fireStationService, times(1)).clearMapping(1L);
+    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
 
   }
 
@@ -614,7 +610,7 @@ class FireStationRestContollerTest {
       throws Exception {
 
     //given
-    when(fireStationService.getFireStationAllFetchByNumberStation(Mockito.anyInt()))
+    when(fireStationService.getFireStationFetchAddressesByNumberStation(Mockito.anyInt()))
         .thenReturn(Optional.empty());
 
     // when & then
@@ -622,7 +618,7 @@ class FireStationRestContollerTest {
         mockMvc.perform(delete("/firestation/station/{numberStation}", 1))
             .andExpect(status().isNotFound()).andDo(print()).andReturn();
 
-    verify(fireStationService, never()).deleteFireStation(Mockito.any(FireStation.class));
+    verify(fireStationService, never()).clearMapping(Mockito.anyLong());
     assertThat(result.getResolvedException()).isInstanceOf(FireStationNotFoundException.class);
     assertThat(result.getResolvedException().getMessage())
         .isEqualTo("FireStation with NumberStation:1 was not found");
@@ -634,16 +630,9 @@ class FireStationRestContollerTest {
   void deleteAddressfromFireStation_withValidAddress_thenReturn200() throws Exception {
 
     //Given
-    when(fireStationService.getFireStationsFetchPersonMappedToAddress(Mockito.anyString()))
+    when(fireStationService.getFireStationsMappedToAddress(Mockito.anyString()))
         .thenReturn(Arrays.asList(fireStationTest1));
 
-    // map 2 persons with different address to fireStationTest1
-    person1.setAddress("26 av maréchal Foch");
-    person2.setAddress("310 rue jean jaures");
-
-    fireStationTest1.addPerson(person1);
-    fireStationTest1.addPerson(person2);
-
     // when & then
     mockMvc.perform(delete("/firestation/address/{address}", "26 av maréchal Foch"))
         .andExpect(status().isOk())
@@ -653,12 +642,9 @@ class FireStationRestContollerTest {
         .andExpect(jsonPath("$[0].addresses.length()", is(1)))
         .andExpect(jsonPath("$[0].addresses[0]", is("310 rue jean jaures")));
 
-    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
-    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
-    assertThat(fireStationCaptor.getValue().getAddresses().size()).isEqualTo(1);
-    assertThat(fireStationCaptor.getValue().getIdFireStation()).isNotNull();
-    assertThat(fireStationCaptor.getValue().getNumberStation()).isEqualTo(1);
-    assertThat(fireStationCaptor.getValue().getPersons().size()).isEqualTo(1);
+    // persons living at address are unmapped by the service, without loading them
+    verify(fireStationService, times(1)).removeAddress("26 av maréchal Foch");
+    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
 
   }
 
@@ -667,14 +653,14 @@ class FireStationRestContollerTest {
   void deleteAddressfromFireStation_withNotFoundAddress_thenReturn404() throws Exception {
 
     //given
-    when(fireStationService.getFireStationsFetchPersonMappedToAddress(Mockito.anyString()))
+    when(fireStationService.getFireStationsMappedToAddress(Mockito.anyString()))
         .thenReturn(new ArrayList());
 
     // when & then
     MvcResult result = mockMvc.perform(delete("/firestation/address/{address}", "testAddress"))
         .andExpect(status().isNotFound()).andReturn();
 
-    verify(fireStationService, never()).deleteFireStation(Mockito.any(FireStation.class));
+    verify(fireStationService, never()).removeAddress(Mockito.anyString());
     assertThat(result.getResolvedException()).isInstanceOf(AddressNotFoundException.class);
     assertThat(result.getResolvedException().getMessage())
         .isEqualTo("There is no FireStation mapped with this address:testAddress");
@@ -695,5 +681,68 @@ class FireStationRestContollerTest {
 
   }
 
+  @Test
+  @Order(19)
+  @SuppressWarnings("unchecked")
+  void postRemapAddresses_withExistedFireStation_thenReturn200() throws Exception {
+
+    //given
+    when(fireStationService.getFireStationsFetchAddressesByNumberStations(
+        Mockito.anyCollection())).thenReturn(Arrays.asList(fireStationTest1));
+
+    // when & then
+    mockMvc.perform(post("/firestation/remap")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"300 av Victor Hugo\":1,\"new address\":1}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(1)))
+        .andExpect(jsonPath("$[0].numberStation", is(1)))
+        .andExpect(jsonPath("$[0].addresses.length()", is(4)))
+        .andDo(print());
+
+    ArgumentCaptor<Map<Long, Set<String>>> addressesCaptor = ArgumentCaptor.forClass(Map.class);
+    verify(fireStationService, times(1)).moveAddresses(addressesCaptor.capture());
+    assertThat(addressesCaptor.getValue()).containsOnlyKeys(1L);
+    assertThat(addressesCaptor.getValue().get(1L))
+        .containsExactly("300 av Victor Hugo", "new address");
+    verify(personService, never()).getPersonsByAddress(Mockito.anyString());
+
+  }
+
+  @Test
+  @Order(20)
+  void postRemapAddresses_withNotFoundNumberStation_thenReturn404() throws Exception {
+
+    //given
+    when(fireStationService.getFireStationsFetchAddressesByNumberStations(
+        Mockito.anyCollection())).thenReturn(Arrays.asList(fireStationTest1));
+
+    // when & then
+    MvcResult result = mockMvc.perform(post("/firestation/remap")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"300 av Victor Hugo\":1,\"new address\":5}"))
+        .andExpect(status().isNotFound()).andReturn();
+
+    verify(fireStationService, never()).moveAddresses(Mockito.anyMap());
+    assertThat(result.getResolvedException()).isInstanceOf(FireStationNotFoundException.class);
+    assertThat(result.getResolvedException().getMessage())
+        .isEqualTo("FireStation with NumberStation:5 was not found");
+
+  }
+
+  @Test
+  @Order(21)
+  void postRemapAddresses_withoutAddress_thenReturn400() throws Exception {
+
+    // when & then
+    MvcResult result = mockMvc.perform(post("/firestation/remap")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{}"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    verify(fireStationService, never()).moveAddresses(Mockito.anyMap());
+    assertThat(result.getResolvedException()).isInstanceOf(InvalidBatchException.class);
+
+  }
 
 }
@@ -480,4 +480,55 @@ class FireStationRestControllerIT {
   }
 
 
+  @Test
+  @Order(20)
+  void postFireStations_whenBatch_thenNewFireStationMappedWithPersons() throws Exception {
+
+    // when & then
+    mockMvc.perform(post("/firestation/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[{\"numberStation\":9,\"addresses\":[\"1509 Culver St\"]},"
+            + "{\"numberStation\":3,\"addresses\":[\"testAddress\"]},"
+            + "{\"numberStation\":0,\"addresses\":[\"testAddress\"]}]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].status", is(201)))
+        .andExpect(jsonPath("$[0].id", notNullValue()))
+        .andExpect(jsonPath("$[1].status", is(409)))
+        .andExpect(jsonPath("$[1].errorMessage",
+            is("this FireStation with NumberStation: 3 already Existed")))
+        .andExpect(jsonPath("$[2].status", is(400)))
+        .andDo(print());
+
+    assertThat(fireStationService.getFireStationsMappedToAddress("1509 Culver St"))
+        .extracting(FireStation::getNumberStation).contains(9);
+    assertThat(personService.getPhonesByNumberStation(9))
+        .containsExactly("841-874-6512", "841-874-6513", "841-874-6544");
+
+  }
+
+  @Test
+  @Order(21)
+  void postRemapAddresses_whenAddressMoved_thenPersonsMappedWithNewFireStation()
+      throws Exception {
+
+    // when & then
+    // "1509 Culver St" is mapped to fireStation N°3
+    mockMvc.perform(post("/firestation/remap")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"1509 Culver St\":2}"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(1)))
+        .andExpect(jsonPath("$[0].numberStation", is(2)))
+        .andExpect(jsonPath("$[0].addresses[?(@ == '1509 Culver St')]").exists())
+        .andDo(print());
+
+    assertThat(fireStationService.getFireStationsMappedToAddress("1509 Culver St"))
+        .extracting(FireStation::getNumberStation).containsExactly(2);
+    assertThat(personService.getPhonesByNumberStation(2))
+        .contains("841-874-6512", "841-874-6513", "841-874-6544");
+    assertThat(personService.getPhonesByNumberStation(3))
+        .doesNotContain("841-874-6512", "841-874-6513", "841-874-6544");
+
+  }
+
 }
@@ -33,7 +33,10 @@ import com.safetynet.alert.service.MedicalRecordService;
 import com.safetynet.alert.service.MedicationService;
 import com.safetynet.alert.service.PersonService;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import org.hamcrest.Matchers;
@@ -918,4 +921,182 @@ class MedicalRecordRestControllerIT {
 
   }
 
+  @Test
+  @Order(21)
+  void getMedicalRecords_whenLimitGiven_thenReturnPageWithMedicationsAndAllergies()
+      throws Exception {
+
+    mockMvc.perform(get("/medicalRecord").param("limit", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content.length()", is(2)))
+        .andExpect(jsonPath("$.content[0].person.firstName", is("John")))
+        .andExpect(jsonPath("$.content[0].medications[*].designation",
+            Matchers.containsInAnyOrder("aznol", "hydrapermazol")))
+        .andExpect(jsonPath("$.content[0].allergies[*].designation",
+            Matchers.containsInAnyOrder("nillacilan")))
+        .andExpect(jsonPath("$.nextCursor", notNullValue()))
+        .andDo(print());
+
+  }
+
+  @Test
+  @Order(22)
+  void postMedicalRecords_whenBatch_thenMedicationsAndAllergiesCreatedOnce() throws Exception {
+
+    //given
+    ObjectMapper mapper = mapperBuilder.build();
+    Person otherPerson = new Person(null, "Pierre", "Delaval", sdf.parse("12/27/1980"),
+                                    "29 15th St", "Cassis", 13260,
+                                    "061-846-0161", "delaval.htps@gmail.com",
+                                    null, null);
+    Set<Medication> otherMedications = new HashSet<>();
+    otherMedications.add(new Medication(null, "medication1", "100mg", null));
+    otherMedications.add(new Medication(null, "aznol", "350mg", null));
+    Set<Allergy> otherAllergies = new HashSet<>();
+    otherAllergies.add(new Allergy(null, "allergy1", null));
+    Person existedPerson = new Person();
+    existedPerson.setFirstName("John");
+    existedPerson.setLastName("Boyd");
+
+    List<MedicalRecord> medicalRecords = new ArrayList<>();
+    medicalRecords.add(medicalRecordTest);
+    medicalRecords.add(new MedicalRecord(null, otherPerson, otherMedications, otherAllergies));
+    medicalRecords.add(new MedicalRecord(null, existedPerson, new HashSet<>(), new HashSet<>()));
+
+    //when
+    mockMvc.perform(post("/medicalRecord/batch").accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(medicalRecords)))
+
+        //then
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(3)))
+        .andExpect(jsonPath("$[0].status", is(201)))
+        .andExpect(jsonPath("$[0].id", notNullValue()))
+        .andExpect(jsonPath("$[1].status", is(201)))
+        .andExpect(jsonPath("$[2].status", is(409)))
+        .andDo(print());
+
+    assertThat(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+        "medication1", "100mg").get().getMedicalRecords()).hasSize(2);
+    assertThat(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+        "aznol", "350mg").get().getMedicalRecords()).hasSize(2);
+    assertThat(medicalRecordService.getMedicalRecordByNames("Delaval", "Pierre").get()
+        .getAllergies()).extracting(Allergy::getDesignation).containsExactly("allergy1");
+
+  }
+
+  @Test
+  @Order(23)
+  void postMedicalRecord_whenExistedMedicationAndAllergy_thenLinkedWithoutCreatingThem()
+      throws Exception {
+
+    //given
+    ObjectMapper mapper = mapperBuilder.build();
+    Medication existedMedication =
+        medicationService.getMedicationByDesignationAndPosology("aznol", "350mg").get();
+    Allergy existedAllergy = allergyService.getAllergyByDesignation("nillacilan").get();
+    int medicationsCount = medicationService.getMedications().size();
+
+    medicationsTest.clear();
+    medicationsTest.add(new Medication(null, "aznol", "350mg", null));
+    allergiesTest.clear();
+    allergiesTest.add(new Allergy(null, "nillacilan", null));
+
+    //when
+    mockMvc.perform(post("/medicalRecord").accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(medicalRecordTest)))
+
+        //then
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.medications.length()", is(1)))
+        .andExpect(jsonPath("$.medications[0].idMedication",
+            is(existedMedication.getIdMedication().intValue())))
+        .andExpect(jsonPath("$.allergies.length()", is(1)))
+        .andExpect(jsonPath("$.allergies[0].idAllergy",
+            is(existedAllergy.getIdAllergy().intValue())))
+        .andDo(print());
+
+    assertThat(medicationService.getMedications()).hasSize(medicationsCount);
+    assertThat(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+        "aznol", "350mg").get().getMedicalRecords()).hasSize(2);
+
+  }
+
+  @Test
+  @Order(24)
+  void postMedicalRecord_whenNewPersonNotValid_thenReturn400AndNothingSaved() throws Exception {
+
+    //given
+    // the new person is saved by cascade of medicalRecord: it's validated by its save
+    ObjectMapper mapper = mapperBuilder.build();
+    personTest.setFirstName("Invalid");
+    personTest.setEmail("notAnEmail");
+    long medicalRecordsCount = medicalRecordService.forEachMedicalRecord(medicalRecord -> { });
+
+    //when & then
+    mockMvc.perform(post("/medicalRecord").accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(medicalRecordTest)))
+
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.errorMessage", is("Error of validation")))
+        .andExpect(jsonPath("$.fieldValidationErrors[0]", is("In email  => this field need"
+            + " to be a correct Email, example: john.boyd@email.com")))
+        .andDo(print());
+
+    assertThat(personService.getPersonByNames("Invalid", "Delaval")).isEmpty();
+    assertThat(medicationService.getMedicationByDesignationAndPosology("medication1", "100mg"))
+        .isEmpty();
+    assertThat(medicalRecordService.forEachMedicalRecord(medicalRecord -> { }))
+        .isEqualTo(medicalRecordsCount);
+
+  }
+
+  @Test
+  @Order(25)
+  void postMedicalRecords_whenDatabaseRejectsOneItem_thenOnlyThisItemRejected() throws Exception {
+
+    //given
+    // a designation too long for its column is rejected by the database, not by validation
+    ObjectMapper mapper = mapperBuilder.build();
+    Person validPerson = new Person(null, "Paul", "Delaval", sdf.parse("03/12/1985"),
+                                    "29 15th St", "Cassis", 13260,
+                                    "061-846-0161", "delaval.htps@gmail.com",
+                                    null, null);
+    Set<Medication> validMedications = new HashSet<>();
+    validMedications.add(new Medication(null, "medication2", "200mg", null));
+    Person rejectedPerson = new Person(null, "Marie", "Delaval", sdf.parse("07/04/1987"),
+                                       "29 15th St", "Cassis", 13260,
+                                       "061-846-0161", "delaval.htps@gmail.com",
+                                       null, null);
+    Set<Medication> rejectedMedications = new HashSet<>();
+    rejectedMedications.add(
+        new Medication(null, String.join("", Collections.nCopies(256, "a")), "200mg", null));
+
+    List<MedicalRecord> medicalRecords = new ArrayList<>();
+    medicalRecords.add(new MedicalRecord(null, validPerson, validMedications, new HashSet<>()));
+    medicalRecords.add(
+        new MedicalRecord(null, rejectedPerson, rejectedMedications, new HashSet<>()));
+
+    //when
+    mockMvc.perform(post("/medicalRecord/batch").accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(medicalRecords)))
+
+        //then
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(2)))
+        .andExpect(jsonPath("$[0].status", is(201)))
+        .andExpect(jsonPath("$[0].id", notNullValue()))
+        .andExpect(jsonPath("$[1].status", is(400)))
+        .andDo(print());
+
+    assertThat(medicalRecordService.getMedicalRecordByNames("Delaval", "Paul").get()
+        .getMedications()).extracting(Medication::getDesignation).containsExactly("medication2");
+    assertThat(personService.getPersonByNames("Marie", "Delaval")).isEmpty();
+
+  }
+
 }
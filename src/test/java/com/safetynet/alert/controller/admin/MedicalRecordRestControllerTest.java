@@ -19,6 +19,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.controller.JsonStreamWriter;
 import com.safetynet.alert.exceptions.medicalrecord.MedicalRecordAlreadyExistedException;
 import com.safetynet.alert.exceptions.medicalrecord.MedicalRecordChangedNamesException;
 import com.safetynet.alert.exceptions.medicalrecord.MedicalRecordNotFoundException;
@@ -29,6 +30,9 @@ import com.safetynet.alert.model.MedicalRecord;
 import com.safetynet.alert.model.Medication;
 import com.safetynet.alert.model.Person;
 import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.BatchService;
+import com.safetynet.alert.service.DataVersion;
+import com.safetynet.alert.service.EntityDictionary;
 import com.safetynet.alert.service.FireStationService;
 import com.safetynet.alert.service.MedicalRecordService;
 import com.safetynet.alert.service.MedicationService;
@@ -38,8 +42,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import javax.persistence.RollbackException;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validation;
 import javax.validation.constraints.NotBlank;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
@@ -54,12 +63,15 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.TransactionSystemException;
 
 @WebMvcTest(controllers = MedicalRecordRestController.class)
+@Import(JsonStreamWriter.class)
 @TestMethodOrder(OrderAnnotation.class)
 class MedicalRecordRestControllerTest {
 
@@ -74,6 +86,12 @@ class MedicalRecordRestControllerTest {
   @MockBean
   private AllergyService allergyService;
 
+  @MockBean
+  private DataVersion dataVersion;
+
+  @MockBean
+  private BatchService batchService;
+
   @Autowired
   private MockMvc mockMvc;
 
@@ -194,6 +212,18 @@ class MedicalRecordRestControllerTest {
 
     mockFireStation = new FireStation(1L, 1, mockAddresses, mockPersons);
 
+    // ********************* dictionaries searching in mocked services **************
+    when(allergyService.createDictionary()).thenAnswer(invocation -> new EntityDictionary<>(
+        Allergy.class,
+        Allergy::getIdAllergy,
+        allergyService::getAllergyByDesignation));
+
+    when(medicationService.createDictionary()).thenAnswer(invocation -> new EntityDictionary<>(
+        Medication.class,
+        Medication::getIdMedication,
+        (MedicationService.NaturalKey key) -> medicationService
+            .getMedicationByDesignationAndPosology(key.getDesignation(), key.getPosology())));
+
   }
 
   @BeforeEach
@@ -204,8 +234,12 @@ class MedicalRecordRestControllerTest {
   void getMedicalRecords() throws Exception {
     //given
 
-    when(medicalRecordService.getMedicalRecords())
-        .thenReturn(new ArrayList(mockMedicalRecords));
+    when(medicalRecordService.forEachMedicalRecord(Mockito.any())).thenAnswer(invocation -> {
+
+      Consumer<MedicalRecord> action = invocation.getArgument(0);
+      mockMedicalRecords.forEach(action);
+      return (long) mockMedicalRecords.size();
+    });
 
     mockMvc.perform(get("/medicalRecord")).andExpect(status().isOk())
         .andExpect(jsonPath("$.length()", is(2)))
@@ -309,9 +343,9 @@ class MedicalRecordRestControllerTest {
         .thenReturn(Optional.empty());
 
     // no medication or allergy are existed
-    when(allergyService.getAllergyFetchMedicalRecordsByDesignation(Mockito.anyString()))
+    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
         .thenReturn(Optional.empty());
-    when(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+    when(medicationService.getMedicationByDesignationAndPosology(
         Mockito.anyString(),
         Mockito.anyString())).thenReturn(Optional.empty());
 
@@ -319,9 +353,8 @@ class MedicalRecordRestControllerTest {
     when(fireStationService.getFireStationsFetchPersonMappedToAddress(Mockito.anyString()))
         .thenReturn(new ArrayList());
 
-    // need to retrieve MockmedicalRecord1 with all fetching collection for display in response
-    when(medicalRecordService.getMedicalRecordFetchAllByNames(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(mockMedicalRecord1);
+    // response is the saved medicalRecord, with ids given by its save
+    mockSaveMedicalRecord();
 
 
     //when & then
@@ -361,7 +394,8 @@ class MedicalRecordRestControllerTest {
         ArgumentCaptor.forClass(MedicalRecord.class);
     verify(medicalRecordService, times(1)).saveMedicalRecord(medicalRecordCaptor.capture());
 
-    assertThat(medicalRecordCaptor.getValue().getPerson().getIdPerson()).isNull();
+    // new Person is saved by cascade of its medicalRecord
+    verify(personService, never()).savePerson(Mockito.any(Person.class));
     assertThat(medicalRecordCaptor.getValue().getPerson().getLastName()).isEqualTo("Delaval");
     assertThat(medicalRecordCaptor.getValue().getPerson().getFirstName()).isEqualTo("Dorian");
     assertThat(medicalRecordCaptor.getValue().getPerson().getAddress())
@@ -373,10 +407,11 @@ class MedicalRecordRestControllerTest {
     assertThat(medicalRecordCaptor.getValue().getPerson().getPhone())
         .isEqualTo("061-846-0160");
     assertThat(medicalRecordCaptor.getValue().getMedications().size()).isEqualTo(1);
+    // new medication and allergy have the ids given by the save of medicalRecord
     assertThat(medicalRecordCaptor.getValue().getMedications().toString()).isEqualTo(
-        "[Medication(idMedication=null, designation=medication1, posology=100mg)]");
+        "[Medication(idMedication=1, designation=medication1, posology=100mg)]");
     assertThat(medicalRecordCaptor.getValue().getAllergies().toString()).isEqualTo(
-        "[Allergy(idAllergy=null, designation=allergy1)]");
+        "[Allergy(idAllergy=1, designation=allergy1)]");
 
   }
 
@@ -392,21 +427,20 @@ class MedicalRecordRestControllerTest {
         .thenReturn(Optional.empty());
 
     // no medication or allergy are existed
-    when(allergyService.getAllergyFetchMedicalRecordsByDesignation(Mockito.anyString()))
+    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
         .thenReturn(Optional.empty());
-    when(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+    when(medicationService.getMedicationByDesignationAndPosology(
         Mockito.anyString(),
         Mockito.anyString())).thenReturn(Optional.empty());
 
     // fireStations mapped to address 26 av marechal Foch
     mockAddresses.add("26 av marechal foch");
     mockFireStation.setAddresses(mockAddresses);
-    when(fireStationService.getFireStationsFetchPersonMappedToAddress(Mockito.anyString()))
+    when(fireStationService.getFireStationsMappedToAddress(Mockito.anyString()))
         .thenReturn(Arrays.asList(mockFireStation));
 
-    // need to retrieve MockmedicalRecord1 with all fetching collection for display in response
-    when(medicalRecordService.getMedicalRecordFetchAllByNames(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(mockMedicalRecord1);
+    // response is the saved medicalRecord, with ids given by its save
+    mockSaveMedicalRecord();
 
     ObjectMapper mapper = mapperBuilder.build();
 
@@ -435,25 +469,22 @@ class MedicalRecordRestControllerTest {
         .andExpect(jsonPath("$.allergies[0].idAllergy", notNullValue()))
         .andExpect(jsonPath("$.allergies[0].designation", is("allergy1"))).andDo(print());
 
-    // chek that mapping fireStation/address was update and
-    // medicalRecord automatically saved with fireStationService.saveFirestation()
-
-    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
-    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
+    // chek that mapping fireStation/address was done by the side of new Person and
+    // medicalRecord saved with it by medicalRecordService.saveMedicalRecord()
+    verify(fireStationService, never()).saveFireStation(Mockito.any(FireStation.class));
 
-    // need to delete id of MockPerson1 to verify that arguments are saving correctly
+    ArgumentCaptor<MedicalRecord> medicalRecordCaptor =
+        ArgumentCaptor.forClass(MedicalRecord.class);
+    verify(medicalRecordService, times(1)).saveMedicalRecord(medicalRecordCaptor.capture());
 
-    assertThat(fireStationCaptor.getValue().getPersons()).hasSize(1);
-    assertThat(fireStationCaptor.getValue().getPersons()).extracting("lastName")
-        .contains("Delaval");
+    assertThat(medicalRecordCaptor.getValue().getPerson().getLastName()).isEqualTo("Delaval");
+    assertThat(medicalRecordCaptor.getValue().getPerson().getFireStations())
+        .containsExactly(mockFireStation);
 
     //check if no new medication or allergy was created and save
     verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
     verify(allergyService, never()).saveAllergy(Mockito.any(Allergy.class));
 
-    // check that save of MedicalRecord was not done by this:
-    verify(medicalRecordService, never()).saveMedicalRecord(Mockito.any(MedicalRecord.class));
-
   }
 
   @Test
@@ -471,15 +502,14 @@ class MedicalRecordRestControllerTest {
         .thenReturn(Optional.of(mockPerson1));
 
     // no medication or allergy are existed
-    when(allergyService.getAllergyFetchMedicalRecordsByDesignation(Mockito.anyString()))
+    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
         .thenReturn(Optional.empty());
-    when(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+    when(medicationService.getMedicationByDesignationAndPosology(
         Mockito.anyString(),
         Mockito.anyString())).thenReturn(Optional.empty());
 
-    // need to retrieve MockmedicalRecord1 with all fetching collection for display in response
-    when(medicalRecordService.getMedicalRecordFetchAllByNames(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(mockMedicalRecord1);
+    // response is the saved medicalRecord, with ids given by its save
+    mockSaveMedicalRecord();
 
     ObjectMapper mapper = mapperBuilder.build();
     //when & then
@@ -506,8 +536,10 @@ class MedicalRecordRestControllerTest {
         .andExpect(jsonPath("$.allergies[0].idAllergy", notNullValue()))
         .andExpect(jsonPath("$.allergies[0].designation", is("allergy1"))).andDo(print());
 
-    // check if save of medicalrecord was creating by using personService
-    verify(personService, times(1)).savePerson(Mockito.any(Person.class));
+    // check if save of medicalrecord was done by medicalRecordService
+    // and not by personService, existed Person being only linked to it
+    verify(medicalRecordService, times(1)).saveMedicalRecord(Mockito.any(MedicalRecord.class));
+    verify(personService, never()).savePerson(Mockito.any(Person.class));
 
     //check if no new medication or allergy was created and save
     verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
@@ -537,21 +569,15 @@ class MedicalRecordRestControllerTest {
         .thenReturn(Optional.of(mockPerson1));
 
     //  medication or allergy are already existed
-    when(allergyService.getAllergyFetchMedicalRecordsByDesignation(Mockito.anyString()))
+    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
         .thenReturn(Optional.of(mockAllergy1));
 
-    when(medicationService.getMedicationFetchMedicalRecordsByDesignationAndPosology(
+    when(medicationService.getMedicationByDesignationAndPosology(
         Mockito.anyString(),
         Mockito.anyString())).thenReturn(Optional.of(mockMedication1));
 
-    // need to retrieve MockMedicalRecord1 when update existed medications an allergies
-    when(
-        medicalRecordService.getMedicalRecordByNames(Mockito.anyString(), Mockito.anyString()))
-            .thenReturn(Optional.of(mockMedicalRecord1));
-
-    // need to retrieve MockmedicalRecord1 with all fetching collection for display in response
-    when(medicalRecordService.getMedicalRecordFetchAllByNames(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(mockMedicalRecord1);
+    // response is the saved medicalRecord, with ids given by its save
+    mockSaveMedicalRecord();
 
     ObjectMapper mapper = mapperBuilder.build();
     //when & then
@@ -578,12 +604,25 @@ class MedicalRecordRestControllerTest {
         .andExpect(jsonPath("$.allergies[0].idAllergy", notNullValue()))
         .andExpect(jsonPath("$.allergies[0].designation", is("allergy1"))).andDo(print());
 
-    // check if save of medicalrecord was creating by using personService
-    verify(personService, times(1)).savePerson(Mockito.any(Person.class));
-
-    //check if no new medication or allergy was created and save
-    verify(medicationService, times(1)).saveMedication(Mockito.any(Medication.class));
-    verify(allergyService, times(1)).saveAllergy(Mockito.any(Allergy.class));
+    // check if save of medicalrecord was done by medicalRecordService
+    // with existed medication and allergy linked by the side of medicalRecord
+    ArgumentCaptor<MedicalRecord> medicalRecordCaptor =
+        ArgumentCaptor.forClass(MedicalRecord.class);
+    verify(medicalRecordService, times(1)).saveMedicalRecord(medicalRecordCaptor.capture());
+    verify(personService, never()).savePerson(Mockito.any(Person.class));
+    assertThat(medicalRecordCaptor.getValue().getPerson()).isSameAs(mockPerson1);
+    assertThat(medicalRecordCaptor.getValue().getMedications())
+        .containsExactly(mockMedication1);
+    assertThat(medicalRecordCaptor.getValue().getAllergies())
+        .containsExactly(mockAllergy1);
+
+    //check if existed medication and allergy are not saved, nor their medicalRecords loaded
+    verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
+    verify(allergyService, never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(medicationService, never()).getMedicationFetchMedicalRecordsByDesignationAndPosology(
+        Mockito.anyString(), Mockito.anyString());
+    verify(allergyService, never()).getAllergyFetchMedicalRecordsByDesignation(
+        Mockito.anyString());
 
     //check if no firestation was mapped with adress of person because it's existed Person
     // existed Person normally already mapped with Firestation by address
@@ -763,8 +802,8 @@ class MedicalRecordRestControllerTest {
         .andExpect(jsonPath("$.allergies[0].designation", is("allergy1"))).andDo(print());
 
     //check that there is no new medication nor allergy saved
-    verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
-    verify(allergyService, never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(medicationService, never()).saveAll(Mockito.anyList());
+    verify(allergyService, never()).saveAll(Mockito.anyList());
 
     //check that was a existedMedicalRecord with its id that was correctly saved
     ArgumentCaptor<MedicalRecord> medicalRecordCaptor =
@@ -836,8 +875,8 @@ class MedicalRecordRestControllerTest {
     assertThat(medicalRecordCaptor.getValue().getPerson().getFireStations()).isEmpty();
 
     //check that there is no new medication nor allergy saved
-    verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
-    verify(allergyService, never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(medicationService, never()).saveAll(Mockito.anyList());
+    verify(allergyService, never()).saveAll(Mockito.anyList());
 
   }
 
@@ -905,8 +944,8 @@ class MedicalRecordRestControllerTest {
     });
 
     //check that there is no new medication nor allergy saved
-    verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
-    verify(allergyService, never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(medicationService, never()).saveAll(Mockito.anyList());
+    verify(allergyService, never()).saveAll(Mockito.anyList());
 
   }
 
@@ -922,11 +961,11 @@ class MedicalRecordRestControllerTest {
     when(fireStationService.getFireStationsMappedToAddress(Mockito.anyString()))
         .thenReturn(new ArrayList());
 
-    when(medicationService.getMedicationByDesignationAndPosology(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(Optional.of(mockMedication2));
+    when(medicationService.getMedicationsByNaturalKeys(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(mockMedication2));
 
-    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
-        .thenReturn(Optional.of(mockAllergy1));
+    when(allergyService.getAllergiesByDesignations(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(mockAllergy1));
 
     // mockMedicalRecordWithId represents the return of medicalRecord.save()
     HashSet<Medication> mockMedicationsWithId = new HashSet<Medication>();
@@ -984,8 +1023,8 @@ class MedicalRecordRestControllerTest {
         .andReturn();
 
     //check that there is no new medication nor allergy saved
-    verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
-    verify(allergyService, Mockito.never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(medicationService, never()).saveAll(Mockito.anyList());
+    verify(allergyService, Mockito.never()).saveAll(Mockito.anyList());
 
     //check that new existed medication was added to medicalRecord and old medication was removed
     // and allergies didn't change
@@ -1015,11 +1054,11 @@ class MedicalRecordRestControllerTest {
     when(fireStationService.getFireStationsMappedToAddress(Mockito.anyString()))
         .thenReturn(new ArrayList());
 
-    when(medicationService.getMedicationByDesignationAndPosology(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(Optional.empty());
+    when(medicationService.getMedicationsByNaturalKeys(Mockito.anyCollection()))
+        .thenReturn(new ArrayList<Medication>());
 
-    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
-        .thenReturn(Optional.of(mockAllergy1));
+    when(allergyService.getAllergiesByDesignations(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(mockAllergy1));
 
     // mockMedicalRecordWithId represents the return of medicalRecord.save()
     HashSet<Medication> mockMedicationsWithId = new HashSet<Medication>();
@@ -1077,15 +1116,17 @@ class MedicalRecordRestControllerTest {
         .andReturn();
 
     // check the new medication was saved in database
-    ArgumentCaptor<Medication> medicationCaptor = ArgumentCaptor.forClass(Medication.class);
+    ArgumentCaptor<List<Medication>> medicationsCaptor = ArgumentCaptor.forClass(List.class);
 
-    verify(medicationService, times(1)).saveMedication(medicationCaptor.capture());
-    assertThat(medicationCaptor.getValue().getIdMedication()).isNull();
-    assertThat(medicationCaptor.getValue().getDesignation()).isEqualTo(args.getString(0));
-    assertThat(medicationCaptor.getValue().getPosology()).isEqualTo(args.getString(1));
+    verify(medicationService, times(1)).saveAll(medicationsCaptor.capture());
+    assertThat(medicationsCaptor.getValue()).hasSize(1);
+    Medication savedMedication = medicationsCaptor.getValue().get(0);
+    assertThat(savedMedication.getIdMedication()).isNull();
+    assertThat(savedMedication.getDesignation()).isEqualTo(args.getString(0));
+    assertThat(savedMedication.getPosology()).isEqualTo(args.getString(1));
 
     //check that there is no new  allergy saved
-    verify(allergyService, Mockito.never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(allergyService, Mockito.never()).saveAll(Mockito.anyList());
 
     //check that new existed medication was added to medicalRecord and old medication was removed
     // and allergies didn't change
@@ -1117,11 +1158,11 @@ class MedicalRecordRestControllerTest {
 
     // medication don't change from existed MedicalRecord
 
-    when(medicationService.getMedicationByDesignationAndPosology(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(Optional.of(mockMedication1));
+    when(medicationService.getMedicationsByNaturalKeys(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(mockMedication1));
 
-    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
-        .thenReturn(Optional.empty());
+    when(allergyService.getAllergiesByDesignations(Mockito.anyCollection()))
+        .thenReturn(new ArrayList<Allergy>());
 
     // mockMedicalRecordWithId represents the return of medicalRecord.save()
     HashSet<Medication> mockMedicationsWithId = new HashSet<Medication>();
@@ -1177,14 +1218,15 @@ class MedicalRecordRestControllerTest {
         .andReturn();
 
     // check the new allergy was saved in database
-    ArgumentCaptor<Allergy> allergyCaptor = ArgumentCaptor.forClass(Allergy.class);
+    ArgumentCaptor<List<Allergy>> allergiesCaptor = ArgumentCaptor.forClass(List.class);
 
-    verify(allergyService, times(1)).saveAllergy(allergyCaptor.capture());
-    assertThat(allergyCaptor.getValue().getIdAllergy()).isNull();
-    assertThat(allergyCaptor.getValue().getDesignation()).isEqualTo("newAllergy");
+    verify(allergyService, times(1)).saveAll(allergiesCaptor.capture());
+    assertThat(allergiesCaptor.getValue()).hasSize(1);
+    assertThat(allergiesCaptor.getValue().get(0).getIdAllergy()).isNull();
+    assertThat(allergiesCaptor.getValue().get(0).getDesignation()).isEqualTo("newAllergy");
 
     //check that there is no new  Medication saved
-    verify(medicationService, Mockito.never()).saveMedication(Mockito.any(Medication.class));
+    verify(medicationService, Mockito.never()).saveAll(Mockito.anyList());
 
     //check that new existed Allergy was added to medicalRecord and old Allergy was removed
     // and Medications didn't change
@@ -1215,11 +1257,11 @@ class MedicalRecordRestControllerTest {
     when(fireStationService.getFireStationsMappedToAddress(Mockito.anyString()))
         .thenReturn(new ArrayList());
 
-    when(medicationService.getMedicationByDesignationAndPosology(Mockito.anyString(),
-        Mockito.anyString())).thenReturn(Optional.of(mockMedication1));
+    when(medicationService.getMedicationsByNaturalKeys(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(mockMedication1));
 
-    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
-        .thenReturn(Optional.of(mockAllergy2));
+    when(allergyService.getAllergiesByDesignations(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(mockAllergy2));
 
     // mockMedicalRecordWithId represents the return of medicalRecord.save()
     HashSet<Medication> mockMedicationsWithId = new HashSet<Medication>();
@@ -1276,8 +1318,8 @@ class MedicalRecordRestControllerTest {
         .andReturn();
 
     //check that there is no new medication nor allergy saved
-    verify(medicationService, never()).saveMedication(Mockito.any(Medication.class));
-    verify(allergyService, Mockito.never()).saveAllergy(Mockito.any(Allergy.class));
+    verify(medicationService, never()).saveAll(Mockito.anyList());
+    verify(allergyService, Mockito.never()).saveAll(Mockito.anyList());
 
     //check that new existed allergy was added to medicalRecord and old allergy was removed
     // and medications didn't change
@@ -1355,4 +1397,71 @@ class MedicalRecordRestControllerTest {
 
   }
 
+  @Test
+  @Order(21)
+  void postMedicalRecord_whenValidationFailsAtCommit_thenReturn400WithFieldErrors()
+      throws Exception {
+
+    //given
+    ObjectMapper mapper = mapperBuilder.build();
+
+    when(personService.getPersonByNames(Mockito.anyString(), Mockito.anyString()))
+        .thenReturn(Optional.empty());
+    when(allergyService.getAllergyByDesignation(Mockito.anyString()))
+        .thenReturn(Optional.empty());
+    when(medicationService.getMedicationByDesignationAndPosology(
+        Mockito.anyString(),
+        Mockito.anyString())).thenReturn(Optional.empty());
+
+    // the violation is wrapped as by a flush at commit of transaction
+    Person invalidPerson = new Person();
+    invalidPerson.setEmail("notAnEmail");
+    ConstraintViolationException violation = new ConstraintViolationException(
+        Validation.buildDefaultValidatorFactory().getValidator()
+            .validateProperty(invalidPerson, "email"));
+    when(medicalRecordService.saveMedicalRecord(Mockito.any(MedicalRecord.class)))
+        .thenThrow(new TransactionSystemException("Could not commit JPA transaction",
+            new RollbackException("Error while committing the transaction", violation)));
+
+    //when & then
+    mockMvc.perform(post("/medicalRecord").accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(mockMedicalRecordWithoutId)))
+
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.errorMessage", is("Error of validation")))
+        .andExpect(jsonPath("$.fieldValidationErrors[0]", is("In email  => this field need"
+            + " to be a correct Email, example: john.boyd@email.com")))
+        .andDo(print());
+
+  }
+
+  /**
+   * Mock the save of a new MedicalRecord as a persist: ids are given to new entities
+   * and the same medicalRecord is returned.
+   */
+  private void mockSaveMedicalRecord() {
+
+    when(medicalRecordService.saveMedicalRecord(Mockito.any(MedicalRecord.class)))
+        .thenAnswer(invocation -> {
+
+          MedicalRecord medicalRecord = invocation.getArgument(0);
+          medicalRecord.setIdMedicalRecord(1L);
+
+          if (medicalRecord.getPerson().getIdPerson() == null) {
+
+            medicalRecord.getPerson().setIdPerson(1L);
+          }
+
+          medicalRecord.getMedications().stream()
+              .filter(medication -> medication.getIdMedication() == null)
+              .forEach(medication -> medication.setIdMedication(1L));
+          medicalRecord.getAllergies().stream()
+              .filter(allergy -> allergy.getIdAllergy() == null)
+              .forEach(allergy -> allergy.setIdAllergy(1L));
+          return medicalRecord;
+        });
+
+  }
+
 }
@@ -14,6 +14,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
 import com.safetynet.alert.database.LoadDataStrategyFactory;
@@ -28,6 +29,8 @@ import com.safetynet.alert.service.FireStationService;
 import com.safetynet.alert.service.PersonService;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import lombok.extern.log4j.Log4j2;
@@ -542,6 +545,139 @@ class PersonRestControllerIT {
 
   }
 
-}
+  @Test
+  @Order(18)
+  void getPersonsAsNdjson_thenReturnOnePersonByLine() throws Exception {
+
+    MvcResult result = mockMvc.perform(get("/person").accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andReturn();
+
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertThat(lines).hasSize(8);
+    ObjectMapper mapper = new ObjectMapper();
+    assertThat(mapper.readTree(lines[0]).get("firstName").asText()).isEqualTo("John");
+    assertThat(mapper.readTree(lines[7]).get("idPerson").isNumber()).isTrue();
+
+  }
+
+  @Test
+  @Order(19)
+  void getPersons_whenLimitGiven_thenReturnPagesFollowingCursors() throws Exception {
+
+    ObjectMapper mapper = new ObjectMapper();
+    List<String> firstNames = new ArrayList<>();
+    List<Integer> sizes = new ArrayList<>();
+    String cursor = null;
+
+    do {
+
+      MvcResult result = mockMvc.perform(cursor == null
+          ? get("/person").param("limit", "3")
+          : get("/person").param("limit", "3").param("cursor", cursor))
+          .andExpect(status().isOk())
+          .andReturn();
+
+      JsonNode page = mapper.readTree(result.getResponse().getContentAsString());
+      page.get("content").forEach(person -> firstNames.add(person.get("firstName").asText()));
+      sizes.add(page.get("content").size());
+      cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+    } while (cursor != null);
+
+    assertThat(sizes).containsExactly(3, 3, 2);
+    assertThat(firstNames).hasSize(8).doesNotHaveDuplicates().startsWith("John");
+
+  }
+
+  @Test
+  @Order(20)
+  void getPersons_whenSortDesc_thenReturnLastPersonsFirst() throws Exception {
+
+    mockMvc.perform(get("/person").param("limit", "2").param("sort", "desc"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content.length()", is(2)))
+        .andExpect(jsonPath("$.content[0].idPerson", is(8)))
+        .andExpect(jsonPath("$.content[1].idPerson", is(7)))
+        .andExpect(jsonPath("$.nextCursor", notNullValue()));
+
+  }
+
+  @Test
+  @Order(21)
+  void getPersons_whenInvalidCursor_thenReturn400() throws Exception {
 
+    mockMvc.perform(get("/person").param("cursor", "invalid"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.errorMessage", is("the cursor invalid is invalid")));
+
+  }
 
+  @Test
+  @Order(22)
+  void postPersons_whenBatch_thenReturnResultOfEachPerson() throws Exception {
+
+    // Given
+    ObjectMapper mapper = mapperBuilder.build();
+    personTest.setAddress("29 15th St");
+    personTest.setPhone("061-846-0199");
+    Person existedPerson = new Person(null, "John", "Boyd", personTest.getBirthDate(),
+                                      "1509 Culver St", "Culver", 97451,
+                                      "841-874-6512", "jaboyd@email.com",
+                                      null, null);
+    Person invalidPerson = new Person(null, "bernard", "Delaval", personTest.getBirthDate(),
+                                      "29 15th St", "Cassis", 13260,
+                                      "061-846-0199", "delaval.htps@gmail.com",
+                                      null, null);
+    Person personWithId = new Person(1L, "Pierre", "Delaval", personTest.getBirthDate(),
+                                     "29 15th St", "Cassis", 13260,
+                                     "061-846-0199", "delaval.htps@gmail.com",
+                                     null, null);
+    List<Person> persons = new ArrayList<>();
+    persons.add(personTest);
+    persons.add(personTest);
+    persons.add(existedPerson);
+    persons.add(invalidPerson);
+    persons.add(personWithId);
+
+    // When
+    mockMvc.perform(post("/person/batch")
+        .accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(persons)))
+
+        // Then
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(5)))
+        .andExpect(jsonPath("$[0].index", is(0)))
+        .andExpect(jsonPath("$[0].status", is(201)))
+        .andExpect(jsonPath("$[0].id", notNullValue()))
+        .andExpect(jsonPath("$[1].status", is(409)))
+        .andExpect(jsonPath("$[2].status", is(409)))
+        .andExpect(jsonPath("$[2].errorMessage", is("this Person with firstname:John"
+            + " and lastname:Boyd already exist ! Can't add an already existed Person!")))
+        .andExpect(jsonPath("$[3].status", is(400)))
+        .andExpect(jsonPath("$[3].errorMessage", notNullValue()))
+        .andExpect(jsonPath("$[4].status", is(400)))
+        .andExpect(jsonPath("$[4].errorMessage", is("Don't need an id for Person to save it!")))
+        .andDo(print());
+
+    // the created person is mapped with the fireStation of its address
+    assertThat(personService.getPersonByNames("Bernard", "Delaval")).isPresent();
+    assertThat(personService.getPhonesByNumberStation(2)).contains("061-846-0199");
+
+  }
+
+  @Test
+  @Order(23)
+  void postPersons_whenEmptyBatch_thenReturn400() throws Exception {
+
+    mockMvc.perform(post("/person/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.errorMessage", is("a batch must contain between 1 and 1000 items")));
+
+  }
+
+}
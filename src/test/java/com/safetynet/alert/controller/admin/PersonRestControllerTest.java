@@ -12,12 +12,15 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.controller.JsonStreamWriter;
+import com.safetynet.alert.exceptions.InvalidPageException;
 import com.safetynet.alert.exceptions.person.PersonAlreadyExistedException;
 import com.safetynet.alert.exceptions.person.PersonChangedNamesException;
 import com.safetynet.alert.exceptions.person.PersonNotFoundException;
@@ -25,7 +28,12 @@ import com.safetynet.alert.exceptions.person.PersonWithIdException;
 import com.safetynet.alert.model.FireStation;
 import com.safetynet.alert.model.MedicalRecord;
 import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.BatchItemResult;
+import com.safetynet.alert.service.BatchService;
+import com.safetynet.alert.service.DataVersion;
 import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.Keyset;
+import com.safetynet.alert.service.KeysetPage;
 import com.safetynet.alert.service.PersonService;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -34,6 +42,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import org.junit.jupiter.api.Order;
@@ -47,6 +56,8 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
@@ -55,6 +66,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 
 @TestMethodOrder(OrderAnnotation.class)
 @WebMvcTest(controllers = PersonRestController.class)
+@Import(JsonStreamWriter.class)
 class PersonRestControllerTest {
 
   @Autowired
@@ -69,6 +81,12 @@ class PersonRestControllerTest {
   @MockBean
   private FireStationService fireStationService;
 
+  @MockBean
+  private DataVersion dataVersion;
+
+  @MockBean
+  private BatchService batchService;
+
 
   private static Person mockPerson1;
   private static Person mockPerson2;
@@ -143,7 +161,12 @@ class PersonRestControllerTest {
     mockPersonWithoutId.setPhone("061-846-0260");
     List<Person> persons = Arrays.asList(mockPersonWithId, mockPersonWithoutId);
 
-    when(personService.getPersons()).thenReturn(persons);
+    when(personService.forEachPerson(Mockito.any())).thenAnswer(invocation -> {
+
+      Consumer<Person> action = invocation.getArgument(0);
+      persons.forEach(action);
+      return (long) persons.size();
+    });
 
     //When & Then
     mockMvc.perform(get("/person")).andExpect(status().isOk())
@@ -319,22 +342,22 @@ class PersonRestControllerTest {
     // verification du bon passage d'argument a personService.savePerson
     ArgumentCaptor<Person> personCaptor = ArgumentCaptor.forClass(Person.class);
 
-    verify(personService, times(2)).savePerson(personCaptor.capture());
+    // new Person is saved only once, with its mapping to fireStations
+    verify(personService, times(1)).savePerson(personCaptor.capture());
     verify(fireStationService, times(1)).getFireStationsMappedToAddress(Mockito.anyString());
-    List<Person> personsCaptured = personCaptor.getAllValues();
-    assertThat(personsCaptured.get(0).getIdPerson()).isNull();
-    assertThat(personsCaptured.get(0).getFirstName()).isEqualTo("Dorian");
-    assertThat(personsCaptured.get(0).getLastName()).isEqualTo("Delaval");
-    assertThat(personsCaptured.get(0).getAddress()).isEqualTo("1509 Culver St");
-    assertThat(personsCaptured.get(0).getEmail()).isEqualTo("delaval.htps@gmail.com");
-    assertThat(personsCaptured.get(0).getCity()).isEqualTo("Cassis");
-    assertThat(personsCaptured.get(0).getZip()).isEqualTo(13260);
-    assertThat(personsCaptured.get(0).getBirthDate()).isEqualTo("1976-12-27");
-    assertThat(personsCaptured.get(0).getPhone()).isEqualTo("061-846-0160");
-
-    assertThat(personsCaptured.get(1).getIdPerson()).isNotNull();
-    assertThat(personsCaptured.get(1).getFireStations().size()).isEqualTo(1);
-    Set<FireStation> fireStationsMapped = personsCaptured.get(1).getFireStations();
+    Person personCaptured = personCaptor.getValue();
+    assertThat(personCaptured.getIdPerson()).isNull();
+    assertThat(personCaptured.getFirstName()).isEqualTo("Dorian");
+    assertThat(personCaptured.getLastName()).isEqualTo("Delaval");
+    assertThat(personCaptured.getAddress()).isEqualTo("1509 Culver St");
+    assertThat(personCaptured.getEmail()).isEqualTo("delaval.htps@gmail.com");
+    assertThat(personCaptured.getCity()).isEqualTo("Cassis");
+    assertThat(personCaptured.getZip()).isEqualTo(13260);
+    assertThat(personCaptured.getBirthDate()).isEqualTo("1976-12-27");
+    assertThat(personCaptured.getPhone()).isEqualTo("061-846-0160");
+
+    assertThat(personCaptured.getFireStations().size()).isEqualTo(1);
+    Set<FireStation> fireStationsMapped = personCaptured.getFireStations();
     assertThat(fireStationsMapped.contains(mockFireStation1));
 
   }
@@ -523,24 +546,22 @@ class PersonRestControllerTest {
         .andExpect(jsonPath("$.zip", is(13260))).andDo(print());
 
     ArgumentCaptor<Person> personCaptor = ArgumentCaptor.forClass(Person.class);
-    verify(personService, times(2)).savePerson(personCaptor.capture());
+    // Person is saved only once, with its new mapping to fireStations
+    verify(personService, times(1)).savePerson(personCaptor.capture());
     verify(fireStationService, times(1)).getFireStationsMappedToAddress(Mockito.anyString());
 
-    List<Person> personsCaptured = personCaptor.getAllValues();
-    assertThat(personsCaptured.get(0).getIdPerson()).isNotNull();
-    assertThat(personsCaptured.get(0).getFirstName()).isEqualTo("Dorian");
-    assertThat(personsCaptured.get(0).getLastName()).isEqualTo("Delaval");
-    assertThat(personsCaptured.get(0).getAddress()).isEqualTo("29 15th St");
-    assertThat(personsCaptured.get(0).getEmail()).isEqualTo("delaval.htps@gmail.com");
-    assertThat(personsCaptured.get(0).getCity()).isEqualTo("Cassis");
-    assertThat(personsCaptured.get(0).getZip()).isEqualTo(13260);
-    assertThat(personsCaptured.get(0).getBirthDate()).isEqualTo("1976-12-27");
-    assertThat(personsCaptured.get(0).getPhone()).isEqualTo("061-846-0160");
-
-    assertThat(personsCaptured.get(1).getIdPerson()).isNotNull();
-    assertThat(personsCaptured.get(1).getFireStations().size()).isEqualTo(1);
-    Set<FireStation> fireStationsMapped = personsCaptured.get(1).getFireStations();
-    assertThat(fireStationsMapped.contains(mockFireStation2));
+    Person personCaptured = personCaptor.getValue();
+    assertThat(personCaptured.getIdPerson()).isNotNull();
+    assertThat(personCaptured.getFirstName()).isEqualTo("Dorian");
+    assertThat(personCaptured.getLastName()).isEqualTo("Delaval");
+    assertThat(personCaptured.getAddress()).isEqualTo("29 15th St");
+    assertThat(personCaptured.getEmail()).isEqualTo("delaval.htps@gmail.com");
+    assertThat(personCaptured.getCity()).isEqualTo("Cassis");
+    assertThat(personCaptured.getZip()).isEqualTo(13260);
+    assertThat(personCaptured.getBirthDate()).isEqualTo("1976-12-27");
+    assertThat(personCaptured.getPhone()).isEqualTo("061-846-0160");
+
+    assertThat(personCaptured.getFireStations()).containsExactly(mockFireStation2);
 
   }
 
@@ -779,4 +800,103 @@ class PersonRestControllerTest {
             "Deleting Person with lastName: Delaval and FirstName: Dorian was not Found");
 
   }
+
+  @Test
+  @Order(18)
+  void getPersonsAsNdjson_thenReturnOnePersonByLine() throws Exception {
+
+    // Given
+    mockPersonWithoutId.setIdPerson(2L);
+    mockPersonWithoutId.setFirstName("Bernard");
+    List<Person> persons = Arrays.asList(mockPersonWithId, mockPersonWithoutId);
+
+    when(personService.forEachPerson(Mockito.any())).thenAnswer(invocation -> {
+
+      Consumer<Person> action = invocation.getArgument(0);
+      persons.forEach(action);
+      return (long) persons.size();
+    });
+
+    //When
+    MvcResult result = mockMvc.perform(get("/person").accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+        .andReturn();
+
+    // Then
+    String[] lines = result.getResponse().getContentAsString().split("\n");
+    assertThat(lines).hasSize(2);
+    ObjectMapper mapper = new ObjectMapper();
+    assertThat(mapper.readTree(lines[0]).get("firstName").asText()).isEqualTo("Dorian");
+    assertThat(mapper.readTree(lines[1]).get("firstName").asText()).isEqualTo("Bernard");
+
+  }
+
+  @Test
+  @Order(19)
+  void getPersons_whenLimitGiven_thenReturnPageOfPersons() throws Exception {
+
+    // Given
+    when(personService.getPersonsPage(Mockito.any(Keyset.class)))
+        .thenReturn(new KeysetPage<>(Arrays.asList(mockPersonWithId), "YTE"));
+
+    //When & Then
+    mockMvc.perform(get("/person").param("limit", "1"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content.length()", is(1)))
+        .andExpect(jsonPath("$.content[0].firstName", is("Dorian")))
+        .andExpect(jsonPath("$.nextCursor", is("YTE")));
+
+    ArgumentCaptor<Keyset> keysetCaptor = ArgumentCaptor.forClass(Keyset.class);
+    verify(personService, times(1)).getPersonsPage(keysetCaptor.capture());
+    assertThat(keysetCaptor.getValue().getLimit()).isEqualTo(1);
+    assertThat(keysetCaptor.getValue().getAfter()).isNull();
+    verify(personService, never()).forEachPerson(Mockito.any());
+
+  }
+
+  @Test
+  @Order(20)
+  void getPersons_whenLimitTooLarge_thenReturn400() throws Exception {
+
+    //When
+    MvcResult result = mockMvc.perform(get("/person").param("limit", "501"))
+        .andExpect(status().isBadRequest())
+        .andReturn();
+
+    // Then
+    assertThat(result.getResolvedException()).isInstanceOf(InvalidPageException.class);
+    verify(personService, never()).getPersonsPage(Mockito.any());
+
+  }
+
+  @Test
+  @Order(21)
+  void postPersons_whenBatch_thenReturnResultOfEachPerson() throws Exception {
+
+    //Given
+    ObjectMapper mapper = mapperBuilder.build();
+    when(batchService.createPersons(Mockito.anyList())).thenReturn(Arrays.asList(
+        BatchItemResult.created(0, 9L),
+        BatchItemResult.rejected(1, HttpStatus.CONFLICT, "already exist")));
+
+    //When and Then
+    mockMvc.perform(post("/person/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(Arrays.asList(mockPersonWithoutId, mockPerson1))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(2)))
+        .andExpect(jsonPath("$[0].index", is(0)))
+        .andExpect(jsonPath("$[0].status", is(201)))
+        .andExpect(jsonPath("$[0].id", is(9)))
+        .andExpect(jsonPath("$[0].errorMessage").doesNotExist())
+        .andExpect(jsonPath("$[0].created").doesNotExist())
+        .andExpect(jsonPath("$[1].status", is(409)))
+        .andExpect(jsonPath("$[1].id").doesNotExist())
+        .andExpect(jsonPath("$[1].errorMessage", is("already exist")))
+        .andDo(print());
+
+    verify(personService, never()).savePerson(Mockito.any());
+
+  }
 }
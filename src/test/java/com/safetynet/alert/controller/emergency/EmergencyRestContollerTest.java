@@ -3,13 +3,21 @@ package com.safetynet.alert.controller.emergency;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.controller.JsonStreamWriter;
 import com.safetynet.alert.exceptions.address.AddressNotFoundException;
+import com.safetynet.alert.exceptions.address.InvalidAddressesException;
 import com.safetynet.alert.exceptions.firestation.FireStationNotFoundException;
 import com.safetynet.alert.exceptions.person.PersonNotFoundException;
 import com.safetynet.alert.model.Allergy;
@@ -18,21 +26,25 @@ import com.safetynet.alert.model.MedicalRecord;
 import com.safetynet.alert.model.Medication;
 import com.safetynet.alert.model.Person;
 import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.DataVersion;
 import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.FloodStations;
 import com.safetynet.alert.service.MedicationService;
 import com.safetynet.alert.service.PersonService;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
@@ -43,12 +55,16 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 @WebMvcTest(controllers = EmergencyRestController.class)
+@Import(JsonStreamWriter.class)
 @TestMethodOrder(OrderAnnotation.class)
 class EmergencyRestContollerTest {
 
@@ -58,6 +74,9 @@ class EmergencyRestContollerTest {
   @MockBean
   private FireStationService fireStationService;
 
+  @MockBean
+  private DataVersion dataVersion;
+
   @MockBean
   private MedicationService medicationService;
 
@@ -181,10 +200,10 @@ class EmergencyRestContollerTest {
     //persons1 contains mockAdult1,2 and mockChild1 mapped with address1
     mapBodyResponseWithCount.put("persons", new ArrayList<>(persons1));
 
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.of(mockFireStation1));
+    when(fireStationService.existsByNumberStation(Mockito.anyInt()))
+        .thenReturn(true);
 
-    when(personService.getPersonsMappedWithFireStation(Mockito.anyInt()))
+    when(personService.getPersonsMappedWithFireStation(Mockito.anyInt(), Mockito.anyBoolean()))
         .thenReturn(mapBodyResponseWithCount);
 
     //When and Then
@@ -216,10 +235,10 @@ class EmergencyRestContollerTest {
     mapBodyResponseWithCount.put("persons", new ArrayList<>());
 
     mockFireStation1.setAddresses(new HashSet<String>());
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.of(mockFireStation1));
+    when(fireStationService.existsByNumberStation(Mockito.anyInt()))
+        .thenReturn(true);
 
-    when(personService.getPersonsMappedWithFireStation(Mockito.anyInt()))
+    when(personService.getPersonsMappedWithFireStation(Mockito.anyInt(), Mockito.anyBoolean()))
         .thenReturn(mapBodyResponseWithCount);
     //When and Then
     mockMvc.perform(get("/firestation/getpersons").param("stationNumber", "1"))
@@ -235,8 +254,8 @@ class EmergencyRestContollerTest {
       throws Exception {
 
     //Given
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.empty());
+    when(fireStationService.existsByNumberStation(Mockito.anyInt()))
+        .thenReturn(false);
 
     //When and Then
     MvcResult result =
@@ -329,14 +348,14 @@ class EmergencyRestContollerTest {
   void getPhoneAlert_whenExistedFireStation_thenReturn200() throws Exception {
 
     //Given
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.of(mockFireStation1));
+    when(fireStationService.existsByNumberStation(Mockito.anyInt()))
+        .thenReturn(true);
 
     // as mockFireStation has mockPerson1,2,3
     List<String> phones =
         Arrays.asList(mockAdult1.getPhone(), mockAdult2.getPhone(), mockChild1.getPhone());
 
-    when(personService.getPhonesByNumberStation(Mockito.anyInt())).thenReturn(phones);
+    when(personService.getPhonesByNumberStations(Mockito.anyCollection())).thenReturn(phones);
 
     //When and Then
     mockMvc.perform(get("/phoneAlert").param("firestation", "1"))
@@ -354,8 +373,8 @@ class EmergencyRestContollerTest {
   void getphoneAlert_whenNotExistedFireStation_thenReturn404() throws Exception {
     //Given
 
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.empty());
+    when(fireStationService.existsByNumberStation(Mockito.anyInt()))
+        .thenReturn(false);
 
     //when and then
     MvcResult result = mockMvc.perform(get("/phoneAlert").param("firestation", "6"))
@@ -472,11 +491,8 @@ class EmergencyRestContollerTest {
 
     //mockFirestation has address1 and mockPerson1,2,3
     //mockFireStation2 has address2 and mockPerson5
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.of(mockFireStation1), Optional.of(mockFireStation2));
-
-    when(personService.getPersonsWhenFloodByStations(Mockito.anyList()))
-        .thenReturn(mapBodyResponse);
+    when(personService.getPersonsWhenFloodByStations(Mockito.anyCollection()))
+        .thenReturn(new FloodStations(Collections.emptySet(), mapBodyResponse));
 
     //When& then
     mockMvc
@@ -521,8 +537,8 @@ class EmergencyRestContollerTest {
     MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
     params.addAll("stations", valuesStation);
 
-    when(fireStationService.getFireStationByNumberStation(Mockito.anyInt()))
-        .thenReturn(Optional.empty());
+    when(personService.getPersonsWhenFloodByStations(Mockito.anyCollection()))
+        .thenReturn(new FloodStations(Collections.singleton(3), Collections.emptyMap()));
 
     //When & then
 
@@ -648,7 +664,14 @@ class EmergencyRestContollerTest {
       mockEmails.add(person.getEmail());
     }
 
-    when(personService.getEmailsByCity(Mockito.anyString())).thenReturn(mockEmails);
+    when(personService.existsByCity(Mockito.anyString())).thenReturn(true);
+    when(personService.forEachEmailByCity(Mockito.anyString(), Mockito.any()))
+        .thenAnswer(invocation -> {
+
+          Consumer<String> action = invocation.getArgument(1);
+          mockEmails.forEach(action);
+          return (long) mockEmails.size();
+        });
     //when&then
     mockMvc.perform(get("/communityEmail").param("city", "Culver"))
         .andExpect(status().isOk())
@@ -665,8 +688,7 @@ class EmergencyRestContollerTest {
   void getEmailsByCity_whenNoExistedCity_thenReturn200() throws Exception {
 
     //given
-    List<String> mockEmails = new ArrayList<>();
-    when(personService.getEmailsByCity(Mockito.anyString())).thenReturn(mockEmails);
+    when(personService.existsByCity(Mockito.anyString())).thenReturn(false);
 
     //when&then
     mockMvc.perform(get("/communityEmail").param("city", "Cassis"))
@@ -676,4 +698,151 @@ class EmergencyRestContollerTest {
         .andDo(print());
 
   }
+
+  @Test
+  @Order(17)
+  void getPhoneAlert_whenDataNotModified_thenReturn304WithoutCallOfServices() throws Exception {
+
+    //Given
+    when(dataVersion.getETag()).thenReturn("\"version-1\"");
+
+    //When and Then
+    mockMvc.perform(get("/phoneAlert").param("firestation", "1")
+        .header(HttpHeaders.IF_NONE_MATCH, "\"version-1\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"version-1\""))
+        .andExpect(content().string(""))
+        .andDo(print());
+
+    verify(fireStationService, never()).existsByNumberStation(Mockito.anyInt());
+    verify(personService, never()).getPhonesByNumberStations(Mockito.anyCollection());
+
+  }
+
+  @Test
+  @Order(18)
+  void getPhoneAlert_whenDataModified_thenReturn200WithNewETag() throws Exception {
+
+    //Given
+    when(dataVersion.getETag()).thenReturn("\"version-2\"");
+    when(fireStationService.existsByNumberStation(Mockito.anyInt())).thenReturn(true);
+    when(personService.getPhonesByNumberStations(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList("061-846-0160"));
+
+    //When and Then
+    mockMvc.perform(get("/phoneAlert").param("firestation", "1")
+        .header(HttpHeaders.IF_NONE_MATCH, "\"version-1\""))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"version-2\""))
+        .andExpect(jsonPath("$.phones.length()", is(1)))
+        .andDo(print());
+
+  }
+
+  @Test
+  @Order(19)
+  void getPersonsWhenFireByAddresses_thenWriteEachAddressWithItsPersons() throws Exception {
+
+    //Given
+    for (Person person : persons1) {
+
+      person.setMedicalRecord(mockMedicalRecord);
+    }
+    List<Person> personsMappedToAddress = new ArrayList<>(persons1);
+
+    when(personService.forEachAddressWhenFire(Mockito.anyCollection(), Mockito.any()))
+        .thenAnswer(invocation -> {
+
+          BiConsumer<String, List<Person>> action = invocation.getArgument(1);
+          action.accept("address1", personsMappedToAddress);
+          action.accept("addressNotFound", Collections.emptyList());
+          return 2L;
+        });
+
+    //When & Then
+    mockMvc.perform(post("/fire/addresses")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[\"address1\", \"addressNotFound\"]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(2)))
+        .andExpect(jsonPath("$.address1.length()", is(3)))
+        .andExpect(jsonPath("$.address1[0].medications[*].designation",
+            Matchers.hasItem("medication1")))
+        .andExpect(jsonPath("$.addressNotFound.length()", is(0)))
+        .andDo(print());
+
+  }
+
+  @Test
+  @Order(20)
+  void getPersonsWhenFireByAddresses_whenTooManyAddresses_thenReturn400() throws Exception {
+
+    //Given
+    List<String> addresses = new ArrayList<>();
+
+    for (int i = 0; i <= EmergencyRestController.MAX_FIRE_ADDRESSES; i++) {
+
+      addresses.add("address" + i);
+    }
+
+    //When
+    MvcResult result = mockMvc.perform(post("/fire/addresses")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(new ObjectMapper().writeValueAsString(addresses)))
+        .andExpect(status().isBadRequest())
+        .andReturn();
+
+    //Then
+    assertThat(result.getResolvedException()).isInstanceOf(InvalidAddressesException.class);
+    verify(personService, never()).forEachAddressWhenFire(Mockito.any(), Mockito.any());
+
+  }
+
+  @Test
+  @Order(21)
+  void getPhoneAlert_whenOneOfFireStationsNotExisted_thenReturn404() throws Exception {
+
+    //Given
+    when(fireStationService.existsByNumberStation(1)).thenReturn(true);
+    when(fireStationService.existsByNumberStation(6)).thenReturn(false);
+
+    //When
+    MvcResult result = mockMvc.perform(get("/phoneAlert").param("firestation", "1", "6"))
+        .andExpect(status().isNotFound())
+        .andReturn();
+
+    //Then
+    assertThat(result.getResolvedException().getMessage()).isEqualTo(
+        "FireStation with numberStation: 6 was not found. Please choose a existed fireStation!");
+    verify(personService, never()).getPhonesByNumberStations(Mockito.anyCollection());
+
+  }
+
+  @Test
+  @Order(22)
+  void getPhoneAlertAsNdjson_whenExistedFireStations_thenWriteOnePhoneByLine() throws Exception {
+
+    //Given
+    when(fireStationService.existsByNumberStation(Mockito.anyInt())).thenReturn(true);
+    when(personService.forEachPhoneByNumberStations(Mockito.anyCollection(), Mockito.any()))
+        .thenAnswer(invocation -> {
+
+          Consumer<String> action = invocation.getArgument(1);
+          action.accept("061-846-0160");
+          action.accept("061-846-0161");
+          return 2L;
+        });
+
+    //When and Then
+    mockMvc.perform(get("/phoneAlert").param("firestation", "1,2")
+        .accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+        .andExpect(content().string("\"061-846-0160\"\n\"061-846-0161\"\n"))
+        .andDo(print());
+
+    verify(personService).forEachPhoneByNumberStations(Mockito.eq(Arrays.asList(1, 2)),
+        Mockito.any());
+
+  }
 }
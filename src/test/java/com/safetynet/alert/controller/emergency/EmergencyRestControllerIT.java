@@ -4,7 +4,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -27,6 +30,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -101,6 +106,24 @@ class EmergencyRestControllerIT {
 
   }
 
+  @Test
+  @Order(1)
+  void getPersonsMappedWithFireStation_whenPersonsNotAsked_thenReturnOnlyCounts()
+      throws Exception {
+
+    //When and Then
+    mockMvc.perform(get("/firestation/getpersons").param("stationNumber", "3")
+        .param("persons", "false"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(3)))
+        .andExpect(jsonPath("$.AdultCount", is(3)))
+        .andExpect(jsonPath("$.ChildrenCount", is(2)))
+        .andExpect(jsonPath("$.BirthDateNotSpecified", is(1)))
+        .andExpect(jsonPath("$.persons").doesNotExist())
+        .andDo(print());
+
+  }
+
   @Test
   @Order(2)
   void getPersonsMappedWithFireStation_whenFireStationNotMappedWithAddrress_thenReturn200()
@@ -396,6 +419,41 @@ class EmergencyRestControllerIT {
 
   }
 
+  @Test
+  @Order(12)
+  void getPersonsWhenFlood_whenAddressMappedWithSeveralStations_thenReturnItOnce()
+      throws Exception {
+
+    //Given
+    MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+    params.addAll("stations", Arrays.asList("2", "3"));
+
+    mockMvc.perform(get("/flood/stations").params(params))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(3)));
+
+    // "29 15th St" is now mapped with fireStations 2 and 3
+    mockMvc.perform(put("/firestation/{address}", "29 15th St")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"numberStation\":3}"))
+        .andExpect(status().isOk());
+
+    //When& then
+    mockMvc.perform(get("/flood/stations").params(params))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(3)))
+        .andExpect(jsonPath("$.['1509 Culver St'].length()", is(5)))
+        .andExpect(jsonPath("$.['29 15th St'].length()", is(2)))
+        .andExpect(jsonPath("$.['1509 Av marechal foch'].length()", is(1)))
+        .andDo(print());
+
+    mockMvc.perform(get("/flood/stations").param("stations", "3"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(3)))
+        .andExpect(jsonPath("$.['29 15th St'].length()", is(2)));
+
+  }
+
   @Test
   @Order(13)
   void getPersonInfo_whenExistedPerson_thenReturn200() throws Exception {
@@ -481,4 +539,99 @@ class EmergencyRestControllerIT {
         .andDo(print());
 
   }
+
+  @Test
+  @Order(17)
+  void getPhoneAlert_whenPollingWithETag_thenReturn304UntilDataChanged() throws Exception {
+
+    //Given
+    String etag = mockMvc.perform(get("/phoneAlert").param("firestation", "2"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    mockMvc.perform(get("/phoneAlert").param("firestation", "2")
+        .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified());
+
+    //When
+    mockMvc.perform(put("/firestation/{address}", "1509 Culver St")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("{\"numberStation\":2}"))
+        .andExpect(status().isOk());
+
+    //Then
+    mockMvc.perform(get("/phoneAlert").param("firestation", "2")
+        .header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(etag)))
+        .andExpect(jsonPath("$.phones.length()", is(3)))
+        .andDo(print());
+
+  }
+
+  @Test
+  @Order(18)
+  void getPersonsWhenFireByAddresses_thenReturnPersonsOfEachAddress() throws Exception {
+
+    mockMvc.perform(post("/fire/addresses")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[\"29 15th St\", \"addressNotFound\", \"1509 Culver St\", \"29 15th St\"]"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.length()", is(3)))
+        .andExpect(jsonPath("$['29 15th St'].length()", is(2)))
+        .andExpect(jsonPath("$['29 15th St'][0].lastName", is("Marrack")))
+        .andExpect(jsonPath("$['addressNotFound'].length()", is(0)))
+        .andExpect(jsonPath("$['1509 Culver St'].length()", is(5)))
+        .andExpect(jsonPath("$['1509 Culver St'][3].medications[*].designation",
+            Matchers.containsInAnyOrder("pharmacol", "terazine", "noznazol")))
+        .andDo(print());
+
+  }
+
+  @Test
+  @Order(19)
+  void getPersonsWhenFireByAddresses_whenNoAddress_thenReturn400() throws Exception {
+
+    mockMvc.perform(post("/fire/addresses")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[]"))
+        .andExpect(status().isBadRequest())
+        .andExpect(jsonPath("$.errorMessage",
+            is("the list of addresses must contain between 1 and 1000 addresses")));
+
+  }
+
+  @Test
+  @Order(20)
+  void getPhoneAlert_whenSeveralFireStations_thenReturnPhonesOnlyOnce() throws Exception {
+
+    // phone 841-874-6513 is mapped with fireStations 2 and 3
+    mockMvc.perform(get("/phoneAlert").param("firestation", "3", "2"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.phones.length()", is(4)))
+        .andExpect(jsonPath("$.phones", Matchers.contains("061-846-0160", "841-874-6512",
+            "841-874-6513", "841-874-6544")))
+        .andDo(print());
+
+    mockMvc.perform(get("/phoneAlert").param("firestation", "3,6"))
+        .andExpect(status().isNotFound());
+
+  }
+
+  @Test
+  @Order(21)
+  void getPhoneAlertAsNdjson_whenSeveralFireStations_thenWriteOnePhoneByLine() throws Exception {
+
+    String content = mockMvc.perform(get("/phoneAlert").param("firestation", "2,3")
+        .accept(MediaType.APPLICATION_NDJSON))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/x-ndjson"))
+        .andReturn().getResponse().getContentAsString();
+
+    assertThat(content.split("\n")).containsExactly("\"061-846-0160\"", "\"841-874-6512\"",
+        "\"841-874-6513\"", "\"841-874-6544\"");
+
+  }
+
 }
@@ -0,0 +1,148 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+class DataSourceResolverTest {
+
+  private static final String CONTENT = "{\"persons\": [ { \"firstName\":\"John\" } ]}";
+
+  @TempDir
+  Path tempDir;
+
+  private DataSourceResolver classUnderTest;
+
+  @BeforeEach
+  void setUp() {
+
+    classUnderTest = new DataSourceResolver(new DefaultResourceLoader());
+
+  }
+
+  private static String readAll(InputStream input) throws IOException {
+
+    ByteArrayOutputStream content = new ByteArrayOutputStream();
+    byte[] buffer = new byte[16];
+    int read;
+
+    while ((read = input.read(buffer)) != -1) {
+
+      content.write(buffer, 0, read);
+    }
+
+    return new String(content.toByteArray(), StandardCharsets.UTF_8);
+
+  }
+
+  @Test
+  void open_shouldReadFile_whenLocationIsAPathOfFilesystem() throws IOException {
+
+    // Given
+    Path file = tempDir.resolve("data.json");
+    Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+    // When
+    try (SourceInput input = classUnderTest.open(file.toString())) {
+
+      // Then
+      assertThat(readAll(input)).isEqualTo(CONTENT);
+      assertThat(input.isCompressed()).isFalse();
+      assertThat(input.getSize()).isEqualTo(Files.size(file));
+      assertThat(input.getBytesRead()).isEqualTo(Files.size(file));
+    }
+
+  }
+
+  @Test
+  void open_shouldDecompressFile_whenFileIsGzip() throws IOException {
+
+    // Given
+    Path file = tempDir.resolve("data.json.gz");
+
+    try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(file))) {
+
+      output.write(CONTENT.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // When
+    try (SourceInput input = classUnderTest.open("file:" + file.toAbsolutePath())) {
+
+      // Then
+      assertThat(readAll(input)).isEqualTo(CONTENT);
+      assertThat(input.isCompressed()).isTrue();
+      assertThat(input.getBytesRead()).isEqualTo(Files.size(file));
+    }
+
+  }
+
+  @Test
+  void open_shouldReadFileByMappedWindows_whenFileIsOverThreshold() throws IOException {
+
+    // Given
+    Path file = tempDir.resolve("data.json");
+    Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+    ReflectionTestUtils.setField(classUnderTest, "mmapThreshold", DataSize.ofBytes(1));
+
+    // When
+    try (SourceInput input = classUnderTest.open(file.toString())) {
+
+      // Then
+      assertThat(readAll(input)).isEqualTo(CONTENT);
+      assertThat(input.getBytesRead()).isEqualTo(Files.size(file));
+    }
+
+  }
+
+  @Test
+  void open_shouldReadResource_whenLocationIsClasspath() throws IOException {
+
+    // When
+    try (SourceInput input = classUnderTest.open("classpath:json/data.json")) {
+
+      // Then
+      assertThat(readAll(input)).contains("\"persons\"");
+      assertThat(input.getSize()).isPositive();
+    }
+
+  }
+
+  @Test
+  void open_shouldThrowFileNotFoundException_whenFileDoesNotExist() {
+
+    // When & Then
+    assertThatThrownBy(() -> classUnderTest.open(tempDir.resolve("missing.json").toString()))
+        .isInstanceOf(FileNotFoundException.class);
+
+  }
+
+  @Test
+  void findFile_shouldReturnFile_onlyWhenLocationIsOnFilesystem() throws IOException {
+
+    // Given
+    Path file = tempDir.resolve("data.json");
+    Files.write(file, CONTENT.getBytes(StandardCharsets.UTF_8));
+
+    // When & Then
+    assertThat(classUnderTest.findFile(file.toString()))
+        .hasValueSatisfying(found -> assertThat(found.toPath()).isEqualTo(file));
+    assertThat(classUnderTest.findFile("http://localhost/data.json")).isEmpty();
+
+  }
+
+}
@@ -0,0 +1,229 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.db.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.EmergencyReadModel;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import org.assertj.db.type.Source;
+import org.assertj.db.type.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {"loader.bulk.batch-size=3"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class DeltaImporterIT {
+
+  @Autowired
+  private DeltaImporter classUnderTest;
+
+  @Autowired
+  private LoadDataStrategyFactory loadDataStrategyFactory;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private EmergencyReadModel emergencyReadModel;
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor commandLineRunnerTaskExcecutor;
+
+  @Value("${spring.datasource.url}")
+  private String databaseSource;
+  @Value("${spring.datasource.username}")
+  private String datasourceUsername;
+  @Value("${spring.datasource.password}")
+  private String datasourcePassword;
+
+  private Source source;
+
+  private File changedFile;
+
+  @BeforeEach
+  void setUp() throws IOException {
+
+    source = new Source(databaseSource.split(";")[0], datasourceUsername, datasourcePassword);
+    loadDataStrategyFactory.findStrategy(StrategyName.StrategyStreaming).loadDatabaseFromSource();
+
+    ObjectNode data = (ObjectNode) objectMapper.readTree(
+        new ClassPathResource("json/data.json").getInputStream());
+    ArrayNode persons = (ArrayNode) data.get("persons");
+    ArrayNode fireStations = (ArrayNode) data.get("firestations");
+    ArrayNode medicalRecords = (ArrayNode) data.get("medicalrecords");
+
+    // person deleted with its medicalRecord
+    removeIf(persons, "firstName", "Jacob");
+    removeIf(medicalRecords, "firstName", "Jacob");
+
+    // persons updated
+    findBy(persons, "firstName", "John").put("phone", "841-874-0000");
+    findBy(persons, "firstName", "Tenley").put("address", "29 15th St");
+
+    // person inserted with its medicalRecord
+    persons.addObject()
+        .put("firstName", "Paul")
+        .put("lastName", "Martin")
+        .put("address", "951 LoneTree Rd")
+        .put("city", "Culver")
+        .put("zip", "97451")
+        .put("phone", "841-874-1111")
+        .put("email", "pmartin@email.com");
+    ObjectNode medicalRecord = medicalRecords.addObject()
+        .put("firstName", "Paul")
+        .put("lastName", "Martin")
+        .put("birthdate", "05/12/1970");
+    medicalRecord.putArray("medications").add("aznol:350mg").add("newmed:1mg");
+    medicalRecord.putArray("allergies").add("gluten");
+
+    // medicalRecord updated
+    ArrayNode medications = findBy(medicalRecords, "firstName", "Eric").putArray("medications");
+    medications.add("tradoxidine:500mg");
+
+    // mapping of fireStation deleted and inserted
+    Iterator<JsonNode> mappings = fireStations.elements();
+
+    while (mappings.hasNext()) {
+
+      JsonNode mapping = mappings.next();
+
+      if (mapping.get("address").asText().equals("112 Steppes Pl")
+          && mapping.get("station").asText().equals("4")) {
+
+        mappings.remove();
+      }
+    }
+
+    fireStations.addObject().put("address", "489 Manchester St").put("station", "1");
+
+    changedFile = new File("target/delta-it/data.json");
+    changedFile.getParentFile().mkdirs();
+    objectMapper.writeValue(changedFile, data);
+
+  }
+
+  @Test
+  void importChanges_shouldApplyOnlyDifferences_whenFileIsChanged() throws IOException {
+
+    // When
+    DeltaReport result = classUnderTest.importChanges(changedFile);
+
+    // Then
+    assertEquals(1, result.getInserted(LoadStatistics.PERSONS));
+    assertEquals(2, result.getUpdated(LoadStatistics.PERSONS));
+    assertEquals(1, result.getDeleted(LoadStatistics.PERSONS));
+    assertEquals(1, result.getInserted(LoadStatistics.FIRESTATIONS));
+    assertEquals(1, result.getDeleted(LoadStatistics.FIRESTATIONS));
+    assertEquals(1, result.getInserted(LoadStatistics.MEDICALRECORDS));
+    assertEquals(1, result.getUpdated(LoadStatistics.MEDICALRECORDS));
+    assertEquals(3, result.getDeleted(DeltaReport.MEDICATIONS));
+
+    assertThat(new Table(source, "person")).hasNumberOfRows(23);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(4);
+    assertThat(new Table(source, "fire_station_addresses")).hasNumberOfRows(12);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(24);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(23);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(17);
+    assertThat(new Table(source, "allergy")).hasNumberOfRows(7);
+    assertThat(new Table(source, "attribution_allergy")).hasNumberOfRows(12);
+    assertThat(new Table(source, "attribution_medication")).hasNumberOfRows(18);
+
+    assertEquals("841-874-0000", jdbcTemplate.queryForObject(
+        "select phone from person where first_name = 'John'", String.class));
+    assertEquals(2, jdbcTemplate.queryForObject(
+        "select f.station from person p"
+            + " join person_firestation pf on pf.id_person = p.id_person"
+            + " join fire_station f on f.id_fire_station = pf.id_fire_station"
+            + " where p.first_name = 'Tenley'", Integer.class));
+
+  }
+
+  @Test
+  void importChanges_shouldUpdateReadModel_whenFileIsChanged() throws IOException {
+
+    // Given
+    // the read model is loaded before the import, and only updated with its changes
+    assertTrue(emergencyReadModel.getPersonsWhenFlood(4).stream()
+        .anyMatch(person -> person.getAddress().equals("112 Steppes Pl")));
+
+    // When
+    classUnderTest.importChanges(changedFile);
+
+    // Then
+    assertFalse(emergencyReadModel.getPersonsWhenFlood(4).stream()
+        .anyMatch(person -> person.getAddress().equals("112 Steppes Pl")));
+    assertTrue(emergencyReadModel.getPersonsWhenFlood(1).stream()
+        .anyMatch(person -> person.getAddress().equals("489 Manchester St")));
+    assertTrue(emergencyReadModel.getPersonsWhenFire("29 15th St").stream()
+        .map(Person::getFirstName)
+        .anyMatch("Tenley"::equals));
+    assertFalse(emergencyReadModel.getPersonInfoByNames("Jacob", "Boyd").stream()
+        .map(Person::getFirstName)
+        .anyMatch("Jacob"::equals));
+    assertTrue(emergencyReadModel.getEmailsByCity("Culver").contains("pmartin@email.com"));
+
+  }
+
+  @Test
+  void importChanges_shouldApplyNothing_whenFileIsAlreadyImported() throws IOException {
+
+    // Given
+    classUnderTest.importChanges(changedFile);
+
+    // When
+    DeltaReport result = classUnderTest.importChanges(changedFile);
+
+    // Then
+    assertEquals(0, result.getTotalChanges());
+
+  }
+
+  private static ObjectNode findBy(ArrayNode array, String field, String value) {
+
+    for (JsonNode element : array) {
+
+      if (element.get(field).asText().equals(value)) {
+
+        return (ObjectNode) element;
+      }
+    }
+
+    throw new IllegalArgumentException(value + " not found");
+
+  }
+
+  private static void removeIf(ArrayNode array, String field, String value) {
+
+    Iterator<JsonNode> elements = array.elements();
+
+    while (elements.hasNext()) {
+
+      if (elements.next().get(field).asText().equals(value)) {
+
+        elements.remove();
+      }
+    }
+
+  }
+
+}
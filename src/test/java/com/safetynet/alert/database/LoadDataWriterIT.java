@@ -0,0 +1,191 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import com.safetynet.alert.configuration.QueryCountInspector;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.MedicalRecordService;
+import com.safetynet.alert.service.MedicationService;
+import com.safetynet.alert.service.PersonService;
+import java.util.Collections;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+@DirtiesContext
+class LoadDataWriterIT {
+
+  private static final int PERSONS = 400;
+  private static final int ADDRESSES = 80;
+  private static final int STATIONS = 4;
+  private static final int BATCH_SIZE = 40;
+
+  @Autowired
+  private PersonService personService;
+  @Autowired
+  private FireStationService fireStationService;
+  @Autowired
+  private MedicalRecordService medicalRecordService;
+  @Autowired
+  private MedicationService medicationService;
+  @Autowired
+  private AllergyService allergyService;
+  @Autowired
+  private QueryCountInspector queryCountInspector;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor commandLineRunnerTaskExcecutor;
+
+  private LoadDataWriter classUnderTest;
+
+  @BeforeEach
+  void setUp() {
+
+    classUnderTest = new LoadDataWriter(personService,
+                                        fireStationService,
+                                        medicalRecordService,
+                                        medicationService,
+                                        allergyService);
+    classUnderTest.getStatistics().setQueryCountInspector(queryCountInspector);
+    classUnderTest.enableBulkMode(entityManager, BATCH_SIZE);
+
+  }
+
+  private Person createPerson(int index) {
+
+    Person person = new Person();
+    person.setFirstName(firstNameOf(index));
+    person.setLastName("Boyd");
+    person.setAddress(index % ADDRESSES + " Culver St");
+    person.setCity("Culver");
+    person.setZip(97451);
+    person.setPhone("841-874-6512");
+    person.setEmail("jaboyd@email.com");
+    return person;
+
+  }
+
+  // a different firstName by index: John, Johnb, Johnc...
+  private static String firstNameOf(int index) {
+
+    StringBuilder firstName = new StringBuilder("John");
+
+    for (int i = index; i > 0; i /= 26) {
+
+      firstName.append((char) ('a' + i % 26));
+    }
+
+    return firstName.toString();
+
+  }
+
+  @Test
+  void saveFireStationMapping_shouldSendQueriesByBatch_whenBulkModeIsEnabled() {
+
+    // Given
+    LoadStatistics statistics = classUnderTest.getStatistics();
+    statistics.start();
+
+    // When
+    for (int i = 0; i < PERSONS; i++) {
+
+      classUnderTest.savePerson(createPerson(i));
+    }
+
+    for (int i = 0; i < ADDRESSES; i++) {
+
+      classUnderTest.saveFireStationMapping(i % STATIONS + 1, i + " Culver St");
+    }
+
+    classUnderTest.flush();
+    statistics.stop();
+
+    // Then
+    assertThat(statistics.getRows(LoadStatistics.TABLE_PERSON)).isEqualTo(PERSONS);
+    assertThat(statistics.getRows(LoadStatistics.TABLE_FIRE_STATION)).isEqualTo(STATIONS);
+    assertThat(statistics.getRows(LoadStatistics.TABLE_PERSON_FIRESTATION)).isEqualTo(PERSONS);
+    assertThat(statistics.getFlushes()).isEqualTo((PERSONS + ADDRESSES) / BATCH_SIZE + 1);
+    assertThat(entityManager
+        .createNativeQuery("select count(*) from person_firestation")
+        .getSingleResult())
+            .hasToString(String.valueOf(PERSONS));
+    // no query by record: statements are sent by batch of inserts
+    assertThat(statistics.getQueries()).isLessThan((PERSONS + ADDRESSES) / 4);
+
+  }
+
+  @Test
+  void saveMedicalRecord_shouldSendQueriesByBatch_whenBulkModeIsEnabled() {
+
+    // Given
+    LoadStatistics statistics = classUnderTest.getStatistics();
+
+    for (int i = 0; i < PERSONS; i++) {
+
+      classUnderTest.savePerson(createPerson(i));
+    }
+
+    classUnderTest.flush();
+    statistics.start();
+
+    // When
+    for (int i = 0; i < PERSONS; i++) {
+
+      classUnderTest.saveMedicalRecord(firstNameOf(i), "Boyd", "03/06/1984",
+          Collections.singletonList("aznol:350mg"), Collections.singletonList("nillacilan"));
+    }
+
+    classUnderTest.flush();
+    statistics.stop();
+
+    // Then
+    assertThat(entityManager
+        .createNativeQuery("select count(*) from person where id_medical_record is not null")
+        .getSingleResult())
+            .hasToString(String.valueOf(PERSONS));
+    assertThat(entityManager
+        .createNativeQuery("select count(*) from attribution_medication")
+        .getSingleResult())
+            .hasToString(String.valueOf(PERSONS));
+    assertThat(entityManager
+        .createNativeQuery("select count(*) from attribution_allergy")
+        .getSingleResult())
+            .hasToString(String.valueOf(PERSONS));
+    // no query by medicalRecord: owners are found by the index of names
+    // and loaded by one query for each batch
+    assertThat(statistics.getQueries()).isLessThan(PERSONS / 4);
+
+  }
+
+  @Test
+  void saveMedicalRecord_shouldKeepPosologyWithColon_whenMedicationIsCreated() {
+
+    // Given
+    classUnderTest.savePerson(createPerson(0));
+
+    // When
+    classUnderTest.saveMedicalRecord("John", "Boyd", "03/06/1984",
+        Collections.singletonList("aznol:1 tab:12h"), Collections.emptyList());
+    classUnderTest.flush();
+
+    // Then
+    assertThat(medicationService.getMedicationByDesignationAndPosology("aznol", "1 tab:12h"))
+        .isPresent();
+
+  }
+
+}
@@ -0,0 +1,67 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.db.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import org.assertj.db.type.Source;
+import org.assertj.db.type.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {"loader.bulk.enabled=true", "loader.bulk.batch-size=7"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LoadDatabaseBulkFromJsonIT {
+
+  @Autowired
+  private LoadDataStrategyFactory loadDataStrategyFactory;
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor commandLineRunnerTaskExcecutor;
+
+  @Value("${spring.datasource.url}")
+  private String databaseSource;
+  @Value("${spring.datasource.username}")
+  private String datasourceUsername;
+  @Value("${spring.datasource.password}")
+  private String datasourcePassword;
+
+  private Source source;
+
+  @BeforeEach
+  void setUp() {
+
+    source = new Source(databaseSource.split(";")[0], datasourceUsername, datasourcePassword);
+
+  }
+
+  @ParameterizedTest
+  @EnumSource(value = StrategyName.class, names = {"StrategyProd", "StrategyStreaming"})
+  void loadDatabaseFromSource_shouldPersistAllRowsOfJoinTables_whenBulkModeIsEnabled(
+      StrategyName strategyName) {
+
+    // When
+    boolean result = loadDataStrategyFactory.findStrategy(strategyName)
+        .loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(23);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(4);
+    assertThat(new Table(source, "fire_station_addresses")).hasNumberOfRows(12);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(26);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(23);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(18);
+    assertThat(new Table(source, "allergy")).hasNumberOfRows(6);
+    assertThat(new Table(source, "attribution_allergy")).hasNumberOfRows(11);
+    assertThat(new Table(source, "attribution_medication")).hasNumberOfRows(19);
+
+  }
+
+}
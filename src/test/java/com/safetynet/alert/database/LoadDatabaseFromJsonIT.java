@@ -19,7 +19,6 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.core.io.ResourceLoader;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 @SpringBootTest
@@ -58,7 +57,8 @@ class LoadDatabaseFromJsonIT {
   @Value("classpath:${filejson.app}")
   private String filePath;
 
-  private ResourceLoader resourceLoader;
+  @Autowired
+  private DataSourceResolver dataSourceResolver;
 
   // class under test
   private LoadDatabaseProdFromJson classUnderTest;
@@ -78,7 +78,7 @@ class LoadDatabaseFromJsonIT {
     attributionAllergyJointTable = new Table(source, "attribution_allergy");
 
     classUnderTest = new LoadDatabaseProdFromJson(new ObjectMapper(),
-                                                  resourceLoader,
+                                                  dataSourceResolver,
                                                   filePath);
 
   }
@@ -16,9 +16,10 @@ import com.safetynet.alert.service.FireStationService;
 import com.safetynet.alert.service.MedicalRecordService;
 import com.safetynet.alert.service.MedicationService;
 import com.safetynet.alert.service.PersonService;
-import java.io.File;
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import nl.altindag.log.LogCaptor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,8 +28,6 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.annotation.PropertySource;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.ResourceLoader;
 
 
 @ExtendWith(MockitoExtension.class)
@@ -49,9 +48,7 @@ class LoadDatabaseFromJsonTest {
   @Mock
   private ObjectMapper objectMapper;
   @Mock
-  private ResourceLoader resourceLoader;
-  @Mock
-  private Resource resource;
+  private DataSourceResolver dataSourceResolver;
 
   private LogCaptor logCaptor =
       LogCaptor.forClass(LoadDatabaseProdFromJson.class);
@@ -64,16 +61,16 @@ class LoadDatabaseFromJsonTest {
 
   private LoadDatabaseProdFromJson classUnderTest;
   private String filepath;
-  private File mockFileJson;
+  private SourceInput mockFileJson;
 
   @BeforeEach
-  void setup() {
+  void setup() throws IOException {
 
     filepath = "classpath:${filejson.test}";
-    mockFileJson = new File(filepath);
+    mockFileJson = SourceInput.of(new ByteArrayInputStream(new byte[0]), 0);
 
     classUnderTest =
-        new LoadDatabaseProdFromJson(objectMapper, resourceLoader, filepath);
+        new LoadDatabaseProdFromJson(objectMapper, dataSourceResolver, filepath);
 
   }
 
@@ -94,10 +91,9 @@ class LoadDatabaseFromJsonTest {
         + "\"medications\":[\"aznol:350mg\", " + "\"hydrapermazol:100mg\"],"
         + " \"allergies\":[\"nillacilan\"] }]}");
     //
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenReturn(mockFileJson);
+    when(dataSourceResolver.open(Mockito.anyString())).thenReturn(mockFileJson);
 
-    when(objectMapper.readTree(Mockito.any(File.class))).thenReturn(mockJsonNodeRoot);
+    when(objectMapper.readTree(Mockito.any(InputStream.class))).thenReturn(mockJsonNodeRoot);
 
     when(objectMapper.readValue(Mockito.anyString(),
         Mockito.eq(Person.class))).thenThrow(JsonProcessingException.class);
@@ -133,9 +129,8 @@ class LoadDatabaseFromJsonTest {
         + "\"medications\":[\"aznol:350mg\", " + "\"hydrapermazol:100mg\"],"
         + " \"allergies\":[\"nillacilan\"] }]}");
 
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenReturn(mockFileJson);
-    when(objectMapper.readTree(Mockito.any(File.class))).thenReturn(mockJsonNodeRoot);
+    when(dataSourceResolver.open(Mockito.anyString())).thenReturn(mockFileJson);
+    when(objectMapper.readTree(Mockito.any(InputStream.class))).thenReturn(mockJsonNodeRoot);
 
     when(objectMapper.readValue(Mockito.anyString(),
         Mockito.eq(Person.class))).thenThrow(JsonProcessingException.class);
@@ -160,9 +155,8 @@ class LoadDatabaseFromJsonTest {
 
     // Given
     // when(classPathResource.getFile()).thenReturn(mockFile);
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenReturn(mockFileJson);
-    when(objectMapper.readTree(Mockito.any(File.class))).thenReturn(null);
+    when(dataSourceResolver.open(Mockito.anyString())).thenReturn(mockFileJson);
+    when(objectMapper.readTree(Mockito.any(InputStream.class))).thenReturn(null);
 
     // When
     boolean result = classUnderTest.loadDatabaseFromSource();
@@ -177,10 +171,7 @@ class LoadDatabaseFromJsonTest {
       throws IOException {
 
     // Given
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenReturn(mockFileJson);
-    when(resourceLoader.getResource(Mockito.anyString())
-        .getFile()).thenThrow(FileNotFoundException.class);
+    when(dataSourceResolver.open(Mockito.anyString())).thenThrow(FileNotFoundException.class);
 
     // When
 
@@ -189,8 +180,8 @@ class LoadDatabaseFromJsonTest {
 
     assertFalse(result);
     assertThat(logCaptor.getErrorLogs()).containsExactly(expectedErrorMessages[0]);
-    // assertThatThrownBy(() -> resourceLoader.getResource(Mockito.anyString())
-    // .getFile()).isInstanceOf(FileNotFoundException.class);
+    // assertThatThrownBy(() -> dataSourceResolver.open(Mockito.anyString()))
+    // .isInstanceOf(FileNotFoundException.class);
 
   }
 
@@ -199,8 +190,7 @@ class LoadDatabaseFromJsonTest {
       throws IOException {
 
     // Given
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenThrow(IOException.class);
+    when(dataSourceResolver.open(Mockito.anyString())).thenThrow(IOException.class);
 
     // When
     boolean result = classUnderTest.loadDatabaseFromSource();
@@ -208,8 +198,7 @@ class LoadDatabaseFromJsonTest {
     assertFalse(result);
     assertThat(logCaptor.getErrorLogs()).containsExactly(expectedErrorMessages[1]);
     assertThatThrownBy((
-    ) -> resourceLoader.getResource(Mockito.anyString())
-        .getFile()).isInstanceOf(IOException.class);
+    ) -> dataSourceResolver.open(Mockito.anyString())).isInstanceOf(IOException.class);
 
   }
 
@@ -218,9 +207,8 @@ class LoadDatabaseFromJsonTest {
       throws JsonProcessingException, IOException {
     // Given
 
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenReturn(mockFileJson);
-    when(objectMapper.readTree(Mockito.any(File.class)))
+    when(dataSourceResolver.open(Mockito.anyString())).thenReturn(mockFileJson);
+    when(objectMapper.readTree(Mockito.any(InputStream.class)))
         .thenThrow(JsonProcessingException.class);
 
     // When
@@ -237,9 +225,8 @@ class LoadDatabaseFromJsonTest {
       throws JsonProcessingException, IOException {
 
     // Given
-    when(resourceLoader.getResource(Mockito.anyString())).thenReturn(resource);
-    when(resource.getFile()).thenReturn(mockFileJson);
-    when(objectMapper.readTree(Mockito.any(File.class))).thenThrow(IOException.class);
+    when(dataSourceResolver.open(Mockito.anyString())).thenReturn(mockFileJson);
+    when(objectMapper.readTree(Mockito.any(InputStream.class))).thenThrow(IOException.class);
 
     // When
     boolean result = classUnderTest.loadDatabaseFromSource();
@@ -248,7 +235,7 @@ class LoadDatabaseFromJsonTest {
     assertFalse(result);
     assertThat(logCaptor.getErrorLogs()).containsExactly(expectedErrorMessages[3]);
 
-    // assertThatThrownBy(() -> resourceLoader.getResource(Mockito.anyString())
-    // .getFile()).isInstanceOfAny(IOException.class);
+    // assertThatThrownBy(() -> dataSourceResolver.open(Mockito.anyString()))
+    // .isInstanceOfAny(IOException.class);
   }
 }
@@ -0,0 +1,161 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.db.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import org.assertj.db.type.Source;
+import org.assertj.db.type.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest(properties = {"loader.bulk.batch-size=7",
+                              "loader.snapshot.path=target/snapshot-it/data.snapshot"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LoadDatabaseFromSnapshotIT {
+
+  private static final String PERSONS_QUERY =
+      "select first_name, last_name, address, city, zip, phone, email, birth_date"
+          + " from person order by first_name, last_name";
+
+  @Autowired
+  private LoadDataStrategyFactory loadDataStrategyFactory;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @SpyBean
+  private LoadDatabaseStreamingFromJson loadDatabaseStreamingFromJson;
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor commandLineRunnerTaskExcecutor;
+
+  @Value("${spring.datasource.url}")
+  private String databaseSource;
+  @Value("${spring.datasource.username}")
+  private String datasourceUsername;
+  @Value("${spring.datasource.password}")
+  private String datasourcePassword;
+  @Value("${loader.snapshot.path}")
+  private String snapshotPath;
+
+  private Source source;
+
+  @BeforeEach
+  void setUp() throws IOException {
+
+    source = new Source(databaseSource.split(";")[0], datasourceUsername, datasourcePassword);
+    Files.deleteIfExists(Paths.get(snapshotPath));
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldLoadFileJsonAndWriteSnapshot_whenSnapshotDoesNotExist() {
+
+    // When
+    boolean result = loadDataStrategyFactory.findStrategy(StrategyName.StrategySnapshot)
+        .loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    assertTrue(Files.isReadable(Paths.get(snapshotPath)));
+    verify(loadDatabaseStreamingFromJson, times(1)).loadDatabaseFromSource();
+    assertRowsOfDataJson();
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldRestoreSnapshot_whenFileJsonIsUnchanged() {
+
+    // Given
+    loadDataStrategyFactory.findStrategy(StrategyName.StrategySnapshot).loadDatabaseFromSource();
+    List<Map<String, Object>> personsLoaded = jdbcTemplate.queryForList(PERSONS_QUERY);
+    deleteAllRows();
+
+    // When
+    boolean result = loadDataStrategyFactory.findStrategy(StrategyName.StrategySnapshot)
+        .loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    verify(loadDatabaseStreamingFromJson, times(1)).loadDatabaseFromSource();
+    assertRowsOfDataJson();
+    assertEquals(personsLoaded, jdbcTemplate.queryForList(PERSONS_QUERY));
+    assertEquals(26, jdbcTemplate.queryForObject(
+        "select count(*) from person p join medical_record mr"
+            + " on p.id_medical_record = mr.id_medical_record"
+            + " join person_firestation pf on pf.id_person = p.id_person",
+        Integer.class));
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldLoadFileJsonAgain_whenChecksumOfSnapshotIsDifferent()
+      throws IOException {
+
+    // Given
+    loadDataStrategyFactory.findStrategy(StrategyName.StrategySnapshot).loadDatabaseFromSource();
+    deleteAllRows();
+
+    try (RandomAccessFile snapshot = new RandomAccessFile(snapshotPath, "rw")) {
+
+      // checksum of file json is written after magic and version
+      snapshot.seek(8);
+      snapshot.writeLong(-1L);
+    }
+
+    // When
+    boolean result = loadDataStrategyFactory.findStrategy(StrategyName.StrategySnapshot)
+        .loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    verify(loadDatabaseStreamingFromJson, times(2)).loadDatabaseFromSource();
+    assertRowsOfDataJson();
+
+  }
+
+  private void assertRowsOfDataJson() {
+
+    assertThat(new Table(source, "person")).hasNumberOfRows(23);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(4);
+    assertThat(new Table(source, "fire_station_addresses")).hasNumberOfRows(12);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(26);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(23);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(18);
+    assertThat(new Table(source, "allergy")).hasNumberOfRows(6);
+    assertThat(new Table(source, "attribution_allergy")).hasNumberOfRows(11);
+    assertThat(new Table(source, "attribution_medication")).hasNumberOfRows(19);
+
+  }
+
+  private void deleteAllRows() {
+
+    for (String table : new String[] {"attribution_allergy", "attribution_medication",
+                                      "person_firestation", "fire_station_addresses",
+                                      "person", "medical_record", "medication", "allergy",
+                                      "fire_station"}) {
+
+      jdbcTemplate.execute("delete from " + table);
+    }
+
+  }
+
+}
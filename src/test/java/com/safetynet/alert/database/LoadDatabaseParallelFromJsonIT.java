@@ -0,0 +1,178 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.db.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import org.assertj.db.type.Source;
+import org.assertj.db.type.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@SpringBootTest(properties = {"loader.bulk.batch-size=7",
+                              "loader.parallel.threads=4",
+                              "loader.parallel.queue-capacity=5"})
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LoadDatabaseParallelFromJsonIT {
+
+  @Autowired
+  private LoadDataStrategyFactory loadDataStrategyFactory;
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor commandLineRunnerTaskExcecutor;
+
+  @Value("${spring.datasource.url}")
+  private String databaseSource;
+  @Value("${spring.datasource.username}")
+  private String datasourceUsername;
+  @Value("${spring.datasource.password}")
+  private String datasourcePassword;
+
+  private Source source;
+
+  @BeforeEach
+  void setUp() {
+
+    source = new Source(databaseSource.split(";")[0], datasourceUsername, datasourcePassword);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldPersistSameDataThanStrategyProd() {
+
+    // When
+    boolean result = loadDataStrategyFactory.findStrategy(StrategyName.StrategyParallel)
+        .loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(23);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(4);
+    assertThat(new Table(source, "fire_station_addresses")).hasNumberOfRows(12);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(26);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(23);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(18);
+    assertThat(new Table(source, "allergy")).hasNumberOfRows(6);
+    assertThat(new Table(source, "attribution_allergy")).hasNumberOfRows(11);
+    assertThat(new Table(source, "attribution_medication")).hasNumberOfRows(19);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldRejectInvalidRecords_whenConstraintsAreViolated() {
+
+    // Given
+    LoadDataStrategy classUnderTest =
+        loadDataStrategyFactory.findStrategy(StrategyName.StrategyParallel);
+    ReflectionTestUtils.setField(classUnderTest, "filePath",
+        "classpath:json/dataInvalidPerson.json");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(1)
+        .row(0).value("first_name").isEqualTo("John");
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(1);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(1);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(1);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(2);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldRejectRecord_whenItCantBeWritten() {
+
+    // Given
+    LoadDataStrategy classUnderTest =
+        loadDataStrategyFactory.findStrategy(StrategyName.StrategyParallel);
+    ReflectionTestUtils.setField(classUnderTest, "filePath",
+        "classpath:json/dataMedicalRecordWithoutPerson.json");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(1);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(1);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(1);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(2);
+    assertThat(new Table(source, "allergy")).hasNumberOfRows(1);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldDeleteCommittedBatches_whenBatchCantBeWritten() {
+
+    // Given
+    // 10 persons are committed in a first batch of 7 records and a second one,
+    // before the medicalRecord whose medication is too long for its column
+    LoadDataStrategy classUnderTest =
+        loadDataStrategyFactory.findStrategy(StrategyName.StrategyParallel);
+    ReflectionTestUtils.setField(classUnderTest, "filePath",
+        "classpath:json/dataMedicationTooLong.json");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertFalse(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(0);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(0);
+    assertThat(new Table(source, "fire_station_addresses")).hasNumberOfRows(0);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(0);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(0);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(0);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldDeleteCommittedBatches_whenFileIsMalformed() {
+
+    // Given
+    // 10 persons are committed in a first batch of 7 records and a second one,
+    // before the comma missing between firestations
+    LoadDataStrategy classUnderTest =
+        loadDataStrategyFactory.findStrategy(StrategyName.StrategyParallel);
+    ReflectionTestUtils.setField(classUnderTest, "filePath",
+        "classpath:json/dataMalformed.json");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertFalse(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(0);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(0);
+    assertThat(new Table(source, "fire_station_addresses")).hasNumberOfRows(0);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(0);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldNotPersistData_whenFileIsNotFound() {
+
+    // Given
+    LoadDataStrategy classUnderTest =
+        loadDataStrategyFactory.findStrategy(StrategyName.StrategyParallel);
+    ReflectionTestUtils.setField(classUnderTest, "filePath", "classpath:json/notFound.json");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertFalse(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(0);
+
+  }
+
+}
@@ -0,0 +1,75 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.db.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import org.assertj.db.type.DateValue;
+import org.assertj.db.type.Source;
+import org.assertj.db.type.Table;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.annotation.DirtiesContext;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class LoadDatabaseStreamingFromJsonIT {
+
+  @Autowired
+  private LoadDataStrategyFactory loadDataStrategyFactory;
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor commandLineRunnerTaskExcecutor;
+
+  @Value("${spring.datasource.url}")
+  private String databaseSource;
+  @Value("${spring.datasource.username}")
+  private String datasourceUsername;
+  @Value("${spring.datasource.password}")
+  private String datasourcePassword;
+
+  private Source source;
+
+  @BeforeEach
+  void setUp() {
+
+    source = new Source(databaseSource.split(";")[0], datasourceUsername, datasourcePassword);
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldPersistSameDataThanStrategyProd() {
+
+    // When
+    boolean result = loadDataStrategyFactory.findStrategy(StrategyName.StrategyStreaming)
+        .loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+    assertThat(new Table(source, "person")).hasNumberOfRows(23);
+    assertThat(new Table(source, "fire_station")).hasNumberOfRows(4);
+    assertThat(new Table(source, "person_firestation")).hasNumberOfRows(26);
+    assertThat(new Table(source, "medical_record")).hasNumberOfRows(23);
+    assertThat(new Table(source, "medication")).hasNumberOfRows(18);
+    assertThat(new Table(source, "allergy")).hasNumberOfRows(6);
+    assertThat(new Table(source, "attribution_allergy")).hasNumberOfRows(11);
+    assertThat(new Table(source, "attribution_medication")).hasNumberOfRows(19);
+
+    assertThat(new Table(source, "person")).row(0).hasValues(1L,
+        "1509 Culver St",
+        DateValue.of(1984, 03, 06),
+        "Culver",
+        "jaboyd@email.com",
+        "John",
+        "Boyd",
+        "841-874-6512",
+        97451,
+        1L);
+
+  }
+
+}
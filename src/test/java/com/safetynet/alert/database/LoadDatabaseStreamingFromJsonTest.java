@@ -0,0 +1,237 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.model.FireStation;
+import com.safetynet.alert.model.MedicalRecord;
+import com.safetynet.alert.model.Person;
+import com.safetynet.alert.service.AllergyService;
+import com.safetynet.alert.service.FireStationService;
+import com.safetynet.alert.service.MedicalRecordService;
+import com.safetynet.alert.service.MedicationService;
+import com.safetynet.alert.service.PersonService;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import nl.altindag.log.LogCaptor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class LoadDatabaseStreamingFromJsonTest {
+
+  @Mock
+  private PersonService personService;
+  @Mock
+  private FireStationService fireStationService;
+  @Mock
+  private MedicalRecordService medicalRecordService;
+  @Mock
+  private MedicationService medicationService;
+  @Mock
+  private AllergyService allergyService;
+
+  @TempDir
+  Path tempDir;
+
+  private LogCaptor logCaptor =
+      LogCaptor.forClass(LoadDatabaseStreamingFromJson.class);
+
+  private LoadDatabaseStreamingFromJson classUnderTest;
+
+  @BeforeEach
+  void setUp() {
+
+    classUnderTest = new LoadDatabaseStreamingFromJson(new ObjectMapper(),
+                                                       new DataSourceResolver(
+                                                           new DefaultResourceLoader()),
+                                                       tempDir.resolve("data.json").toString());
+    ReflectionTestUtils.setField(classUnderTest, "personService", personService);
+    ReflectionTestUtils.setField(classUnderTest, "fireStationService", fireStationService);
+    ReflectionTestUtils.setField(classUnderTest, "medicalRecordService", medicalRecordService);
+    ReflectionTestUtils.setField(classUnderTest, "medicationService", medicationService);
+    ReflectionTestUtils.setField(classUnderTest, "allergyService", allergyService);
+
+  }
+
+  private void writeJson(String content) throws IOException {
+
+    Path file = tempDir.resolve("data.json");
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+
+  }
+
+  /**
+   * Mock the save of persons as a persist: a id is given to each person,
+   * which is then found by this id as in the persistence context.
+   */
+  private void mockSavePerson() {
+
+    Map<Long, Person> savedPersons = new HashMap<>();
+
+    when(personService.savePerson(Mockito.any(Person.class))).thenAnswer(invocation -> {
+
+      Person person = invocation.getArgument(0);
+      person.setIdPerson(savedPersons.size() + 1L);
+      savedPersons.put(person.getIdPerson(), person);
+      return person;
+    });
+    when(personService.getPersonById(Mockito.anyLong()))
+        .thenAnswer(invocation -> Optional.ofNullable(savedPersons.get(invocation.getArgument(0))));
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldBindAndSaveEachElement_whenJsonIsValid()
+      throws IOException {
+
+    // Given
+    writeJson("{\"persons\":"
+        + " [ { \"firstName\":\"John\"," + "\"lastName\":\"Boyd\","
+        + " \"address\":\"1509 Culver St\"," + " \"city\":\"Culver\", "
+        + "\"zip\":\"97451\"," + " \"phone\":\"841-874-6512\","
+        + " \"email\":\"jaboyd@email.com\"}],"
+        + "\"unknownArray\": [{ \"key\": [1, 2] }],"
+        + "\"firestations\": [{ \"address\":\"1509 Culver St\",  \"station\":\"3\" }],"
+        + "\"medicalrecords\": [" + "{ \"firstName\":\"John\","
+        + " \"lastName\":\"Boyd\"," + " \"birthdate\":\"03/06/1984\", "
+        + "\"medications\":[\"aznol:350mg\", " + "\"hydrapermazol:100mg\"],"
+        + " \"allergies\":[\"nillacilan\"] }]}");
+
+    Person john = new Person();
+    john.setFirstName("John");
+    john.setLastName("Boyd");
+    john.setAddress("1509 Culver St");
+
+    when(personService.getPersonByNames("John", "Boyd")).thenReturn(Optional.of(john));
+    mockSavePerson();
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+
+    ArgumentCaptor<Person> personCaptor = ArgumentCaptor.forClass(Person.class);
+    verify(personService, times(1)).savePerson(personCaptor.capture());
+    assertThat(personCaptor.getValue().getZip()).isEqualTo(97451);
+    assertThat(personCaptor.getValue().getEmail()).isEqualTo("jaboyd@email.com");
+
+    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
+    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
+    assertThat(fireStationCaptor.getValue().getNumberStation()).isEqualTo(3);
+    assertThat(fireStationCaptor.getValue().getAddresses()).containsExactly("1509 Culver St");
+    assertThat(fireStationCaptor.getValue().getPersons())
+        .containsExactly(personCaptor.getValue());
+    verify(personService, never()).getPersonsByAddress(Mockito.anyString());
+
+    verify(medicationService, times(2)).saveMedication(Mockito.any());
+    verify(allergyService, times(1)).saveAllergy(Mockito.any());
+    verify(medicalRecordService, times(1)).saveMedicalRecord(Mockito.any(MedicalRecord.class));
+    assertThat(john.getMedicalRecord()).isNotNull();
+    assertThat(john.getBirthDate()).isNotNull();
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldMapFireStationWithoutQuery_whenNumberStationIsRepeated()
+      throws IOException {
+
+    // Given
+    writeJson("{\"persons\":"
+        + " [ { \"firstName\":\"John\"," + "\"lastName\":\"Boyd\","
+        + " \"address\":\"1509 Culver St\" },"
+        + " { \"firstName\":\"Tessa\"," + "\"lastName\":\"Carman\","
+        + " \"address\":\"834 Binoc Ave\" },"
+        + " { \"firstName\":\"Jacob\"," + "\"lastName\":\"Boyd\","
+        + " \"address\":\"1509 Culver St\" } ],"
+        + "\"firestations\": [{ \"address\":\"1509 Culver St\",  \"station\":\"3\" },"
+        + " { \"address\":\"834 Binoc Ave\",  \"station\":\"3\" },"
+        + " { \"address\":\"1509 Culver St\",  \"station\":\"3\" }]}");
+
+    mockSavePerson();
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertTrue(result);
+
+    ArgumentCaptor<FireStation> fireStationCaptor = ArgumentCaptor.forClass(FireStation.class);
+    verify(fireStationService, times(1)).saveFireStation(fireStationCaptor.capture());
+    assertThat(fireStationCaptor.getValue().getAddresses())
+        .containsExactlyInAnyOrder("1509 Culver St", "834 Binoc Ave");
+    assertThat(fireStationCaptor.getValue().getPersons()).hasSize(3);
+    verify(fireStationService, never()).getFireStationByNumberStation(Mockito.anyInt());
+    verify(personService, never()).getPersonsByAddress(Mockito.anyString());
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldNotPersistData_whenFileIsNotFound() throws IOException {
+
+    // Given
+    // no file json written in tempDir
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertFalse(result);
+    assertThat(logCaptor.getErrorLogs())
+        .containsExactly("File Data.json is not Found in resources");
+    verify(personService, never()).savePerson(Mockito.any());
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldNotPersistData_whenJsonIsNotAObject() throws IOException {
+
+    // Given
+    writeJson("[ { \"firstName\":\"John\" } ]");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertFalse(result);
+    assertThat(logCaptor.getErrorLogs()).containsExactly("Json's datas are not valid");
+    verify(personService, never()).savePerson(Mockito.any());
+
+  }
+
+  @Test
+  void loadDatabaseFromSource_shouldNotPersistData_whenJsonIsMalformed() throws IOException {
+
+    // Given
+    writeJson("{\"persons\": [ { \"firstName\":\"John\", ");
+
+    // When
+    boolean result = classUnderTest.loadDatabaseFromSource();
+
+    // Then
+    assertFalse(result);
+    assertThat(logCaptor.getErrorLogs()).containsExactly("Json's datas are not valid");
+
+  }
+
+}
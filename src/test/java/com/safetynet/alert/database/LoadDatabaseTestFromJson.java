@@ -23,6 +23,8 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -51,6 +53,9 @@ public class LoadDatabaseTestFromJson implements LoadDataStrategy {
   @Autowired
   private AllergyService allergyService;
 
+  @PersistenceContext
+  private EntityManager entityManager;
+
 
   private final ObjectMapper objectMapper;
   private ResourceLoader resourceLoader;
@@ -191,6 +196,9 @@ public class LoadDatabaseTestFromJson implements LoadDataStrategy {
           fireStation = new FireStation();
           fireStation.setNumberStation(numberStation);
           fireStationService.saveFireStation(fireStation);
+          // dataTest.json maps a fireStation with a blank address: insert fireStation now,
+          // before its addresses, to keep this case that is not valid for bean validation
+          entityManager.flush();
           numberStations.add(numberStation);
 
         } else {
@@ -272,7 +280,7 @@ public class LoadDatabaseTestFromJson implements LoadDataStrategy {
         while (medicationElement.hasNext()) {
 
           String designationPosology = medicationElement.next().asText();
-          String[] composition = designationPosology.split(":");
+          String[] composition = designationPosology.split(":", 2);
 
           Medication medication = null;
 
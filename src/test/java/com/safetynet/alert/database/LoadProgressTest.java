@@ -0,0 +1,167 @@
+package com.safetynet.alert.database;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.safetynet.alert.configuration.LoadingApplicationAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class LoadProgressTest {
+
+  private SimpleMeterRegistry meterRegistry;
+
+  private LoadProgress classUnderTest;
+
+  private LoadingApplicationAvailability availability;
+
+  @BeforeEach
+  void setUp() {
+
+    meterRegistry = new SimpleMeterRegistry();
+    classUnderTest = new LoadProgress(meterRegistry);
+    availability = new LoadingApplicationAvailability();
+    ReflectionTestUtils.setField(availability, "loadProgress", classUnderTest);
+    // states published by spring boot when application is started
+    availability.onApplicationEvent(new AvailabilityChangeEvent<>(this, LivenessState.CORRECT));
+    availability.onApplicationEvent(
+        new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+
+  }
+
+  @Test
+  void getReadinessState_shouldRefuseTraffic_whenDataAreLoading() {
+
+    // When
+    classUnderTest.begin();
+
+    // Then
+    assertThat(classUnderTest.getState()).isEqualTo(LoadProgress.State.LOADING);
+    assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+    assertThat(availability.getLivenessState()).isEqualTo(LivenessState.CORRECT);
+
+  }
+
+  @Test
+  void getReadinessState_shouldAcceptTraffic_whenDataAreLoaded() {
+
+    // When
+    classUnderTest.begin();
+    classUnderTest.complete(true);
+
+    // Then
+    assertThat(classUnderTest.getState()).isEqualTo(LoadProgress.State.LOADED);
+    assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.ACCEPTING_TRAFFIC);
+
+  }
+
+  @Test
+  void getReadinessState_shouldRefuseTraffic_whenLoadFailed() {
+
+    // When
+    classUnderTest.begin();
+    classUnderTest.complete(false);
+
+    // Then
+    assertThat(classUnderTest.getState()).isEqualTo(LoadProgress.State.FAILED);
+    assertThat(availability.getReadinessState()).isEqualTo(ReadinessState.REFUSING_TRAFFIC);
+
+  }
+
+  @Test
+  void gauges_shouldPublishProgressOfLoad_whenStatisticsAreTracked() {
+
+    // Given
+    LoadStatistics statistics = new LoadStatistics();
+    statistics.setExpectedRecords(4);
+    statistics.start();
+    classUnderTest.begin();
+    classUnderTest.track(statistics);
+
+    // When
+    statistics.increment(LoadStatistics.PERSONS);
+
+    // Then
+    assertThat(meterRegistry.get("loader.records").tag("type", LoadStatistics.PERSONS)
+        .gauge().value()).isEqualTo(1);
+    assertThat(meterRegistry.get("loader.progress").gauge().value()).isEqualTo(25);
+    assertThat(meterRegistry.get("loader.eta").gauge().value()).isGreaterThanOrEqualTo(0);
+
+    // When
+    classUnderTest.complete(true);
+
+    // Then
+    assertThat(meterRegistry.get("loader.progress").gauge().value()).isEqualTo(100);
+    assertThat(meterRegistry.get("loader.eta").gauge().value()).isZero();
+
+  }
+
+  @Test
+  void gauges_shouldCountAllRecords_whenRecordsAreSavedByOtherThreads() throws Exception {
+
+    // Given
+    LoadStatistics statistics = new LoadStatistics();
+    statistics.setExpectedRecords(40_000);
+    statistics.start();
+    classUnderTest.begin();
+    classUnderTest.track(statistics);
+    ExecutorService writers = Executors.newFixedThreadPool(4);
+
+    // When
+    for (int writer = 0; writer < 4; writer++) {
+
+      writers.execute(() -> {
+
+        for (int i = 0; i < 10_000; i++) {
+
+          statistics.increment(LoadStatistics.PERSONS);
+        }
+      });
+    }
+
+    writers.shutdown();
+
+    // gauges are read by the thread of metrics while records are saved
+    while (!writers.awaitTermination(1, TimeUnit.MILLISECONDS)) {
+
+      assertThat(meterRegistry.get("loader.progress").gauge().value()).isBetween(0.0, 100.0);
+    }
+
+    // Then
+    assertThat(meterRegistry.get("loader.records").tag("type", LoadStatistics.PERSONS)
+        .gauge().value()).isEqualTo(40_000);
+    assertThat(meterRegistry.get("loader.progress").gauge().value()).isEqualTo(100);
+
+  }
+
+  @Test
+  void getCompletion_shouldUseBytesReadInSource_whenExpectedRecordsAreUnknown() {
+
+    // Given
+    LoadStatistics statistics = new LoadStatistics();
+    statistics.setSourceBytes(1000);
+    statistics.start();
+
+    // When
+    statistics.updateSourceProgress(250);
+
+    // Then
+    assertThat(statistics.getCompletion()).isEqualTo(0.25);
+
+    // When
+    statistics.stop();
+
+    // Then
+    assertThat(statistics.getCompletion()).isEqualTo(1.0);
+    assertThat(statistics.getEstimatedSecondsRemaining()).isZero();
+
+  }
+
+}
@@ -0,0 +1,77 @@
+package com.safetynet.alert.database;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class SourceFileWatcherTest {
+
+  @Mock
+  private DeltaImporter deltaImporter;
+
+  @InjectMocks
+  private SourceFileWatcher classUnderTest;
+
+  @TempDir
+  Path directory;
+
+  private File source;
+
+  @BeforeEach
+  void setUp() throws IOException {
+
+    ReflectionTestUtils.setField(classUnderTest, "debounceMillis", 100L);
+    source = Files.write(directory.resolve("data.json"), "{}".getBytes(StandardCharsets.UTF_8))
+        .toFile();
+    classUnderTest.start(source);
+
+  }
+
+  @AfterEach
+  void tearDown() {
+
+    classUnderTest.stop();
+
+  }
+
+  @Test
+  void start_shouldImportChanges_whenSourceFileIsModified() throws IOException {
+
+    // When
+    Files.write(source.toPath(), "{\"persons\":[]}".getBytes(StandardCharsets.UTF_8));
+
+    // Then
+    verify(deltaImporter, timeout(10000)).importChanges(source.toPath().toAbsolutePath()
+        .toFile());
+
+  }
+
+  @Test
+  void start_shouldNotImportChanges_whenAnotherFileIsModified() throws IOException {
+
+    // When
+    Files.write(directory.resolve("other.json"), "{}".getBytes(StandardCharsets.UTF_8));
+
+    // Then
+    verify(deltaImporter, after(1000).never()).importChanges(any());
+
+  }
+
+}
@@ -0,0 +1,332 @@
+package com.safetynet.alert.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import com.safetynet.alert.database.LoadDataStrategyFactory;
+import com.safetynet.alert.database.StrategyName;
+import com.safetynet.alert.model.Person;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * Integration Test for class {@link EmergencyReadModel}: its indexes must be updated
+ * after each change of data by the API admin.
+ *
+ * @author delaval
+ *
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestMethodOrder(OrderAnnotation.class)
+class EmergencyReadModelIT {
+
+  @MockBean
+  private CommandLineRunnerTaskExcecutor clrte;
+
+  @Autowired
+  private LoadDataStrategyFactory ldsf;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private Jackson2ObjectMapperBuilder mapperBuilder;
+
+  @Autowired
+  private PersonService personService;
+
+  @Autowired
+  private FireStationService fireStationService;
+
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  private EmergencyReadModel classUnderTest;
+
+  @BeforeEach
+  void setUp() throws Exception {
+
+    ldsf.findStrategy(StrategyName.StrategyTest).loadDatabaseFromSource();
+
+  }
+
+  @Test
+  @Order(1)
+  void readModel_whenLoaded_thenReturnSameResultsAsDatabase() {
+
+    // When and Then
+    assertThat(classUnderTest.existsFireStation(3)).isTrue();
+    assertThat(classUnderTest.existsFireStation(6)).isFalse();
+    assertThat(classUnderTest.getPersonsMappedByNumberStation(3))
+        .extracting(Person::getFirstName)
+        .containsExactly("John", "Jacob", "Tenley", "Roger", "Felicia", "Dorian");
+    assertThat(classUnderTest.getPhonesByNumberStation(3))
+        .containsExactly("061-846-0160", "841-874-6512", "841-874-6513", "841-874-6544");
+    assertThat(classUnderTest.getPersonsWhenFire("29 15th St"))
+        .extracting(Person::getFirstName)
+        .containsExactlyInAnyOrder("Jonanathan", "Jonathan");
+    assertThat(classUnderTest.getPersonInfoByNames("John", "Boyd"))
+        .first().extracting(Person::getFirstName).isEqualTo("John");
+    assertThat(classUnderTest.getEmailsByCity("Culver")).isNotEmpty();
+
+  }
+
+  @Test
+  @Order(2)
+  void readModel_whenPersonPosted_thenPersonIsIndexed() throws Exception {
+
+    // Given
+    assertThat(classUnderTest.getPhonesByNumberStation(2)).containsExactly("841-874-6513");
+    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+    Person personTest = new Person(null, "Bernard", "Delaval", sdf.parse("12/27/1976"),
+                                   "29 15th St", "Cassis", 13260,
+                                   "061-846-0199", "delaval.htps@gmail.com",
+                                   null, null);
+    ObjectMapper mapper = mapperBuilder.build();
+
+    // When
+    mockMvc.perform(post("/person")
+        .accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(personTest)))
+        .andExpect(status().isCreated());
+
+    // Then
+    assertThat(classUnderTest.getPhonesByNumberStation(2))
+        .containsExactly("061-846-0199", "841-874-6513");
+    assertThat(classUnderTest.getEmailsByCity("Cassis"))
+        .containsExactly("delaval.htps@gmail.com");
+
+  }
+
+  @Test
+  @Order(3)
+  void readModel_whenAddressOfFireStationDeleted_thenMappingIsRemoved() throws Exception {
+
+    // Given
+    assertThat(classUnderTest.getPersonsMappedByNumberStation(3)).hasSize(6);
+
+    // When
+    mockMvc.perform(delete("/firestation/address/{address}", "1509 Culver St"))
+        .andExpect(status().isOk());
+
+    // Then
+    assertThat(classUnderTest.getPersonsMappedByNumberStation(3))
+        .extracting(Person::getFirstName)
+        .containsExactly("Dorian");
+    assertThat(classUnderTest.getPersonsWhenFire("1509 Culver St")).hasSize(5);
+
+  }
+
+  @Test
+  @Order(4)
+  void readModel_whenPersonDeleted_thenPersonIsRemoved() throws Exception {
+
+    // Given
+    assertThat(classUnderTest.getPersonInfoByNames("Dorian", "Delaval")).hasSize(1);
+
+    // When
+    mockMvc.perform(delete("/person/{lastName}/{firstName}", "Delaval", "Dorian"))
+        .andExpect(status().isOk());
+
+    // Then
+    assertThat(classUnderTest.getPersonInfoByNames("Dorian", "Delaval")).isEmpty();
+    assertThat(classUnderTest.getPersonsMappedByNumberStation(3)).hasSize(5);
+    assertThat(classUnderTest.getPhonesByNumberStation(3)).doesNotContain("061-846-0160");
+
+  }
+
+  @Test
+  @Order(5)
+  void getStationCounts_whenPersonsChanged_thenCountsAreMaintained() throws Exception {
+
+    // Given
+    assertThat(classUnderTest.getStationCounts(3)).isEqualTo(new StationCounts(3, 2, 1));
+    StationCounts countsOfStation2 = classUnderTest.getStationCounts(2);
+    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+    Person child = new Person(null, "Bernard", "Delaval", sdf.parse("12/27/2016"),
+                              "29 15th St", "Cassis", 13260,
+                              "061-846-0199", "delaval.htps@gmail.com",
+                              null, null);
+    ObjectMapper mapper = mapperBuilder.build();
+
+    // When
+    mockMvc.perform(post("/person")
+        .accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(child)))
+        .andExpect(status().isCreated());
+    mockMvc.perform(delete("/firestation/address/{address}", "1509 Culver St"))
+        .andExpect(status().isOk());
+
+    // Then
+    assertThat(classUnderTest.getStationCounts(2))
+        .isEqualTo(countsOfStation2.plus(new StationCounts(0, 1, 0)));
+    assertThat(classUnderTest.getStationCounts(3)).isEqualTo(new StationCounts(0, 0, 1));
+    assertThat(classUnderTest.getStationCounts(6)).isEqualTo(StationCounts.NONE);
+
+  }
+
+  @Test
+  @Order(6)
+  void getStationCounts_whenChildIsAdult_thenCountedAsAdult() throws Exception {
+
+    // Given
+    StationCounts countsOfStation2 = classUnderTest.getStationCounts(2);
+
+    // 18 years old in one second
+    Calendar cal = Calendar.getInstance();
+    cal.add(Calendar.YEAR, -18);
+    cal.add(Calendar.SECOND, 1);
+    Person child = new Person(null, "Bernard", "Delaval", cal.getTime(),
+                              "29 15th St", "Cassis", 13260,
+                              "061-846-0199", "delaval.htps@gmail.com",
+                              null, new HashSet<>());
+    Person savedChild = personService.savePerson(child);
+    savedChild.addFireStations(fireStationService.getFireStationsMappedToAddress("29 15th St"));
+    personService.savePerson(savedChild);
+    eventPublisher.publishEvent(DataChangeEvent.ofPerson("Bernard", "Delaval"));
+    assertThat(classUnderTest.getStationCounts(2))
+        .isEqualTo(countsOfStation2.plus(new StationCounts(0, 1, 0)));
+
+    // When
+    Thread.sleep(1500);
+    classUnderTest.promoteAdults();
+
+    // Then
+    assertThat(classUnderTest.getStationCounts(2))
+        .isEqualTo(countsOfStation2.plus(new StationCounts(1, 0, 0)));
+
+  }
+
+  @Test
+  @Order(7)
+  void getChildrenByAddress_whenChildPosted_thenChildrenSortedByBirthDate() throws Exception {
+
+    // Given
+    assertThat(classUnderTest.getChildrenByAddress("1509 Culver St").get("children"))
+        .extracting(Person::getFirstName).containsExactly("Roger", "Tenley");
+    assertThat(classUnderTest.getChildrenByAddress("1509 Culver St").get("otherMembers"))
+        .hasSize(3);
+    assertThat(classUnderTest.getChildrenByAddress("AddressNotFound")).isNull();
+
+    // Adult is 18 years old since yesterday and Baby was born yesterday
+    LocalDate yesterday = LocalDate.now().minusDays(1);
+    ObjectMapper mapper = mapperBuilder.build();
+
+    for (String firstName : Arrays.asList("Adult", "Baby")) {
+
+      Person person = new Person(null, firstName, "Boyd",
+                                 java.sql.Date.valueOf(firstName.equals("Baby")
+                                     ? yesterday
+                                     : yesterday.minusYears(18)),
+                                 "1509 Culver St", "Culver", 97451,
+                                 "841-874-6512", "baby@email.com",
+                                 null, null);
+
+      // When
+      mockMvc.perform(post("/person")
+          .accept(MediaType.APPLICATION_JSON)
+          .contentType(MediaType.APPLICATION_JSON)
+          .content(mapper.writeValueAsString(person)))
+          .andExpect(status().isCreated());
+    }
+
+    // Then
+    assertThat(classUnderTest.getChildrenByAddress("1509 Culver St").get("children"))
+        .extracting(Person::getFirstName).containsExactly("Baby", "Roger", "Tenley");
+    assertThat(classUnderTest.getChildrenByAddress("1509 Culver St").get("otherMembers"))
+        .extracting(Person::getFirstName).startsWith("Adult").hasSize(4);
+
+  }
+
+  @Test
+  @Order(8)
+  void forEachPhoneByNumberStations_whenPersonPosted_thenPhonesAreMerged() throws Exception {
+
+    // Given
+    SimpleDateFormat sdf = new SimpleDateFormat("MM/dd/yyyy");
+    Person personTest = new Person(null, "Bernard", "Delaval", sdf.parse("12/27/1976"),
+                                   "29 15th St", "Cassis", 13260,
+                                   "000-000-0000", "delaval.htps@gmail.com",
+                                   null, null);
+    ObjectMapper mapper = mapperBuilder.build();
+
+    // When
+    mockMvc.perform(post("/person")
+        .accept(MediaType.APPLICATION_JSON)
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(personTest)))
+        .andExpect(status().isCreated());
+    List<String> phones = new ArrayList<>();
+    long count = classUnderTest.forEachPhoneByNumberStations(Arrays.asList(3, 2, 3, 6),
+        phones::add);
+
+    // Then
+    assertThat(classUnderTest.getPhonesByNumberStation(2))
+        .containsExactly("000-000-0000", "841-874-6513");
+    assertThat(phones).containsExactly("000-000-0000", "061-846-0160", "841-874-6512",
+        "841-874-6513", "841-874-6544");
+    assertThat(count).isEqualTo(5);
+
+  }
+
+  @Test
+  @Order(9)
+  void readModel_whenReadDuringUpdate_thenNeverSeesIndexUpdatedByHalf() throws Exception {
+
+    // Given
+    assertThat(classUnderTest.getStationCounts(3)).isEqualTo(new StationCounts(3, 2, 1));
+
+    // When
+    // persons of "1509 Culver St" are replaced again and again, without any change
+    CompletableFuture<Void> updates = CompletableFuture.runAsync(() -> {
+
+      for (int i = 0; i < 50; i++) {
+
+        eventPublisher.publishEvent(DataChangeEvent.ofAddress("1509 Culver St"));
+      }
+    });
+
+    // Then
+    while (!updates.isDone()) {
+
+      assertThat(classUnderTest.getStationCounts(3)).isEqualTo(new StationCounts(3, 2, 1));
+      assertThat(classUnderTest.getPersonsMappedByNumberStation(3)).hasSize(6);
+      assertThat(classUnderTest.getPhonesByNumberStation(3)).hasSize(4);
+      assertThat(classUnderTest.getChildrenByAddress("1509 Culver St").get("children"))
+          .hasSize(2);
+    }
+
+    updates.get();
+
+  }
+
+}
@@ -0,0 +1,127 @@
+package com.safetynet.alert.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.safetynet.alert.model.Allergy;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class EntityDictionaryTest {
+
+  @Mock
+  private Function<String, Optional<Allergy>> source;
+  @Mock
+  private EntityManager entityManager;
+
+  private EntityDictionary<String, Allergy> classUnderTest;
+
+  private Allergy mockAllergy;
+
+  @BeforeEach
+  void setUp() {
+
+    classUnderTest = new EntityDictionary<>(Allergy.class, Allergy::getIdAllergy, source);
+    mockAllergy = new Allergy(1L, "allergy1", null);
+
+  }
+
+  @Test
+  void lookup_shouldSearchOnlyOnceInSource_whenKeyIsLookedUpTwice() {
+
+    // Given
+    when(source.apply("allergy1")).thenReturn(Optional.of(mockAllergy));
+
+    // When
+    Optional<Allergy> first = classUnderTest.lookup("allergy1");
+    Optional<Allergy> second = classUnderTest.lookup("allergy1");
+
+    // Then
+    assertThat(first).containsSame(mockAllergy);
+    assertThat(second).containsSame(mockAllergy);
+    verify(source, times(1)).apply("allergy1");
+
+  }
+
+  @Test
+  void lookup_shouldReturnEmpty_whenKeyIsUnknownBySource() {
+
+    // Given
+    when(source.apply("allergy2")).thenReturn(Optional.empty());
+
+    // When
+    Optional<Allergy> result = classUnderTest.lookup("allergy2");
+
+    // Then
+    assertThat(result).isEmpty();
+    assertThat(classUnderTest.contains("allergy2")).isFalse();
+
+  }
+
+  @Test
+  void intern_shouldCreateOnlyOnce_whenKeyIsInternedTwice() {
+
+    // Given
+    classUnderTest = new EntityDictionary<>(Allergy.class, Allergy::getIdAllergy);
+
+    // When
+    Allergy first = classUnderTest.intern("allergy1", designation -> new Allergy(null,
+        designation, null));
+    Allergy second = classUnderTest.intern("allergy1", designation -> new Allergy(null,
+        designation, null));
+
+    // Then
+    assertThat(second).isSameAs(first);
+    assertThat(first.getDesignation()).isEqualTo("allergy1");
+    assertThat(classUnderTest.size()).isEqualTo(1);
+
+  }
+
+  @Test
+  void preload_shouldAvoidSearchInSource_whenEntityIsPreloaded() {
+
+    // When
+    classUnderTest.preload(Arrays.asList(mockAllergy), Allergy::getDesignation);
+    Optional<Allergy> result = classUnderTest.lookup("allergy1");
+
+    // Then
+    assertThat(result).containsSame(mockAllergy);
+    verify(source, never()).apply(Mockito.anyString());
+
+  }
+
+  @Test
+  void lookup_shouldFindEntityAgain_whenEntityIsDetachedFromPersistenceContext() {
+
+    // Given
+    Allergy managedAllergy = new Allergy(1L, "allergy1", null);
+    classUnderTest.preload(Arrays.asList(mockAllergy), Allergy::getDesignation);
+    classUnderTest.attachTo(entityManager);
+    when(entityManager.contains(mockAllergy)).thenReturn(false);
+    when(entityManager.contains(managedAllergy)).thenReturn(true);
+    when(entityManager.find(Allergy.class, 1L)).thenReturn(managedAllergy);
+
+    // When
+    Optional<Allergy> first = classUnderTest.lookup("allergy1");
+    Optional<Allergy> second = classUnderTest.lookup("allergy1");
+
+    // Then
+    assertThat(first).containsSame(managedAllergy);
+    assertThat(second).containsSame(managedAllergy);
+    verify(entityManager, times(1)).find(Allergy.class, 1L);
+
+  }
+
+}
@@ -0,0 +1,132 @@
+package com.safetynet.alert.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.safetynet.alert.exceptions.InvalidPageException;
+import com.safetynet.alert.model.Allergy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+
+@ExtendWith(MockitoExtension.class)
+class KeysetTest {
+
+  @Mock
+  private BiFunction<Long, Pageable, Slice<Allergy>> after;
+  @Mock
+  private BiFunction<Long, Pageable, Slice<Allergy>> before;
+
+  @Test
+  void of_shouldReturnFirstPageAscending_whenNoParameter() {
+
+    // When
+    Keyset keyset = Keyset.of(null, null, null);
+
+    // Then
+    assertThat(keyset.getDirection()).isEqualTo(Sort.Direction.ASC);
+    assertThat(keyset.getAfter()).isNull();
+    assertThat(keyset.getLimit()).isEqualTo(Keyset.DEFAULT_LIMIT);
+
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {0, -1, Keyset.MAX_LIMIT + 1})
+  void of_shouldThrowInvalidPageException_whenLimitOutOfRange(int limit) {
+
+    assertThatThrownBy(() -> Keyset.of(null, limit, null))
+        .isInstanceOf(InvalidPageException.class)
+        .hasMessage("the limit of a page must be between 1 and " + Keyset.MAX_LIMIT);
+
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"not base64 !", "eDEy", "YQ", "YWJj"})
+  void of_shouldThrowInvalidPageException_whenCursorIsInvalid(String cursor) {
+
+    assertThatThrownBy(() -> Keyset.of(cursor, 10, null))
+        .isInstanceOf(InvalidPageException.class)
+        .hasMessage("the cursor " + cursor + " is invalid");
+
+  }
+
+  @Test
+  void of_shouldThrowInvalidPageException_whenSortIsInvalid() {
+
+    assertThatThrownBy(() -> Keyset.of(null, 10, "name"))
+        .isInstanceOf(InvalidPageException.class)
+        .hasMessage("the sort of a page must be asc or desc");
+
+  }
+
+  @Test
+  void read_shouldGiveCursorOfNextPage_whenSliceHasNext() {
+
+    // Given
+    Allergy allergy1 = new Allergy(1L, "allergy1", null);
+    Allergy allergy2 = new Allergy(2L, "allergy2", null);
+    ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+    when(after.apply(Mockito.eq(Long.MIN_VALUE), pageableCaptor.capture()))
+        .thenReturn(new SliceImpl<>(Arrays.asList(allergy1, allergy2), Pageable.unpaged(), true));
+    when(after.apply(Mockito.eq(2L), Mockito.any()))
+        .thenReturn(new SliceImpl<>(Collections.emptyList(), Pageable.unpaged(), false));
+
+    // When
+    KeysetPage<Allergy> firstPage = Keyset.of(null, 2, "asc")
+        .read(after, before, Allergy::getIdAllergy, "idAllergy");
+    KeysetPage<Allergy> nextPage = Keyset.of(firstPage.getNextCursor(), 2, null)
+        .read(after, before, Allergy::getIdAllergy, "idAllergy");
+
+    // Then
+    assertThat(firstPage.getContent()).containsExactly(allergy1, allergy2);
+    assertThat(firstPage.getNextCursor()).isNotNull();
+    assertThat(pageableCaptor.getValue().getPageNumber()).isZero();
+    assertThat(pageableCaptor.getValue().getPageSize()).isEqualTo(2);
+    assertThat(pageableCaptor.getValue().getSort().getOrderFor("idAllergy").isAscending())
+        .isTrue();
+    assertThat(nextPage.getContent()).isEmpty();
+    assertThat(nextPage.getNextCursor()).isNull();
+    verify(before, never()).apply(Mockito.any(), Mockito.any());
+
+  }
+
+  @Test
+  void read_shouldReadBeforeLastId_whenCursorOfDescendingPage() {
+
+    // Given
+    Allergy allergy3 = new Allergy(3L, "allergy3", null);
+    when(before.apply(Mockito.eq(Long.MAX_VALUE), Mockito.any()))
+        .thenReturn(new SliceImpl<>(Arrays.asList(allergy3), Pageable.unpaged(), true));
+    when(before.apply(Mockito.eq(3L), Mockito.any()))
+        .thenReturn(new SliceImpl<>(Collections.emptyList(), Pageable.unpaged(), false));
+
+    // When
+    KeysetPage<Allergy> firstPage = Keyset.of(null, 1, "desc")
+        .read(after, before, Allergy::getIdAllergy, "idAllergy");
+    // the sort of cursor is kept
+    Keyset nextKeyset = Keyset.of(firstPage.getNextCursor(), 1, "asc");
+    nextKeyset.read(after, before, Allergy::getIdAllergy, "idAllergy");
+
+    // Then
+    assertThat(nextKeyset.getDirection()).isEqualTo(Sort.Direction.DESC);
+    assertThat(nextKeyset.getAfter()).isEqualTo(3L);
+    verify(after, never()).apply(Mockito.any(), Mockito.any());
+
+  }
+
+}
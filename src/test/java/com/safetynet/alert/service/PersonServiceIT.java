@@ -4,18 +4,22 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertThrows;
 
 import com.safetynet.alert.CommandLineRunnerTaskExcecutor;
+import com.safetynet.alert.configuration.QueryCountInspector;
 import com.safetynet.alert.database.LoadDataStrategyFactory;
 import com.safetynet.alert.database.StrategyName;
 import com.safetynet.alert.model.Person;
+import com.safetynet.alert.repository.PersonRepository;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
 import org.junit.jupiter.api.Order;
@@ -27,6 +31,8 @@ import org.junit.jupiter.params.provider.CsvSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.test.annotation.DirtiesContext;
 
 @SpringBootTest
@@ -44,6 +50,15 @@ class PersonServiceIT {
   @Autowired
   PersonService classUnderTest;
 
+  @Autowired
+  PersonRepository personRepository;
+
+  @Autowired
+  QueryCountInspector queryCountInspector;
+
+  @Autowired
+  CacheManager cacheManager;
+
   @BeforeEach
   void setUp() throws Exception {
 
@@ -567,7 +582,7 @@ class PersonServiceIT {
     Map<String, List<Person>> result;
 
     //When
-    result = classUnderTest.getPersonsWhenFloodByStations(numberStations);
+    result = classUnderTest.getPersonsWhenFloodByStations(numberStations).getHomes();
     //Then
 
     assertThat(result).size().isEqualTo(3);
@@ -671,13 +686,38 @@ class PersonServiceIT {
     Map<String, List<Person>> result = new HashMap<>();
 
     //When
-    result = classUnderTest.getPersonsWhenFloodByStations(numberStations);
+    result = classUnderTest.getPersonsWhenFloodByStations(numberStations).getHomes();
 
     //Then
     assertThat(result).isEmpty();
 
   }
 
+  @Test
+  @Order(24)
+  void getPersonsWhenFloodByStations_withRepository_thenExistedStationsAndPersonsInOneQuery() {
+
+    //Given
+    List<Integer> numberStations = Arrays.asList(3, 2, 6);
+
+    //When
+    List<Object[]> rows = personRepository.getPersonsWhenFloodByStations(numberStations);
+
+    //Then
+    Set<Object> existedStations = new HashSet<>();
+    Set<Object> persons = new HashSet<>();
+
+    for (Object[] row : rows) {
+
+      existedStations.add(row[0]);
+      persons.add(row[1]);
+    }
+
+    assertThat(existedStations).containsExactlyInAnyOrder(2, 3);
+    assertThat(persons).hasSize(8).doesNotContainNull();
+
+  }
+
   @Test
   @Order(24)
   void getPersonInfoByName_whenExistedFirstNameAndLastName() {
@@ -700,4 +740,85 @@ class PersonServiceIT {
 
   }
 
+  @Test
+  @Order(25)
+  void getPersonsWhenFire_withRepository_thenMedicationsAndAllergiesByKeyedQueries() {
+
+    //Given
+    long statementsBefore = queryCountInspector.getCount();
+
+    //When
+    List<Person> result = personRepository.getPersonsWhenFire("1509 Culver St");
+
+    //Then
+    // persons, medications and allergies: no row by medication x allergy
+    assertThat(queryCountInspector.getCount() - statementsBefore).isEqualTo(3L);
+    assertThat(result).hasSize(5).doesNotHaveDuplicates();
+    Person jacob = result.stream()
+        .filter(person -> person.getFirstName().equals("Jacob")).findFirst().get();
+    assertThat(jacob.getFireStations()).hasSize(1);
+    assertThat(jacob.getMedicalRecord().getMedications()).hasSize(3);
+    assertThat(jacob.getMedicalRecord().getAllergies()).isEmpty();
+
+  }
+
+  @Test
+  @Order(26)
+  void getPersonInfoByNames_withRepository_thenPersonWithFirstNameAtFirst() {
+
+    //Given
+    long statementsBefore = queryCountInspector.getCount();
+
+    //When
+    List<Person> result = personRepository.getPersonInfoByNames("Felicia", "Boyd");
+
+    //Then
+    assertThat(queryCountInspector.getCount() - statementsBefore).isEqualTo(3L);
+    assertThat(result).hasSize(5).doesNotHaveDuplicates();
+    assertThat(result.get(0).getFirstName()).isEqualTo("Felicia");
+    assertThat(result.get(0).getMedicalRecord().getMedications()).hasSize(1);
+    assertThat(result.get(0).getMedicalRecord().getAllergies()).hasSize(1);
+
+  }
+
+  @Test
+  @Order(27)
+  void getPersonsWhenFireByAddresses_withRepository_thenAllAddressesByThreeQueries() {
+
+    //Given
+    long statementsBefore = queryCountInspector.getCount();
+
+    //When
+    List<Person> result = personRepository.getPersonsWhenFireByAddresses(
+        Arrays.asList("1509 Culver St", "29 15th St", "addressNotFound"));
+
+    //Then
+    assertThat(queryCountInspector.getCount() - statementsBefore).isEqualTo(3L);
+    assertThat(result).hasSize(7).doesNotHaveDuplicates();
+    assertThat(result).extracting(Person::getAddress).containsSequence(
+        "1509 Culver St", "1509 Culver St", "1509 Culver St", "1509 Culver St",
+        "1509 Culver St", "29 15th St", "29 15th St");
+    Person jacob = result.stream()
+        .filter(person -> person.getFirstName().equals("Jacob")).findFirst().get();
+    assertThat(jacob.getMedicalRecord().getMedications()).hasSize(3);
+
+  }
+
+  @Test
+  @Order(28)
+  void getPersonsWhenFloodByStations_whenStationNotFound_thenResultNotCached() {
+
+    //Given
+    Cache cache = cacheManager.getCache(PersonService.FLOOD_STATIONS_CACHE);
+
+    //When
+    classUnderTest.getPersonsWhenFloodByStations(Arrays.asList(3, 99));
+    classUnderTest.getPersonsWhenFloodByStations(Arrays.asList(3, 2));
+
+    //Then
+    assertThat(cache.get(new TreeSet<>(Arrays.asList(3, 99)))).isNull();
+    assertThat(cache.get(new TreeSet<>(Arrays.asList(2, 3)))).isNotNull();
+
+  }
+
 }
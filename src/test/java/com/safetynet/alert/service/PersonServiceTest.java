@@ -661,16 +661,19 @@ class PersonServiceTest {
                                     "db@email.com", null, null);
     mockPersons.add(mockPerson2);
 
-    when(personRepository.getPersonsWhenFlood(Mockito.anyInt()))
-        .thenReturn(new ArrayList(mockPersons));
+    when(personRepository.getPersonsWhenFloodByStations(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(new Object[] {1, mockPerson}, new Object[] {2, mockPerson2}));
 
-    List<Integer> numberStations = Arrays.asList(1, 2);
+    List<Integer> numberStations = Arrays.asList(2, 1);
     Map<String, List<Person>> result;
 
     //When
-    result = classUnderTest.getPersonsWhenFloodByStations(numberStations);
+    FloodStations floodStations = classUnderTest.getPersonsWhenFloodByStations(numberStations);
+    result = floodStations.getHomes();
     //Then
 
+    assertThat(floodStations.getNotFoundStations()).isEmpty();
+
     assertThat(result).size().isEqualTo(2);
     assertThat(result.keySet())
         .containsExactlyInAnyOrder("26 av Marechal Foch", "310 Rue Jean Jaures");
@@ -702,14 +705,16 @@ class PersonServiceTest {
     List<Integer> numberStations = Arrays.asList(4);
     Map<String, List<Person>> result = new HashMap<>();
 
-    when(personRepository.getPersonsWhenFlood(Mockito.anyInt()))
-        .thenReturn(new ArrayList());
+    when(personRepository.getPersonsWhenFloodByStations(Mockito.anyCollection()))
+        .thenReturn(Arrays.<Object[]>asList(new Object[] {4, null}));
 
     //When
-    result = classUnderTest.getPersonsWhenFloodByStations(numberStations);
+    FloodStations floodStations = classUnderTest.getPersonsWhenFloodByStations(numberStations);
+    result = floodStations.getHomes();
 
     //Then
     assertThat(result).isEmpty();
+    assertThat(floodStations.getNotFoundStations()).isEmpty();
 
   }
 
@@ -746,4 +751,109 @@ class PersonServiceTest {
     assertThat(firstPerson.getMedicalRecord()).isNull();
 
   }
+
+  @Test
+  @Order(26)
+  void getPersonsWhenFloodByStation_whenAddressMappedWithSeveralStations() {
+
+    //Given
+    Calendar cal = Calendar.getInstance();
+    cal.add(Calendar.YEAR, -40);
+    Person mockPerson2 = new Person(2L, "Bernard", "Delaval", cal.getTime(),
+                                    "26 av Marechal Foch", "Culver", 97451, "061-846-0260",
+                                    "db@email.com", null, null);
+    Person mockPerson3 = new Person(3L, "Jacob", "Boyd", null,
+                                    "1509 Culver St", "Culver", 97451, "841-874-6513",
+                                    "drk@email.com", null, null);
+
+    // address of mockPerson and mockPerson2 is mapped with stations 1 and 2
+    when(personRepository.getPersonsWhenFloodByStations(Mockito.anyCollection()))
+        .thenReturn(Arrays.asList(new Object[] {2, mockPerson3},
+            new Object[] {1, mockPerson},
+            new Object[] {2, mockPerson},
+            new Object[] {2, mockPerson2},
+            new Object[] {1, mockPerson2},
+            new Object[] {1, mockPerson}));
+
+    //When
+    FloodStations floodStations =
+        classUnderTest.getPersonsWhenFloodByStations(Arrays.asList(2, 1));
+
+    //Then
+    assertThat(floodStations.getHomes().keySet())
+        .containsExactly("1509 Culver St", "26 av Marechal Foch");
+    assertThat(floodStations.getHomes().get("26 av Marechal Foch"))
+        .containsExactly(mockPerson2, mockPerson);
+    assertThat(floodStations.getHomes().get("1509 Culver St")).containsExactly(mockPerson3);
+
+  }
+
+  @Test
+  @Order(27)
+  void getPersonsWhenFloodByStation_whenStationNotExisted() {
+
+    //Given
+    when(personRepository.getPersonsWhenFloodByStations(Mockito.anyCollection()))
+        .thenReturn(Arrays.<Object[]>asList(new Object[] {1, mockPerson}));
+
+    //When
+    FloodStations floodStations =
+        classUnderTest.getPersonsWhenFloodByStations(Arrays.asList(3, 1, 5));
+
+    //Then
+    assertThat(floodStations.getNotFoundStations()).containsExactly(3, 5);
+    assertThat(floodStations.getHomes()).containsOnlyKeys("26 av Marechal Foch");
+    verify(personRepository, times(1)).getPersonsWhenFloodByStations(Mockito.anyCollection());
+
+  }
+
+  @Test
+  @Order(28)
+  void getPersonsMappedWithFireStation_whenPersonsNotAsked_thenReturnOnlyCounts() {
+
+    //Given
+    when(personRepository.getPersonsMappedByNumberStation(Mockito.anyInt()))
+        .thenReturn(new ArrayList(mockPersons));
+
+    //When
+    Map<String, Object> map = classUnderTest.getPersonsMappedWithFireStation(3, false);
+
+    //Then
+    assertThat(map).containsOnlyKeys("AdultCount", "ChildrenCount");
+    assertThat(map.get("ChildrenCount")).isEqualTo(1);
+    assertThat(mockPerson.getBirthDate()).isNotNull();
+
+  }
+
+  @Test
+  @Order(29)
+  void forEachAddressWhenFire_withoutReadModel_thenAddressesResolvedByChunks() {
+
+    //Given
+    List<String> addresses = new ArrayList<>();
+
+    for (int i = 0; i < 600; i++) {
+
+      addresses.add("address" + i);
+    }
+    // duplicated address is resolved once
+    addresses.add("address0");
+    mockPerson.setAddress("address599");
+    when(personRepository.getPersonsWhenFireByAddresses(Mockito.anyCollection()))
+        .thenReturn(new ArrayList<>())
+        .thenReturn(Arrays.asList(mockPerson));
+    Map<String, List<Person>> result = new LinkedHashMap<>();
+
+    //When
+    long count = classUnderTest.forEachAddressWhenFire(addresses, result::put);
+
+    //Then
+    assertThat(count).isEqualTo(600);
+    assertThat(result).hasSize(600);
+    assertThat(result.keySet()).startsWith("address0", "address1");
+    assertThat(result.get("address0")).isEmpty();
+    assertThat(result.get("address599")).containsExactly(mockPerson);
+    verify(personRepository, times(2)).getPersonsWhenFireByAddresses(Mockito.anyCollection());
+
+  }
 }
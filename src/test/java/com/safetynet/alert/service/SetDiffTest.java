@@ -0,0 +1,96 @@
+package com.safetynet.alert.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.safetynet.alert.model.Allergy;
+import com.safetynet.alert.model.Medication;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class SetDiffTest {
+
+  @Test
+  void between_shouldKeepCurrentEntities_whenTheirNaturalKeyIsRequested() {
+
+    // Given
+    Allergy currentAllergy = new Allergy(1L, "allergy1", null);
+    Allergy requestedAllergy = new Allergy(null, "allergy1", null);
+
+    // When
+    SetDiff<String, Allergy> result = SetDiff.between(Arrays.asList(currentAllergy),
+        Arrays.asList(requestedAllergy), Allergy::getDesignation);
+
+    // Then
+    assertThat(result.getKept()).containsOnlyKeys("allergy1");
+    assertThat(result.getKept().get("allergy1")).isSameAs(currentAllergy);
+    assertThat(result.getAdded()).isEmpty();
+    assertThat(result.getRemoved()).isEmpty();
+
+  }
+
+  @Test
+  void between_shouldGiveAddedAndRemovedEntities_whenNaturalKeysChange() {
+
+    // Given
+    Medication currentMedication1 = new Medication(1L, "medication1", "100mg", null);
+    Medication currentMedication2 = new Medication(2L, "medication2", "200mg", null);
+    Medication requestedMedication1 = new Medication(null, "medication1", "100mg", null);
+    Medication requestedMedication3 = new Medication(null, "medication1", "200mg", null);
+
+    // When
+    SetDiff<MedicationService.NaturalKey, Medication> result = SetDiff.between(
+        Arrays.asList(currentMedication1, currentMedication2),
+        Arrays.asList(requestedMedication1, requestedMedication3),
+        MedicationService::naturalKey);
+
+    // Then
+    assertThat(result.getKept())
+        .containsOnlyKeys(MedicationService.naturalKey("medication1", "100mg"));
+    assertThat(result.getAdded())
+        .containsOnlyKeys(MedicationService.naturalKey("medication1", "200mg"));
+    assertThat(result.getAdded().get(MedicationService.naturalKey("medication1", "200mg")))
+        .isSameAs(requestedMedication3);
+    assertThat(result.getRemoved())
+        .containsOnlyKeys(MedicationService.naturalKey("medication2", "200mg"));
+
+  }
+
+  @Test
+  void between_shouldGiveAddedAndRemovedMedications_whenDesignationContainsColon() {
+
+    // Given
+    Medication currentMedication = new Medication(1L, "medication:1", "100mg", null);
+    Medication requestedMedication = new Medication(null, "medication", "1:100mg", null);
+
+    // When
+    SetDiff<MedicationService.NaturalKey, Medication> result = SetDiff.between(
+        Arrays.asList(currentMedication),
+        Arrays.asList(requestedMedication),
+        MedicationService::naturalKey);
+
+    // Then
+    assertThat(result.getKept()).isEmpty();
+    assertThat(result.getAdded().values()).containsOnly(requestedMedication);
+    assertThat(result.getRemoved().values()).containsOnly(currentMedication);
+
+  }
+
+  @Test
+  void between_shouldAddOnlyOnce_whenNaturalKeyIsRequestedTwice() {
+
+    // Given
+    Allergy requestedAllergy = new Allergy(null, "allergy1", null);
+    Allergy sameRequestedAllergy = new Allergy(null, "allergy1", null);
+
+    // When
+    SetDiff<String, Allergy> result = SetDiff.between(Collections.emptyList(),
+        Arrays.asList(requestedAllergy, sameRequestedAllergy), Allergy::getDesignation);
+
+    // Then
+    assertThat(result.getAdded()).hasSize(1);
+    assertThat(result.getAdded().get("allergy1")).isSameAs(requestedAllergy);
+
+  }
+
+}